@@ -0,0 +1,156 @@
+package com.roleopt.rolemining.admission;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for memory-hungry jobs (uploads, mining runs). The budget is shared by the
+ * loaded dataset, whose retained size is measured after every upload, and the estimated working
+ * sets of the jobs in flight. A job that cannot fit even on an idle server is refused outright;
+ * one that only lacks room next to the jobs already running waits up to the queue timeout and is
+ * then refused, so one oversized request cannot take the instance down for everyone.
+ */
+@Component
+public class MemoryBudget {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryBudget.class);
+
+    // Share of the maximum heap used as budget when none is configured
+    private static final double DEFAULT_HEAP_SHARE = 0.75;
+
+    @Value("${role-mining.memory.admission-enabled:true}")
+    private boolean enabled;
+
+    // 0 means DEFAULT_HEAP_SHARE of -Xmx
+    @Value("${role-mining.memory.budget-bytes:0}")
+    private long budgetBytes;
+
+    @Value("${role-mining.memory.queue-timeout-ms:10000}")
+    private long queueTimeoutMs;
+
+    private long datasetBytes;
+    private long reservedBytes;
+    private int inFlight;
+    private int waiting;
+    private long admitted;
+    private long rejectedTooLarge;
+    private long rejectedBusy;
+
+    /**
+     * Memory held for one job until it is closed
+     */
+    public final class Reservation implements AutoCloseable {
+        private final long bytes;
+        private boolean released;
+
+        // Only created while holding the budget's lock
+        private Reservation(long bytes) {
+            this.bytes = bytes;
+            inFlight++;
+        }
+
+        @Override
+        public void close() {
+            synchronized (MemoryBudget.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                reservedBytes -= bytes;
+                inFlight--;
+                MemoryBudget.this.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Hold {@code bytes} of the budget for a job, waiting for running jobs to finish if needed.
+     *
+     * @param job description used in logs and in the refusal
+     * @throws MemoryBudgetExceededException if the job can never fit or did not fit within the queue timeout
+     */
+    public synchronized Reservation reserve(String job, long bytes) {
+        if (!enabled) {
+            return new Reservation(0);
+        }
+        long budget = effectiveBudget();
+        if (datasetBytes + bytes > budget) {
+            rejectedTooLarge++;
+            log.warn("Refusing {}: needs ~{} MB, budget {} MB of which the dataset holds {} MB", job,
+                    bytes >> 20, budget >> 20, datasetBytes >> 20);
+            throw refusal(job, true, bytes, budget);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+        waiting++;
+        try {
+            while (datasetBytes + reservedBytes + bytes > budget) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    rejectedBusy++;
+                    log.warn("Refusing {} after {} ms in queue: needs ~{} MB, {} MB free", job, queueTimeoutMs,
+                            bytes >> 20, (budget - datasetBytes - reservedBytes) >> 20);
+                    throw refusal(job, false, bytes, budget);
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedBusy++;
+            throw refusal(job, false, bytes, budget);
+        } finally {
+            waiting--;
+        }
+
+        reservedBytes += bytes;
+        admitted++;
+        log.debug("Admitted {} with ~{} MB; {} MB reserved", job, bytes >> 20, reservedBytes >> 20);
+        return new Reservation(bytes);
+    }
+
+    /**
+     * Record the measured retained size of the dataset now loaded, replacing the previous one
+     */
+    public synchronized void setDatasetBytes(long bytes) {
+        this.datasetBytes = bytes;
+        notifyAll();
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("budgetBytes", effectiveBudget());
+        stats.put("datasetBytes", datasetBytes);
+        stats.put("reservedBytes", reservedBytes);
+        stats.put("availableBytes", Math.max(0, effectiveBudget() - datasetBytes - reservedBytes));
+        stats.put("inFlight", inFlight);
+        stats.put("waiting", waiting);
+        stats.put("admitted", admitted);
+        stats.put("rejectedTooLarge", rejectedTooLarge);
+        stats.put("rejectedBusy", rejectedBusy);
+        stats.put("heapUsedBytes", Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+        stats.put("heapMaxBytes", Runtime.getRuntime().maxMemory());
+        return stats;
+    }
+
+    private long effectiveBudget() {
+        return budgetBytes > 0 ? budgetBytes : (long) (Runtime.getRuntime().maxMemory() * DEFAULT_HEAP_SHARE);
+    }
+
+    private MemoryBudgetExceededException refusal(String job, boolean tooLarge, long bytes, long budget) {
+        long available = Math.max(0, budget - datasetBytes - (tooLarge ? 0 : reservedBytes));
+        String message = tooLarge
+                ? String.format("%s needs about %d MB but only %d MB of the %d MB memory budget is left next to the loaded dataset",
+                        job, bytes >> 20, available >> 20, budget >> 20)
+                : String.format("%s needs about %d MB; the server is busy with other jobs, retry later",
+                        job, bytes >> 20);
+        return new MemoryBudgetExceededException(message, job, tooLarge, bytes, available, budget,
+                Math.max(1, TimeUnit.MILLISECONDS.toSeconds(queueTimeoutMs)));
+    }
+}
@@ -0,0 +1,53 @@
+package com.roleopt.rolemining.admission;
+
+/**
+ * A job was refused by {@link MemoryBudget}: either it could never fit ({@link #isTooLarge()}, HTTP 413)
+ * or it did not fit alongside the jobs already running within the queue timeout (HTTP 429).
+ */
+public class MemoryBudgetExceededException extends RuntimeException {
+
+    private final String job;
+    private final boolean tooLarge;
+    private final long requiredBytes;
+    private final long availableBytes;
+    private final long budgetBytes;
+    private final long retryAfterSeconds;
+
+    MemoryBudgetExceededException(String message, String job, boolean tooLarge, long requiredBytes,
+                                  long availableBytes, long budgetBytes, long retryAfterSeconds) {
+        super(message);
+        this.job = job;
+        this.tooLarge = tooLarge;
+        this.requiredBytes = requiredBytes;
+        this.availableBytes = availableBytes;
+        this.budgetBytes = budgetBytes;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getJob() {
+        return job;
+    }
+
+    /**
+     * True if the job exceeds the budget even with nothing else running, so retrying cannot help
+     */
+    public boolean isTooLarge() {
+        return tooLarge;
+    }
+
+    public long getRequiredBytes() {
+        return requiredBytes;
+    }
+
+    public long getAvailableBytes() {
+        return availableBytes;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,163 @@
+package com.roleopt.rolemining.admission;
+
+import com.roleopt.rolemining.index.DatasetIndex;
+import com.roleopt.rolemining.model.Application;
+import com.roleopt.rolemining.model.Assignment;
+import com.roleopt.rolemining.model.Entitlement;
+import com.roleopt.rolemining.model.OrganizationalUnit;
+import com.roleopt.rolemining.model.User;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heap estimates for {@link MemoryBudget}: what an upload or a mining run will need before it
+ * starts, and what a loaded dataset actually retains. Sizes assume a 64-bit JVM with compressed
+ * oops and compact (Latin-1) strings; they aim to be within a small factor, not exact.
+ */
+public final class MemoryEstimator {
+
+    public static final String FEED_OU = "ou";
+    public static final String FEED_USERS = "users";
+    public static final String FEED_APPLICATIONS = "applications";
+    public static final String FEED_ENTITLEMENTS = "entitlements";
+    public static final String FEED_ASSIGNMENTS = "assignments";
+
+    // Object layout (bytes)
+    public static final long ARRAY_HEADER = 16;
+    static final long REFERENCE = 4;
+    static final long STRING_OVERHEAD = 40;
+    // HashMap node plus its share of the table
+    static final long MAP_ENTRY = 40;
+    static final long EMPTY_COLLECTION = 48;
+
+    // Heap per parsed row besides the field text, for the upload maps, the mining service's copies
+    // and the indexes built over them (fields x string overhead + object + map entries + index slots)
+    private static final long OU_ROW_BYTES = 3 * STRING_OVERHEAD + 32 + EMPTY_COLLECTION + 2 * MAP_ENTRY;
+    private static final long USER_ROW_BYTES = 3 * STRING_OVERHEAD + 32 + 3 * MAP_ENTRY + 16 + 24;
+    private static final long APPLICATION_ROW_BYTES = 3 * STRING_OVERHEAD + 32 + EMPTY_COLLECTION + 2 * MAP_ENTRY;
+    private static final long ENTITLEMENT_ROW_BYTES = 3 * STRING_OVERHEAD + 40 + 2 * EMPTY_COLLECTION
+            + 3 * MAP_ENTRY + 200;
+    // While parsing, each assignment row holds its own two id strings until grouped per user;
+    // afterwards a list slot, and two matrix ints plus the build's scratch array
+    private static final long ASSIGNMENT_ROW_BYTES = 2 * STRING_OVERHEAD + 8 + 4 + 12;
+
+    // Working set of one clustering run: per user its group ordinal, its slot in the group member
+    // array and bitmap, and the role member string; per grant the row read from the matrix, the
+    // group's entitlement ordinals and its share of the permission strings
+    private static final long MINING_USER_BYTES = 3 * 4 + STRING_OVERHEAD + 80;
+    private static final long MINING_GRANT_BYTES = 4 + 4 + 24;
+    // Similarity clustering keeps group vectors and candidate pairs on top
+    private static final double SIMILARITY_FACTOR = 1.5;
+
+    private MemoryEstimator() {
+    }
+
+    /**
+     * Heap needed to load one feed of an upload
+     *
+     * @param feed  one of the FEED_ constants
+     * @param rows  data rows in the file
+     * @param bytes file size; the field text ends up on the heap once, as strings
+     */
+    public static long feedBytes(String feed, long rows, long bytes) {
+        long perRow;
+        switch (feed) {
+            case FEED_OU: perRow = OU_ROW_BYTES; break;
+            case FEED_USERS: perRow = USER_ROW_BYTES; break;
+            case FEED_APPLICATIONS: perRow = APPLICATION_ROW_BYTES; break;
+            case FEED_ENTITLEMENTS: perRow = ENTITLEMENT_ROW_BYTES; break;
+            case FEED_ASSIGNMENTS: perRow = ASSIGNMENT_ROW_BYTES; break;
+            default: throw new IllegalArgumentException("Unknown feed: " + feed);
+        }
+        return rows * perRow + bytes;
+    }
+
+    /**
+     * Data rows of a CSV stream (lines after the header), counted without parsing. The stream is read
+     * to the end but not closed.
+     */
+    public static long countRows(InputStream in) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long lines = 0;
+        boolean pending = false;
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    lines++;
+                }
+            }
+            pending = buffer[read - 1] != '\n';
+        }
+        // A last line without a newline still counts; the header does not
+        return Math.max(0, lines + (pending ? 1 : 0) - 1);
+    }
+
+    /**
+     * Peak heap of one clustering run over a dataset of this size, result included
+     */
+    public static long miningRunBytes(long users, long grants, boolean similarity) {
+        long bytes = users * MINING_USER_BYTES + grants * MINING_GRANT_BYTES;
+        return similarity ? (long) (bytes * SIMILARITY_FACTOR) : bytes;
+    }
+
+    /**
+     * Heap retained by a loaded dataset: the entity objects, the maps holding them (OUs and applications
+     * in both the upload and the mining service, the rest in the mining service only) and the dataset's
+     * indexes. The entities stay on the heap whatever the index storage, since AI prompts are built from
+     * them. Walks every object, so it costs about as much as one pass over the data.
+     */
+    public static long datasetBytes(Map<String, User> users, Map<String, OrganizationalUnit> ous,
+                                    Map<String, Application> applications, Map<String, Entitlement> entitlements,
+                                    List<Assignment> assignments, DatasetIndex index) {
+        long bytes = 0;
+        for (OrganizationalUnit ou : ous.values()) {
+            bytes += 32 + string(ou.getOuId()) + string(ou.getName()) + string(ou.getDescription())
+                    + list(ou.getUsers());
+        }
+        for (User user : users.values()) {
+            bytes += 32 + string(user.getUserId()) + string(user.getFirstName()) + string(user.getLastName());
+        }
+        for (Application application : applications.values()) {
+            bytes += 32 + string(application.getApplicationId()) + string(application.getName())
+                    + string(application.getDescription()) + list(application.getEntitlements());
+        }
+        for (Entitlement entitlement : entitlements.values()) {
+            bytes += 40 + string(entitlement.getEntitlementId()) + string(entitlement.getName())
+                    + string(entitlement.getDescription()) + 2 * EMPTY_COLLECTION;
+        }
+        for (Assignment assignment : assignments) {
+            bytes += 32 + list(assignment.getEntitlements());
+        }
+        bytes += list(assignments);
+        bytes += (2L * (ous.size() + applications.size()) + users.size() + entitlements.size()) * MAP_ENTRY;
+        if (index != null) {
+            bytes += index.retainedBytes();
+        }
+        return bytes;
+    }
+
+    public static long string(String value) {
+        return value == null ? 0 : STRING_OVERHEAD + value.length();
+    }
+
+    public static long list(Collection<?> values) {
+        return values == null ? 0 : 24 + refArray(values.size());
+    }
+
+    public static long refArray(long length) {
+        return ARRAY_HEADER + REFERENCE * length;
+    }
+
+    public static long intArray(long length) {
+        return ARRAY_HEADER + 4 * length;
+    }
+
+    public static long mapEntries(long entries) {
+        return 48 + MAP_ENTRY * entries;
+    }
+}
@@ -0,0 +1,183 @@
+package com.roleopt.rolemining.ai;
+
+import com.roleopt.rolemining.dto.RoleDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Turns the answer of the chat model into RoleDTOs. Owns the answer format: {@link #formatInstructions()}
+ * tells the model how to answer, and {@link #newStreamParser(Consumer)} returns the matching parser.
+ * <ul>
+ *     <li>{@code llm.response.format=json}: the model is asked for a JSON document with a fixed role
+ *     schema, read by {@link JsonRoleParser};</li>
+ *     <li>{@code llm.response.format=text}: the "Role N / Name / Key permissions" layout, read line by
+ *     line by {@link IncrementalRoleParser}.</li>
+ * </ul>
+ * Either way the answer is scanned once. Roles carry only what the model wrote; members, applications
+ * and confidence are checked against real data by {@link RoleGrounder}.
+ */
+@Component
+public class AIResponseParser {
+
+    private static final Logger log = LoggerFactory.getLogger(AIResponseParser.class);
+
+    private static final Pattern MARKDOWN_BOLD = Pattern.compile("\\*\\*");
+    private static final Pattern BRACKETS = Pattern.compile("[\\[\\]]");
+
+    // Used when the model gives no confidence of its own
+    private static final int DEFAULT_CONFIDENCE = 70;
+
+    private static final String JSON_INSTRUCTIONS =
+            "Respond with a single JSON object and nothing else, matching this schema:\n" +
+            "{\"roles\": [{\"name\": string, \"permissions\": [string, ...], \"userCount\": integer, " +
+            "\"confidence\": integer 0-100, \"justification\": string}]}\n" +
+            "Write each permission exactly as it appears in the data, as \"Application: Permission\".\n";
+
+    private static final String TEXT_INSTRUCTIONS =
+            "Your response MUST follow this exact format for each role:\n\n" +
+            "Role 1:\n" +
+            "Name: [Role Name]\n" +
+            "Key permissions:\n" +
+            "- [Permission 1]\n" +
+            "- [Permission 2]\n" +
+            "Estimated user count: [Number]\n" +
+            "Confidence: [Number 0-100]\n" +
+            "Justification: [Brief explanation]\n\n" +
+            "Role 2:\n" +
+            "[...and so on]\n";
+
+    // 'text' or 'json'
+    @Value("${llm.response.format:text}")
+    private String responseFormat;
+    
+    private final LlmMetrics metrics;
+    
+    public AIResponseParser(LlmMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public boolean isJsonFormat() {
+        return "json".equalsIgnoreCase(responseFormat.trim());
+    }
+
+    /**
+     * Answer-format part of the prompt, matching the parser returned by {@link #newStreamParser(Consumer)}.
+     */
+    public String formatInstructions() {
+        return isJsonFormat() ? JSON_INSTRUCTIONS : TEXT_INSTRUCTIONS;
+    }
+
+    /**
+     * Parser for an answer that arrives token by token; each role is handed to {@code onRole} as soon
+     * as it is complete.
+     */
+    public RoleStreamParser newStreamParser(Consumer<RoleDTO> onRole) {
+        RoleStreamParser parser = isJsonFormat() ? new JsonRoleParser(this, onRole) : new IncrementalRoleParser(this, onRole);
+        String format = isJsonFormat() ? "json" : "text";
+        // Every answer, streamed or not, ends in finish(): count parse outcomes there
+        return new RoleStreamParser() {
+            @Override
+            public void accept(String chunk) {
+                parser.accept(chunk);
+            }
+            
+            @Override
+            public List<RoleDTO> finish() {
+                List<RoleDTO> roles = parser.finish();
+                metrics.recordParse(format, roles.size());
+                return roles;
+            }
+        };
+    }
+
+    public List<RoleDTO> parse(String aiResponse) {
+        if (aiResponse == null || aiResponse.isEmpty()) {
+            log.warn("AI response is empty, returning empty suggested roles list");
+            return new ArrayList<>();
+        }
+
+        long start = System.nanoTime();
+        RoleStreamParser parser = newStreamParser(role -> { });
+        parser.accept(aiResponse);
+        List<RoleDTO> roles = parser.finish();
+
+        if (roles.isEmpty()) {
+            log.warn("No roles found in AI response of {} characters", aiResponse.length());
+        } else {
+            log.info("Parsed {} role(s) from {} characters in {} us", roles.size(), aiResponse.length(),
+                    (System.nanoTime() - start) / 1000);
+        }
+        return roles;
+    }
+
+    /**
+     * Whether the answer parses into at least one role; unlike {@link #parse(String)}, not counted in
+     * the parse metrics
+     */
+    public boolean hasRoles(String aiResponse) {
+        if (aiResponse == null || aiResponse.isEmpty()) {
+            return false;
+        }
+        RoleStreamParser parser = isJsonFormat() ? new JsonRoleParser(this, role -> { })
+                : new IncrementalRoleParser(this, role -> { });
+        parser.accept(aiResponse);
+        return !parser.finish().isEmpty();
+    }
+
+    /**
+     * Build a role from the fields read out of one role of the answer. Missing fields get neutral
+     * defaults; a role is never dropped for lacking them.
+     */
+    RoleDTO newRole(int number, String name, List<String> permissions, Integer userCount,
+                    Integer confidence, String justification) {
+        RoleDTO role = new RoleDTO();
+        role.setId((long) (100 + number));
+        role.setName(name == null || name.isEmpty() ? "AI Role " + number : name);
+        role.setUserCount(userCount == null ? 0 : userCount);
+        role.setConfidence(confidence == null ? DEFAULT_CONFIDENCE : Math.max(0, Math.min(100, confidence)));
+        role.setAiGenerated(true);
+        role.setPermissions(permissions);
+        role.setPermissionCount(permissions.size());
+        role.setApplications(applicationsOf(permissions));
+        // Members come from real data via RoleGrounder
+        role.setUsers(new ArrayList<>());
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("justification", justification == null ? "" : justification);
+        role.setAttributes(attributes);
+        return role;
+    }
+
+    /**
+     * Applications named as "App: Permission" prefixes, in order of first appearance
+     */
+    private List<String> applicationsOf(List<String> permissions) {
+        Set<String> applications = new LinkedHashSet<>();
+        for (String permission : permissions) {
+            int colon = permission.indexOf(':');
+            if (colon > 0) {
+                applications.add(permission.substring(0, colon).trim());
+            }
+        }
+        return new ArrayList<>(applications);
+    }
+
+    /**
+     * Clean up role name - remove markdown formatting, any "Name:" prefix and template brackets
+     */
+    public String cleanRoleName(String rawName) {
+        String roleName = MARKDOWN_BOLD.matcher(rawName.trim()).replaceAll("").trim();
+        if (roleName.toLowerCase().startsWith("name:")) {
+            roleName = roleName.substring(roleName.indexOf(":") + 1).trim();
+        }
+
+        // Remove any bracket content if present
+        return BRACKETS.matcher(roleName).replaceAll("").trim();
+    }
+}
@@ -0,0 +1,27 @@
+package com.roleopt.rolemining.ai;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+
+/**
+ * ChatLanguageModel decorator that runs every call through the {@link LlmCallGuard}.
+ */
+public class GuardedChatLanguageModel implements ChatLanguageModel {
+
+    private final ChatLanguageModel delegate;
+    private final LlmCallGuard guard;
+
+    public GuardedChatLanguageModel(ChatLanguageModel delegate, LlmCallGuard guard) {
+        this.delegate = delegate;
+        this.guard = guard;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return guard.call(() -> delegate.generate(messages));
+    }
+}
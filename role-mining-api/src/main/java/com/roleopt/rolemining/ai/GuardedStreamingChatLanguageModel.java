@@ -0,0 +1,59 @@
+package com.roleopt.rolemining.ai;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+
+/**
+ * Streaming counterpart of {@link GuardedChatLanguageModel}. The stream holds a call slot until it
+ * completes or fails; a stream that outlives the deadline is reported to the handler as a timeout and
+ * any tokens arriving afterwards are dropped.
+ */
+public class GuardedStreamingChatLanguageModel implements StreamingChatLanguageModel {
+
+    private final StreamingChatLanguageModel delegate;
+    private final LlmCallGuard guard;
+
+    public GuardedStreamingChatLanguageModel(StreamingChatLanguageModel delegate, LlmCallGuard guard) {
+        this.delegate = delegate;
+        this.guard = guard;
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        LlmCallGuard.StreamTicket ticket = guard.openStream(() -> handler.onError(
+                new LlmUnavailableException(LlmUnavailableException.Reason.TIMEOUT,
+                        "Model stream exceeded deadline of " + guard.getStreamTimeoutMs() + " ms")));
+        try {
+            delegate.generate(messages, new StreamingResponseHandler<AiMessage>() {
+                @Override
+                public void onNext(String token) {
+                    if (!ticket.isClosed()) {
+                        handler.onNext(token);
+                    }
+                }
+
+                @Override
+                public void onComplete(Response<AiMessage> response) {
+                    if (ticket.succeed()) {
+                        handler.onComplete(response);
+                    }
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    if (ticket.fail(error)) {
+                        handler.onError(error);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            ticket.fail(e);
+            throw e;
+        }
+    }
+}
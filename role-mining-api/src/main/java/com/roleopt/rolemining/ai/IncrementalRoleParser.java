@@ -0,0 +1,265 @@
+package com.roleopt.rolemining.ai;
+
+import com.roleopt.rolemining.dto.RoleDTO;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Single-pass parser for the free-text answer format. Text is assembled into lines and every line is
+ * classified exactly once, by cheap character checks and a label table before any precompiled regex:
+ * a "Role N" header (or a second "Name:" line) closes the current role, which is built and handed to the consumer right away; field lines and
+ * bullets fill in the open role. The whole answer is scanned once, whatever its length, and a role
+ * with a header is always emitted even if none of its fields could be read.
+ */
+public class IncrementalRoleParser implements RoleStreamParser {
+
+    // "Role 1: Name", "**Role 1:** Name", "### Role 1" ... but not prose such as "Role 1 is for"
+    private static final Pattern ROLE_HEADER = Pattern.compile(
+            "^\\s*(?:#{1,6}\\s*)?(?:\\*\\*)?Role\\s*(\\d+)(?:\\s*[:*]+\\s*(.*?))?\\s*$",
+            Pattern.CASE_INSENSITIVE);
+
+    // Field labels as they appear before the colon, lower-cased and without markdown
+    private static final Map<String, Field> LABELS = new HashMap<>();
+
+    static {
+        LABELS.put("name", Field.NAME);
+        LABELS.put("role name", Field.NAME);
+        LABELS.put("permissions", Field.PERMISSIONS);
+        LABELS.put("key permissions", Field.PERMISSIONS);
+        LABELS.put("user count", Field.USER_COUNT);
+        LABELS.put("estimated user count", Field.USER_COUNT);
+        LABELS.put("confidence", Field.CONFIDENCE);
+        LABELS.put("confidence level", Field.CONFIDENCE);
+        LABELS.put("justification", Field.JUSTIFICATION);
+    }
+
+    // Longest label above plus room for markdown and bullet decoration
+    private static final int MAX_LABEL_LENGTH = 32;
+
+    private static final Pattern NUMBER = Pattern.compile("(\\d+)");
+
+    private enum Field { NONE, NAME, PERMISSIONS, USER_COUNT, CONFIDENCE, JUSTIFICATION }
+
+    private final AIResponseParser parser;
+    private final Consumer<RoleDTO> onRole;
+    private final List<RoleDTO> roles = new ArrayList<>();
+
+    private final StringBuilder line = new StringBuilder();
+    private boolean inReasoning;
+
+    // The role currently being read
+    private boolean open;
+    private String name;
+    private boolean namedByField;
+    private List<String> permissions;
+    private Integer userCount;
+    private Integer confidence;
+    private StringBuilder justification;
+    private Field field = Field.NONE;
+
+    public IncrementalRoleParser(AIResponseParser parser, Consumer<RoleDTO> onRole) {
+        this.parser = parser;
+        this.onRole = onRole;
+    }
+
+    @Override
+    public void accept(String chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (c == '\n') {
+                processLine(line.toString());
+                line.setLength(0);
+            } else if (c != '\r') {
+                line.append(c);
+            }
+        }
+    }
+
+    @Override
+    public List<RoleDTO> finish() {
+        if (line.length() > 0) {
+            processLine(line.toString());
+            line.setLength(0);
+        }
+        closeRole();
+        return roles;
+    }
+
+    private void processLine(String text) {
+        // Reasoning models (e.g. deepseek-r1) think out loud first; role headers in there are drafts
+        if (text.contains("<think>")) {
+            inReasoning = true;
+        }
+        if (inReasoning) {
+            if (text.contains("</think>")) {
+                inReasoning = false;
+            }
+            return;
+        }
+
+        // Cheap character checks first; most lines need no regex at all
+        Matcher header = mentionsRole(text) ? ROLE_HEADER.matcher(text) : null;
+        if (header != null && header.matches()) {
+            closeRole();
+            openRole();
+            if (header.group(2) != null) {
+                setName(header.group(2));
+            }
+            return;
+        }
+
+        int colon = text.indexOf(':');
+        Field label = colon > 0 && colon <= MAX_LABEL_LENGTH
+                ? LABELS.get(stripDecoration(text.substring(0, colon)).toLowerCase(Locale.ROOT))
+                : null;
+        if (label != null) {
+            String value = stripDecoration(text.substring(colon + 1));
+            if (label == Field.NAME) {
+                // A second name without a header in between means the model dropped the headers
+                if (open && namedByField) {
+                    closeRole();
+                }
+                if (!open) {
+                    openRole();
+                }
+                namedByField = true;
+                field = Field.NAME;
+                setName(value);
+            } else if (open) {
+                field = label;
+                if (label == Field.PERMISSIONS) {
+                    for (String permission : value.split(",")) {
+                        addPermission(permission);
+                    }
+                } else if (label == Field.USER_COUNT) {
+                    userCount = firstNumber(value, userCount);
+                } else if (label == Field.CONFIDENCE) {
+                    confidence = firstNumber(value, confidence);
+                } else {
+                    justification.append(value);
+                }
+            }
+            return;
+        }
+
+        String content = stripBullet(text);
+        if (!open || content.isEmpty()) {
+            return;
+        }
+        if (field == Field.PERMISSIONS) {
+            addPermission(content);
+        } else if (field == Field.JUSTIFICATION) {
+            justification.append(' ').append(content);
+        }
+    }
+
+    /**
+     * Label or value text without surrounding whitespace, bullet marker or bold markers.
+     */
+    private static String stripDecoration(String text) {
+        return stripBullet(text).replace("**", "").trim();
+    }
+
+    /**
+     * Text without surrounding whitespace and a leading "-", "*", bullet or "1." marker.
+     */
+    private static String stripBullet(String text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return "";
+        }
+
+        int marker = start;
+        char first = text.charAt(start);
+        if (first == '-' || first == '\u2022' || (first == '*' && !text.startsWith("**", start))) {
+            marker = start + 1;
+        } else {
+            int digits = start;
+            while (digits < end && Character.isDigit(text.charAt(digits))) {
+                digits++;
+            }
+            if (digits > start && digits < end && (text.charAt(digits) == '.' || text.charAt(digits) == ')')) {
+                marker = digits + 1;
+            }
+        }
+        if (marker > start && (marker == end || Character.isWhitespace(text.charAt(marker)))) {
+            start = marker;
+            while (start < end && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+        }
+        return text.substring(start, end);
+    }
+
+    private static boolean mentionsRole(String text) {
+        for (int i = 0; i + 4 <= text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c == 'r' || c == 'R') && text.regionMatches(true, i + 1, "ole", 0, 3)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void openRole() {
+        open = true;
+        name = null;
+        namedByField = false;
+        permissions = new ArrayList<>();
+        userCount = null;
+        confidence = null;
+        justification = new StringBuilder();
+        field = Field.NONE;
+    }
+
+    private void setName(String rawName) {
+        String cleaned = parser.cleanRoleName(rawName);
+        if (!cleaned.isEmpty()) {
+            name = cleaned;
+        }
+    }
+
+    private void addPermission(String raw) {
+        String permission = raw.replace("**", "").replace("`", "").trim();
+        if (!permission.isEmpty()) {
+            permissions.add(permission);
+        }
+    }
+
+    private static Integer firstNumber(String value, Integer fallback) {
+        Matcher number = NUMBER.matcher(value);
+        if (!number.find()) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(number.group(1));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private void closeRole() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        RoleDTO role = parser.newRole(roles.size() + 1, name, permissions, userCount, confidence,
+                justification.toString().replace("**", "").trim());
+        roles.add(role);
+        onRole.accept(role);
+    }
+}
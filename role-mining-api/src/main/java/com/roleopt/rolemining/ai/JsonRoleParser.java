@@ -0,0 +1,254 @@
+package com.roleopt.rolemining.ai;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.roleopt.rolemining.dto.RoleDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Parser for the JSON answer format, {@code {"roles": [{"name": ..., "permissions": [...], ...}]}} or a
+ * bare array of role objects. Built on Jackson's non-blocking parser, so the same instance serves a
+ * streamed answer (each role is emitted when its closing brace arrives) and a complete one.
+ * <p>
+ * Text before the first brace (a preamble, a code fence or a reasoning block) is skipped. If the
+ * answer turns out not to be JSON, or breaks off before a single role is complete, {@link #finish()}
+ * falls back to the free-text parser over the buffered answer, so roles are never silently lost.
+ */
+public class JsonRoleParser implements RoleStreamParser {
+
+    private static final Logger log = LoggerFactory.getLogger(JsonRoleParser.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final AIResponseParser parser;
+    private final Consumer<RoleDTO> onRole;
+    private final List<RoleDTO> roles = new ArrayList<>();
+
+    // Whole answer, kept for the free-text fallback
+    private final StringBuilder raw = new StringBuilder();
+    private int scanFrom;
+    private boolean started;
+    private boolean done;
+    private boolean failed;
+
+    private JsonParser json;
+    private ByteArrayFeeder feeder;
+
+    // Nesting depth and where the role array sits in it; -1 until found
+    private int depth;
+    private int rolesArrayDepth = -1;
+    private String topLevelField;
+
+    // The role object currently being read
+    private boolean inRole;
+    private String field;
+    private String name;
+    private List<String> permissions;
+    private Integer userCount;
+    private Integer confidence;
+    private String justification;
+
+    public JsonRoleParser(AIResponseParser parser, Consumer<RoleDTO> onRole) {
+        this.parser = parser;
+        this.onRole = onRole;
+    }
+
+    @Override
+    public void accept(String chunk) {
+        raw.append(chunk);
+        if (done || failed) {
+            return;
+        }
+        if (!started) {
+            int start = findJsonStart();
+            if (start < 0) {
+                return;
+            }
+            started = true;
+            try {
+                json = JSON_FACTORY.createNonBlockingByteArrayParser();
+                feeder = (ByteArrayFeeder) json.getNonBlockingInputFeeder();
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+            feed(raw.substring(start));
+        } else {
+            feed(chunk);
+        }
+    }
+
+    /**
+     * Position of the first '{' or '[' outside a reasoning block, or -1 if not seen yet.
+     */
+    private int findJsonStart() {
+        int thinkEnd = raw.lastIndexOf("</think>");
+        if (raw.indexOf("<think>") >= 0 && thinkEnd < 0) {
+            // Still reasoning; braces in here are not the answer
+            return -1;
+        }
+        int from = Math.max(scanFrom, thinkEnd < 0 ? 0 : thinkEnd + "</think>".length());
+        for (int i = from; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c == '{' || c == '[') {
+                return i;
+            }
+        }
+        scanFrom = raw.length();
+        return -1;
+    }
+
+    private void feed(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            drain();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while (!done && (token = json.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            handle(token);
+        }
+    }
+
+    private void handle(JsonToken token) throws IOException {
+        switch (token) {
+            case START_ARRAY:
+                depth++;
+                if (rolesArrayDepth < 0 && (depth == 1 || (depth == 2 && "roles".equalsIgnoreCase(topLevelField)))) {
+                    rolesArrayDepth = depth;
+                } else if (inRole && depth == rolesArrayDepth + 2 && "permissions".equalsIgnoreCase(field)) {
+                    permissions = new ArrayList<>();
+                }
+                break;
+            case START_OBJECT:
+                depth++;
+                if (rolesArrayDepth > 0 && depth == rolesArrayDepth + 1) {
+                    openRole();
+                }
+                break;
+            case END_OBJECT:
+                if (inRole && depth == rolesArrayDepth + 1) {
+                    closeRole();
+                }
+                depth--;
+                done = depth == 0;
+                break;
+            case END_ARRAY:
+                depth--;
+                done = depth == 0;
+                break;
+            case FIELD_NAME:
+                if (depth == 1) {
+                    topLevelField = json.getCurrentName();
+                } else if (inRole && depth == rolesArrayDepth + 1) {
+                    field = json.getCurrentName();
+                }
+                break;
+            default:
+                if (inRole) {
+                    readValue(token);
+                }
+                break;
+        }
+    }
+
+    private void readValue(JsonToken token) throws IOException {
+        String value = token == JsonToken.VALUE_NULL ? null : json.getText();
+        if (value == null || field == null) {
+            return;
+        }
+        if (depth == rolesArrayDepth + 2 && "permissions".equalsIgnoreCase(field)) {
+            String permission = value.trim();
+            if (!permission.isEmpty()) {
+                permissions.add(permission);
+            }
+        } else if (depth == rolesArrayDepth + 1) {
+            switch (field.toLowerCase()) {
+                case "name":
+                    name = parser.cleanRoleName(value);
+                    break;
+                case "usercount":
+                case "user_count":
+                    userCount = toInt(token, value);
+                    break;
+                case "confidence":
+                    confidence = toInt(token, value);
+                    break;
+                case "justification":
+                    justification = value.trim();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private Integer toInt(JsonToken token, String value) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return (int) Math.round(json.getDoubleValue());
+        }
+        try {
+            return Integer.parseInt(value.replace("%", "").trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void openRole() {
+        inRole = true;
+        field = null;
+        name = null;
+        permissions = new ArrayList<>();
+        userCount = null;
+        confidence = null;
+        justification = "";
+    }
+
+    private void closeRole() {
+        inRole = false;
+        RoleDTO role = parser.newRole(roles.size() + 1, name, permissions, userCount, confidence, justification);
+        roles.add(role);
+        onRole.accept(role);
+    }
+
+    private void fail(IOException e) {
+        failed = true;
+        log.warn("Model answer is not valid JSON after {} role(s): {}", roles.size(), e.getMessage());
+    }
+
+    @Override
+    public List<RoleDTO> finish() {
+        if (started && !done && !failed) {
+            feeder.endOfInput();
+            try {
+                drain();
+            } catch (IOException e) {
+                fail(e);
+            }
+            if (!done) {
+                log.warn("Model answer ended inside the JSON document after {} role(s)", roles.size());
+            }
+        }
+        if (roles.isEmpty() && raw.length() > 0) {
+            log.info("No roles in JSON form, parsing the answer as free text");
+            RoleStreamParser text = new IncrementalRoleParser(parser, onRole);
+            text.accept(raw.toString());
+            return text.finish();
+        }
+        return roles;
+    }
+}
@@ -0,0 +1,353 @@
+package com.roleopt.rolemining.ai;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Protects the application from a slow or dead model server. Every model invocation passes through
+ * three checks:
+ * <ul>
+ *     <li>a circuit breaker that fails fast after repeated errors and lets a single probe through
+ *     once the open period has elapsed (half-open);</li>
+ *     <li>a bulkhead limiting concurrent calls, so stuck calls cannot occupy every request thread;</li>
+ *     <li>a deadline after which the caller stops waiting.</li>
+ * </ul>
+ * A bulkhead permit is held until the underlying call really finishes, not just until the caller
+ * gives up, so calls hung on a dead server keep counting against the limit.
+ * <p>
+ * This guard protects the primary model; each routed backend gets its own from
+ * {@link #forBackend(String)}, so one failing backend neither opens the circuit of the others nor
+ * takes their call slots.
+ */
+@Component
+public class LlmCallGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmCallGuard.class);
+
+    public enum CircuitState {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    @Value("${llm.guard.timeout-ms:45000}")
+    private long timeoutMs;
+
+    @Value("${llm.guard.stream-timeout-ms:300000}")
+    private long streamTimeoutMs;
+
+    @Value("${llm.guard.max-wait-ms:500}")
+    private long maxWaitMs;
+
+    @Value("${llm.guard.failure-threshold:3}")
+    private int failureThreshold;
+
+    @Value("${llm.guard.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    private final Semaphore bulkhead;
+    private final int maxConcurrentCalls;
+    private final ExecutorService callExecutor;
+    private final ScheduledExecutorService timer;
+
+    private CircuitState state = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean probeInFlight;
+    private long rejectedCalls;
+    private long timedOutCalls;
+
+    // Names the call and timer threads; set before the first call of a backend guard
+    private volatile String threadPrefix = "llm";
+    private final Map<String, LlmCallGuard> backendGuards = new ConcurrentHashMap<>();
+
+    public LlmCallGuard(@Value("${llm.guard.max-concurrent-calls:4}") int maxConcurrentCalls) {
+        this.maxConcurrentCalls = Math.max(1, maxConcurrentCalls);
+        this.bulkhead = new Semaphore(this.maxConcurrentCalls, true);
+        AtomicInteger threadCount = new AtomicInteger();
+        // Unbounded pool, but never more live threads than bulkhead permits
+        this.callExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, threadPrefix + "-call-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, threadPrefix + "-guard-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        callExecutor.shutdownNow();
+        timer.shutdownNow();
+        backendGuards.values().forEach(LlmCallGuard::shutdown);
+    }
+
+    /**
+     * Guard of one routed backend, created on first use with the same limits as this one but with its
+     * own circuit breaker, bulkhead and threads
+     */
+    public LlmCallGuard forBackend(String backend) {
+        return backendGuards.computeIfAbsent(backend, name -> {
+            LlmCallGuard guard = new LlmCallGuard(maxConcurrentCalls);
+            guard.threadPrefix = "llm-" + name;
+            guard.timeoutMs = timeoutMs;
+            guard.streamTimeoutMs = streamTimeoutMs;
+            guard.maxWaitMs = maxWaitMs;
+            guard.failureThreshold = failureThreshold;
+            guard.openDurationMs = openDurationMs;
+            return guard;
+        });
+    }
+
+    /**
+     * Run a blocking model call under the guard.
+     *
+     * @throws LlmUnavailableException if the circuit is open, the bulkhead is full or the deadline passed
+     */
+    public <T> T call(Callable<T> call) {
+        acquire();
+        // Released exactly once: by the task when it runs, or by the caller if it is cancelled first
+        AtomicBoolean permitHeld = new AtomicBoolean(true);
+        Runnable releasePermit = () -> {
+            if (permitHeld.compareAndSet(true, false)) {
+                bulkhead.release();
+            }
+        };
+        AtomicBoolean started = new AtomicBoolean();
+        Future<T> future;
+        try {
+            future = callExecutor.submit(() -> {
+                started.set(true);
+                try {
+                    return call.call();
+                } finally {
+                    releasePermit.run();
+                }
+            });
+        } catch (RuntimeException e) {
+            releasePermit.run();
+            releaseProbe();
+            throw e;
+        }
+
+        try {
+            T result = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            recordSuccess();
+            return result;
+        } catch (TimeoutException e) {
+            cancel(future, started, releasePermit);
+            synchronized (this) {
+                timedOutCalls++;
+            }
+            LlmUnavailableException timeout = new LlmUnavailableException(LlmUnavailableException.Reason.TIMEOUT,
+                    "Model call exceeded deadline of " + timeoutMs + " ms");
+            recordFailure(timeout);
+            throw timeout;
+        } catch (InterruptedException e) {
+            cancel(future, started, releasePermit);
+            // No outcome to record, but an abandoned probe must not leave the breaker stuck in half-open
+            releaseProbe();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for model", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            recordFailure(cause);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Cancel a submitted call. A task cancelled before it started never runs its {@code finally}, so
+     * its permit is released here instead.
+     */
+    private static void cancel(Future<?> future, AtomicBoolean started, Runnable releasePermit) {
+        if (future.cancel(true) && !started.get()) {
+            releasePermit.run();
+        }
+    }
+
+    /**
+     * Admit a streaming call. The returned ticket must be closed exactly once via
+     * {@link StreamTicket#succeed()} or {@link StreamTicket#fail(Throwable)}; if neither happens within
+     * the stream deadline, {@code onTimeout} is run and the ticket is failed.
+     */
+    public StreamTicket openStream(Runnable onTimeout) {
+        acquire();
+        StreamTicket ticket = new StreamTicket();
+        ticket.timeoutTask = timer.schedule(() -> {
+            if (ticket.close()) {
+                synchronized (this) {
+                    timedOutCalls++;
+                }
+                recordFailure(new LlmUnavailableException(LlmUnavailableException.Reason.TIMEOUT, "stream timeout"));
+                onTimeout.run();
+            }
+        }, streamTimeoutMs, TimeUnit.MILLISECONDS);
+        return ticket;
+    }
+
+    public long getStreamTimeoutMs() {
+        return streamTimeoutMs;
+    }
+
+    private void acquire() {
+        admitThroughCircuit();
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            synchronized (this) {
+                rejectedCalls++;
+                // A refused probe must not leave the breaker stuck in half-open
+                probeInFlight = false;
+            }
+            throw new LlmUnavailableException(LlmUnavailableException.Reason.BULKHEAD_FULL,
+                    "All " + maxConcurrentCalls + " model call slots are busy");
+        }
+    }
+
+    private synchronized void admitThroughCircuit() {
+        if (state == CircuitState.OPEN) {
+            long openForMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openedAtNanos);
+            if (openForMs < openDurationMs) {
+                rejectedCalls++;
+                throw new LlmUnavailableException(LlmUnavailableException.Reason.CIRCUIT_OPEN,
+                        "Model circuit open after " + consecutiveFailures + " consecutive failures; retry in "
+                                + (openDurationMs - openForMs) + " ms");
+            }
+            state = CircuitState.HALF_OPEN;
+            log.info("Model circuit half-open, letting a probe call through");
+        }
+        if (state == CircuitState.HALF_OPEN) {
+            if (probeInFlight) {
+                rejectedCalls++;
+                throw new LlmUnavailableException(LlmUnavailableException.Reason.CIRCUIT_OPEN,
+                        "Model circuit half-open, probe call in progress");
+            }
+            probeInFlight = true;
+        }
+    }
+
+    private synchronized void releaseProbe() {
+        probeInFlight = false;
+    }
+
+    private synchronized void recordSuccess() {
+        if (state != CircuitState.CLOSED) {
+            log.info("Model probe succeeded, closing circuit");
+        }
+        state = CircuitState.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    private synchronized void recordFailure(Throwable error) {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == CircuitState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != CircuitState.OPEN) {
+                log.warn("Opening model circuit for {} ms after {} consecutive failure(s); last: {}",
+                        openDurationMs, consecutiveFailures, error.getMessage());
+            }
+            state = CircuitState.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+    }
+
+    public synchronized CircuitState getState() {
+        return state;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("circuitState", state.name());
+        stats.put("consecutiveFailures", consecutiveFailures);
+        stats.put("availableCallSlots", bulkhead.availablePermits());
+        stats.put("maxConcurrentCalls", maxConcurrentCalls);
+        stats.put("timeoutMs", timeoutMs);
+        stats.put("rejectedCalls", rejectedCalls);
+        stats.put("timedOutCalls", timedOutCalls);
+        if (!backendGuards.isEmpty()) {
+            Map<String, Object> backends = new TreeMap<>();
+            backendGuards.forEach((name, guard) -> backends.put(name, guard.getStats()));
+            stats.put("backends", backends);
+        }
+        return stats;
+    }
+
+    /**
+     * Admission for one streaming call; holds a bulkhead permit until closed.
+     */
+    public final class StreamTicket {
+
+        private boolean closed;
+        private ScheduledFuture<?> timeoutTask;
+
+        private synchronized boolean close() {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            bulkhead.release();
+            return true;
+        }
+
+        public synchronized boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * @return false if the ticket was already closed, e.g. by the deadline
+         */
+        public boolean succeed() {
+            if (!close()) {
+                return false;
+            }
+            timeoutTask.cancel(false);
+            recordSuccess();
+            return true;
+        }
+
+        /**
+         * @return false if the ticket was already closed, e.g. by the deadline
+         */
+        public boolean fail(Throwable error) {
+            if (!close()) {
+                return false;
+            }
+            timeoutTask.cancel(false);
+            recordFailure(error);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.roleopt.rolemining.ai;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for model calls, exported through Actuator ({@code /api/actuator/prometheus}):
+ * <ul>
+ *     <li>{@code llm.call.duration} - timer with percentile histogram, by model, mode (blocking or
+ *     streaming) and outcome (success, error, timeout, rejected);</li>
+ *     <li>{@code llm.stream.first.token} - time until a stream delivers its first token, by model;</li>
+ *     <li>{@code llm.tokens} - prompt and completion tokens per call, by model and type. Backends that
+ *     do not report usage are estimated at {@code llm.prompt.chars-per-token};</li>
+ *     <li>{@code llm.call.errors} and {@code llm.call.timeouts} - failed calls by model and cause;</li>
+ *     <li>{@code llm.response.parse} - answers parsed, by format and outcome (roles or empty).</li>
+ * </ul>
+ * Only real model calls are measured; answers served from {@code LlmResponseCache} are not.
+ */
+@Component
+public class LlmMetrics {
+
+    public static final String MODE_BLOCKING = "blocking";
+    public static final String MODE_STREAMING = "streaming";
+
+    private final MeterRegistry registry;
+
+    @Value("${llm.prompt.chars-per-token:4}")
+    private int charsPerToken;
+
+    public LlmMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordCall(String model, String mode, long durationNanos, Throwable error) {
+        String outcome = outcomeOf(error);
+        Timer.builder("llm.call.duration")
+                .description("Model call latency")
+                .tags("model", model, "mode", mode, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        if (error == null) {
+            return;
+        }
+        Counter.builder("llm.call.errors")
+                .description("Failed model calls")
+                .tags("model", model, "mode", mode, "outcome", outcome, "exception", error.getClass().getSimpleName())
+                .register(registry)
+                .increment();
+        if ("timeout".equals(outcome)) {
+            Counter.builder("llm.call.timeouts")
+                    .description("Model calls abandoned at their deadline")
+                    .tags("model", model, "mode", mode)
+                    .register(registry)
+                    .increment();
+        }
+    }
+
+    public void recordFirstToken(String model, long latencyNanos) {
+        Timer.builder("llm.stream.first.token")
+                .description("Time until a streamed answer delivers its first token")
+                .tag("model", model)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Token counts of one successful call, as reported by the backend or else estimated from text length.
+     */
+    public void recordTokens(String model, List<ChatMessage> messages, String completion, TokenUsage usage) {
+        Integer promptTokens = usage != null ? usage.inputTokenCount() : null;
+        Integer completionTokens = usage != null ? usage.outputTokenCount() : null;
+        if (promptTokens == null) {
+            int chars = 0;
+            for (ChatMessage message : messages) {
+                chars += message.text().length();
+            }
+            promptTokens = estimateTokens(chars);
+        }
+        if (completionTokens == null) {
+            completionTokens = estimateTokens(completion == null ? 0 : completion.length());
+        }
+        tokens(model, "prompt").record(promptTokens);
+        tokens(model, "completion").record(completionTokens);
+    }
+
+    public void recordParse(String format, int roleCount) {
+        Counter.builder("llm.response.parse")
+                .description("Model answers parsed into roles")
+                .tags("format", format, "outcome", roleCount > 0 ? "roles" : "empty")
+                .register(registry)
+                .increment();
+    }
+
+    private DistributionSummary tokens(String model, String type) {
+        return DistributionSummary.builder("llm.tokens")
+                .description("Tokens per model call")
+                .baseUnit("tokens")
+                .tags("model", model, "type", type)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private int estimateTokens(int chars) {
+        int ratio = Math.max(1, charsPerToken);
+        return (chars + ratio - 1) / ratio;
+    }
+
+    private static String outcomeOf(Throwable error) {
+        if (error == null) {
+            return "success";
+        }
+        if (error instanceof LlmUnavailableException) {
+            return ((LlmUnavailableException) error).getReason() == LlmUnavailableException.Reason.TIMEOUT
+                    ? "timeout" : "rejected";
+        }
+        return "error";
+    }
+}
@@ -0,0 +1,24 @@
+package com.roleopt.rolemining.ai;
+
+/**
+ * Thrown when a model call is refused or abandoned by the {@link LlmCallGuard}.
+ */
+public class LlmUnavailableException extends RuntimeException {
+
+    public enum Reason {
+        CIRCUIT_OPEN,
+        BULKHEAD_FULL,
+        TIMEOUT
+    }
+
+    private final Reason reason;
+
+    public LlmUnavailableException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
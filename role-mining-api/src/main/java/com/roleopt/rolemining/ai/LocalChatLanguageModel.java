@@ -0,0 +1,237 @@
+package com.roleopt.rolemining.ai;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageType;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for a chat model, selected with {@code llm.model.type=local}. It reads the
+ * "Group N: X users" blocks of the permission prompt and answers with one role per group, largest
+ * first, in whichever format the prompt asks for (JSON role schema or the text layout). No network is
+ * involved, so the AI pipeline can be benchmarked and exercised offline.
+ * <p>
+ * Answers are a pure function of the prompt. Latency, jitter and injected failures are drawn from a
+ * separate sequence seeded by {@code llm.local.seed}, so a run is reproducible while retries of the
+ * same prompt can still fail or succeed independently.
+ */
+public class LocalChatLanguageModel implements ChatLanguageModel {
+
+    private static final Pattern GROUP_HEADER = Pattern.compile("^Group\\s+(\\d+):\\s*(\\d+)\\s+users?\\b.*$");
+    private static final Pattern PERMISSION_LINE = Pattern.compile("^-\\s+(.+?)\\s*$");
+
+    // Marker of the JSON answer format in the prompt (see AIResponseParser)
+    private static final String JSON_SCHEMA_MARKER = "{\"roles\"";
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double failureRate;
+    private final int maxRoles;
+    private final long seed;
+    private final AtomicLong calls = new AtomicLong();
+
+    public LocalChatLanguageModel(long latencyMs, long jitterMs, double failureRate, int maxRoles, long seed) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.failureRate = failureRate;
+        this.maxRoles = maxRoles;
+        this.seed = seed;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        CallPlan plan = nextCall();
+        sleep(plan.latencyMs);
+        if (plan.fail) {
+            throw new IllegalStateException("Local model: injected failure on call " + plan.callNumber);
+        }
+        return Response.from(AiMessage.from(answer(messages)));
+    }
+
+    /**
+     * Latency and failure outcome of one call.
+     */
+    static final class CallPlan {
+        final long callNumber;
+        final long latencyMs;
+        final boolean fail;
+
+        CallPlan(long callNumber, long latencyMs, boolean fail) {
+            this.callNumber = callNumber;
+            this.latencyMs = latencyMs;
+            this.fail = fail;
+        }
+    }
+
+    CallPlan nextCall() {
+        long callNumber = calls.incrementAndGet();
+        // SplittableRandom mixes its seed; java.util.Random's first draw barely moves between adjacent seeds
+        SplittableRandom random = new SplittableRandom(seed * 31 + callNumber);
+        long jitter = jitterMs <= 0 ? 0 : (long) ((random.nextDouble() * 2 - 1) * jitterMs);
+        return new CallPlan(callNumber, Math.max(0, latencyMs + jitter), random.nextDouble() < failureRate);
+    }
+
+    static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Local model call interrupted", e);
+        }
+    }
+
+    /**
+     * The answer text for a prompt; identical prompts always get identical answers.
+     */
+    String answer(List<ChatMessage> messages) {
+        StringBuilder prompt = new StringBuilder();
+        for (ChatMessage message : messages) {
+            if (message.type() == ChatMessageType.USER) {
+                prompt.append(message.text()).append('\n');
+            }
+        }
+        String text = prompt.toString();
+        List<SuggestedRole> roles = suggest(text, new Random(seed ^ text.hashCode()));
+        return text.contains(JSON_SCHEMA_MARKER) ? toJson(roles) : toText(roles);
+    }
+
+    private List<SuggestedRole> suggest(String prompt, Random random) {
+        List<SuggestedRole> roles = new ArrayList<>();
+        SuggestedRole current = null;
+        for (String line : prompt.split("\n")) {
+            Matcher header = GROUP_HEADER.matcher(line);
+            if (header.matches()) {
+                if (roles.size() == maxRoles) {
+                    break;
+                }
+                current = new SuggestedRole(Integer.parseInt(header.group(2)));
+                roles.add(current);
+                continue;
+            }
+            Matcher permission = PERMISSION_LINE.matcher(line);
+            if (current != null && permission.matches()) {
+                current.permissions.add(permission.group(1));
+            } else if (line.trim().isEmpty()) {
+                current = null;
+            }
+        }
+
+        Set<String> names = new HashSet<>();
+        for (SuggestedRole role : roles) {
+            String name = nameFor(role.permissions);
+            String unique = name;
+            for (int n = 2; !names.add(unique); n++) {
+                unique = name + " " + n;
+            }
+            role.name = unique;
+            role.confidence = 55 + random.nextInt(41);
+        }
+        return roles;
+    }
+
+    /**
+     * "Finance System Approvers", "CRM Viewers", ... from the dominant application and access level.
+     */
+    private static String nameFor(List<String> permissions) {
+        Map<String, Integer> apps = new LinkedHashMap<>();
+        String level = "Viewers";
+        for (String permission : permissions) {
+            int colon = permission.indexOf(':');
+            String app = colon > 0 ? permission.substring(0, colon).trim() : "General";
+            apps.merge(app, 1, Integer::sum);
+
+            String lower = permission.toLowerCase(Locale.ROOT);
+            if (lower.contains("admin") || lower.contains("manage") || lower.contains("delete")) {
+                level = "Administrators";
+            } else if (!"Administrators".equals(level) && lower.contains("approve")) {
+                level = "Approvers";
+            } else if ("Viewers".equals(level)
+                    && (lower.contains("write") || lower.contains("edit") || lower.contains("create"))) {
+                level = "Editors";
+            }
+        }
+        String app = "General";
+        int best = 0;
+        for (Map.Entry<String, Integer> entry : apps.entrySet()) {
+            if (entry.getValue() > best) {
+                app = entry.getKey();
+                best = entry.getValue();
+            }
+        }
+        return app + " " + level;
+    }
+
+    private static String toText(List<SuggestedRole> roles) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < roles.size(); i++) {
+            SuggestedRole role = roles.get(i);
+            sb.append("Role ").append(i + 1).append(":\n");
+            sb.append("Name: ").append(role.name).append('\n');
+            sb.append("Key permissions:\n");
+            for (String permission : role.permissions) {
+                sb.append("- ").append(permission).append('\n');
+            }
+            sb.append("Estimated user count: ").append(role.userCount).append('\n');
+            sb.append("Confidence: ").append(role.confidence).append('\n');
+            sb.append("Justification: ").append(role.justification()).append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    private static String toJson(List<SuggestedRole> roles) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (SuggestedRole role : roles) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", role.name);
+            item.put("permissions", role.permissions);
+            item.put("userCount", role.userCount);
+            item.put("confidence", role.confidence);
+            item.put("justification", role.justification());
+            items.add(item);
+        }
+        Map<String, Object> document = new HashMap<>();
+        document.put("roles", items);
+        try {
+            return JSON.writerWithDefaultPrettyPrinter().writeValueAsString(document);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not render local model answer", e);
+        }
+    }
+
+    private static final class SuggestedRole {
+        final int userCount;
+        final List<String> permissions = new ArrayList<>();
+        String name;
+        int confidence;
+
+        SuggestedRole(int userCount) {
+            this.userCount = userCount;
+        }
+
+        String justification() {
+            return userCount + " users share exactly these " + permissions.size() + " permissions.";
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.roleopt.rolemining.ai;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streaming counterpart of {@link LocalChatLanguageModel}. After the initial latency the answer is
+ * delivered in small chunks on a background thread, like a remote model's HTTP callback thread, with
+ * {@code tokenDelayMs} between chunks.
+ */
+public class LocalStreamingChatLanguageModel implements StreamingChatLanguageModel {
+
+    // Roughly one model token
+    private static final int CHUNK_CHARS = 4;
+
+    private final LocalChatLanguageModel model;
+    private final long tokenDelayMs;
+    private final ExecutorService executor;
+
+    public LocalStreamingChatLanguageModel(LocalChatLanguageModel model, long tokenDelayMs) {
+        this.model = model;
+        this.tokenDelayMs = tokenDelayMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "local-model-stream-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        LocalChatLanguageModel.CallPlan plan = model.nextCall();
+        executor.execute(() -> {
+            try {
+                LocalChatLanguageModel.sleep(plan.latencyMs);
+                String answer = model.answer(messages);
+                // An injected failure breaks the stream halfway, the way a dropped connection would
+                int stopAt = plan.fail ? answer.length() / 2 : answer.length();
+                for (int i = 0; i < stopAt; i += CHUNK_CHARS) {
+                    handler.onNext(answer.substring(i, Math.min(stopAt, i + CHUNK_CHARS)));
+                    LocalChatLanguageModel.sleep(tokenDelayMs);
+                }
+                if (plan.fail) {
+                    throw new IllegalStateException("Local model: injected failure on call " + plan.callNumber);
+                }
+                handler.onComplete(Response.from(AiMessage.from(answer)));
+            } catch (RuntimeException e) {
+                handler.onError(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package com.roleopt.rolemining.ai;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+
+/**
+ * ChatLanguageModel decorator that records latency, outcome and token counts of every call in
+ * {@link LlmMetrics}. Sits outside {@link GuardedChatLanguageModel} so calls refused or abandoned by
+ * the guard are counted too.
+ */
+public class MeteredChatLanguageModel implements ChatLanguageModel {
+
+    private final ChatLanguageModel delegate;
+    private final LlmMetrics metrics;
+    private final String modelName;
+
+    public MeteredChatLanguageModel(ChatLanguageModel delegate, LlmMetrics metrics, String modelName) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.modelName = modelName;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        long start = System.nanoTime();
+        Response<AiMessage> response;
+        try {
+            response = delegate.generate(messages);
+        } catch (RuntimeException e) {
+            metrics.recordCall(modelName, LlmMetrics.MODE_BLOCKING, System.nanoTime() - start, e);
+            throw e;
+        }
+        metrics.recordCall(modelName, LlmMetrics.MODE_BLOCKING, System.nanoTime() - start, null);
+        metrics.recordTokens(modelName, messages, response.content().text(), response.tokenUsage());
+        return response;
+    }
+}
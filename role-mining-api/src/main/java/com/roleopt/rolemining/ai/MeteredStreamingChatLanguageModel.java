@@ -0,0 +1,62 @@
+package com.roleopt.rolemining.ai;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streaming counterpart of {@link MeteredChatLanguageModel}; also records the time to first token.
+ */
+public class MeteredStreamingChatLanguageModel implements StreamingChatLanguageModel {
+
+    private final StreamingChatLanguageModel delegate;
+    private final LlmMetrics metrics;
+    private final String modelName;
+
+    public MeteredStreamingChatLanguageModel(StreamingChatLanguageModel delegate, LlmMetrics metrics,
+                                             String modelName) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.modelName = modelName;
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        long start = System.nanoTime();
+        AtomicBoolean firstToken = new AtomicBoolean(true);
+        StringBuilder completion = new StringBuilder();
+        try {
+            delegate.generate(messages, new StreamingResponseHandler<AiMessage>() {
+                @Override
+                public void onNext(String token) {
+                    if (firstToken.compareAndSet(true, false)) {
+                        metrics.recordFirstToken(modelName, System.nanoTime() - start);
+                    }
+                    completion.append(token);
+                    handler.onNext(token);
+                }
+
+                @Override
+                public void onComplete(Response<AiMessage> response) {
+                    metrics.recordCall(modelName, LlmMetrics.MODE_STREAMING, System.nanoTime() - start, null);
+                    metrics.recordTokens(modelName, messages, completion.toString(), response.tokenUsage());
+                    handler.onComplete(response);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    metrics.recordCall(modelName, LlmMetrics.MODE_STREAMING, System.nanoTime() - start, error);
+                    handler.onError(error);
+                }
+            });
+        } catch (RuntimeException e) {
+            metrics.recordCall(modelName, LlmMetrics.MODE_STREAMING, System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+}
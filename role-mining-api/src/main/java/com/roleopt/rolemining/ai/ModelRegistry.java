@@ -0,0 +1,273 @@
+package com.roleopt.rolemining.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catalog and health of the configured model backends, kept current by a background probe so that
+ * nothing on a request thread ever waits on a backend to answer "which models do you have?".
+ * <p>
+ * Every {@code llm.registry.probe-interval-ms} the registry lists the models of each configured
+ * backend (Ollama {@code /api/tags}, OpenAI {@code /models}) over one shared keep-alive HTTP client
+ * with short connect and request timeouts, then publishes an immutable snapshot. Readers only see
+ * whole snapshots, never a probe in progress.
+ */
+@Component
+public class ModelRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ModelRegistry.class);
+
+    public static final String BACKEND_OLLAMA = "ollama";
+    public static final String BACKEND_OPENAI = "openai";
+    public static final String BACKEND_LOCAL = "local";
+
+    // Placeholder shipped in application.properties; a backend with this key is not configured
+    private static final String OPENAI_KEY_PLACEHOLDER = "YOUR_OPENAI_API_KEY_HERE";
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    public enum State { UNKNOWN, UP, DOWN }
+
+    @Value("${llm.model.type:openai}")
+    private String modelType;
+
+    @Value("${ollama.base.url:http://localhost:11434}")
+    private String ollamaBaseUrl;
+
+    @Value("${openai.base.url:https://api.openai.com/v1}")
+    private String openaiBaseUrl;
+
+    @Value("${openai.api.key:}")
+    private String openaiApiKey;
+
+    @Value("${llm.registry.request-timeout-ms:2000}")
+    private long requestTimeoutMs;
+
+    private final HttpClient httpClient;
+
+    private volatile Map<String, BackendStatus> statuses = Collections.emptyMap();
+
+    public ModelRegistry(@Value("${llm.registry.connect-timeout-ms:1000}") long connectTimeoutMs) {
+        // The JDK client pools and reuses connections per host
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Health and model catalog of one backend at the time of its last probe.
+     */
+    public static final class BackendStatus {
+        private final String backend;
+        private final String baseUrl;
+        private final State state;
+        private final List<String> models;
+        private final long latencyMs;
+        private final Instant checkedAt;
+        private final int consecutiveFailures;
+        private final String error;
+
+        BackendStatus(String backend, String baseUrl, State state, List<String> models, long latencyMs,
+                      Instant checkedAt, int consecutiveFailures, String error) {
+            this.backend = backend;
+            this.baseUrl = baseUrl;
+            this.state = state;
+            this.models = models;
+            this.latencyMs = latencyMs;
+            this.checkedAt = checkedAt;
+            this.consecutiveFailures = consecutiveFailures;
+            this.error = error;
+        }
+
+        public String getBackend() {
+            return backend;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public boolean isUp() {
+            return state == State.UP;
+        }
+
+        public List<String> getModels() {
+            return models;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("backend", backend);
+            if (baseUrl != null) {
+                map.put("baseUrl", baseUrl);
+            }
+            map.put("state", state.name());
+            map.put("models", models);
+            map.put("latencyMs", latencyMs);
+            map.put("checkedAt", checkedAt == null ? null : checkedAt.toString());
+            map.put("consecutiveFailures", consecutiveFailures);
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+    }
+
+    @Scheduled(initialDelayString = "${llm.registry.initial-delay-ms:0}",
+            fixedDelayString = "${llm.registry.probe-interval-ms:30000}")
+    public void probe() {
+        Map<String, BackendStatus> previous = statuses;
+        Map<String, BackendStatus> next = new LinkedHashMap<>();
+        for (String backend : configuredBackends()) {
+            BackendStatus status = probe(backend, previous.get(backend));
+            next.put(backend, status);
+
+            BackendStatus before = previous.get(backend);
+            if (before == null || before.state != status.state) {
+                if (status.isUp()) {
+                    log.info("Model backend {} is up with {} model(s) ({} ms)", backend, status.models.size(),
+                            status.latencyMs);
+                } else {
+                    log.warn("Model backend {} is down: {}", backend, status.error);
+                }
+            }
+        }
+        statuses = Collections.unmodifiableMap(next);
+    }
+
+    private List<String> configuredBackends() {
+        List<String> backends = new ArrayList<>();
+        if (BACKEND_LOCAL.equalsIgnoreCase(modelType)) {
+            backends.add(BACKEND_LOCAL);
+        }
+        if (ollamaBaseUrl != null && !ollamaBaseUrl.trim().isEmpty()) {
+            backends.add(BACKEND_OLLAMA);
+        }
+        if (openaiApiKey != null && !openaiApiKey.trim().isEmpty() && !OPENAI_KEY_PLACEHOLDER.equals(openaiApiKey)) {
+            backends.add(BACKEND_OPENAI);
+        }
+        return backends;
+    }
+
+    private BackendStatus probe(String backend, BackendStatus previous) {
+        if (BACKEND_LOCAL.equals(backend)) {
+            return new BackendStatus(backend, null, State.UP, Collections.singletonList(BACKEND_LOCAL), 0,
+                    Instant.now(), 0, null);
+        }
+
+        String baseUrl = BACKEND_OLLAMA.equals(backend) ? ollamaBaseUrl : openaiBaseUrl;
+        long start = System.nanoTime();
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder()
+                    .timeout(Duration.ofMillis(requestTimeoutMs))
+                    .header("Accept", "application/json")
+                    .GET();
+            List<String> models;
+            if (BACKEND_OLLAMA.equals(backend)) {
+                JsonNode body = send(request.uri(URI.create(trimSlash(baseUrl) + "/api/tags")));
+                models = names(body.path("models"), "name");
+            } else {
+                request.header("Authorization", "Bearer " + openaiApiKey);
+                JsonNode body = send(request.uri(URI.create(trimSlash(baseUrl) + "/models")));
+                models = names(body.path("data"), "id");
+            }
+            return new BackendStatus(backend, baseUrl, State.UP, models, elapsedMs(start), Instant.now(), 0, null);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // Keep the last known catalog; a backend that blips should not lose its model list
+            List<String> models = previous == null ? Collections.emptyList() : previous.models;
+            int failures = previous == null ? 1 : previous.consecutiveFailures + 1;
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return new BackendStatus(backend, baseUrl, State.DOWN, models, elapsedMs(start), Instant.now(),
+                    failures, error);
+        }
+    }
+
+    private JsonNode send(HttpRequest.Builder request) throws Exception {
+        HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("HTTP " + response.statusCode());
+        }
+        return JSON.readTree(response.body());
+    }
+
+    private static List<String> names(JsonNode items, String field) {
+        List<String> names = new ArrayList<>();
+        for (JsonNode item : items) {
+            String name = item.path(field).asText("");
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    private static String trimSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * Status of a backend, or {@code null} if it is not configured or has not been probed yet.
+     */
+    public BackendStatus getStatus(String backend) {
+        return statuses.get(backend);
+    }
+
+    /**
+     * Whether calls to the backend are worth attempting. A backend not probed yet counts as healthy,
+     * so startup never blocks on the first probe.
+     */
+    public boolean isHealthy(String backend) {
+        BackendStatus status = statuses.get(backend);
+        return status == null || status.state != State.DOWN;
+    }
+
+    /**
+     * Whether the backend lists the model, e.g. that it has been pulled into Ollama. True while the
+     * catalog is unknown or empty, and for a model given without Ollama's ":latest" tag.
+     */
+    public boolean hasModel(String backend, String modelName) {
+        BackendStatus status = statuses.get(backend);
+        if (status == null || status.models.isEmpty() || modelName == null) {
+            return true;
+        }
+        return status.models.contains(modelName) || status.models.contains(modelName + ":latest");
+    }
+
+    public Map<String, Object> getHealth() {
+        Map<String, Object> health = new LinkedHashMap<>();
+        for (BackendStatus status : statuses.values()) {
+            health.put(status.backend, status.toMap());
+        }
+        return health;
+    }
+}
@@ -0,0 +1,241 @@
+package com.roleopt.rolemining.ai;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Chooses which chat model handles a call. Each model declares the tasks it is good enough for, the
+ * largest prompt it accepts and a relative cost; a call goes to the cheapest model that can take it
+ * and whose backend {@link ModelRegistry} reports healthy.
+ * <p>
+ * In fan-out mode the same prompt goes to every adequate model at once and the first
+ * {@code fanOutKeep} well-formed answers win; the remaining calls are cancelled. Median latency is
+ * then that of the fastest models rather than of one fixed model.
+ */
+public class ModelRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ModelRouter.class);
+
+    public static final String MODE_FAN_OUT = "fanout";
+
+    private final List<RoutedModel> models;
+    private final ModelRegistry registry;
+    private final boolean fanOut;
+    private final int fanOutKeep;
+    private final long fanOutTimeoutMs;
+    private final ExecutorService fanOutExecutor;
+
+    public ModelRouter(List<RoutedModel> models, ModelRegistry registry, String mode,
+                       int fanOutKeep, long fanOutTimeoutMs) {
+        if (models.isEmpty()) {
+            throw new IllegalArgumentException("At least one model is required");
+        }
+        List<RoutedModel> byCost = new ArrayList<>(models);
+        byCost.sort(Comparator.comparingDouble(RoutedModel::getCostPer1kTokens));
+        this.models = Collections.unmodifiableList(byCost);
+        this.registry = registry;
+        this.fanOut = MODE_FAN_OUT.equalsIgnoreCase(mode.trim());
+        this.fanOutKeep = Math.max(1, fanOutKeep);
+        this.fanOutTimeoutMs = fanOutTimeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        // Calls themselves are bounded by LlmCallGuard; these threads only wait on them
+        this.fanOutExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "llm-fanout-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void shutdown() {
+        fanOutExecutor.shutdownNow();
+    }
+
+    /**
+     * One model with its routing attributes.
+     */
+    public static final class RoutedModel {
+        private final String name;
+        private final String backend;
+        private final String modelName;
+        private final double costPer1kTokens;
+        private final int maxPromptTokens;
+        private final Set<ModelTask> tasks;
+        private final ChatLanguageModel model;
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong wins = new AtomicLong();
+
+        public RoutedModel(String name, String backend, String modelName, double costPer1kTokens,
+                           int maxPromptTokens, Set<ModelTask> tasks, ChatLanguageModel model) {
+            this.name = name;
+            this.backend = backend;
+            this.modelName = modelName;
+            this.costPer1kTokens = costPer1kTokens;
+            this.maxPromptTokens = maxPromptTokens;
+            this.tasks = tasks.isEmpty() ? EnumSet.allOf(ModelTask.class) : EnumSet.copyOf(tasks);
+            this.model = model;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getBackend() {
+            return backend;
+        }
+
+        public double getCostPer1kTokens() {
+            return costPer1kTokens;
+        }
+
+        public ChatLanguageModel getModel() {
+            return model;
+        }
+
+        boolean canTake(ModelTask task, int promptTokens) {
+            return tasks.contains(task) && promptTokens <= maxPromptTokens;
+        }
+    }
+
+    public boolean isFanOut() {
+        return fanOut;
+    }
+
+    /**
+     * Cheapest healthy model that can take the call.
+     */
+    public RoutedModel route(ModelTask task, int promptTokens) {
+        RoutedModel model = candidates(task, promptTokens).get(0);
+        model.calls.incrementAndGet();
+        log.debug("Routing {} call of ~{} tokens to model '{}'", task, promptTokens, model.name);
+        return model;
+    }
+
+    /**
+     * Models that can take the call, cheapest first. Unhealthy models are left out unless nothing
+     * else is left; a prompt too large for every model goes to the one with the largest limit.
+     */
+    List<RoutedModel> candidates(ModelTask task, int promptTokens) {
+        List<RoutedModel> adequate = models.stream()
+                .filter(m -> m.canTake(task, promptTokens))
+                .collect(Collectors.toList());
+        if (adequate.isEmpty()) {
+            List<RoutedModel> forTask = models.stream()
+                    .filter(m -> m.tasks.contains(task))
+                    .collect(Collectors.toList());
+            List<RoutedModel> pool = forTask.isEmpty() ? models : forTask;
+            RoutedModel largest = Collections.max(pool, Comparator.comparingInt(m -> m.maxPromptTokens));
+            log.warn("No model accepts a {} prompt of ~{} tokens; using '{}' (limit {})",
+                    task, promptTokens, largest.name, largest.maxPromptTokens);
+            adequate = Collections.singletonList(largest);
+        }
+        List<RoutedModel> healthy = adequate.stream()
+                .filter(m -> registry.isHealthy(m.backend) && registry.hasModel(m.backend, m.modelName))
+                .collect(Collectors.toList());
+        return healthy.isEmpty() ? adequate : healthy;
+    }
+
+    /**
+     * Send the same prompt to every adequate model and keep the first well-formed answers.
+     *
+     * @return parsed answers by model name, in order of arrival; at most {@code fanOutKeep} of them
+     * @throws IllegalStateException if no model produced a well-formed answer in time
+     */
+    public <T> Map<String, T> fanOut(ModelTask task, int promptTokens, List<ChatMessage> messages,
+                                     Function<String, T> parse, Predicate<T> wellFormed) {
+        List<RoutedModel> candidates = candidates(task, promptTokens);
+        CompletionService<Map.Entry<RoutedModel, T>> completion = new ExecutorCompletionService<>(fanOutExecutor);
+        List<Future<Map.Entry<RoutedModel, T>>> futures = new ArrayList<>();
+        for (RoutedModel model : candidates) {
+            model.calls.incrementAndGet();
+            futures.add(completion.submit(() -> {
+                String text = model.model.generate(messages).content().text();
+                return new AbstractMap.SimpleImmutableEntry<>(model, parse.apply(text));
+            }));
+        }
+
+        Map<String, T> answers = new LinkedHashMap<>();
+        Throwable lastError = null;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fanOutTimeoutMs);
+        try {
+            for (int pending = futures.size(); pending > 0 && answers.size() < fanOutKeep; pending--) {
+                Future<Map.Entry<RoutedModel, T>> done = completion.poll(
+                        Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    log.warn("Fan-out {} call: deadline of {} ms passed with {} answer(s)",
+                            task, fanOutTimeoutMs, answers.size());
+                    break;
+                }
+                try {
+                    Map.Entry<RoutedModel, T> answer = done.get();
+                    if (wellFormed.test(answer.getValue())) {
+                        answer.getKey().wins.incrementAndGet();
+                        answers.put(answer.getKey().name, answer.getValue());
+                    } else {
+                        log.info("Fan-out {} call: model '{}' answered but not in the expected format",
+                                task, answer.getKey().name);
+                    }
+                } catch (ExecutionException e) {
+                    lastError = e.getCause();
+                    log.warn("Fan-out {} call: a model failed: {}", task, e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for model answers", e);
+        } finally {
+            // Slower models are no longer needed
+            futures.forEach(f -> f.cancel(true));
+        }
+
+        if (answers.isEmpty()) {
+            throw new IllegalStateException("No model returned a usable answer for the " + task + " call",
+                    lastError);
+        }
+        log.info("Fan-out {} call over {} model(s) kept answers from {}", task, candidates.size(), answers.keySet());
+        return answers;
+    }
+
+    public List<Map<String, Object>> describe() {
+        List<Map<String, Object>> description = new ArrayList<>();
+        for (RoutedModel model : models) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", model.name);
+            item.put("backend", model.backend);
+            item.put("modelName", model.modelName);
+            item.put("costPer1kTokens", model.costPer1kTokens);
+            item.put("maxPromptTokens", model.maxPromptTokens);
+            item.put("tasks", model.tasks);
+            item.put("healthy", registry.isHealthy(model.backend) && registry.hasModel(model.backend, model.modelName));
+            item.put("calls", model.calls.get());
+            if (fanOut) {
+                item.put("fanOutWins", model.wins.get());
+            }
+            description.add(item);
+        }
+        return description;
+    }
+}
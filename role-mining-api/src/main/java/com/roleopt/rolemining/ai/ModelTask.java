@@ -0,0 +1,15 @@
+package com.roleopt.rolemining.ai;
+
+/**
+ * Kinds of model call made by the AI pipeline, used by {@link ModelRouter} to pick a model.
+ */
+public enum ModelTask {
+    // One prompt over the whole dataset: needs the strongest model and the largest context
+    ANALYSIS,
+    // One partition of a map-reduce analysis: smaller prompt, cheaper model is usually adequate
+    PARTITION;
+
+    public static ModelTask fromName(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,68 @@
+package com.roleopt.rolemining.ai;
+
+/**
+ * The permission data section of an AI prompt, along with how much of the user population it covers.
+ */
+public class PermissionPrompt {
+
+    private final String text;
+    private final int totalGroups;
+    private final int includedGroups;
+    private final int totalUsers;
+    private final int coveredUsers;
+    private final int estimatedTokens;
+
+    public PermissionPrompt(String text, int totalGroups, int includedGroups,
+                            int totalUsers, int coveredUsers, int estimatedTokens) {
+        this.text = text;
+        this.totalGroups = totalGroups;
+        this.includedGroups = includedGroups;
+        this.totalUsers = totalUsers;
+        this.coveredUsers = coveredUsers;
+        this.estimatedTokens = estimatedTokens;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getTotalGroups() {
+        return totalGroups;
+    }
+
+    public int getIncludedGroups() {
+        return includedGroups;
+    }
+
+    public int getTotalUsers() {
+        return totalUsers;
+    }
+
+    public int getCoveredUsers() {
+        return coveredUsers;
+    }
+
+    public int getEstimatedTokens() {
+        return estimatedTokens;
+    }
+
+    /**
+     * Fraction of users (0.0 - 1.0) whose exact permission set appears in the prompt.
+     */
+    public double getCoverage() {
+        return totalUsers == 0 ? 0.0 : (double) coveredUsers / totalUsers;
+    }
+
+    public boolean isTruncated() {
+        return includedGroups < totalGroups;
+    }
+
+    @Override
+    public String toString() {
+        return "PermissionPrompt{" +
+                "groups=" + includedGroups + "/" + totalGroups +
+                ", users=" + coveredUsers + "/" + totalUsers +
+                ", estimatedTokens=" + estimatedTokens +
+                '}';
+    }
+}
@@ -0,0 +1,151 @@
+package com.roleopt.rolemining.ai;
+
+import com.roleopt.rolemining.model.Assignment;
+import com.roleopt.rolemining.model.Entitlement;
+import com.roleopt.rolemining.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Builds the permission data section of the AI prompt from distinct entitlement sets instead of
+ * one block per user. Users holding exactly the same entitlements are collapsed into a single group
+ * with a user count and OU breakdown; groups are ranked by support and added while they fit the
+ * token budget. Prompt size therefore depends on the number of distinct access patterns kept, not on
+ * the number of users.
+ */
+@Component
+public class PermissionPromptBuilder {
+
+    // How many OUs to list per group before folding the rest into "other"
+    private static final int MAX_OUS_PER_GROUP = 5;
+
+    // Space kept free for the coverage line that precedes the groups
+    private static final int HEADER_RESERVE_CHARS = 200;
+
+    // Shortest possible group block: header, "Permissions:" and one permission line
+    private static final int MIN_GROUP_CHARS = 36;
+
+    @Value("${llm.prompt.chars-per-token:4}")
+    private int charsPerToken = 4;
+
+    public PermissionPrompt build(Map<String, User> users,
+                                  Map<String, Entitlement> entitlements,
+                                  List<Assignment> assignments,
+                                  int tokenBudget) {
+        // Step 1: Merge every user's assignments into one sorted entitlement set
+        Map<String, TreeSet<String>> userEntitlements = new HashMap<>();
+        for (Assignment assignment : assignments) {
+            String userId = assignment.getUser().getUserId();
+            if (!users.containsKey(userId)) {
+                continue;
+            }
+            for (Entitlement entitlement : assignment.getEntitlements()) {
+                if (entitlements.containsKey(entitlement.getEntitlementId())) {
+                    userEntitlements.computeIfAbsent(userId, k -> new TreeSet<>())
+                            .add(entitlement.getEntitlementId());
+                }
+            }
+        }
+
+        // Step 2: Group users by identical entitlement set
+        Map<TreeSet<String>, Group> groups = new HashMap<>();
+        for (Map.Entry<String, TreeSet<String>> entry : userEntitlements.entrySet()) {
+            Group group = groups.computeIfAbsent(entry.getValue(), Group::new);
+            User user = users.get(entry.getKey());
+            String ouName = user.getOrganizationalUnit() != null
+                    ? user.getOrganizationalUnit().getName()
+                    : "Unknown";
+            group.userCount++;
+            group.ouCounts.merge(ouName, 1, Integer::sum);
+        }
+
+        // Step 3: Rank by support, breaking ties towards richer (more informative) sets
+        List<Group> ranked = new ArrayList<>(groups.values());
+        ranked.sort(Comparator.comparingInt((Group g) -> g.userCount).reversed()
+                .thenComparing(Comparator.comparingInt((Group g) -> g.entitlementIds.size()).reversed())
+                .thenComparing(g -> String.join(",", g.entitlementIds)));
+
+        // Step 4: Render groups in rank order, skipping any too large for the space left so that
+        // smaller groups further down can still fill it
+        int totalUsers = userEntitlements.size();
+        StringBuilder body = new StringBuilder();
+        int includedGroups = 0;
+        int coveredUsers = 0;
+        int charBudget = Math.max(0, tokenBudget * charsPerToken - HEADER_RESERVE_CHARS);
+        for (Group group : ranked) {
+            if (charBudget - body.length() < MIN_GROUP_CHARS) {
+                break;
+            }
+            String block = renderGroup(includedGroups + 1, group, entitlements);
+            if (body.length() + block.length() > charBudget) {
+                continue;
+            }
+            body.append(block);
+            includedGroups++;
+            coveredUsers += group.userCount;
+        }
+
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT,
+                "The following %d of %d distinct access patterns cover %d of %d users (%.1f%%). " +
+                "Each group lists users who hold exactly the same permissions.%n%n",
+                includedGroups, ranked.size(), coveredUsers, totalUsers,
+                totalUsers == 0 ? 0.0 : 100.0 * coveredUsers / totalUsers));
+        text.append(body);
+
+        return new PermissionPrompt(text.toString(), ranked.size(), includedGroups,
+                totalUsers, coveredUsers, estimateTokens(text));
+    }
+
+    public int estimateTokens(CharSequence text) {
+        return (text.length() + charsPerToken - 1) / charsPerToken;
+    }
+
+    private String renderGroup(int number, Group group, Map<String, Entitlement> entitlements) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Group ").append(number).append(": ").append(group.userCount)
+                .append(group.userCount == 1 ? " user" : " users");
+
+        List<Map.Entry<String, Integer>> ous = new ArrayList<>(group.ouCounts.entrySet());
+        ous.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        sb.append(" (");
+        int other = 0;
+        for (int i = 0; i < ous.size(); i++) {
+            if (i < MAX_OUS_PER_GROUP) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(ous.get(i).getKey()).append(": ").append(ous.get(i).getValue());
+            } else {
+                other += ous.get(i).getValue();
+            }
+        }
+        if (other > 0) {
+            sb.append(", other: ").append(other);
+        }
+        sb.append(")\n");
+
+        sb.append("Permissions:\n");
+        for (String entitlementId : group.entitlementIds) {
+            Entitlement entitlement = entitlements.get(entitlementId);
+            String appName = entitlement.getApplication() != null
+                    ? entitlement.getApplication().getName()
+                    : "Unknown";
+            sb.append("- ").append(appName).append(": ").append(entitlement.getName()).append("\n");
+        }
+        sb.append("\n");
+        return sb.toString();
+    }
+
+    private static final class Group {
+        private final SortedSet<String> entitlementIds;
+        private final Map<String, Integer> ouCounts = new HashMap<>();
+        private int userCount;
+
+        private Group(SortedSet<String> entitlementIds) {
+            this.entitlementIds = entitlementIds;
+        }
+    }
+}
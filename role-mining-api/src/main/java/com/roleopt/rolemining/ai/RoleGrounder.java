@@ -0,0 +1,110 @@
+package com.roleopt.rolemining.ai;
+
+import com.roleopt.rolemining.dto.RoleDTO;
+import com.roleopt.rolemining.index.AccessMatrix;
+import com.roleopt.rolemining.index.DatasetIndex;
+import com.roleopt.rolemining.index.EntitlementNameIndex;
+import com.roleopt.rolemining.index.MembershipIndex;
+import com.roleopt.rolemining.model.Entitlement;
+import com.roleopt.rolemining.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Replaces what a model claims about a role with what the loaded data says. Each permission the model
+ * listed is resolved to a real entitlement; the role's members are the users holding all resolved
+ * entitlements, its applications are theirs, and its confidence becomes
+ * {@code resolution x cohesion}: how well the listed permissions matched real entitlements, times the
+ * share of users holding any of them who hold the whole bundle.
+ */
+@Component
+public class RoleGrounder {
+
+    private static final Logger log = LoggerFactory.getLogger(RoleGrounder.class);
+
+    @Value("${llm.grounding.min-match-score:0.6}")
+    private double minMatchScore;
+
+    public void groundAll(List<RoleDTO> roles, DatasetIndex index) {
+        long start = System.nanoTime();
+        for (RoleDTO role : roles) {
+            ground(role, index);
+        }
+        log.info("Grounded {} AI role(s) against dataset version {} in {} us",
+                roles.size(), index.getVersion(), (System.nanoTime() - start) / 1000);
+    }
+
+    public void ground(RoleDTO role, DatasetIndex index) {
+        AccessMatrix matrix = index.getMatrix();
+        EntitlementNameIndex nameIndex = index.getNameIndex();
+        List<String> claimed = role.getPermissions() == null ? new ArrayList<>() : role.getPermissions();
+
+        // Step 1: resolve each listed permission to an entitlement
+        Set<Integer> resolved = new LinkedHashSet<>();
+        List<String> unresolved = new ArrayList<>();
+        double matchScoreSum = 0;
+        for (String permission : claimed) {
+            EntitlementNameIndex.Match match = nameIndex.resolve(permission, minMatchScore);
+            if (match == null) {
+                unresolved.add(permission);
+            } else if (resolved.add(match.getEntitlement())) {
+                matchScoreSum += match.getScore();
+            }
+        }
+        int[] entitlementIds = resolved.stream().mapToInt(Integer::intValue).toArray();
+
+        // Step 2: members and support come from the compressed holder bitmaps
+        MembershipIndex membership = index.getMembership();
+        int[] members = membership.usersWithAll(entitlementIds).toArray();
+        int holdersOfAny = membership.usersWithAny(entitlementIds).cardinality();
+
+        // Step 3: rewrite the role from real data
+        List<String> permissions = new ArrayList<>(entitlementIds.length);
+        Set<String> applications = new TreeSet<>();
+        for (int e : entitlementIds) {
+            Entitlement entitlement = index.getEntitlements().get(matrix.entitlementId(e));
+            String appName = entitlement.getApplication() != null ? entitlement.getApplication().getName() : "Unknown";
+            permissions.add(appName + ": " + entitlement.getName());
+            if (entitlement.getApplication() != null) {
+                applications.add(appName);
+            }
+        }
+        List<String> users = new ArrayList<>(members.length);
+        for (int u : members) {
+            String userId = matrix.userId(u);
+            User user = index.getUsers().get(userId);
+            users.add(userId + " (" + user.getFirstName() + " " + user.getLastName() + ")");
+        }
+
+        double resolution = claimed.isEmpty() ? 0 : matchScoreSum / claimed.size();
+        double cohesion = holdersOfAny == 0 ? 0 : (double) members.length / holdersOfAny;
+
+        role.setAttribute("claimedUserCount", role.getUserCount());
+        role.setAttribute("claimedConfidence", role.getConfidence());
+        role.setAttribute("resolution", resolution);
+        role.setAttribute("cohesion", cohesion);
+        if (!unresolved.isEmpty()) {
+            role.setAttribute("unresolvedPermissions", unresolved);
+        }
+
+        role.setPermissions(permissions);
+        role.setPermissionCount(permissions.size());
+        role.setApplications(new ArrayList<>(applications));
+        role.setUsers(users);
+        role.setUserCount(members.length);
+        role.setConfidence((int) Math.round(100 * resolution * cohesion));
+
+        log.debug("Grounded '{}': {}/{} permissions resolved, {} members of {} holders, ids {}",
+                role.getName(), entitlementIds.length, claimed.size(), members.length, holdersOfAny,
+                Arrays.toString(entitlementIds));
+    }
+}
@@ -0,0 +1,23 @@
+package com.roleopt.rolemining.ai;
+
+import com.roleopt.rolemining.dto.RoleDTO;
+
+import java.util.List;
+
+/**
+ * Receives AI-suggested roles while the model is still generating its answer.
+ */
+public interface RoleStreamListener {
+
+    /**
+     * Called once for every role block as soon as it is complete
+     */
+    void onRole(RoleDTO role);
+
+    /**
+     * Called after the model has finished, with every role that was emitted
+     */
+    void onComplete(List<RoleDTO> roles);
+
+    void onError(Throwable error);
+}
@@ -0,0 +1,24 @@
+package com.roleopt.rolemining.ai;
+
+import com.roleopt.rolemining.dto.RoleDTO;
+
+import java.util.List;
+
+/**
+ * Incremental parser for a model answer that may arrive in pieces. Roles are handed to the consumer
+ * given at construction as soon as they are complete. Not thread-safe: one instance per answer.
+ */
+public interface RoleStreamParser {
+
+    /**
+     * Feed the next piece of the answer.
+     */
+    void accept(String chunk);
+
+    /**
+     * Signal the end of the answer and flush any role still open.
+     *
+     * @return every role parsed from the answer, in order
+     */
+    List<RoleDTO> finish();
+}
@@ -0,0 +1,142 @@
+package com.roleopt.rolemining.ai;
+
+import com.roleopt.rolemining.dto.RoleDTO;
+
+import java.util.*;
+
+/**
+ * Reduce step for partitioned AI analysis and for model fan-out: merges the roles suggested for
+ * each partition, or by each model, and removes duplicates. Two suggestions are the same role when
+ * they share the same normalized permission set (or, if the model listed no permissions, the same
+ * normalized name).
+ */
+public final class RoleSuggestionMerger {
+
+    private RoleSuggestionMerger() {
+    }
+
+    /**
+     * @param rolesByPartition suggested roles keyed by partition label
+     * @return merged roles, largest first, with fresh IDs starting at 101
+     */
+    public static List<RoleDTO> merge(Map<String, List<RoleDTO>> rolesByPartition) {
+        return merge(rolesByPartition, true, "partitions");
+    }
+
+    /**
+     * Merge the answers of several models to the same prompt. Every model describes the same users,
+     * so a role proposed by several models keeps the largest user count rather than their sum, and
+     * lists the models that proposed it under the {@code models} attribute.
+     *
+     * @param rolesByModel suggested roles keyed by model name
+     * @return merged roles, largest first, with fresh IDs starting at 101
+     */
+    public static List<RoleDTO> mergeModels(Map<String, List<RoleDTO>> rolesByModel) {
+        return merge(rolesByModel, false, "models");
+    }
+
+    /**
+     * @param disjoint whether the sources describe different users, so user counts add up
+     * @param sourceAttribute attribute listing the sources of each merged role
+     */
+    private static List<RoleDTO> merge(Map<String, List<RoleDTO>> rolesBySource, boolean disjoint,
+                                       String sourceAttribute) {
+        Map<String, Merged> merged = new LinkedHashMap<>();
+
+        for (Map.Entry<String, List<RoleDTO>> source : rolesBySource.entrySet()) {
+            for (RoleDTO role : source.getValue()) {
+                String key = mergeKey(role);
+                Merged target = merged.get(key);
+                if (target == null) {
+                    merged.put(key, new Merged(role, source.getKey(), disjoint, sourceAttribute));
+                } else {
+                    target.add(role, source.getKey());
+                }
+            }
+        }
+
+        List<RoleDTO> result = new ArrayList<>();
+        for (Merged m : merged.values()) {
+            result.add(m.toRole());
+        }
+        result.sort(Comparator.comparingInt(RoleDTO::getUserCount).reversed()
+                .thenComparing(Comparator.comparingInt(RoleDTO::getConfidence).reversed()));
+
+        long id = 101;
+        for (RoleDTO role : result) {
+            role.setId(id++);
+        }
+        return result;
+    }
+
+    private static String mergeKey(RoleDTO role) {
+        if (role.getPermissions() != null && !role.getPermissions().isEmpty()) {
+            TreeSet<String> normalized = new TreeSet<>();
+            for (String permission : role.getPermissions()) {
+                normalized.add(normalize(permission));
+            }
+            return "p:" + String.join("|", normalized);
+        }
+        return "n:" + normalize(role.getName());
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9:]+", " ").trim();
+    }
+
+    private static final class Merged {
+        private final boolean disjoint;
+        private final String sourceAttribute;
+        private RoleDTO best;
+        private int userCount;
+        private long weightedConfidence;
+        private int weight;
+        private final Set<String> applications = new LinkedHashSet<>();
+        private final List<String> sources = new ArrayList<>();
+
+        private Merged(RoleDTO role, String source, boolean disjoint, String sourceAttribute) {
+            this.disjoint = disjoint;
+            this.sourceAttribute = sourceAttribute;
+            this.best = role;
+            add0(role, source);
+        }
+
+        private void add(RoleDTO role, String source) {
+            if (role.getConfidence() > best.getConfidence()) {
+                best = role;
+            }
+            add0(role, source);
+        }
+
+        private void add0(RoleDTO role, String source) {
+            userCount = disjoint ? userCount + role.getUserCount() : Math.max(userCount, role.getUserCount());
+            int w = Math.max(1, role.getUserCount());
+            weightedConfidence += (long) role.getConfidence() * w;
+            weight += w;
+            if (role.getApplications() != null) {
+                applications.addAll(role.getApplications());
+            }
+            if (disjoint || !sources.contains(source)) {
+                sources.add(source);
+            }
+        }
+
+        private RoleDTO toRole() {
+            RoleDTO role = new RoleDTO();
+            role.setName(best.getName());
+            role.setUserCount(userCount);
+            role.setConfidence((int) Math.round((double) weightedConfidence / weight));
+            role.setAiGenerated(true);
+            role.setPermissions(best.getPermissions());
+            role.setPermissionCount(best.getPermissionCount());
+            role.setApplications(new ArrayList<>(applications));
+            role.setUsers(best.getUsers());
+            role.setAttributes(new HashMap<>(best.getAttributes()));
+            role.setAttribute(sourceAttribute, sources);
+            return role;
+        }
+    }
+}
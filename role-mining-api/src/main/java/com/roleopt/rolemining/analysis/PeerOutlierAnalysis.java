@@ -0,0 +1,234 @@
+package com.roleopt.rolemining.analysis;
+
+import com.roleopt.rolemining.admission.MemoryEstimator;
+import com.roleopt.rolemining.dto.UserOutlierDTO;
+import com.roleopt.rolemining.index.AccessMatrix;
+import com.roleopt.rolemining.index.DatasetIndex;
+import com.roleopt.rolemining.model.Entitlement;
+import com.roleopt.rolemining.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scores every user of a dataset against the peers of their organizational unit. Each entitlement a
+ * user holds adds the share of their OU peers who do not hold it, so access shared by the whole OU
+ * scores nothing and access nobody else in the OU has scores 1. Users with no OU are compared with
+ * each other.
+ * <p>
+ * Entitlement counts are kept in one flat array of {@code OUs x entitlements}, filled in a single pass
+ * over the rows of the access matrix; a second pass scores each row against its OU's counts.
+ * Ranking sorts packed {@code (score, ordinal)} longs, so nothing is boxed per user.
+ */
+public final class PeerOutlierAnalysis {
+
+    private final DatasetIndex index;
+    private final double rarePeerShare;
+    private final String[] groupOuIds;
+    private final int[] groupSizes;
+    private final int[] groupOf;
+    // Holders of entitlement e in group g at counts[g * entitlementCount + e]
+    private final int[] counts;
+    private final float[] scores;
+    // User ordinals by descending score, then ascending user id
+    private final int[] ranking;
+    private final Map<String, Integer> groupIds;
+
+    private PeerOutlierAnalysis(DatasetIndex index, double rarePeerShare, String[] groupOuIds, int[] groupSizes,
+                                int[] groupOf, int[] counts, float[] scores, int[] ranking,
+                                Map<String, Integer> groupIds) {
+        this.index = index;
+        this.rarePeerShare = rarePeerShare;
+        this.groupOuIds = groupOuIds;
+        this.groupSizes = groupSizes;
+        this.groupOf = groupOf;
+        this.counts = counts;
+        this.scores = scores;
+        this.ranking = ranking;
+        this.groupIds = groupIds;
+    }
+
+    /**
+     * Heap the analysis of a dataset keeps for as long as it is served, for admission against the memory budget
+     */
+    public static long retainedBytes(DatasetIndex index) {
+        AccessMatrix matrix = index.getMatrix();
+        long groups = groupCount(index);
+        // Counts, then group, score and rank per user
+        return MemoryEstimator.intArray(groups * matrix.entitlementCount())
+                + 3 * MemoryEstimator.intArray(matrix.userCount());
+    }
+
+    /**
+     * Heap needed on top of {@link #retainedBytes} while building: the sort keys of the ranking
+     */
+    public static long buildBytes(DatasetIndex index) {
+        return MemoryEstimator.ARRAY_HEADER + 8L * index.getMatrix().userCount();
+    }
+
+    /**
+     * @param rarePeerShare share of peers below which a held entitlement counts as rare
+     */
+    public static PeerOutlierAnalysis build(DatasetIndex index, double rarePeerShare) {
+        AccessMatrix matrix = index.getMatrix();
+        int userCount = matrix.userCount();
+        int entitlementCount = matrix.entitlementCount();
+
+        // Step 1: peer group of each user, from the OU links set up at upload
+        Map<String, Integer> groupIds = new HashMap<>();
+        List<String> ouIds = new ArrayList<>();
+        int[] groupOf = new int[userCount];
+        for (int u = 0; u < userCount; u++) {
+            User user = index.getUsers().get(matrix.userId(u));
+            String ouId = user != null && user.getOrganizationalUnit() != null
+                    ? user.getOrganizationalUnit().getOuId() : null;
+            Integer group = groupIds.get(ouId);
+            if (group == null) {
+                group = ouIds.size();
+                groupIds.put(ouId, group);
+                ouIds.add(ouId);
+            }
+            groupOf[u] = group;
+        }
+        int groups = ouIds.size();
+        if ((long) groups * entitlementCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(groups + " OUs x " + entitlementCount
+                    + " entitlements is too many counts for one array");
+        }
+
+        // Step 2: one pass over the rows counts holders per OU and entitlement
+        int[] groupSizes = new int[groups];
+        int[] counts = new int[groups * entitlementCount];
+        for (int u = 0; u < userCount; u++) {
+            int base = groupOf[u] * entitlementCount;
+            groupSizes[groupOf[u]]++;
+            for (int e : matrix.entitlementsOf(u)) {
+                counts[base + e]++;
+            }
+        }
+
+        // Step 3: score each row against its peers, the user excluded
+        float[] scores = new float[userCount];
+        long[] keys = new long[userCount];
+        for (int u = 0; u < userCount; u++) {
+            int peers = groupSizes[groupOf[u]] - 1;
+            float score = 0;
+            if (peers > 0) {
+                int base = groupOf[u] * entitlementCount;
+                float perPeer = 1.0f / peers;
+                for (int e : matrix.entitlementsOf(u)) {
+                    score += 1.0f - (counts[base + e] - 1) * perPeer;
+                }
+            }
+            scores[u] = score;
+            // Scores are never negative, so their bits sort like the values
+            keys[u] = (long) (Integer.MAX_VALUE - Float.floatToIntBits(score)) << 32 | u;
+        }
+
+        // Step 4: rank by descending score, user id breaking ties
+        Arrays.sort(keys);
+        int[] ranking = new int[userCount];
+        for (int i = 0; i < userCount; i++) {
+            ranking[i] = (int) keys[i];
+        }
+        return new PeerOutlierAnalysis(index, rarePeerShare, ouIds.toArray(new String[0]), groupSizes, groupOf,
+                counts, scores, ranking, groupIds);
+    }
+
+    private static long groupCount(DatasetIndex index) {
+        return index.getUsers().values().stream()
+                .map(user -> user.getOrganizationalUnit() == null ? null : user.getOrganizationalUnit().getOuId())
+                .distinct()
+                .count();
+    }
+
+    public long getDatasetVersion() {
+        return index.getVersion();
+    }
+
+    /**
+     * Users ranked, all of them or those of one OU
+     */
+    public int total(String ouId) {
+        if (ouId == null) {
+            return ranking.length;
+        }
+        Integer group = groupIds.get(ouId);
+        return group == null ? 0 : groupSizes[group];
+    }
+
+    /**
+     * One page of the ranking
+     *
+     * @param ouId only rank users of this OU; null for everyone
+     * @param maxRareEntitlements how many of each user's rarest entitlements to list
+     */
+    public List<UserOutlierDTO> page(int page, int size, String ouId, int maxRareEntitlements) {
+        List<UserOutlierDTO> result = new ArrayList<>(size);
+        Integer group = ouId == null ? null : groupIds.get(ouId);
+        if (ouId != null && group == null) {
+            return result;
+        }
+        int onlyGroup = group == null ? -1 : group;
+        long skip = (long) page * size;
+        int rank = 0;
+        for (int u : ranking) {
+            if (onlyGroup >= 0 && groupOf[u] != onlyGroup) {
+                continue;
+            }
+            rank++;
+            if (rank <= skip) {
+                continue;
+            }
+            result.add(describe(u, rank, maxRareEntitlements));
+            if (result.size() == size) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private UserOutlierDTO describe(int u, int rank, int maxRareEntitlements) {
+        AccessMatrix matrix = index.getMatrix();
+        int group = groupOf[u];
+        int peers = groupSizes[group] - 1;
+        int base = group * matrix.entitlementCount();
+        int[] held = matrix.entitlementsOf(u);
+
+        // Rarest first: fewest other holders in the OU
+        Integer[] byRarity = new Integer[held.length];
+        int rare = 0;
+        for (int i = 0; i < held.length; i++) {
+            byRarity[i] = held[i];
+            if (peers > 0 && (counts[base + held[i]] - 1) < rarePeerShare * peers) {
+                rare++;
+            }
+        }
+        Arrays.sort(byRarity, (a, b) -> Integer.compare(counts[base + a], counts[base + b]));
+        List<String> rareEntitlements = new ArrayList<>();
+        for (int i = 0; i < Math.min(rare, maxRareEntitlements); i++) {
+            int e = byRarity[i];
+            Entitlement entitlement = index.getEntitlements().get(matrix.entitlementId(e));
+            String appName = entitlement != null && entitlement.getApplication() != null
+                    ? entitlement.getApplication().getName() : "Unknown";
+            String name = entitlement != null ? entitlement.getName() : matrix.entitlementId(e);
+            rareEntitlements.add(appName + ": " + name + " (" + (counts[base + e] - 1) + " of " + peers + " peers)");
+        }
+
+        User user = index.getUsers().get(matrix.userId(u));
+        UserOutlierDTO outlier = new UserOutlierDTO();
+        outlier.setRank(rank);
+        outlier.setUserId(matrix.userId(u));
+        outlier.setName(user != null ? user.getFirstName() + " " + user.getLastName() : null);
+        outlier.setOrganizationalUnit(groupOuIds[group]);
+        outlier.setScore(Math.round(scores[u] * 1000) / 1000.0);
+        outlier.setEntitlementCount(held.length);
+        outlier.setRareEntitlementCount(rare);
+        outlier.setPeerCount(peers);
+        outlier.setRareEntitlements(rareEntitlements);
+        return outlier;
+    }
+}
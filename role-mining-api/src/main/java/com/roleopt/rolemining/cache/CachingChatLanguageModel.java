@@ -0,0 +1,63 @@
+package com.roleopt.rolemining.cache;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * ChatLanguageModel decorator that answers byte-identical requests from the {@link LlmResponseCache}
+ * without touching the underlying model. Only complete answers the caller can use are stored, so a
+ * truncated or unparseable answer is asked for again rather than replayed across restarts.
+ */
+public class CachingChatLanguageModel implements ChatLanguageModel {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingChatLanguageModel.class);
+
+    private final ChatLanguageModel delegate;
+    private final LlmResponseCache cache;
+    private final String modelName;
+    private final double temperature;
+    // Whether an answer is worth keeping, e.g. because it parses into roles
+    private final Predicate<String> cacheable;
+
+    public CachingChatLanguageModel(ChatLanguageModel delegate, LlmResponseCache cache,
+                                    String modelName, double temperature, Predicate<String> cacheable) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.modelName = modelName;
+        this.temperature = temperature;
+        this.cacheable = cacheable;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        String key = cache.key(modelName, temperature, messages);
+        String cached = cache.get(key);
+        if (cached != null) {
+            log.info("LLM cache hit for {} ({} characters)", modelName, cached.length());
+            return Response.from(AiMessage.from(cached));
+        }
+
+        Response<AiMessage> response = delegate.generate(messages);
+        if (isCacheable(response, cacheable)) {
+            cache.put(key, response.content().text());
+        }
+        return response;
+    }
+
+    /**
+     * A complete answer (not cut off at the token limit) that passes {@code cacheable}
+     */
+    static boolean isCacheable(Response<AiMessage> response, Predicate<String> cacheable) {
+        return response != null && response.content() != null && response.content().text() != null
+                && response.finishReason() != FinishReason.LENGTH
+                && cacheable.test(response.content().text());
+    }
+}
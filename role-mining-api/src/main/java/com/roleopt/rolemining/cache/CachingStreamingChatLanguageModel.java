@@ -0,0 +1,70 @@
+package com.roleopt.rolemining.cache;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Streaming counterpart of {@link CachingChatLanguageModel}. Shares cache entries with the blocking
+ * model: a hit is replayed to the handler as a single token, and a completed stream is stored if
+ * it is cacheable by the same rules.
+ */
+public class CachingStreamingChatLanguageModel implements StreamingChatLanguageModel {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingStreamingChatLanguageModel.class);
+
+    private final StreamingChatLanguageModel delegate;
+    private final LlmResponseCache cache;
+    private final String modelName;
+    private final double temperature;
+    // Whether an answer is worth keeping, e.g. because it parses into roles
+    private final Predicate<String> cacheable;
+
+    public CachingStreamingChatLanguageModel(StreamingChatLanguageModel delegate, LlmResponseCache cache,
+                                             String modelName, double temperature, Predicate<String> cacheable) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.modelName = modelName;
+        this.temperature = temperature;
+        this.cacheable = cacheable;
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        String key = cache.key(modelName, temperature, messages);
+        String cached = cache.get(key);
+        if (cached != null) {
+            log.info("LLM cache hit for streaming {} ({} characters)", modelName, cached.length());
+            handler.onNext(cached);
+            handler.onComplete(Response.from(AiMessage.from(cached)));
+            return;
+        }
+
+        delegate.generate(messages, new StreamingResponseHandler<AiMessage>() {
+            @Override
+            public void onNext(String token) {
+                handler.onNext(token);
+            }
+
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                if (CachingChatLanguageModel.isCacheable(response, cacheable)) {
+                    cache.put(key, response.content().text());
+                }
+                handler.onComplete(response);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                handler.onError(error);
+            }
+        });
+    }
+}
@@ -0,0 +1,240 @@
+package com.roleopt.rolemining.cache;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content-addressed, disk-backed cache of LLM responses. Each response is stored in its own file
+ * named after the SHA-256 of the model identity and the exact prompt, so entries survive restarts
+ * and identical requests never reach the model twice. File modification times record last use,
+ * which lets LRU order be rebuilt from the directory on startup.
+ */
+@Component
+public class LlmResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmResponseCache.class);
+
+    private static final String ENTRY_SUFFIX = ".txt";
+
+    @Value("${llm.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${llm.cache.dir:${user.home}/.role-mining/llm-cache}")
+    private String cacheDir;
+
+    @Value("${llm.cache.max-size-bytes:104857600}")
+    private long maxSizeBytes;
+
+    private Path directory;
+
+    // Access-ordered index of key -> file size; mirrors the files on disk
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSize;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("LLM response cache disabled");
+            return;
+        }
+        directory = Paths.get(cacheDir);
+        try {
+            Files.createDirectories(directory);
+            loadIndex();
+            log.info("LLM response cache at {} holds {} entries ({} bytes)", directory, index.size(), totalSize);
+        } catch (IOException e) {
+            log.error("Could not initialise LLM response cache at {}: {}", directory, e.getMessage());
+            enabled = false;
+        }
+    }
+
+    private synchronized void loadIndex() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        // Oldest first, so the access-ordered index starts out in LRU order
+        files.sort(Comparator.comparing(LlmResponseCache::lastModified));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long size = Files.size(file);
+            index.put(name.substring(0, name.length() - ENTRY_SUFFIX.length()), size);
+            totalSize += size;
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * Build the cache key for a model call. Any change to the model, its sampling temperature,
+     * the system message or the prompt yields a different key.
+     */
+    public String key(String modelName, double temperature, String systemMessage, String prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, modelName);
+            update(digest, Double.toString(temperature));
+            update(digest, systemMessage);
+            update(digest, prompt);
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Build the cache key for a chat request. System messages are concatenated into the system part,
+     * all other messages (tagged with their type) into the prompt part.
+     */
+    public String key(String modelName, double temperature, List<ChatMessage> messages) {
+        StringBuilder system = new StringBuilder();
+        StringBuilder prompt = new StringBuilder();
+        for (ChatMessage message : messages) {
+            if (message.type() == ChatMessageType.SYSTEM) {
+                system.append(message.text()).append('\n');
+            } else {
+                prompt.append(message.type()).append(": ").append(message.text()).append('\n');
+            }
+        }
+        return key(modelName, temperature, system.toString(), prompt.toString());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        // Length prefix keeps ("ab", "c") and ("a", "bc") from colliding
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    public String get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (this) {
+            if (index.get(key) == null) {
+                misses++;
+                return null;
+            }
+        }
+        Path file = entryPath(key);
+        try {
+            String response = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            synchronized (this) {
+                hits++;
+            }
+            return response;
+        } catch (IOException e) {
+            log.warn("Dropping unreadable LLM cache entry {}: {}", key, e.getMessage());
+            synchronized (this) {
+                Long size = index.remove(key);
+                if (size != null) {
+                    totalSize -= size;
+                }
+                misses++;
+            }
+            return null;
+        }
+    }
+
+    public void put(String key, String response) {
+        if (!enabled || response == null) {
+            return;
+        }
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxSizeBytes) {
+            return;
+        }
+        Path file = entryPath(key);
+        try {
+            // Write to a temp file and move into place so readers never see a partial entry
+            Path tmp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(tmp, bytes);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write LLM cache entry {}: {}", key, e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            Long previous = index.put(key, (long) bytes.length);
+            if (previous != null) {
+                totalSize -= previous;
+            }
+            totalSize += bytes.length;
+            evictIfNeeded();
+        }
+    }
+
+    private synchronized void evictIfNeeded() {
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while (totalSize > maxSizeBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            try {
+                Files.deleteIfExists(entryPath(eldest.getKey()));
+            } catch (IOException e) {
+                log.warn("Failed to evict LLM cache entry {}: {}", eldest.getKey(), e.getMessage());
+            }
+            totalSize -= eldest.getValue();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long lookups = hits + misses;
+        stats.put("enabled", enabled);
+        stats.put("directory", cacheDir);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hits / lookups);
+        stats.put("entries", index.size());
+        stats.put("sizeBytes", totalSize);
+        stats.put("maxSizeBytes", maxSizeBytes);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+
+    private Path entryPath(String key) {
+        return directory.resolve(key + ENTRY_SUFFIX);
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
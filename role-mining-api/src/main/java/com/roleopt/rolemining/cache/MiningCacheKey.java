@@ -0,0 +1,94 @@
+package com.roleopt.rolemining.cache;
+
+import com.roleopt.rolemining.dto.RoleMiningFilterDTO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Cache key for a mining run: the dataset version plus a canonical form of the filter.
+ * Application and OU lists are de-duplicated and sorted so that equivalent filters
+ * produce equal keys regardless of the order the UI sends them in.
+ */
+public final class MiningCacheKey {
+
+    private final long datasetVersion;
+    private final List<String> applications;
+    private final List<String> organizationalUnits;
+    private final int minUsersPerRole;
+    private final int maxPermissionsPerRole;
+    private final String algorithm;
+    private final int hash;
+
+    private MiningCacheKey(long datasetVersion, List<String> applications, List<String> organizationalUnits,
+                           int minUsersPerRole, int maxPermissionsPerRole, String algorithm) {
+        this.datasetVersion = datasetVersion;
+        this.applications = applications;
+        this.organizationalUnits = organizationalUnits;
+        this.minUsersPerRole = minUsersPerRole;
+        this.maxPermissionsPerRole = maxPermissionsPerRole;
+        this.algorithm = algorithm;
+        this.hash = Objects.hash(datasetVersion, applications, organizationalUnits,
+                minUsersPerRole, maxPermissionsPerRole, algorithm);
+    }
+
+    public static MiningCacheKey of(long datasetVersion, RoleMiningFilterDTO filters, String algorithm) {
+        return new MiningCacheKey(
+                datasetVersion,
+                canonicalize(filters.getApplications()),
+                canonicalize(filters.getOrganizationalUnits()),
+                filters.getMinUsersPerRole(),
+                filters.getMaxPermissionsPerRole(),
+                algorithm);
+    }
+
+    private static List<String> canonicalize(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        TreeSet<String> sorted = new TreeSet<>();
+        for (String value : values) {
+            if (value != null && !value.trim().isEmpty()) {
+                sorted.add(value.trim());
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(sorted));
+    }
+
+    public long getDatasetVersion() {
+        return datasetVersion;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MiningCacheKey that = (MiningCacheKey) o;
+        return datasetVersion == that.datasetVersion &&
+                minUsersPerRole == that.minUsersPerRole &&
+                maxPermissionsPerRole == that.maxPermissionsPerRole &&
+                applications.equals(that.applications) &&
+                organizationalUnits.equals(that.organizationalUnits) &&
+                Objects.equals(algorithm, that.algorithm);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "MiningCacheKey{" +
+                "datasetVersion=" + datasetVersion +
+                ", applications=" + applications +
+                ", organizationalUnits=" + organizationalUnits +
+                ", minUsersPerRole=" + minUsersPerRole +
+                ", maxPermissionsPerRole=" + maxPermissionsPerRole +
+                ", algorithm='" + algorithm + '\'' +
+                '}';
+    }
+}
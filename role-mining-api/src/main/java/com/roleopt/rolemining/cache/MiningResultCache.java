@@ -0,0 +1,155 @@
+package com.roleopt.rolemining.cache;
+
+import com.roleopt.rolemining.dto.RoleDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of mining results. Capacity is expressed in estimated bytes rather than
+ * entry count, so a handful of huge unfiltered runs cannot crowd the heap the way a fixed
+ * entry limit would allow.
+ */
+@Component
+public class MiningResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(MiningResultCache.class);
+
+    // Rough per-object overheads used by the weight estimate (64-bit JVM, compressed oops)
+    private static final long ROLE_OVERHEAD_BYTES = 96;
+    private static final long STRING_OVERHEAD_BYTES = 40;
+    private static final long LIST_SLOT_BYTES = 8;
+    private static final long LONG_BYTES = 16;
+
+    @Value("${role-mining.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${role-mining.cache.max-weight-bytes:67108864}")
+    private long maxWeightBytes;
+
+    // Access-ordered map gives us LRU iteration order for eviction
+    private final LinkedHashMap<MiningCacheKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalWeight;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public synchronized List<RoleDTO> get(MiningCacheKey key) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.roles;
+    }
+
+    public synchronized void put(MiningCacheKey key, List<RoleDTO> roles) {
+        if (!enabled) {
+            return;
+        }
+        long weight = estimateWeight(roles);
+        if (weight > maxWeightBytes) {
+            log.debug("Result for {} weighs ~{} bytes, above cache capacity; not caching", key, weight);
+            return;
+        }
+
+        Entry previous = entries.put(key, new Entry(Collections.unmodifiableList(roles), weight));
+        if (previous != null) {
+            totalWeight -= previous.weight;
+        }
+        totalWeight += weight;
+
+        Iterator<Map.Entry<MiningCacheKey, Entry>> it = entries.entrySet().iterator();
+        while (totalWeight > maxWeightBytes && it.hasNext()) {
+            Map.Entry<MiningCacheKey, Entry> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            totalWeight -= eldest.getValue().weight;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Drop every cached result. Called whenever a new dataset is loaded.
+     */
+    public synchronized void invalidateAll() {
+        if (!entries.isEmpty()) {
+            log.info("Invalidating {} cached mining result(s)", entries.size());
+        }
+        entries.clear();
+        totalWeight = 0;
+        invalidations++;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long lookups = hits + misses;
+        stats.put("enabled", enabled);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hits / lookups);
+        stats.put("entries", entries.size());
+        stats.put("weightBytes", totalWeight);
+        stats.put("maxWeightBytes", maxWeightBytes);
+        stats.put("evictions", evictions);
+        stats.put("invalidations", invalidations);
+        return stats;
+    }
+
+    static long estimateWeight(List<RoleDTO> roles) {
+        long weight = 16 + LIST_SLOT_BYTES * roles.size();
+        for (RoleDTO role : roles) {
+            weight += ROLE_OVERHEAD_BYTES;
+            weight += stringWeight(role.getName());
+            weight += listWeight(role.getApplications());
+            weight += listWeight(role.getUsers());
+            weight += listWeight(role.getPermissions());
+            weight += idListWeight(role.getParentRoleIds()) + idListWeight(role.getChildRoleIds());
+        }
+        return weight;
+    }
+
+    private static long listWeight(List<String> values) {
+        if (values == null) {
+            return 0;
+        }
+        long weight = 16 + LIST_SLOT_BYTES * values.size();
+        for (String value : values) {
+            weight += stringWeight(value);
+        }
+        return weight;
+    }
+
+    private static long idListWeight(List<Long> ids) {
+        return ids == null ? 0 : 16 + (LIST_SLOT_BYTES + LONG_BYTES) * ids.size();
+    }
+
+    private static long stringWeight(String value) {
+        return value == null ? 0 : STRING_OVERHEAD_BYTES + value.length();
+    }
+
+    private static final class Entry {
+        private final List<RoleDTO> roles;
+        private final long weight;
+
+        private Entry(List<RoleDTO> roles, long weight) {
+            this.roles = roles;
+            this.weight = weight;
+        }
+    }
+}
@@ -1,8 +1,26 @@
 package com.roleopt.rolemining.config;
 
+import com.roleopt.rolemining.ai.AIResponseParser;
+import com.roleopt.rolemining.ai.GuardedChatLanguageModel;
+import com.roleopt.rolemining.ai.GuardedStreamingChatLanguageModel;
+import com.roleopt.rolemining.ai.LlmCallGuard;
+import com.roleopt.rolemining.ai.LlmMetrics;
+import com.roleopt.rolemining.ai.LocalChatLanguageModel;
+import com.roleopt.rolemining.ai.LocalStreamingChatLanguageModel;
+import com.roleopt.rolemining.ai.MeteredChatLanguageModel;
+import com.roleopt.rolemining.ai.MeteredStreamingChatLanguageModel;
+import com.roleopt.rolemining.ai.ModelRegistry;
+import com.roleopt.rolemining.ai.ModelRouter;
+import com.roleopt.rolemining.ai.ModelTask;
+import com.roleopt.rolemining.cache.CachingChatLanguageModel;
+import com.roleopt.rolemining.cache.CachingStreamingChatLanguageModel;
+import com.roleopt.rolemining.cache.LlmResponseCache;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import dev.langchain4j.model.ollama.OllamaChatModel;
+import dev.langchain4j.model.ollama.OllamaStreamingChatModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,6 +29,10 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 @Configuration
 public class LangChainConfig {
@@ -31,10 +53,42 @@ public class LangChainConfig {
     
     @Value("${llm.model.name.ollama:llama2}")
     private String ollamaModelName;
+    
+    @Value("${llm.temperature:0.7}")
+    private double temperature;
+    
+    // In-process stand-in model (llm.model.type=local) for offline runs and benchmarks
+    @Value("${llm.local.latency-ms:200}")
+    private long localLatencyMs;
+    
+    @Value("${llm.local.jitter-ms:50}")
+    private long localJitterMs;
+    
+    @Value("${llm.local.failure-rate:0.0}")
+    private double localFailureRate;
+    
+    @Value("${llm.local.max-roles:5}")
+    private int localMaxRoles;
+    
+    @Value("${llm.local.seed:42}")
+    private long localSeed;
+    
+    @Value("${llm.local.token-delay-ms:2}")
+    private long localTokenDelayMs;
+    
+    // The local model answers in this format, so it is part of its cache identity
+    @Value("${llm.response.format:text}")
+    private String responseFormat;
 
+    /**
+     * Cache hits are answered without touching the guard; only real model calls count against the
+     * bulkhead and circuit breaker, and only they are metered. Only answers that parse into at least
+     * one role are cached.
+     */
     @Bean
     @Primary
-    public ChatLanguageModel chatLanguageModel() {
+    public ChatLanguageModel chatLanguageModel(LlmResponseCache responseCache, LlmCallGuard guard, LlmMetrics metrics,
+                                               AIResponseParser responseParser) {
         log.info("Initializing AI model with type: {}", modelType);
         log.info("Model type value: '{}', length: {}", modelType, modelType.length());
         log.info("Model type bytes: {}", modelType.getBytes());
@@ -45,30 +99,137 @@ public class LangChainConfig {
         boolean isOllama = "ollama".equalsIgnoreCase(trimmedType);
         log.info("Is Ollama? {}", isOllama);
         
-        if (isOllama) {
+        ChatLanguageModel model;
+        String cacheName;
+        if ("local".equalsIgnoreCase(trimmedType)) {
+            log.info("Using local stand-in model: latency {} ms +/- {} ms, failure rate {}",
+                    localLatencyMs, localJitterMs, localFailureRate);
+            model = createLocalModel();
+            cacheName = localCacheName();
+        } else if (isOllama) {
             log.info("Using Ollama model: {} at URL: {}", ollamaModelName, ollamaBaseUrl);
-            return createOllamaModel();
+            model = createOllamaModel(ollamaModelName);
+            cacheName = "ollama:" + ollamaModelName;
         } else {
             log.info("Using OpenAI model: {} with API key: {}", openaiModelName, 
                      openaiApiKey.substring(0, Math.min(openaiApiKey.length(), 5)) + "...");
-            return createOpenAiModel();
+            model = createOpenAiModel(openaiModelName);
+            cacheName = "openai:" + openaiModelName;
         }
+        return new CachingChatLanguageModel(
+                new MeteredChatLanguageModel(new GuardedChatLanguageModel(model, guard), metrics, cacheName),
+                responseCache, cacheName, temperature, responseParser::hasRoles);
     }
     
-    private ChatLanguageModel createOpenAiModel() {
+    /**
+     * Token-streaming model for the same backend, used to push roles to the UI while the answer is generated
+     */
+    @Bean
+    public StreamingChatLanguageModel streamingChatLanguageModel(LlmResponseCache responseCache, LlmCallGuard guard,
+                                                                 LlmMetrics metrics, AIResponseParser responseParser) {
+        StreamingChatLanguageModel model;
+        String cacheName;
+        if ("local".equalsIgnoreCase(modelType.trim())) {
+            log.info("Using streaming local stand-in model");
+            model = new LocalStreamingChatLanguageModel(createLocalModel(), localTokenDelayMs);
+            cacheName = localCacheName();
+        } else if ("ollama".equalsIgnoreCase(modelType.trim())) {
+            log.info("Using streaming Ollama model: {} at URL: {}", ollamaModelName, ollamaBaseUrl);
+            model = OllamaStreamingChatModel.builder()
+                    .baseUrl(ollamaBaseUrl)
+                    .modelName(ollamaModelName)
+                    .temperature(temperature)
+                    .timeout(Duration.ofSeconds(60))
+                    .build();
+            cacheName = "ollama:" + ollamaModelName;
+        } else {
+            log.info("Using streaming OpenAI model: {}", openaiModelName);
+            model = OpenAiStreamingChatModel.builder()
+                    .apiKey(openaiApiKey)
+                    .modelName(openaiModelName)
+                    .temperature(temperature)
+                    .timeout(Duration.ofSeconds(60))
+                    .build();
+            cacheName = "openai:" + openaiModelName;
+        }
+        return new CachingStreamingChatLanguageModel(
+                new MeteredStreamingChatLanguageModel(
+                        new GuardedStreamingChatLanguageModel(model, guard), metrics, cacheName),
+                responseCache, cacheName, temperature, responseParser::hasRoles);
+    }
+    
+    /**
+     * Models the AI pipeline routes its calls over. Without {@code llm.routing.models} this is just the
+     * primary model above, taking every task. Each routed model has its own call guard, keyed by its
+     * name, so a dead backend only opens its own circuit and never rejects calls routed to the others.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ModelRouter modelRouter(ModelRoutingProperties routing, ChatLanguageModel chatLanguageModel,
+                                   LlmResponseCache responseCache, LlmCallGuard guard, LlmMetrics metrics,
+                                   ModelRegistry registry, AIResponseParser responseParser) {
+        List<ModelRouter.RoutedModel> models = new ArrayList<>();
+        if (routing.getModels().isEmpty()) {
+            String backend = modelType.trim().toLowerCase();
+            String modelName = "local".equals(backend) ? "local"
+                    : "ollama".equals(backend) ? ollamaModelName : openaiModelName;
+            models.add(new ModelRouter.RoutedModel(backend, backend, modelName, 0, Integer.MAX_VALUE,
+                    EnumSet.noneOf(ModelTask.class), chatLanguageModel));
+        }
+        for (ModelRoutingProperties.Model spec : routing.getModels()) {
+            String backend = spec.getBackend().trim().toLowerCase();
+            ChatLanguageModel model;
+            if ("local".equals(backend)) {
+                model = createLocalModel();
+            } else if ("ollama".equals(backend)) {
+                model = createOllamaModel(spec.getModelName());
+            } else {
+                model = createOpenAiModel(spec.getModelName());
+            }
+            Set<ModelTask> tasks = EnumSet.noneOf(ModelTask.class);
+            for (String task : spec.getTasks()) {
+                tasks.add(ModelTask.fromName(task));
+            }
+            log.info("Routing model '{}': {} {} at cost {}/1k tokens, up to {} prompt tokens, tasks {}",
+                    spec.getName(), backend, spec.getModelName(), spec.getCostPer1kTokens(),
+                    spec.getMaxPromptTokens(), tasks.isEmpty() ? "all" : tasks);
+            String cacheName = "local".equals(backend) ? localCacheName() : backend + ":" + spec.getModelName();
+            models.add(new ModelRouter.RoutedModel(spec.getName(), backend, spec.getModelName(),
+                    spec.getCostPer1kTokens(), spec.getMaxPromptTokens(), tasks,
+                    new CachingChatLanguageModel(
+                            new MeteredChatLanguageModel(
+                                    new GuardedChatLanguageModel(model, guard.forBackend(spec.getName())),
+                                    metrics, cacheName),
+                            responseCache, cacheName, temperature, responseParser::hasRoles)));
+        }
+        return new ModelRouter(models, registry, routing.getMode(), routing.getFanOutKeep(),
+                routing.getFanOutTimeoutMs());
+    }
+    
+    private ChatLanguageModel createOpenAiModel(String modelName) {
         return OpenAiChatModel.builder()
                 .apiKey(openaiApiKey)
-                .modelName(openaiModelName)
-                .temperature(0.7)
+                .modelName(modelName)
+                .temperature(temperature)
                 .timeout(Duration.ofSeconds(60))
                 .build();
     }
     
-    private ChatLanguageModel createOllamaModel() {
+    /**
+     * Every setting that changes the local model's answers, so changing one never replays stale ones
+     */
+    private String localCacheName() {
+        return "local:" + localSeed + ":" + localMaxRoles + ":" + responseFormat.trim().toLowerCase();
+    }
+    
+    private LocalChatLanguageModel createLocalModel() {
+        return new LocalChatLanguageModel(localLatencyMs, localJitterMs, localFailureRate, localMaxRoles, localSeed);
+    }
+    
+    private ChatLanguageModel createOllamaModel(String modelName) {
         return OllamaChatModel.builder()
                 .baseUrl(ollamaBaseUrl)
-                .modelName(ollamaModelName)
-                .temperature(0.7)
+                .modelName(modelName)
+                .temperature(temperature)
                 .timeout(Duration.ofSeconds(60))
                 .build();
     }
@@ -0,0 +1,126 @@
+package com.roleopt.rolemining.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Models available to {@link com.roleopt.rolemining.ai.ModelRouter}, bound from {@code llm.routing.*}:
+ * <pre>
+ * llm.routing.models[0].name=small
+ * llm.routing.models[0].backend=ollama
+ * llm.routing.models[0].model-name=qwen2.5:1.5b
+ * llm.routing.models[0].cost-per-1k-tokens=0
+ * llm.routing.models[0].max-prompt-tokens=2000
+ * llm.routing.models[0].tasks=partition
+ * </pre>
+ * With no models listed, every task goes to the single model selected by {@code llm.model.type}.
+ */
+@Component
+@ConfigurationProperties(prefix = "llm.routing")
+public class ModelRoutingProperties {
+
+    // 'route' sends each call to the cheapest adequate model; 'fanout' asks several at once
+    private String mode = "route";
+
+    // Fan-out: number of well-formed answers to wait for before the slower models are abandoned
+    private int fanOutKeep = 1;
+
+    // Fan-out: give up on further answers after this long
+    private long fanOutTimeoutMs = 60000;
+
+    private List<Model> models = new ArrayList<>();
+
+    public static class Model {
+        private String name;
+        // 'ollama', 'openai' or 'local'
+        private String backend;
+        private String modelName;
+        private double costPer1kTokens;
+        private int maxPromptTokens = Integer.MAX_VALUE;
+        // 'analysis' and/or 'partition'; empty means every task
+        private List<String> tasks = new ArrayList<>();
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getBackend() {
+            return backend;
+        }
+
+        public void setBackend(String backend) {
+            this.backend = backend;
+        }
+
+        public String getModelName() {
+            return modelName;
+        }
+
+        public void setModelName(String modelName) {
+            this.modelName = modelName;
+        }
+
+        public double getCostPer1kTokens() {
+            return costPer1kTokens;
+        }
+
+        public void setCostPer1kTokens(double costPer1kTokens) {
+            this.costPer1kTokens = costPer1kTokens;
+        }
+
+        public int getMaxPromptTokens() {
+            return maxPromptTokens;
+        }
+
+        public void setMaxPromptTokens(int maxPromptTokens) {
+            this.maxPromptTokens = maxPromptTokens;
+        }
+
+        public List<String> getTasks() {
+            return tasks;
+        }
+
+        public void setTasks(List<String> tasks) {
+            this.tasks = tasks;
+        }
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public int getFanOutKeep() {
+        return fanOutKeep;
+    }
+
+    public void setFanOutKeep(int fanOutKeep) {
+        this.fanOutKeep = fanOutKeep;
+    }
+
+    public long getFanOutTimeoutMs() {
+        return fanOutTimeoutMs;
+    }
+
+    public void setFanOutTimeoutMs(long fanOutTimeoutMs) {
+        this.fanOutTimeoutMs = fanOutTimeoutMs;
+    }
+
+    public List<Model> getModels() {
+        return models;
+    }
+
+    public void setModels(List<Model> models) {
+        this.models = models;
+    }
+}
@@ -1,5 +1,9 @@
 package com.roleopt.rolemining.controller;
 
+import com.roleopt.rolemining.ai.LlmCallGuard;
+import com.roleopt.rolemining.ai.ModelRegistry;
+import com.roleopt.rolemining.ai.ModelRouter;
+import com.roleopt.rolemining.cache.LlmResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -7,7 +11,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.HashMap;
 import java.util.List;
@@ -31,31 +34,39 @@ public class AIModelController {
     @Value("${llm.model.name.ollama:llama2}")
     private String ollamaModelName;
     
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final LlmResponseCache responseCache;
+    private final LlmCallGuard callGuard;
+    private final ModelRegistry modelRegistry;
+    private final ModelRouter modelRouter;
+    
+    public AIModelController(LlmResponseCache responseCache, LlmCallGuard callGuard, ModelRegistry modelRegistry,
+                             ModelRouter modelRouter) {
+        this.responseCache = responseCache;
+        this.callGuard = callGuard;
+        this.modelRegistry = modelRegistry;
+        this.modelRouter = modelRouter;
+    }
     
     @GetMapping("/config")
     public ResponseEntity<Map<String, Object>> getModelConfig() {
         Map<String, Object> config = new HashMap<>();
         config.put("modelType", modelType);
-        config.put("activeModel", "ollama".equals(modelType) ? ollamaModelName : openaiModelName);
+        config.put("activeModel", "local".equals(modelType) ? "local"
+                : "ollama".equals(modelType) ? ollamaModelName : openaiModelName);
         
         if ("ollama".equals(modelType)) {
             config.put("ollamaBaseUrl", ollamaBaseUrl);
             
-            try {
-                // Try to list available models
-                String url = ollamaBaseUrl + "/api/tags";
-                ResponseEntity<Map> response = restTemplate.getForEntity(url, Map.class);
-                
-                if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                    config.put("availableModels", response.getBody().get("models"));
-                    config.put("connectionStatus", "Connected");
-                } else {
-                    config.put("connectionStatus", "Failed to retrieve models");
-                }
-            } catch (Exception e) {
-                log.error("Error connecting to Ollama: {}", e.getMessage());
-                config.put("connectionStatus", "Error: " + e.getMessage());
+            // Answered from the last background probe; never waits on Ollama
+            ModelRegistry.BackendStatus status = modelRegistry.getStatus(ModelRegistry.BACKEND_OLLAMA);
+            if (status == null || status.getState() == ModelRegistry.State.UNKNOWN) {
+                config.put("connectionStatus", "Not checked yet");
+            } else if (status.isUp()) {
+                config.put("availableModels", status.getModels());
+                config.put("connectionStatus", "Connected");
+            } else {
+                config.put("availableModels", status.getModels());
+                config.put("connectionStatus", "Error: " + status.getError());
                 config.put("connectionTips", "Make sure Ollama is running on " + ollamaBaseUrl + 
                     ". Install from https://ollama.ai/ and run 'ollama serve' and 'ollama pull " + ollamaModelName + "'");
             }
@@ -63,4 +74,24 @@ public class AIModelController {
         
         return ResponseEntity.ok(config);
     }
+    
+    @GetMapping("/health")
+    public ResponseEntity<Map<String, Object>> getModelHealth() {
+        return ResponseEntity.ok(modelRegistry.getHealth());
+    }
+    
+    @GetMapping("/routes")
+    public ResponseEntity<List<Map<String, Object>>> getModelRoutes() {
+        return ResponseEntity.ok(modelRouter.describe());
+    }
+    
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getResponseCacheStats() {
+        return ResponseEntity.ok(responseCache.getStats());
+    }
+    
+    @GetMapping("/guard")
+    public ResponseEntity<Map<String, Object>> getCallGuardStats() {
+        return ResponseEntity.ok(callGuard.getStats());
+    }
 } 
\ No newline at end of file
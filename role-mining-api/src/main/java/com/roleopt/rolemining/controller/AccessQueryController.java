@@ -0,0 +1,103 @@
+package com.roleopt.rolemining.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.roleopt.rolemining.dto.AccessQueryDTO;
+import com.roleopt.rolemining.service.AccessQueryService;
+import com.roleopt.rolemining.service.WhoHasResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+
+@RestController
+@RequestMapping("/access")
+public class AccessQueryController {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessQueryController.class);
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final AccessQueryService accessQueryService;
+
+    @Value("${role-mining.query.max-page-size:10000}")
+    private int maxPageSize;
+
+    public AccessQueryController(AccessQueryService accessQueryService) {
+        this.accessQueryService = accessQueryService;
+    }
+
+    /**
+     * Users matching entitlement, application and OU predicates combined with and/or/not, one page at
+     * a time in user id order. The query is evaluated before anything is written, so a bad query gets
+     * a 400; the page itself is streamed as the users are resolved.
+     */
+    @PostMapping("/who-has")
+    public ResponseEntity<?> whoHas(@RequestBody AccessQueryDTO query,
+                                    @RequestParam(value = "page", defaultValue = "0") int page,
+                                    @RequestParam(value = "size", defaultValue = "100") int size) {
+        if (page < 0 || size < 1 || (maxPageSize > 0 && size > maxPageSize)) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error",
+                    "page must be at least 0 and size between 1 and " + maxPageSize));
+        }
+        WhoHasResult result;
+        try {
+            result = accessQueryService.whoHas(query);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(Collections.singletonMap("error", e.getMessage()), HttpStatus.CONFLICT);
+        }
+
+        StreamingResponseBody body = out -> writePage(result, page, size, JSON.createGenerator(out, JsonEncoding.UTF8));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private void writePage(WhoHasResult result, int page, int size, JsonGenerator json) throws IOException {
+        long start = System.nanoTime();
+        int[] written = {0};
+        try (JsonGenerator out = json) {
+            out.writeStartObject();
+            out.writeNumberField("datasetVersion", result.getDatasetVersion());
+            out.writeNumberField("total", result.getTotal());
+            out.writeNumberField("page", page);
+            out.writeNumberField("size", size);
+            out.writeNumberField("evaluationMicros", result.getEvaluationMicros());
+            out.writeArrayFieldStart("unknownIds");
+            for (String id : result.getUnknownIds()) {
+                out.writeString(id);
+            }
+            out.writeEndArray();
+            out.writeArrayFieldStart("users");
+            result.forEachUser(page, size, user -> {
+                try {
+                    out.writeStartObject();
+                    out.writeStringField("userId", user.getUserId());
+                    out.writeStringField("firstName", user.getFirstName());
+                    out.writeStringField("lastName", user.getLastName());
+                    out.writeStringField("organizationalUnit",
+                            user.getOrganizationalUnit() != null ? user.getOrganizationalUnit().getOuId() : null);
+                    out.writeEndObject();
+                    written[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.writeEndArray();
+            out.writeEndObject();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        log.debug("Streamed {} of {} who-has users in {} us", written[0], result.getTotal(),
+                (System.nanoTime() - start) / 1000);
+    }
+}
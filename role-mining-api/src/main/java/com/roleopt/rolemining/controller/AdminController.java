@@ -0,0 +1,89 @@
+package com.roleopt.rolemining.controller;
+
+import com.roleopt.rolemining.datagen.DatasetSpec;
+import com.roleopt.rolemining.datagen.GenerationReport;
+import com.roleopt.rolemining.datagen.SyntheticDataGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Operator endpoints for load and scale testing. Off unless {@code datagen.endpoint.enabled=true}; even
+ * then one dataset is generated at a time, of at most {@code datagen.max-users} users, since each run
+ * takes a core and writes hundreds of megabytes per million users.
+ */
+@RestController
+@RequestMapping("/admin")
+@ConditionalOnProperty(name = "datagen.endpoint.enabled", havingValue = "true", matchIfMissing = false)
+public class AdminController {
+
+    private static final Logger log = LoggerFactory.getLogger(AdminController.class);
+
+    private static final int RETRY_AFTER_SECONDS = 5;
+
+    // Output always goes to a fresh directory under this one; callers cannot choose the path
+    @Value("${datagen.output-dir:${java.io.tmpdir}/role-mining-datagen}")
+    private String outputDir;
+
+    @Value("${datagen.max-users:1000000}")
+    private int maxUsers;
+
+    private final Semaphore generating = new Semaphore(1);
+
+    @PostMapping("/datagen")
+    public ResponseEntity<Map<String, Object>> generateDataset(@RequestBody @Valid DatasetSpec spec) {
+        if (spec.getUsers() > maxUsers) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Collections.singletonMap("error",
+                    spec.getUsers() + " users exceeds datagen.max-users of " + maxUsers
+                            + "; use DataGeneratorCli for larger datasets"));
+        }
+        if (!generating.tryAcquire()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS))
+                    .body(Collections.singletonMap("error", "Another dataset is being generated"));
+        }
+        try {
+            return generate(spec);
+        } finally {
+            generating.release();
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> generate(DatasetSpec spec) {
+        String name = "dataset-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS"))
+                + "-" + spec.getUsers();
+        Path directory = Paths.get(outputDir).resolve(name).toAbsolutePath();
+        log.info("Generating synthetic dataset {} into {}", spec, directory);
+        try {
+            GenerationReport report = SyntheticDataGenerator.writeCsv(spec, directory);
+            log.info("Generated {}", report);
+            Map<String, Object> body = report.toMap();
+            body.put("directory", directory.toString());
+            return ResponseEntity.ok(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        } catch (IOException e) {
+            log.error("Failed to write synthetic dataset to {}", directory, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Collections.singletonMap("error", "Could not write dataset: " + e.getMessage()));
+        }
+    }
+}
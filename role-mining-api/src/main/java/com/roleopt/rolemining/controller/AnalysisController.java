@@ -0,0 +1,62 @@
+package com.roleopt.rolemining.controller;
+
+import com.roleopt.rolemining.analysis.PeerOutlierAnalysis;
+import com.roleopt.rolemining.service.OutlierService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/analysis")
+public class AnalysisController {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisController.class);
+
+    private final OutlierService outlierService;
+
+    @Value("${role-mining.outliers.max-page-size:1000}")
+    private int maxPageSize;
+
+    public AnalysisController(OutlierService outlierService) {
+        this.outlierService = outlierService;
+    }
+
+    /**
+     * Users ranked by how far their access deviates from their OU peers, most unusual first
+     */
+    @GetMapping("/outliers")
+    public ResponseEntity<Map<String, Object>> getOutliers(
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "50") int size,
+            @RequestParam(value = "ou", required = false) String ouId,
+            @RequestParam(value = "rareEntitlements", defaultValue = "5") int rareEntitlements) {
+        if (page < 0 || size < 1 || (maxPageSize > 0 && size > maxPageSize) || rareEntitlements < 0) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error",
+                    "page and rareEntitlements must be at least 0 and size between 1 and " + maxPageSize));
+        }
+        PeerOutlierAnalysis analysis;
+        try {
+            analysis = outlierService.getAnalysis();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(Collections.singletonMap("error", e.getMessage()), HttpStatus.CONFLICT);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("datasetVersion", analysis.getDatasetVersion());
+        response.put("total", analysis.total(ouId));
+        response.put("page", page);
+        response.put("size", size);
+        response.put("users", analysis.page(page, size, ouId, rareEntitlements));
+        log.debug("Returning outlier page {} of size {} for OU {}", page, size, ouId);
+        return ResponseEntity.ok(response);
+    }
+}
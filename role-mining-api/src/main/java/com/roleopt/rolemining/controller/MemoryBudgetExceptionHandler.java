@@ -0,0 +1,35 @@
+package com.roleopt.rolemining.controller;
+
+import com.roleopt.rolemining.admission.MemoryBudgetExceededException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Turns a refusal of the memory budget into 413 (the job can never fit: upload less, or filter the
+ * data) or 429 with Retry-After (the server is busy with other jobs).
+ */
+@RestControllerAdvice
+public class MemoryBudgetExceptionHandler {
+
+    @ExceptionHandler(MemoryBudgetExceededException.class)
+    public ResponseEntity<Map<String, Object>> handle(MemoryBudgetExceededException e) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", e.getMessage());
+        body.put("job", e.getJob());
+        body.put("requiredBytes", e.getRequiredBytes());
+        body.put("availableBytes", e.getAvailableBytes());
+        body.put("budgetBytes", e.getBudgetBytes());
+        if (e.isTooLarge()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(body);
+        }
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(body);
+    }
+}
@@ -1,20 +1,27 @@
 package com.roleopt.rolemining.controller;
 
+import com.roleopt.rolemining.ai.RoleStreamListener;
+import com.roleopt.rolemining.cache.MiningResultCache;
 import com.roleopt.rolemining.dto.RoleDTO;
 import com.roleopt.rolemining.dto.RoleMiningFilterDTO;
+import com.roleopt.rolemining.metrics.MiningProfile;
+import com.roleopt.rolemining.metrics.MiningProfileStore;
 import com.roleopt.rolemining.service.RoleMiningService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/role-mining")
@@ -22,17 +29,48 @@ public class RoleMiningController {
 
     private static final Logger log = LoggerFactory.getLogger(RoleMiningController.class);
     
+    // Id of the mining run, whose profile is at /runs/{runId}/profile
+    static final String RUN_ID_HEADER = "X-Mining-Run-Id";
+    
     private final RoleMiningService roleMiningService;
+    private final MiningResultCache resultCache;
+    private final MiningProfileStore profileStore;
+    
+    @Value("${llm.stream.timeout-ms:300000}")
+    private long streamTimeoutMs;
     
-    public RoleMiningController(RoleMiningService roleMiningService) {
+    public RoleMiningController(RoleMiningService roleMiningService, MiningResultCache resultCache,
+                                MiningProfileStore profileStore) {
         this.roleMiningService = roleMiningService;
+        this.resultCache = resultCache;
+        this.profileStore = profileStore;
     }
 
     @PostMapping("/run")
     public ResponseEntity<List<RoleDTO>> mineRoles(@RequestBody @Valid RoleMiningFilterDTO filters) {
         log.info("Received role mining request with filters: {}", filters);
-        List<RoleDTO> roles = roleMiningService.mineRoles(filters);
-        return ResponseEntity.ok(roles);
+        MiningProfile profile = profileStore.start(String.valueOf(filters));
+        List<RoleDTO> roles = roleMiningService.mineRoles(filters, profile);
+        return ResponseEntity.ok()
+                .header(RUN_ID_HEADER, String.valueOf(profile.getRunId()))
+                .body(roles);
+    }
+
+    @GetMapping("/runs")
+    public ResponseEntity<List<Map<String, Object>>> getRecentRuns() {
+        return ResponseEntity.ok(profileStore.recent());
+    }
+
+    /**
+     * Stage timings, allocation, group counts and the largest groups dropped by each filter of one run
+     */
+    @GetMapping("/runs/{runId}/profile")
+    public ResponseEntity<Map<String, Object>> getRunProfile(@PathVariable long runId) {
+        MiningProfile profile = profileStore.get(runId);
+        if (profile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(profile.toMap());
     }
 
     @GetMapping("/results")
@@ -41,56 +79,74 @@ public class RoleMiningController {
         return ResponseEntity.ok(roles);
     }
 
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(resultCache.getStats());
+    }
+
     @GetMapping("/ai-suggest")
     public ResponseEntity<List<RoleDTO>> getAiSuggestions() {
         log.info("Received request for AI-suggested roles");
         List<RoleDTO> suggestions = roleMiningService.getAiSuggestions();
         log.info("Returning {} AI-suggested roles", suggestions.size());
         
-        // If no suggestions available, generate mock ones
-        if (suggestions.isEmpty()) {
-            log.info("No AI suggestions available, generating mock data");
-            suggestions = generateMockAiSuggestions();
+        // Still generating: tell the client to poll /ai-status rather than showing mock data
+        if (suggestions.isEmpty() && "RUNNING".equals(roleMiningService.getAiStatus().get("status"))) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(suggestions);
+        }
+        
+        // The last run failed and left nothing: report it rather than serve placeholder roles
+        if (suggestions.isEmpty() && "FAILED".equals(roleMiningService.getAiStatus().get("status"))) {
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(suggestions);
         }
         
         return ResponseEntity.ok(suggestions);
     }
 
-    private List<RoleDTO> generateMockAiSuggestions() {
-        List<RoleDTO> mockSuggestions = new ArrayList<>();
-        
-        RoleDTO role1 = new RoleDTO();
-        role1.setId(101L);
-        role1.setName("AI Role 1 - Sales Team");
-        role1.setUserCount(18);
-        role1.setPermissionCount(6);
-        role1.setApplications(Arrays.asList("CRM", "Document Management", "Email System"));
-        role1.setConfidence(92);
-        role1.setAiGenerated(true);
-        
-        RoleDTO role2 = new RoleDTO();
-        role2.setId(102L);
-        role2.setName("AI Role 2 - Finance Staff");
-        role2.setUserCount(9);
-        role2.setPermissionCount(8);
-        role2.setApplications(Arrays.asList("Finance System", "ERP System"));
-        role2.setConfidence(88);
-        role2.setAiGenerated(true);
-        
-        RoleDTO role3 = new RoleDTO();
-        role3.setId(103L);
-        role3.setName("AI Role 3 - HR Team");
-        role3.setUserCount(7);
-        role3.setPermissionCount(5);
-        role3.setApplications(Arrays.asList("HR Portal", "Document Management"));
-        role3.setConfidence(79);
-        role3.setAiGenerated(true);
+    @GetMapping("/ai-status")
+    public ResponseEntity<Map<String, Object>> getAiStatus() {
+        return ResponseEntity.ok(roleMiningService.getAiStatus());
+    }
+
+    /**
+     * Server-Sent Events stream of AI-suggested roles: one "role" event per role as soon as the model
+     * has written it, then a "complete" event with the role count, or a "failure" event.
+     */
+    @GetMapping(value = "/ai-suggest/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAiSuggestions() {
+        log.info("Received request for streamed AI-suggested roles");
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
         
-        mockSuggestions.add(role1);
-        mockSuggestions.add(role2);
-        mockSuggestions.add(role3);
+        roleMiningService.streamAiSuggestions(new RoleStreamListener() {
+            @Override
+            public void onRole(RoleDTO role) {
+                send(emitter, "role", role);
+            }
+            
+            @Override
+            public void onComplete(List<RoleDTO> roles) {
+                log.info("Streamed {} AI-suggested roles", roles.size());
+                send(emitter, "complete", roles.size());
+                emitter.complete();
+            }
+            
+            @Override
+            public void onError(Throwable error) {
+                send(emitter, "failure", String.valueOf(error.getMessage()));
+                emitter.complete();
+            }
+        });
         
-        return mockSuggestions;
+        return emitter;
+    }
+    
+    private void send(SseEmitter emitter, String eventName, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the model keeps running and the result is still stored
+            log.debug("Could not send '{}' event: {}", eventName, e.getMessage());
+        }
     }
 
     @GetMapping("/report")
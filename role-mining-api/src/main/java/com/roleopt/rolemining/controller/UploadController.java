@@ -1,5 +1,6 @@
 package com.roleopt.rolemining.controller;
 
+import com.roleopt.rolemining.admission.MemoryBudget;
 import com.roleopt.rolemining.dto.DataSummaryDTO;
 import com.roleopt.rolemining.service.UploadService;
 import org.slf4j.Logger;
@@ -8,6 +9,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Collections;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/upload")
 public class UploadController {
@@ -15,22 +19,29 @@ public class UploadController {
     private static final Logger log = LoggerFactory.getLogger(UploadController.class);
     
     private final UploadService uploadService;
+    private final MemoryBudget memoryBudget;
     
-    public UploadController(UploadService uploadService) {
+    public UploadController(UploadService uploadService, MemoryBudget memoryBudget) {
         this.uploadService = uploadService;
+        this.memoryBudget = memoryBudget;
     }
 
     @PostMapping
-    public ResponseEntity<Void> uploadFiles(
+    public ResponseEntity<Map<String, String>> uploadFiles(
             @RequestParam(value = "users", required = false) MultipartFile usersFile,
             @RequestParam(value = "ou", required = false) MultipartFile ouFile,
             @RequestParam(value = "applications", required = false) MultipartFile applicationsFile,
             @RequestParam(value = "entitlements", required = false) MultipartFile entitlementsFile,
-            @RequestParam(value = "assignments", required = false) MultipartFile assignmentsFile
+            @RequestParam(value = "assignments", required = false) MultipartFile assignmentsFile,
+            @RequestParam(value = "storage", required = false) String indexStorage
     )throws Exception {
         log.info("Received file upload request");
         
-        uploadService.processFiles(usersFile, ouFile, applicationsFile, entitlementsFile, assignmentsFile);
+        try {
+            uploadService.processFiles(usersFile, ouFile, applicationsFile, entitlementsFile, assignmentsFile, indexStorage);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
         
         return ResponseEntity.ok().build();
     }
@@ -40,4 +51,9 @@ public class UploadController {
         DataSummaryDTO summary = uploadService.getDataSummary();
         return ResponseEntity.ok(summary);
     }
+    
+    @GetMapping("/memory")
+    public ResponseEntity<Map<String, Object>> getMemoryBudget() {
+        return ResponseEntity.ok(memoryBudget.getStats());
+    }
 } 
\ No newline at end of file
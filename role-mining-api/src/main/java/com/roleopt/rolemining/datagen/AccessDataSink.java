@@ -0,0 +1,38 @@
+package com.roleopt.rolemining.datagen;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the rows of a generated dataset in order: OUs (parents before children), applications,
+ * entitlements, planted roles, then each user directly followed by that user's assignments and roles.
+ */
+public interface AccessDataSink extends Closeable {
+
+    void organizationalUnit(String ouId, String name, String description, String parentOuId) throws IOException;
+
+    void application(String applicationId, String name, String description) throws IOException;
+
+    void entitlement(String entitlementId, String name, String description, String applicationId) throws IOException;
+
+    void user(String userId, String firstName, String lastName, String ouId) throws IOException;
+
+    void assignment(String userId, String entitlementId) throws IOException;
+
+    /**
+     * Ground truth: a role the generator planted, and the entitlements it grants
+     */
+    default void plantedRole(String roleId, String name, List<String> entitlementIds) throws IOException {
+    }
+
+    /**
+     * Ground truth: a planted role the user was given
+     */
+    default void userRole(String userId, String roleId) throws IOException {
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
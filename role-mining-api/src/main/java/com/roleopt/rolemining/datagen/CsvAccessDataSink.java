@@ -0,0 +1,151 @@
+package com.roleopt.rolemining.datagen;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a generated dataset as the CSV files {@code UploadServiceImpl} accepts, plus the ground
+ * truth ({@code planted_roles.csv}, {@code user_roles.csv}). {@code ou.csv} carries an extra
+ * {@code parentOuId} column, which the upload ignores.
+ * <p>
+ * Every file has its own large write buffer, so rows go to disk in big sequential writes.
+ */
+public class CsvAccessDataSink implements AccessDataSink {
+
+    public static final String OU_FILE = "ou.csv";
+    public static final String USERS_FILE = "users.csv";
+    public static final String APPLICATIONS_FILE = "applications.csv";
+    public static final String ENTITLEMENTS_FILE = "entitlements.csv";
+    public static final String ASSIGNMENTS_FILE = "assignments.csv";
+    public static final String PLANTED_ROLES_FILE = "planted_roles.csv";
+    public static final String USER_ROLES_FILE = "user_roles.csv";
+
+    private static final int BUFFER_CHARS = 1 << 20;
+
+    private final Path directory;
+    private final Writer ous;
+    private final Writer users;
+    private final Writer applications;
+    private final Writer entitlements;
+    private final Writer assignments;
+    private final Writer plantedRoles;
+    private final Writer userRoles;
+
+    public CsvAccessDataSink(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.ous = open(OU_FILE, "ouId,name,description,parentOuId");
+        this.users = open(USERS_FILE, "userId,firstName,lastName,ouId");
+        this.applications = open(APPLICATIONS_FILE, "applicationId,name,description");
+        this.entitlements = open(ENTITLEMENTS_FILE, "entitlementId,name,description,applicationId");
+        this.assignments = open(ASSIGNMENTS_FILE, "userId,entitlementId");
+        this.plantedRoles = open(PLANTED_ROLES_FILE, "roleId,name,entitlementId");
+        this.userRoles = open(USER_ROLES_FILE, "userId,roleId");
+    }
+
+    private Writer open(String file, String header) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(directory.resolve(file)), StandardCharsets.UTF_8), BUFFER_CHARS);
+        writer.write(header);
+        writer.write('\n');
+        return writer;
+    }
+
+    @Override
+    public void organizationalUnit(String ouId, String name, String description, String parentOuId) throws IOException {
+        row(ous, ouId, name, description, parentOuId);
+    }
+
+    @Override
+    public void application(String applicationId, String name, String description) throws IOException {
+        row(applications, applicationId, name, description);
+    }
+
+    @Override
+    public void entitlement(String entitlementId, String name, String description, String applicationId) throws IOException {
+        row(entitlements, entitlementId, name, description, applicationId);
+    }
+
+    @Override
+    public void user(String userId, String firstName, String lastName, String ouId) throws IOException {
+        row(users, userId, firstName, lastName, ouId);
+    }
+
+    @Override
+    public void assignment(String userId, String entitlementId) throws IOException {
+        // Hot path: ids never need quoting
+        assignments.write(userId);
+        assignments.write(',');
+        assignments.write(entitlementId);
+        assignments.write('\n');
+    }
+
+    @Override
+    public void plantedRole(String roleId, String name, List<String> entitlementIds) throws IOException {
+        for (String entitlementId : entitlementIds) {
+            row(plantedRoles, roleId, name, entitlementId);
+        }
+    }
+
+    @Override
+    public void userRole(String userId, String roleId) throws IOException {
+        userRoles.write(userId);
+        userRoles.write(',');
+        userRoles.write(roleId);
+        userRoles.write('\n');
+    }
+
+    private static void row(Writer writer, String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(quote(fields[i]));
+        }
+        writer.write('\n');
+    }
+
+    private static String quote(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Size of every file written, by name; call after {@link #close()}.
+     */
+    public Map<String, Long> fileSizes() throws IOException {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        for (String file : new String[]{OU_FILE, USERS_FILE, APPLICATIONS_FILE, ENTITLEMENTS_FILE,
+                ASSIGNMENTS_FILE, PLANTED_ROLES_FILE, USER_ROLES_FILE}) {
+            sizes.put(file, Files.size(directory.resolve(file)));
+        }
+        return sizes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Writer writer : new Writer[]{ous, users, applications, entitlements, assignments, plantedRoles, userRoles}) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
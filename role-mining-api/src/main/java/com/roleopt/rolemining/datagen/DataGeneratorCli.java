@@ -0,0 +1,74 @@
+package com.roleopt.rolemining.datagen;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command line front end of {@link SyntheticDataGenerator}. Needs nothing beyond the JDK, so it
+ * runs straight from the compiled classes:
+ * <pre>
+ * java -cp target/classes com.roleopt.rolemining.datagen.DataGeneratorCli --users=1000000 --out=data/1m
+ * </pre>
+ * Every {@link DatasetSpec} property can be given as {@code --name=value}.
+ */
+public final class DataGeneratorCli {
+
+    private DataGeneratorCli() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        DatasetSpec spec = new DatasetSpec();
+        Path out = Paths.get("generated-data");
+        for (String arg : args) {
+            if (arg.equals("--help") || arg.equals("-h")) {
+                printUsage();
+                return;
+            }
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                System.err.println("Unrecognized argument: " + arg);
+                printUsage();
+                System.exit(2);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            if (name.equals("out")) {
+                out = Paths.get(value);
+            } else {
+                apply(spec, name, value);
+            }
+        }
+
+        System.out.println("Generating " + spec + " into " + out.toAbsolutePath());
+        GenerationReport report = SyntheticDataGenerator.writeCsv(spec, out);
+        System.out.println(report);
+    }
+
+    private static void apply(DatasetSpec spec, String name, String value) {
+        switch (name) {
+            case "users": spec.setUsers(Integer.parseInt(value)); break;
+            case "ous": spec.setOus(Integer.parseInt(value)); break;
+            case "ouDepth": spec.setOuDepth(Integer.parseInt(value)); break;
+            case "applications": spec.setApplications(Integer.parseInt(value)); break;
+            case "entitlements": spec.setEntitlements(Integer.parseInt(value)); break;
+            case "roles": spec.setRoles(Integer.parseInt(value)); break;
+            case "minRoleSize": spec.setMinRoleSize(Integer.parseInt(value)); break;
+            case "maxRoleSize": spec.setMaxRoleSize(Integer.parseInt(value)); break;
+            case "maxRolesPerUser": spec.setMaxRolesPerUser(Integer.parseInt(value)); break;
+            case "extraRoleRate": spec.setExtraRoleRate(Double.parseDouble(value)); break;
+            case "ouAffinity": spec.setOuAffinity(Double.parseDouble(value)); break;
+            case "skew": spec.setSkew(Double.parseDouble(value)); break;
+            case "noiseRate": spec.setNoiseRate(Double.parseDouble(value)); break;
+            case "missingRate": spec.setMissingRate(Double.parseDouble(value)); break;
+            case "seed": spec.setSeed(Long.parseLong(value)); break;
+            default: throw new IllegalArgumentException("Unknown option --" + name);
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: DataGeneratorCli [--out=DIR] [--users=N] [--ous=N] [--ouDepth=N] [--applications=N]\n"
+                + "       [--entitlements=N] [--roles=N] [--minRoleSize=N] [--maxRoleSize=N] [--maxRolesPerUser=N]\n"
+                + "       [--extraRoleRate=P] [--ouAffinity=P] [--skew=S] [--noiseRate=P] [--missingRate=P] [--seed=N]\n"
+                + "Counts left at 0 are derived from --users.");
+    }
+}
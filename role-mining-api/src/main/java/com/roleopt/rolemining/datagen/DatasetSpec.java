@@ -0,0 +1,241 @@
+package com.roleopt.rolemining.datagen;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+/**
+ * Shape of a synthetic access dataset. Counts left at 0 are derived from the user count, so
+ * {@code users} alone gives a plausible dataset at any scale.
+ */
+public class DatasetSpec {
+
+    @Min(value = 1, message = "At least one user is required")
+    @Max(value = 50_000_000, message = "At most 50,000,000 users")
+    private int users = 10_000;
+
+    // 0 = derived from users
+    @Min(value = 0, message = "OU count cannot be negative")
+    private int ous;
+
+    @Min(value = 1, message = "OU hierarchy depth must be at least 1")
+    @Max(value = 10, message = "OU hierarchy depth must be at most 10")
+    private int ouDepth = 3;
+
+    @Min(value = 0, message = "Application count cannot be negative")
+    private int applications;
+
+    @Min(value = 0, message = "Entitlement count cannot be negative")
+    private int entitlements;
+
+    // Planted "true" roles, written to planted_roles.csv as ground truth
+    @Min(value = 0, message = "Role count cannot be negative")
+    private int roles;
+
+    @Min(value = 1, message = "Roles need at least one entitlement")
+    private int minRoleSize = 3;
+
+    @Min(value = 1, message = "Roles need at least one entitlement")
+    private int maxRoleSize = 8;
+
+    @Min(value = 1, message = "Users hold at least one role")
+    private int maxRolesPerUser = 2;
+
+    // Chance of each further role up to maxRolesPerUser
+    @DecimalMin(value = "0.0", message = "Extra role rate must be between 0 and 1")
+    @DecimalMax(value = "1.0", message = "Extra role rate must be between 0 and 1")
+    private double extraRoleRate = 0.3;
+
+    // Share of a user's roles drawn from the roles of their own OU rather than company-wide
+    @DecimalMin(value = "0.0", message = "OU affinity must be between 0 and 1")
+    @DecimalMax(value = "1.0", message = "OU affinity must be between 0 and 1")
+    private double ouAffinity = 0.8;
+
+    // Zipf exponent of entitlement, role and OU popularity; 0 is uniform
+    @DecimalMin(value = "0.0", message = "Skew cannot be negative")
+    @DecimalMax(value = "5.0", message = "Skew must be at most 5")
+    private double skew = 1.1;
+
+    // Share of users with stray grants outside their roles
+    @DecimalMin(value = "0.0", message = "Noise rate must be between 0 and 1")
+    @DecimalMax(value = "1.0", message = "Noise rate must be between 0 and 1")
+    private double noiseRate = 0.2;
+
+    // Share of users missing one entitlement of one of their roles
+    @DecimalMin(value = "0.0", message = "Missing rate must be between 0 and 1")
+    @DecimalMax(value = "1.0", message = "Missing rate must be between 0 and 1")
+    private double missingRate = 0.05;
+
+    private long seed = 42L;
+
+    public DatasetSpec() {
+    }
+
+    public static DatasetSpec forUsers(int users) {
+        DatasetSpec spec = new DatasetSpec();
+        spec.setUsers(users);
+        return spec;
+    }
+
+    int effectiveOus() {
+        return ous > 0 ? ous : clamp(users / 2000, 10, 500);
+    }
+
+    int effectiveApplications() {
+        return applications > 0 ? applications : clamp(users / 5000, 10, 200);
+    }
+
+    int effectiveEntitlements() {
+        return entitlements > 0 ? entitlements : clamp(users / 50, 200, 20_000);
+    }
+
+    int effectiveRoles() {
+        return roles > 0 ? roles : clamp(users / 200, 20, 5_000);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    // Getters and Setters
+    public int getUsers() {
+        return users;
+    }
+
+    public void setUsers(int users) {
+        this.users = users;
+    }
+
+    public int getOus() {
+        return ous;
+    }
+
+    public void setOus(int ous) {
+        this.ous = ous;
+    }
+
+    public int getOuDepth() {
+        return ouDepth;
+    }
+
+    public void setOuDepth(int ouDepth) {
+        this.ouDepth = ouDepth;
+    }
+
+    public int getApplications() {
+        return applications;
+    }
+
+    public void setApplications(int applications) {
+        this.applications = applications;
+    }
+
+    public int getEntitlements() {
+        return entitlements;
+    }
+
+    public void setEntitlements(int entitlements) {
+        this.entitlements = entitlements;
+    }
+
+    public int getRoles() {
+        return roles;
+    }
+
+    public void setRoles(int roles) {
+        this.roles = roles;
+    }
+
+    public int getMinRoleSize() {
+        return minRoleSize;
+    }
+
+    public void setMinRoleSize(int minRoleSize) {
+        this.minRoleSize = minRoleSize;
+    }
+
+    public int getMaxRoleSize() {
+        return maxRoleSize;
+    }
+
+    public void setMaxRoleSize(int maxRoleSize) {
+        this.maxRoleSize = maxRoleSize;
+    }
+
+    public int getMaxRolesPerUser() {
+        return maxRolesPerUser;
+    }
+
+    public void setMaxRolesPerUser(int maxRolesPerUser) {
+        this.maxRolesPerUser = maxRolesPerUser;
+    }
+
+    public double getExtraRoleRate() {
+        return extraRoleRate;
+    }
+
+    public void setExtraRoleRate(double extraRoleRate) {
+        this.extraRoleRate = extraRoleRate;
+    }
+
+    public double getOuAffinity() {
+        return ouAffinity;
+    }
+
+    public void setOuAffinity(double ouAffinity) {
+        this.ouAffinity = ouAffinity;
+    }
+
+    public double getSkew() {
+        return skew;
+    }
+
+    public void setSkew(double skew) {
+        this.skew = skew;
+    }
+
+    public double getNoiseRate() {
+        return noiseRate;
+    }
+
+    public void setNoiseRate(double noiseRate) {
+        this.noiseRate = noiseRate;
+    }
+
+    public double getMissingRate() {
+        return missingRate;
+    }
+
+    public void setMissingRate(double missingRate) {
+        this.missingRate = missingRate;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public String toString() {
+        return "DatasetSpec{" +
+                "users=" + users +
+                ", ous=" + effectiveOus() +
+                ", ouDepth=" + ouDepth +
+                ", applications=" + effectiveApplications() +
+                ", entitlements=" + effectiveEntitlements() +
+                ", roles=" + effectiveRoles() +
+                ", roleSize=" + minRoleSize + ".." + maxRoleSize +
+                ", maxRolesPerUser=" + maxRolesPerUser +
+                ", extraRoleRate=" + extraRoleRate +
+                ", ouAffinity=" + ouAffinity +
+                ", skew=" + skew +
+                ", noiseRate=" + noiseRate +
+                ", missingRate=" + missingRate +
+                ", seed=" + seed +
+                '}';
+    }
+}
@@ -0,0 +1,79 @@
+package com.roleopt.rolemining.datagen;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What one generator run produced, and how fast.
+ */
+public class GenerationReport {
+
+    private final DatasetSpec spec;
+    private final int ous;
+    private final int applications;
+    private final int entitlements;
+    private final int plantedRoles;
+    private final long assignments;
+    private final long elapsedNanos;
+
+    // File name to size in bytes, when written to disk
+    private Map<String, Long> files = Collections.emptyMap();
+
+    GenerationReport(DatasetSpec spec, int ous, int applications, int entitlements, int plantedRoles,
+                     long assignments, long elapsedNanos) {
+        this.spec = spec;
+        this.ous = ous;
+        this.applications = applications;
+        this.entitlements = entitlements;
+        this.plantedRoles = plantedRoles;
+        this.assignments = assignments;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    void setFiles(Map<String, Long> files) {
+        this.files = files;
+    }
+
+    public long getAssignments() {
+        return assignments;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getTotalBytes() {
+        return files.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : getTotalBytes() / 1e6 / (elapsedNanos / 1e9);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("spec", spec.toString());
+        map.put("users", spec.getUsers());
+        map.put("ous", ous);
+        map.put("applications", applications);
+        map.put("entitlements", entitlements);
+        map.put("plantedRoles", plantedRoles);
+        map.put("assignments", assignments);
+        map.put("elapsedMs", elapsedNanos / 1_000_000);
+        if (!files.isEmpty()) {
+            map.put("files", files);
+            map.put("totalBytes", getTotalBytes());
+            map.put("megabytesPerSecond", Math.round(getMegabytesPerSecond() * 10) / 10.0);
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d users, %,d OUs, %,d applications, %,d entitlements, %,d planted roles, "
+                        + "%,d assignments in %,d ms (%,d bytes, %.1f MB/s)",
+                spec.getUsers(), ous, applications, entitlements, plantedRoles, assignments,
+                elapsedNanos / 1_000_000, getTotalBytes(), getMegabytesPerSecond());
+    }
+}
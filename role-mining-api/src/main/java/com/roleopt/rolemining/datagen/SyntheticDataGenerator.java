@@ -0,0 +1,258 @@
+package com.roleopt.rolemining.datagen;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates access datasets shaped like real exports, for load and scale testing.
+ * <p>
+ * Roles are planted first: bundles of {@code minRoleSize..maxRoleSize} entitlements drawn by
+ * entitlement popularity. Each role has a home OU; users mostly receive roles of their own OU
+ * ({@code ouAffinity}), sometimes further ones ({@code extraRoleRate}), occasionally stray grants
+ * ({@code noiseRate}) or a missing one ({@code missingRate}). Entitlement, role and OU popularity
+ * follow a Zipf law with exponent {@code skew}. The same spec and seed always give the same rows.
+ * <p>
+ * Users are streamed to the sink one at a time, so memory stays proportional to the number of
+ * entitlements and roles, not users.
+ */
+public final class SyntheticDataGenerator {
+
+    private static final String[] VERBS = {"read", "write", "approve", "admin", "export", "view", "manage", "submit",
+            "create", "delete", "audit", "deploy"};
+    private static final String[] OBJECTS = {"invoice", "payroll", "ticket", "report", "order", "account", "contract",
+            "asset", "ledger", "vendor", "customer", "release"};
+    private static final String[] FIRST_NAMES = {"John", "Jane", "Maria", "Wei", "Aisha", "Carlos", "Priya", "Liam",
+            "Olga", "Kenji", "Fatima", "Noah", "Emma", "Ravi", "Sofia", "Ahmed"};
+    private static final String[] LAST_NAMES = {"Doe", "Smith", "Garcia", "Chen", "Khan", "Silva", "Patel", "Murphy",
+            "Ivanova", "Sato", "Hassan", "Brown", "Muller", "Rao", "Rossi", "Ali"};
+
+    // Stray grants per noisy user are 1..MAX_NOISE_GRANTS
+    private static final int MAX_NOISE_GRANTS = 3;
+
+    private SyntheticDataGenerator() {
+    }
+
+    /**
+     * Write the dataset as CSV files in the upload format into {@code directory}.
+     */
+    public static GenerationReport writeCsv(DatasetSpec spec, Path directory) throws IOException {
+        CsvAccessDataSink sink = new CsvAccessDataSink(directory);
+        GenerationReport report;
+        try {
+            report = generate(spec, sink);
+        } finally {
+            sink.close();
+        }
+        report.setFiles(sink.fileSizes());
+        return report;
+    }
+
+    public static GenerationReport generate(DatasetSpec spec, AccessDataSink sink) throws IOException {
+        int ouCount = spec.effectiveOus();
+        int applicationCount = spec.effectiveApplications();
+        int entitlementCount = spec.effectiveEntitlements();
+        int roleCount = spec.effectiveRoles();
+        if (spec.getMinRoleSize() > spec.getMaxRoleSize()) {
+            throw new IllegalArgumentException("minRoleSize must not exceed maxRoleSize");
+        }
+        if (spec.getMaxRoleSize() > entitlementCount) {
+            throw new IllegalArgumentException("maxRoleSize exceeds the number of entitlements (" + entitlementCount + ")");
+        }
+
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(spec.getSeed());
+
+        // Step 1: OU hierarchy, level by level so parents are written before their children
+        String[] ouIds = ids("OU", ouCount);
+        int depth = Math.min(spec.getOuDepth(), ouCount);
+        int branching = (int) Math.ceil(Math.pow(ouCount, 1.0 / depth));
+        int levelStart = 0;
+        int previousStart = -1;
+        for (int level = 0; levelStart < ouCount; level++) {
+            long width = level == depth - 1 ? ouCount - levelStart : (long) Math.pow(branching, level + 1);
+            int levelEnd = (int) Math.min(ouCount, levelStart + width);
+            for (int i = levelStart; i < levelEnd; i++) {
+                String parent = level == 0 ? "" : ouIds[previousStart + random.nextInt(levelStart - previousStart)];
+                sink.organizationalUnit(ouIds[i], "Unit " + (i + 1), "Synthetic unit at level " + (level + 1), parent);
+            }
+            previousStart = levelStart;
+            levelStart = levelEnd;
+        }
+
+        // Step 2: applications and their entitlements
+        String[] applicationIds = ids("APP", applicationCount);
+        for (int a = 0; a < applicationCount; a++) {
+            sink.application(applicationIds[a], "Application" + (a + 1), "Synthetic application " + (a + 1));
+        }
+        // Entitlement e belongs to application e % applications, so the busiest applications come first
+        String[] entitlementIds = ids("ENT", entitlementCount);
+        for (int e = 0; e < entitlementCount; e++) {
+            String name = VERBS[random.nextInt(VERBS.length)] + "_" + OBJECTS[random.nextInt(OBJECTS.length)] + "_" + (e + 1);
+            sink.entitlement(entitlementIds[e], name, "Synthetic entitlement " + (e + 1),
+                    applicationIds[e % applicationCount]);
+        }
+
+        // Step 3: planted roles, each with a home OU
+        Zipf entitlementPopularity = new Zipf(entitlementCount, spec.getSkew());
+        String[] roleIds = ids("ROLE", roleCount);
+        int[][] roleEntitlements = new int[roleCount][];
+        int[] mark = new int[entitlementCount];
+        int stamp = 0;
+        for (int r = 0; r < roleCount; r++) {
+            stamp++;
+            int size = spec.getMinRoleSize() + random.nextInt(spec.getMaxRoleSize() - spec.getMinRoleSize() + 1);
+            int[] members = new int[size];
+            for (int filled = 0; filled < size; ) {
+                int e = entitlementPopularity.sample(random);
+                if (mark[e] != stamp) {
+                    mark[e] = stamp;
+                    members[filled++] = e;
+                }
+            }
+            Arrays.sort(members);
+            roleEntitlements[r] = members;
+            List<String> memberIds = new ArrayList<>(size);
+            for (int e : members) {
+                memberIds.add(entitlementIds[e]);
+            }
+            sink.plantedRole(roleIds[r], "Planted role " + (r + 1), memberIds);
+        }
+        // Role r's home OU is r % ous, so every OU with any roles has a local choice
+        int[][] ouRoles = new int[ouCount][];
+        int[] ouRoleCounts = new int[ouCount];
+        for (int r = 0; r < roleCount; r++) {
+            ouRoleCounts[r % ouCount]++;
+        }
+        for (int o = 0; o < ouCount; o++) {
+            ouRoles[o] = new int[ouRoleCounts[o]];
+        }
+        for (int r = 0; r < roleCount; r++) {
+            ouRoles[r % ouCount][r / ouCount] = r;
+        }
+
+        // Step 4: users, each followed by their assignments and ground-truth roles
+        Zipf rolePopularity = new Zipf(roleCount, spec.getSkew());
+        Zipf ouPopularity = new Zipf(ouCount, spec.getSkew());
+        int userWidth = width(spec.getUsers());
+        int[] granted = new int[spec.getMaxRolesPerUser() * spec.getMaxRoleSize() + MAX_NOISE_GRANTS];
+        int[] userRoles = new int[spec.getMaxRolesPerUser()];
+        long assignmentCount = 0;
+        for (int u = 0; u < spec.getUsers(); u++) {
+            String userId = id("U", u, userWidth);
+            int ou = ouPopularity.sample(random);
+            sink.user(userId, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                    LAST_NAMES[random.nextInt(LAST_NAMES.length)], ouIds[ou]);
+
+            int draws = 1;
+            while (draws < userRoles.length && random.nextDouble() < spec.getExtraRoleRate()) {
+                draws++;
+            }
+            stamp++;
+            int grantCount = 0;
+            int roleTotal = 0;
+            for (int k = 0; k < draws; k++) {
+                int role = ouRoles[ou].length > 0 && random.nextDouble() < spec.getOuAffinity()
+                        ? ouRoles[ou][random.nextInt(ouRoles[ou].length)]
+                        : rolePopularity.sample(random);
+                if (contains(userRoles, roleTotal, role)) {
+                    continue;
+                }
+                userRoles[roleTotal++] = role;
+                // One entitlement of the first role may be missing
+                int[] members = roleEntitlements[role];
+                int skip = roleTotal == 1 && members.length > 1 && random.nextDouble() < spec.getMissingRate()
+                        ? random.nextInt(members.length) : -1;
+                for (int i = 0; i < members.length; i++) {
+                    if (i != skip && mark[members[i]] != stamp) {
+                        mark[members[i]] = stamp;
+                        granted[grantCount++] = members[i];
+                    }
+                }
+            }
+            if (random.nextDouble() < spec.getNoiseRate()) {
+                int noise = 1 + random.nextInt(MAX_NOISE_GRANTS);
+                for (int i = 0; i < noise; i++) {
+                    int e = random.nextInt(entitlementCount);
+                    if (mark[e] != stamp) {
+                        mark[e] = stamp;
+                        granted[grantCount++] = e;
+                    }
+                }
+            }
+
+            for (int i = 0; i < grantCount; i++) {
+                sink.assignment(userId, entitlementIds[granted[i]]);
+            }
+            assignmentCount += grantCount;
+            for (int k = 0; k < roleTotal; k++) {
+                sink.userRole(userId, roleIds[userRoles[k]]);
+            }
+        }
+
+        return new GenerationReport(spec, ouCount, applicationCount, entitlementCount, roleCount,
+                assignmentCount, System.nanoTime() - start);
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] ids(String prefix, int count) {
+        int width = width(count);
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = id(prefix, i, width);
+        }
+        return ids;
+    }
+
+    /**
+     * One-based, zero-padded ids like the sample files (U001, ENT001); at least three digits.
+     */
+    private static String id(String prefix, int index, int width) {
+        String number = Integer.toString(index + 1);
+        StringBuilder id = new StringBuilder(prefix.length() + width).append(prefix);
+        for (int i = number.length(); i < width; i++) {
+            id.append('0');
+        }
+        return id.append(number).toString();
+    }
+
+    private static int width(int count) {
+        return Math.max(3, Integer.toString(count).length());
+    }
+
+    /**
+     * Samples ranks {@code 0..n-1} with probability proportional to {@code 1 / (rank + 1)^s}.
+     */
+    static final class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double s) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1.0 / Math.pow(i + 1, s);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            int rank = index >= 0 ? index : -index - 1;
+            return Math.min(rank, cumulative.length - 1);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.roleopt.rolemining.dto;
+
+import java.util.List;
+
+/**
+ * One node of a who-has query. Exactly one field is set: a leaf names an entitlement, application
+ * or organizational unit by id, and {@code and}, {@code or} and {@code not} combine other nodes,
+ * e.g. {@code {"and": [{"entitlement": "E1"}, {"organizationalUnit": "OU3"}, {"not": {"application": "APP2"}}]}}.
+ */
+public class AccessQueryDTO {
+    private String entitlement;
+    private String application;
+    private String organizationalUnit;
+    private List<AccessQueryDTO> and;
+    private List<AccessQueryDTO> or;
+    private AccessQueryDTO not;
+
+    // Default constructor
+    public AccessQueryDTO() {
+    }
+
+    public static AccessQueryDTO entitlement(String entitlementId) {
+        AccessQueryDTO query = new AccessQueryDTO();
+        query.setEntitlement(entitlementId);
+        return query;
+    }
+
+    public static AccessQueryDTO application(String applicationId) {
+        AccessQueryDTO query = new AccessQueryDTO();
+        query.setApplication(applicationId);
+        return query;
+    }
+
+    public static AccessQueryDTO organizationalUnit(String ouId) {
+        AccessQueryDTO query = new AccessQueryDTO();
+        query.setOrganizationalUnit(ouId);
+        return query;
+    }
+
+    public static AccessQueryDTO and(List<AccessQueryDTO> operands) {
+        AccessQueryDTO query = new AccessQueryDTO();
+        query.setAnd(operands);
+        return query;
+    }
+
+    public static AccessQueryDTO or(List<AccessQueryDTO> operands) {
+        AccessQueryDTO query = new AccessQueryDTO();
+        query.setOr(operands);
+        return query;
+    }
+
+    public static AccessQueryDTO not(AccessQueryDTO operand) {
+        AccessQueryDTO query = new AccessQueryDTO();
+        query.setNot(operand);
+        return query;
+    }
+
+    // Getters and Setters
+    public String getEntitlement() {
+        return entitlement;
+    }
+
+    public void setEntitlement(String entitlement) {
+        this.entitlement = entitlement;
+    }
+
+    public String getApplication() {
+        return application;
+    }
+
+    public void setApplication(String application) {
+        this.application = application;
+    }
+
+    public String getOrganizationalUnit() {
+        return organizationalUnit;
+    }
+
+    public void setOrganizationalUnit(String organizationalUnit) {
+        this.organizationalUnit = organizationalUnit;
+    }
+
+    public List<AccessQueryDTO> getAnd() {
+        return and;
+    }
+
+    public void setAnd(List<AccessQueryDTO> and) {
+        this.and = and;
+    }
+
+    public List<AccessQueryDTO> getOr() {
+        return or;
+    }
+
+    public void setOr(List<AccessQueryDTO> or) {
+        this.or = or;
+    }
+
+    public AccessQueryDTO getNot() {
+        return not;
+    }
+
+    public void setNot(AccessQueryDTO not) {
+        this.not = not;
+    }
+
+    @Override
+    public String toString() {
+        if (entitlement != null) {
+            return "entitlement:" + entitlement;
+        }
+        if (application != null) {
+            return "application:" + application;
+        }
+        if (organizationalUnit != null) {
+            return "ou:" + organizationalUnit;
+        }
+        if (and != null) {
+            return "and" + and;
+        }
+        if (or != null) {
+            return "or" + or;
+        }
+        return not != null ? "not(" + not + ")" : "{}";
+    }
+}
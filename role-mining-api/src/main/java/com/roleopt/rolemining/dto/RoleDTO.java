@@ -1,5 +1,6 @@
 package com.roleopt.rolemining.dto;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -15,6 +16,10 @@ public class RoleDTO {
     private List<String> users;
     private List<String> permissions;
     private Map<String, Object> attributes = new HashMap<>();
+    // Role hierarchy: ids of the smallest roles whose permissions strictly contain this one's, and of
+    // the largest roles whose permissions this one strictly contains
+    private List<Long> parentRoleIds = new ArrayList<>();
+    private List<Long> childRoleIds = new ArrayList<>();
     
     // Default constructor
     public RoleDTO() {
@@ -122,4 +127,20 @@ public class RoleDTO {
     public void setAttribute(String key, Object value) {
         attributes.put(key, value);
     }
-} 
\ No newline at end of file
+    
+    public List<Long> getParentRoleIds() {
+        return parentRoleIds;
+    }
+    
+    public void setParentRoleIds(List<Long> parentRoleIds) {
+        this.parentRoleIds = parentRoleIds;
+    }
+    
+    public List<Long> getChildRoleIds() {
+        return childRoleIds;
+    }
+    
+    public void setChildRoleIds(List<Long> childRoleIds) {
+        this.childRoleIds = childRoleIds;
+    }
+}
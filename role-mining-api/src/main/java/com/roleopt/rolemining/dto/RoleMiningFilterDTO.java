@@ -1,6 +1,9 @@
 package com.roleopt.rolemining.dto;
 
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Min;
+import javax.validation.constraints.Pattern;
 import java.util.List;
 
 public class RoleMiningFilterDTO {
@@ -15,6 +18,20 @@ public class RoleMiningFilterDTO {
     
     private boolean useAi = true;
     
+    // 'exact' groups users with identical entitlement sets; 'similarity' also merges near-identical ones
+    @Pattern(regexp = "exact|similarity", message = "Algorithm must be 'exact' or 'similarity'")
+    private String algorithm = "exact";
+    
+    // Blended similarity a group needs to join a cluster (similarity algorithm only)
+    @DecimalMin(value = "0.0", message = "Similarity threshold must be between 0 and 1")
+    @DecimalMax(value = "1.0", message = "Similarity threshold must be between 0 and 1")
+    private double similarityThreshold = 0.8;
+    
+    // Share of entitlement-name similarity in the blend, the rest being access overlap
+    @DecimalMin(value = "0.0", message = "Name weight must be between 0 and 1")
+    @DecimalMax(value = "1.0", message = "Name weight must be between 0 and 1")
+    private double nameWeight = 0.3;
+    
     // Default constructor
     public RoleMiningFilterDTO() {
     }
@@ -70,6 +87,30 @@ public class RoleMiningFilterDTO {
         this.useAi = useAi;
     }
     
+    public String getAlgorithm() {
+        return algorithm;
+    }
+    
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+    
+    public double getSimilarityThreshold() {
+        return similarityThreshold;
+    }
+    
+    public void setSimilarityThreshold(double similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+    }
+    
+    public double getNameWeight() {
+        return nameWeight;
+    }
+    
+    public void setNameWeight(double nameWeight) {
+        this.nameWeight = nameWeight;
+    }
+    
     @Override
     public String toString() {
         return "RoleMiningFilterDTO{" +
@@ -78,6 +119,9 @@ public class RoleMiningFilterDTO {
                 ", minUsersPerRole=" + minUsersPerRole +
                 ", maxPermissionsPerRole=" + maxPermissionsPerRole +
                 ", useAi=" + useAi +
+                ", algorithm='" + algorithm + '\'' +
+                ", similarityThreshold=" + similarityThreshold +
+                ", nameWeight=" + nameWeight +
                 '}';
     }
 } 
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.roleopt.rolemining.dto;
+
+import java.util.List;
+
+public class UserOutlierDTO {
+    private int rank;
+    private String userId;
+    private String name;
+    private String organizationalUnit;
+    // Sum over the user's entitlements of the share of OU peers NOT holding each
+    private double score;
+    private int entitlementCount;
+    private int rareEntitlementCount;
+    private int peerCount;
+    // Rarest entitlements first, formatted "AppName: EntitlementName (N of M peers)"
+    private List<String> rareEntitlements;
+
+    // Default constructor
+    public UserOutlierDTO() {
+    }
+
+    // Getters and Setters
+    public int getRank() {
+        return rank;
+    }
+
+    public void setRank(int rank) {
+        this.rank = rank;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getOrganizationalUnit() {
+        return organizationalUnit;
+    }
+
+    public void setOrganizationalUnit(String organizationalUnit) {
+        this.organizationalUnit = organizationalUnit;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+
+    public int getEntitlementCount() {
+        return entitlementCount;
+    }
+
+    public void setEntitlementCount(int entitlementCount) {
+        this.entitlementCount = entitlementCount;
+    }
+
+    public int getRareEntitlementCount() {
+        return rareEntitlementCount;
+    }
+
+    public void setRareEntitlementCount(int rareEntitlementCount) {
+        this.rareEntitlementCount = rareEntitlementCount;
+    }
+
+    public int getPeerCount() {
+        return peerCount;
+    }
+
+    public void setPeerCount(int peerCount) {
+        this.peerCount = peerCount;
+    }
+
+    public List<String> getRareEntitlements() {
+        return rareEntitlements;
+    }
+
+    public void setRareEntitlements(List<String> rareEntitlements) {
+        this.rareEntitlements = rareEntitlements;
+    }
+}
@@ -0,0 +1,248 @@
+package com.roleopt.rolemining.index;
+
+import com.roleopt.rolemining.model.Assignment;
+import com.roleopt.rolemining.model.Entitlement;
+import com.roleopt.rolemining.model.User;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable user x entitlement matrix over dense int ids. Rows (user -> entitlements) and columns
+ * (entitlement -> users) are both stored as compressed sparse arrays of sorted ids, so "who holds all
+ * of these entitlements" is a merge of a few sorted int arrays instead of a scan over assignments.
+ * <p>
+ * The arrays and the id dictionaries are kept in an {@link IndexStorage}: on the heap, or in direct
+ * or mapped buffers for datasets whose arrays would otherwise weigh on the garbage collector.
+ */
+public final class AccessMatrix {
+
+    private final IdDictionary userIds;
+    private final IdDictionary entitlementIds;
+
+    // CSR: entitlements of user u are rowEntitlements[rowOffsets[u] .. rowOffsets[u + 1])
+    private final IntSequence rowOffsets;
+    private final IntSequence rowEntitlements;
+    // CSC: users holding entitlement e are columnUsers[columnOffsets[e] .. columnOffsets[e + 1])
+    private final IntSequence columnOffsets;
+    private final IntSequence columnUsers;
+    private final IndexStorage storage;
+
+    private AccessMatrix(IdDictionary userIds, IdDictionary entitlementIds,
+                         IntSequence rowOffsets, IntSequence rowEntitlements,
+                         IntSequence columnOffsets, IntSequence columnUsers, IndexStorage storage) {
+        this.userIds = userIds;
+        this.entitlementIds = entitlementIds;
+        this.rowOffsets = rowOffsets;
+        this.rowEntitlements = rowEntitlements;
+        this.columnOffsets = columnOffsets;
+        this.columnUsers = columnUsers;
+        this.storage = storage;
+    }
+
+    /**
+     * Build the matrix from uploaded data, on the heap.
+     */
+    public static AccessMatrix build(Map<String, User> users,
+                                     Map<String, Entitlement> entitlements,
+                                     List<Assignment> assignments) {
+        return build(users, entitlements, assignments, IndexStorage.heap());
+    }
+
+    /**
+     * Build the matrix from uploaded data. Assignments referring to unknown users or entitlements are
+     * ignored and duplicate grants are collapsed. The arrays are built on the heap, then handed to the
+     * storage, so off-heap storage only saves heap once the build is over.
+     */
+    public static AccessMatrix build(Map<String, User> users,
+                                     Map<String, Entitlement> entitlements,
+                                     List<Assignment> assignments,
+                                     IndexStorage storage) {
+        String[] userIds = users.keySet().stream().sorted().toArray(String[]::new);
+        String[] entitlementIds = entitlements.keySet().stream().sorted().toArray(String[]::new);
+        Map<String, Integer> userOrdinals = ordinals(userIds);
+        Map<String, Integer> entitlementOrdinals = ordinals(entitlementIds);
+
+        // Pass 1: count grants per user so each row can be sized exactly
+        int[] rowOffsets = new int[userIds.length + 1];
+        for (Assignment assignment : assignments) {
+            Integer u = assignment.getUser() == null ? null : userOrdinals.get(assignment.getUser().getUserId());
+            if (u == null) {
+                continue;
+            }
+            for (Entitlement entitlement : assignment.getEntitlements()) {
+                if (entitlementOrdinals.containsKey(entitlement.getEntitlementId())) {
+                    rowOffsets[u + 1]++;
+                }
+            }
+        }
+        for (int u = 0; u < userIds.length; u++) {
+            rowOffsets[u + 1] += rowOffsets[u];
+        }
+
+        // Pass 2: fill rows, then sort and de-duplicate each row in place
+        int[] fill = Arrays.copyOf(rowOffsets, userIds.length);
+        int[] rawEntitlements = new int[rowOffsets[userIds.length]];
+        for (Assignment assignment : assignments) {
+            Integer u = assignment.getUser() == null ? null : userOrdinals.get(assignment.getUser().getUserId());
+            if (u == null) {
+                continue;
+            }
+            for (Entitlement entitlement : assignment.getEntitlements()) {
+                Integer e = entitlementOrdinals.get(entitlement.getEntitlementId());
+                if (e != null) {
+                    rawEntitlements[fill[u]++] = e;
+                }
+            }
+        }
+        int[] compactOffsets = new int[userIds.length + 1];
+        int size = 0;
+        for (int u = 0; u < userIds.length; u++) {
+            int from = rowOffsets[u];
+            int to = rowOffsets[u + 1];
+            Arrays.sort(rawEntitlements, from, to);
+            compactOffsets[u] = size;
+            for (int i = from; i < to; i++) {
+                if (i == from || rawEntitlements[i] != rawEntitlements[i - 1]) {
+                    rawEntitlements[size++] = rawEntitlements[i];
+                }
+            }
+        }
+        compactOffsets[userIds.length] = size;
+        int[] rowEntitlements = Arrays.copyOf(rawEntitlements, size);
+
+        // Transpose into columns; walking users in order keeps every column sorted
+        int[] columnOffsets = new int[entitlementIds.length + 1];
+        for (int e : rowEntitlements) {
+            columnOffsets[e + 1]++;
+        }
+        for (int e = 0; e < entitlementIds.length; e++) {
+            columnOffsets[e + 1] += columnOffsets[e];
+        }
+        int[] columnFill = Arrays.copyOf(columnOffsets, entitlementIds.length);
+        int[] columnUsers = new int[size];
+        for (int u = 0; u < userIds.length; u++) {
+            for (int i = compactOffsets[u]; i < compactOffsets[u + 1]; i++) {
+                columnUsers[columnFill[rowEntitlements[i]]++] = u;
+            }
+        }
+
+        return new AccessMatrix(storage.ids(userIds, userOrdinals), storage.ids(entitlementIds, entitlementOrdinals),
+                storage.ints(compactOffsets), storage.ints(rowEntitlements),
+                storage.ints(columnOffsets), storage.ints(columnUsers), storage);
+    }
+
+    private static Map<String, Integer> ordinals(String[] ids) {
+        Map<String, Integer> ordinals = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            ordinals.put(ids[i], i);
+        }
+        return ordinals;
+    }
+
+    public int userCount() {
+        return userIds.size();
+    }
+
+    public int entitlementCount() {
+        return entitlementIds.size();
+    }
+
+    public int grantCount() {
+        return rowEntitlements.length();
+    }
+
+    public IndexStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Approximate heap held by the matrix itself; id strings shared with the dataset are not counted
+     */
+    public long retainedBytes() {
+        return userIds.heapBytes() + entitlementIds.heapBytes() + rowOffsets.heapBytes()
+                + rowEntitlements.heapBytes() + columnOffsets.heapBytes() + columnUsers.heapBytes();
+    }
+
+    /**
+     * Direct or mapped memory held by the matrix; 0 on heap storage
+     */
+    public long offHeapBytes() {
+        return userIds.offHeapBytes() + entitlementIds.offHeapBytes() + rowOffsets.offHeapBytes()
+                + rowEntitlements.offHeapBytes() + columnOffsets.offHeapBytes() + columnUsers.offHeapBytes();
+    }
+
+    public String userId(int user) {
+        return userIds.id(user);
+    }
+
+    public String entitlementId(int entitlement) {
+        return entitlementIds.id(entitlement);
+    }
+
+    /**
+     * @return the dense id of the user, or -1 if unknown
+     */
+    public int userOrdinal(String userId) {
+        return userIds.ordinal(userId);
+    }
+
+    /**
+     * @return the dense id of the entitlement, or -1 if unknown
+     */
+    public int entitlementOrdinal(String entitlementId) {
+        return entitlementIds.ordinal(entitlementId);
+    }
+
+    /**
+     * @return sorted entitlement ids held by the user (a copy)
+     */
+    public int[] entitlementsOf(int user) {
+        return rowEntitlements.copyOfRange(rowOffsets.get(user), rowOffsets.get(user + 1));
+    }
+
+    /**
+     * @return sorted user ids holding the entitlement (a copy)
+     */
+    public int[] usersWith(int entitlement) {
+        return columnUsers.copyOfRange(columnOffsets.get(entitlement), columnOffsets.get(entitlement + 1));
+    }
+
+    public int holderCount(int entitlement) {
+        return columnOffsets.get(entitlement + 1) - columnOffsets.get(entitlement);
+    }
+
+    /**
+     * Users holding every one of the given entitlements. Columns are intersected shortest first, so
+     * the cost is bounded by the rarest entitlement rather than the population.
+     */
+    public int[] usersWithAll(int[] entitlements) {
+        if (entitlements.length == 0) {
+            return new int[0];
+        }
+        Integer[] order = new Integer[entitlements.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = entitlements[i];
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(holderCount(a), holderCount(b)));
+
+        int[] result = usersWith(order[0]);
+        int size = result.length;
+        for (int k = 1; k < order.length && size > 0; k++) {
+            int e = order[k];
+            int from = columnOffsets.get(e);
+            int to = columnOffsets.get(e + 1);
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                // Galloping would help for very skewed columns; binary search is enough at this size
+                if (columnUsers.binarySearch(from, to, result[i]) >= 0) {
+                    result[kept++] = result[i];
+                }
+            }
+            size = kept;
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,117 @@
+package com.roleopt.rolemining.index;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link IdDictionary} whose ids live as concatenated UTF-8 in a direct or memory-mapped buffer,
+ * with an offset per id. Lookups binary-search the sorted ids, comparing bytes against the key in
+ * {@link String#compareTo} order without decoding, so they allocate nothing; {@link #id} decodes
+ * a fresh string on every call.
+ */
+final class BufferIdDictionary implements IdDictionary {
+
+    private static final long HEAP_BYTES = 160;
+
+    private final ByteBuffer bytes;
+    // Id i is bytes[offsets[i] .. offsets[i + 1])
+    private final IntSequence offsets;
+
+    BufferIdDictionary(ByteBuffer bytes, IntSequence offsets) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+    }
+
+    @Override
+    public int size() {
+        return offsets.length() - 1;
+    }
+
+    @Override
+    public String id(int ordinal) {
+        if (ordinal < 0 || ordinal >= size()) {
+            throw new IndexOutOfBoundsException("Ordinal " + ordinal + " of " + size());
+        }
+        int from = offsets.get(ordinal);
+        byte[] encoded = new byte[offsets.get(ordinal + 1) - from];
+        ByteBuffer view = bytes.duplicate();
+        view.position(from);
+        view.get(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int ordinal(String id) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sign of {@code id(ordinal).compareTo(key)}, decoding the stored UTF-8 into UTF-16 units on the fly
+     */
+    private int compare(int ordinal, String key) {
+        int position = offsets.get(ordinal);
+        int end = offsets.get(ordinal + 1);
+        int k = 0;
+        while (position < end) {
+            int b = bytes.get(position) & 0xff;
+            int codePoint;
+            if (b < 0x80) {
+                codePoint = b;
+                position += 1;
+            } else if (b < 0xe0) {
+                codePoint = (b & 0x1f) << 6 | (bytes.get(position + 1) & 0x3f);
+                position += 2;
+            } else if (b < 0xf0) {
+                codePoint = (b & 0x0f) << 12 | (bytes.get(position + 1) & 0x3f) << 6 | (bytes.get(position + 2) & 0x3f);
+                position += 3;
+            } else {
+                codePoint = (b & 0x07) << 18 | (bytes.get(position + 1) & 0x3f) << 12
+                        | (bytes.get(position + 2) & 0x3f) << 6 | (bytes.get(position + 3) & 0x3f);
+                position += 4;
+            }
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                if (k == key.length()) {
+                    return 1;
+                }
+                int diff = codePoint - key.charAt(k++);
+                if (diff != 0) {
+                    return diff;
+                }
+            } else {
+                for (char unit : Character.toChars(codePoint)) {
+                    if (k == key.length()) {
+                        return 1;
+                    }
+                    int diff = unit - key.charAt(k++);
+                    if (diff != 0) {
+                        return diff;
+                    }
+                }
+            }
+        }
+        return k == key.length() ? 0 : -1;
+    }
+
+    @Override
+    public long heapBytes() {
+        return HEAP_BYTES + offsets.heapBytes();
+    }
+
+    @Override
+    public long offHeapBytes() {
+        return bytes.capacity() + offsets.offHeapBytes();
+    }
+}
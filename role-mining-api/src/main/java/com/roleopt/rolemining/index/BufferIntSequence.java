@@ -0,0 +1,74 @@
+package com.roleopt.rolemining.index;
+
+import java.nio.IntBuffer;
+
+/**
+ * {@link IntSequence} over an int view of a direct or memory-mapped buffer. Absolute
+ * {@link IntBuffer#get(int)} checks bounds, so a bad ordinal fails with an exception instead of
+ * reading foreign memory.
+ */
+final class BufferIntSequence implements IntSequence {
+
+    // Object, buffer view and its backing buffer
+    private static final long HEAP_BYTES = 160;
+
+    private final IntBuffer values;
+
+    BufferIntSequence(IntBuffer values) {
+        this.values = values;
+    }
+
+    @Override
+    public int length() {
+        return values.limit();
+    }
+
+    @Override
+    public int get(int index) {
+        return values.get(index);
+    }
+
+    @Override
+    public int[] copyOfRange(int from, int to) {
+        if (from < 0 || from > to || to > values.limit()) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") of " + values.limit());
+        }
+        int[] copy = new int[to - from];
+        // Duplicate so concurrent readers never share a position
+        IntBuffer view = values.duplicate();
+        view.position(from);
+        view.get(copy);
+        return copy;
+    }
+
+    @Override
+    public int binarySearch(int from, int to, int key) {
+        if (from < 0 || from > to || to > values.limit()) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") of " + values.limit());
+        }
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = values.get(mid);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    @Override
+    public long heapBytes() {
+        return HEAP_BYTES;
+    }
+
+    @Override
+    public long offHeapBytes() {
+        return 4L * values.capacity();
+    }
+}
@@ -0,0 +1,92 @@
+package com.roleopt.rolemining.index;
+
+import com.roleopt.rolemining.model.Assignment;
+import com.roleopt.rolemining.model.Entitlement;
+import com.roleopt.rolemining.model.User;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only lookup structures for one uploaded dataset, built once per upload and shared by every
+ * request until the next upload replaces it.
+ */
+public final class DatasetIndex {
+
+    private final long version;
+    private final Map<String, User> users;
+    private final Map<String, Entitlement> entitlements;
+    private final AccessMatrix matrix;
+    private final EntitlementNameIndex nameIndex;
+    private final TfIdfModel tfIdf;
+    private final MembershipIndex membership;
+
+    private DatasetIndex(long version, Map<String, User> users, Map<String, Entitlement> entitlements,
+                         AccessMatrix matrix, EntitlementNameIndex nameIndex, TfIdfModel tfIdf,
+                         MembershipIndex membership) {
+        this.version = version;
+        this.users = users;
+        this.entitlements = entitlements;
+        this.matrix = matrix;
+        this.nameIndex = nameIndex;
+        this.tfIdf = tfIdf;
+        this.membership = membership;
+    }
+
+    public static DatasetIndex build(long version,
+                                     Map<String, User> users,
+                                     Map<String, Entitlement> entitlements,
+                                     List<Assignment> assignments) {
+        return build(version, users, entitlements, assignments, IndexStorage.heap());
+    }
+
+    /**
+     * @param storage where the access matrix keeps its arrays and id dictionaries
+     */
+    public static DatasetIndex build(long version,
+                                     Map<String, User> users,
+                                     Map<String, Entitlement> entitlements,
+                                     List<Assignment> assignments,
+                                     IndexStorage storage) {
+        AccessMatrix matrix = AccessMatrix.build(users, entitlements, assignments, storage);
+        return new DatasetIndex(version, users, entitlements, matrix,
+                EntitlementNameIndex.build(matrix, entitlements), TfIdfModel.build(matrix, entitlements),
+                MembershipIndex.build(matrix, users, entitlements));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Map<String, User> getUsers() {
+        return users;
+    }
+
+    public Map<String, Entitlement> getEntitlements() {
+        return entitlements;
+    }
+
+    public AccessMatrix getMatrix() {
+        return matrix;
+    }
+
+    public EntitlementNameIndex getNameIndex() {
+        return nameIndex;
+    }
+
+    public TfIdfModel getTfIdf() {
+        return tfIdf;
+    }
+
+    public MembershipIndex getMembership() {
+        return membership;
+    }
+
+    /**
+     * Approximate heap held by the indexes, not counting the entities they point to
+     */
+    public long retainedBytes() {
+        return matrix.retainedBytes() + nameIndex.retainedBytes() + tfIdf.retainedBytes()
+                + membership.retainedBytes();
+    }
+}
@@ -0,0 +1,341 @@
+package com.roleopt.rolemining.index;
+
+import com.roleopt.rolemining.admission.MemoryEstimator;
+import com.roleopt.rolemining.model.Entitlement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves free-text permission names, as written by a model ("Finance System: Approve Invoices",
+ * "approve_invoice", "ENT042"), to entitlement ordinals of an {@link AccessMatrix}.
+ * <p>
+ * Lookups try, in order: the normalized entitlement id, "application name" and bare name; then a
+ * token match over an inverted index, scored by IDF-weighted Dice overlap. Tokens that do not occur
+ * in the vocabulary fall back to shared-prefix matching, which absorbs plurals and verb forms.
+ * Candidate generation only walks the rarest postings, so a lookup stays well under a millisecond
+ * even when common words such as "read" occur in tens of thousands of entitlements.
+ */
+public final class EntitlementNameIndex {
+
+    // Postings longer than this are only probed for scoring, never walked to generate candidates
+    private static final int MAX_CANDIDATE_POSTINGS = 2048;
+    private static final int MIN_PREFIX_LENGTH = 4;
+    private static final double PREFIX_MATCH_WEIGHT = 0.8;
+    // Exact name shared by several applications: right text, but we had to guess the application
+    private static final double AMBIGUOUS_EXACT_SCORE = 0.8;
+
+    private final AccessMatrix matrix;
+    private final Map<String, int[]> exact;
+    private final Map<String, int[]> postings;
+    private final Map<String, Double> idf;
+    private final String[] vocabulary;
+    private final double[] entitlementWeights;
+
+    private EntitlementNameIndex(AccessMatrix matrix, Map<String, int[]> exact, Map<String, int[]> postings,
+                                 Map<String, Double> idf, String[] vocabulary, double[] entitlementWeights) {
+        this.matrix = matrix;
+        this.exact = exact;
+        this.postings = postings;
+        this.idf = idf;
+        this.vocabulary = vocabulary;
+        this.entitlementWeights = entitlementWeights;
+    }
+
+    /**
+     * Result of resolving one permission string.
+     */
+    public static final class Match {
+        private final int entitlement;
+        private final double score;
+
+        Match(int entitlement, double score) {
+            this.entitlement = entitlement;
+            this.score = score;
+        }
+
+        public int getEntitlement() {
+            return entitlement;
+        }
+
+        /**
+         * @return 1.0 for an exact match, lower for ambiguous or fuzzy matches
+         */
+        public double getScore() {
+            return score;
+        }
+    }
+
+    public static EntitlementNameIndex build(AccessMatrix matrix, Map<String, Entitlement> entitlements) {
+        Map<String, List<Integer>> exactLists = new HashMap<>();
+        Map<String, List<Integer>> postingLists = new HashMap<>();
+        List<Set<String>> tokensByEntitlement = new ArrayList<>(matrix.entitlementCount());
+
+        for (int e = 0; e < matrix.entitlementCount(); e++) {
+            Entitlement entitlement = entitlements.get(matrix.entitlementId(e));
+            String name = entitlement.getName() == null ? "" : entitlement.getName();
+            String appName = entitlement.getApplication() != null && entitlement.getApplication().getName() != null
+                    ? entitlement.getApplication().getName()
+                    : "";
+
+            addExact(exactLists, normalize(entitlement.getEntitlementId()), e);
+            addExact(exactLists, normalize(name), e);
+            addExact(exactLists, normalize(appName + " " + name), e);
+
+            Set<String> tokens = tokens(appName + " " + name);
+            tokensByEntitlement.add(tokens);
+            for (String token : tokens) {
+                postingLists.computeIfAbsent(token, k -> new ArrayList<>()).add(e);
+            }
+        }
+
+        Map<String, int[]> exact = new HashMap<>(exactLists.size() * 2);
+        exactLists.forEach((key, ids) -> exact.put(key, toArray(ids)));
+
+        // Entitlements are visited in ordinal order, so every posting list is already sorted
+        Map<String, int[]> postings = new HashMap<>(postingLists.size() * 2);
+        Map<String, Double> idf = new HashMap<>(postingLists.size() * 2);
+        int n = Math.max(1, matrix.entitlementCount());
+        postingLists.forEach((token, ids) -> {
+            postings.put(token, toArray(ids));
+            idf.put(token, Math.log(1.0 + (double) n / ids.size()));
+        });
+
+        double[] weights = new double[matrix.entitlementCount()];
+        for (int e = 0; e < weights.length; e++) {
+            for (String token : tokensByEntitlement.get(e)) {
+                weights[e] += idf.get(token);
+            }
+        }
+
+        String[] vocabulary = postings.keySet().toArray(new String[0]);
+        Arrays.sort(vocabulary);
+        return new EntitlementNameIndex(matrix, exact, postings, idf, vocabulary, weights);
+    }
+
+    private static void addExact(Map<String, List<Integer>> exact, String key, int entitlement) {
+        if (key.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = exact.computeIfAbsent(key, k -> new ArrayList<>(1));
+        if (!ids.contains(entitlement)) {
+            ids.add(entitlement);
+        }
+    }
+
+    private static int[] toArray(List<Integer> ids) {
+        int[] array = new int[ids.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = ids.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Lower-case, split camelCase, and reduce every run of non-alphanumerics to a single space.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length() + 8);
+        char previous = ' ';
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (Character.isUpperCase(c) && Character.isLowerCase(previous)) {
+                    sb.append(' ');
+                }
+                sb.append(Character.toLowerCase(c));
+            } else if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+                sb.append(' ');
+            }
+            previous = c;
+        }
+        int end = sb.length();
+        while (end > 0 && sb.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return sb.substring(0, end);
+    }
+
+    static Set<String> tokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : normalize(text).split(" ")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Approximate heap held by the name lookups and postings
+     */
+    public long retainedBytes() {
+        long bytes = MemoryEstimator.mapEntries(exact.size()) + MemoryEstimator.mapEntries(postings.size())
+                + MemoryEstimator.mapEntries(idf.size()) + MemoryEstimator.refArray(vocabulary.length)
+                + MemoryEstimator.ARRAY_HEADER + 8L * entitlementWeights.length;
+        for (Map.Entry<String, int[]> entry : exact.entrySet()) {
+            bytes += MemoryEstimator.string(entry.getKey()) + MemoryEstimator.intArray(entry.getValue().length);
+        }
+        for (Map.Entry<String, int[]> entry : postings.entrySet()) {
+            bytes += MemoryEstimator.string(entry.getKey()) + MemoryEstimator.intArray(entry.getValue().length);
+        }
+        // Boxed idf values; the terms are the postings keys
+        return bytes + 16L * idf.size();
+    }
+
+    /**
+     * Resolve a permission string to the best matching entitlement.
+     *
+     * @param minScore matches scoring below this are rejected
+     * @return the match, or null if nothing scores high enough
+     */
+    public Match resolve(String text, double minScore) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+
+        int[] exactIds = exact.get(normalized);
+        if (exactIds != null) {
+            if (exactIds.length == 1) {
+                return new Match(exactIds[0], 1.0);
+            }
+            return AMBIGUOUS_EXACT_SCORE >= minScore ? new Match(mostHeld(exactIds), AMBIGUOUS_EXACT_SCORE) : null;
+        }
+
+        return fuzzy(tokens(text), minScore);
+    }
+
+    private Match fuzzy(Set<String> queryTokens, double minScore) {
+        // Expand each query token to vocabulary terms with their match weight
+        List<String> terms = new ArrayList<>();
+        List<Double> termWeights = new ArrayList<>();
+        double queryWeight = 0;
+        for (String token : queryTokens) {
+            Double tokenIdf = idf.get(token);
+            if (tokenIdf != null) {
+                terms.add(token);
+                termWeights.add(tokenIdf);
+                queryWeight += tokenIdf;
+                continue;
+            }
+            String similar = closestByPrefix(token);
+            if (similar != null) {
+                terms.add(similar);
+                termWeights.add(idf.get(similar) * PREFIX_MATCH_WEIGHT);
+                queryWeight += idf.get(similar);
+            } else {
+                // An unknown word still counts against the match
+                queryWeight += Math.log(1.0 + matrix.entitlementCount());
+            }
+        }
+        if (terms.isEmpty()) {
+            return null;
+        }
+
+        // Generate candidates from short postings only; if every term is common, take the entitlements
+        // containing all of them, and only as a last resort a prefix of the rarest posting
+        Set<Integer> candidates = new LinkedHashSet<>();
+        for (String term : terms) {
+            int[] posting = postings.get(term);
+            if (posting.length <= MAX_CANDIDATE_POSTINGS) {
+                for (int e : posting) {
+                    candidates.add(e);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            int[] common = intersectAll(terms);
+            for (int i = 0; i < Math.min(common.length, MAX_CANDIDATE_POSTINGS); i++) {
+                candidates.add(common[i]);
+            }
+        }
+
+        int best = -1;
+        double bestScore = 0;
+        for (int e : candidates) {
+            double matched = 0;
+            for (int i = 0; i < terms.size(); i++) {
+                if (Arrays.binarySearch(postings.get(terms.get(i)), e) >= 0) {
+                    matched += termWeights.get(i);
+                }
+            }
+            double score = 2 * matched / (queryWeight + entitlementWeights[e]);
+            if (score > bestScore || (score == bestScore && best >= 0
+                    && matrix.holderCount(e) > matrix.holderCount(best))) {
+                best = e;
+                bestScore = score;
+            }
+        }
+        return best >= 0 && bestScore >= minScore ? new Match(best, Math.min(1.0, bestScore)) : null;
+    }
+
+    private int[] intersectAll(List<String> terms) {
+        List<int[]> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            lists.add(postings.get(term));
+        }
+        lists.sort((a, b) -> Integer.compare(a.length, b.length));
+        int[] result = lists.get(0).clone();
+        int size = result.length;
+        for (int k = 1; k < lists.size() && size > 0; k++) {
+            int[] other = lists.get(k);
+            int kept = 0;
+            int j = 0;
+            for (int i = 0; i < size && j < other.length; ) {
+                if (result[i] == other[j]) {
+                    result[kept++] = result[i++];
+                    j++;
+                } else if (result[i] < other[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            size = kept;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Vocabulary term starting with the token's prefix (all but its last two characters, at least four),
+     * the one closest in length to the token, e.g. "invoices" -> "invoice", "approved" -> "approve".
+     */
+    private String closestByPrefix(String token) {
+        int prefixLength = Math.max(MIN_PREFIX_LENGTH, token.length() - 2);
+        if (token.length() < prefixLength) {
+            return null;
+        }
+        String prefix = token.substring(0, prefixLength);
+        int from = Arrays.binarySearch(vocabulary, prefix);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        String best = null;
+        for (int i = from; i < vocabulary.length && vocabulary[i].startsWith(prefix); i++) {
+            if (best == null || Math.abs(vocabulary[i].length() - token.length())
+                    < Math.abs(best.length() - token.length())) {
+                best = vocabulary[i];
+            }
+        }
+        return best;
+    }
+
+    private int mostHeld(int[] ids) {
+        int best = ids[0];
+        for (int id : ids) {
+            if (matrix.holderCount(id) > matrix.holderCount(best)) {
+                best = id;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,45 @@
+package com.roleopt.rolemining.index;
+
+import com.roleopt.rolemining.admission.MemoryEstimator;
+
+import java.util.Map;
+
+/**
+ * {@link IdDictionary} over the id array and a hash map of ordinals, the default storage.
+ */
+final class HeapIdDictionary implements IdDictionary {
+
+    private final String[] ids;
+    private final Map<String, Integer> ordinals;
+
+    HeapIdDictionary(String[] ids, Map<String, Integer> ordinals) {
+        this.ids = ids;
+        this.ordinals = ordinals;
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    public String id(int ordinal) {
+        return ids[ordinal];
+    }
+
+    @Override
+    public int ordinal(String id) {
+        Integer ordinal = ordinals.get(id);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    @Override
+    public long heapBytes() {
+        return MemoryEstimator.refArray(ids.length) + MemoryEstimator.mapEntries(ordinals.size());
+    }
+
+    @Override
+    public long offHeapBytes() {
+        return 0;
+    }
+}
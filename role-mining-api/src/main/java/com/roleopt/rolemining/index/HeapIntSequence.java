@@ -0,0 +1,47 @@
+package com.roleopt.rolemining.index;
+
+import com.roleopt.rolemining.admission.MemoryEstimator;
+
+import java.util.Arrays;
+
+/**
+ * {@link IntSequence} over an int array, the default storage.
+ */
+final class HeapIntSequence implements IntSequence {
+
+    private final int[] values;
+
+    HeapIntSequence(int[] values) {
+        this.values = values;
+    }
+
+    @Override
+    public int length() {
+        return values.length;
+    }
+
+    @Override
+    public int get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public int[] copyOfRange(int from, int to) {
+        return Arrays.copyOfRange(values, from, to);
+    }
+
+    @Override
+    public int binarySearch(int from, int to, int key) {
+        return Arrays.binarySearch(values, from, to, key);
+    }
+
+    @Override
+    public long heapBytes() {
+        return MemoryEstimator.intArray(values.length);
+    }
+
+    @Override
+    public long offHeapBytes() {
+        return 0;
+    }
+}
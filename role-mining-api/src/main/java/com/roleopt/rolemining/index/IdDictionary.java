@@ -0,0 +1,31 @@
+package com.roleopt.rolemining.index;
+
+/**
+ * Bidirectional mapping between the sorted string ids of a dataset (users, entitlements) and their
+ * dense ordinals, on the heap or off it depending on the {@link IndexStorage} that created it.
+ */
+public interface IdDictionary {
+
+    int size();
+
+    /**
+     * @return the id with this ordinal
+     * @throws IndexOutOfBoundsException for an ordinal outside {@code [0, size())}
+     */
+    String id(int ordinal);
+
+    /**
+     * @return the ordinal of the id, or -1 if unknown
+     */
+    int ordinal(String id);
+
+    /**
+     * Heap held by this dictionary, not counting id strings shared with the dataset
+     */
+    long heapBytes();
+
+    /**
+     * Direct or mapped memory held by this dictionary
+     */
+    long offHeapBytes();
+}
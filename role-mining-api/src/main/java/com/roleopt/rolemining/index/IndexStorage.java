@@ -0,0 +1,145 @@
+package com.roleopt.rolemining.index;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Where the large long-lived arrays of an {@link AccessMatrix} live:
+ * <ul>
+ *     <li>{@code heap} - plain arrays and maps, the default;</li>
+ *     <li>{@code direct} - direct buffers, outside the heap but in process memory (bounded by
+ *     {@code -XX:MaxDirectMemorySize});</li>
+ *     <li>{@code mapped} - memory-mapped temporary files, paged in and out by the OS. The files are
+ *     unlinked as soon as they are mapped, so nothing is left behind.</li>
+ * </ul>
+ * Off the heap, the garbage collector only sees a few small buffer objects per dataset, whatever its
+ * size. The memory is released when the dataset's index becomes unreachable and its buffers are
+ * collected.
+ */
+public final class IndexStorage {
+
+    public enum Mode {
+        HEAP,
+        DIRECT,
+        MAPPED
+    }
+
+    private static final IndexStorage HEAP = new IndexStorage(Mode.HEAP, null);
+
+    private final Mode mode;
+    private final Path directory;
+
+    private IndexStorage(Mode mode, Path directory) {
+        this.mode = mode;
+        this.directory = directory;
+    }
+
+    public static IndexStorage heap() {
+        return HEAP;
+    }
+
+    public static IndexStorage direct() {
+        return new IndexStorage(Mode.DIRECT, null);
+    }
+
+    /**
+     * @param directory where the temporary files backing the mappings are created
+     */
+    public static IndexStorage mapped(Path directory) {
+        return new IndexStorage(Mode.MAPPED, directory);
+    }
+
+    /**
+     * @param mode {@code heap}, {@code direct} or {@code mapped}, case-insensitive
+     * @throws IllegalArgumentException for any other mode
+     */
+    public static IndexStorage of(String mode, Path directory) {
+        switch (Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT))) {
+            case DIRECT: return direct();
+            case MAPPED: return mapped(directory);
+            default: return heap();
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    IntSequence ints(int[] values) {
+        if (mode == Mode.HEAP) {
+            return new HeapIntSequence(values);
+        }
+        ByteBuffer buffer = allocate(4L * values.length);
+        buffer.asIntBuffer().put(values);
+        return new BufferIntSequence(buffer.asIntBuffer());
+    }
+
+    /**
+     * @param sortedIds ids in {@link String#compareTo} order, their index being their ordinal
+     * @param ordinals  the same mapping, kept as is on heap storage
+     */
+    IdDictionary ids(String[] sortedIds, Map<String, Integer> ordinals) {
+        if (mode == Mode.HEAP) {
+            return new HeapIdDictionary(sortedIds, ordinals);
+        }
+        byte[][] encoded = new byte[sortedIds.length][];
+        int[] offsets = new int[sortedIds.length + 1];
+        long size = 0;
+        for (int i = 0; i < sortedIds.length; i++) {
+            encoded[i] = sortedIds[i].getBytes(StandardCharsets.UTF_8);
+            size += encoded[i].length;
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Ids exceed 2 GB, too large for one buffer");
+            }
+            offsets[i + 1] = (int) size;
+        }
+        ByteBuffer bytes = allocate(size);
+        for (byte[] id : encoded) {
+            bytes.put(id);
+        }
+        bytes.clear();
+        return new BufferIdDictionary(bytes, ints(offsets));
+    }
+
+    private ByteBuffer allocate(long bytes) {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot store " + bytes + " bytes in one buffer");
+        }
+        if (mode == Mode.DIRECT) {
+            return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+        }
+        try {
+            Files.createDirectories(directory);
+            Path file = Files.createTempFile(directory, "index-", ".bin");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+                buffer.order(ByteOrder.nativeOrder());
+                return buffer;
+            } finally {
+                // The mapping outlives both the channel and the directory entry
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    file.toFile().deleteOnExit();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map index storage in " + directory, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return mode == Mode.MAPPED ? "mapped:" + directory : mode.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,33 @@
+package com.roleopt.rolemining.index;
+
+/**
+ * Read-only sequence of ints, on the Java heap or in a direct or memory-mapped buffer depending on
+ * the {@link IndexStorage} that created it. Every accessor is bounds-checked.
+ */
+public interface IntSequence {
+
+    int length();
+
+    int get(int index);
+
+    /**
+     * @return a heap copy of {@code [from, to)}
+     */
+    int[] copyOfRange(int from, int to);
+
+    /**
+     * Binary search of the sorted range {@code [from, to)}, with the contract of
+     * {@link java.util.Arrays#binarySearch(int[], int, int, int)}
+     */
+    int binarySearch(int from, int to, int key);
+
+    /**
+     * Heap held by this sequence
+     */
+    long heapBytes();
+
+    /**
+     * Direct or mapped memory held by this sequence
+     */
+    long offHeapBytes();
+}
@@ -0,0 +1,221 @@
+package com.roleopt.rolemining.index;
+
+import com.roleopt.rolemining.admission.MemoryEstimator;
+import com.roleopt.rolemining.model.Entitlement;
+import com.roleopt.rolemining.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compressed posting lists of user ordinals of an {@link AccessMatrix}: who holds each entitlement,
+ * who holds anything in each application and who belongs to each organizational unit. Membership
+ * questions ("holds A and B", "in OU X but not holding C") become {@link UserBitmap} operations,
+ * which work on the compressed form instead of expanding ordinal arrays.
+ * <p>
+ * Entitlement bitmaps would duplicate the matrix's columns, so they are only kept when the matrix is
+ * on the heap. With direct or mapped storage each is decoded from its column when asked for, which
+ * keeps the heap independent of the number of grants at the cost of one column read per query term.
+ */
+public final class MembershipIndex {
+
+    private final AccessMatrix matrix;
+    // Holders per entitlement ordinal; null when they are decoded from the matrix's off-heap columns
+    private final UserBitmap[] entitlementUsers;
+    private final Map<String, UserBitmap> applicationUsers;
+    private final Map<String, UserBitmap> ouUsers;
+    private final UserBitmap allUsers;
+
+    private MembershipIndex(AccessMatrix matrix, UserBitmap[] entitlementUsers,
+                            Map<String, UserBitmap> applicationUsers, Map<String, UserBitmap> ouUsers,
+                            UserBitmap allUsers) {
+        this.matrix = matrix;
+        this.entitlementUsers = entitlementUsers;
+        this.applicationUsers = applicationUsers;
+        this.ouUsers = ouUsers;
+        this.allUsers = allUsers;
+    }
+
+    public static MembershipIndex build(AccessMatrix matrix,
+                                        Map<String, User> users,
+                                        Map<String, Entitlement> entitlements) {
+        // Step 1: one bitmap per entitlement column, kept only next to a heap matrix
+        boolean keepEntitlements = matrix.getStorage().getMode() == IndexStorage.Mode.HEAP;
+        UserBitmap[] entitlementUsers = keepEntitlements ? new UserBitmap[matrix.entitlementCount()] : null;
+        Map<String, List<Integer>> byApplication = new HashMap<>();
+        for (int e = 0; e < matrix.entitlementCount(); e++) {
+            if (keepEntitlements) {
+                entitlementUsers[e] = UserBitmap.of(matrix.usersWith(e));
+            }
+            Entitlement entitlement = entitlements.get(matrix.entitlementId(e));
+            if (entitlement != null && entitlement.getApplication() != null) {
+                byApplication.computeIfAbsent(entitlement.getApplication().getApplicationId(), k -> new ArrayList<>())
+                        .add(e);
+            }
+        }
+
+        // Step 2: an application's users are the union of its entitlements' holders
+        Map<String, UserBitmap> applicationUsers = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : byApplication.entrySet()) {
+            List<UserBitmap> holders = new ArrayList<>(entry.getValue().size());
+            for (int e : entry.getValue()) {
+                holders.add(keepEntitlements ? entitlementUsers[e] : UserBitmap.of(matrix.usersWith(e)));
+            }
+            applicationUsers.put(entry.getKey(), UserBitmap.union(holders));
+        }
+
+        // Step 3: OU members, collected in ordinal order so each list is already sorted
+        Map<String, int[]> byOu = new HashMap<>();
+        Map<String, Integer> ouSizes = new HashMap<>();
+        int[] all = new int[matrix.userCount()];
+        for (int u = 0; u < all.length; u++) {
+            all[u] = u;
+            User user = users.get(matrix.userId(u));
+            if (user != null && user.getOrganizationalUnit() != null) {
+                String ouId = user.getOrganizationalUnit().getOuId();
+                int size = ouSizes.merge(ouId, 1, Integer::sum);
+                int[] members = byOu.computeIfAbsent(ouId, k -> new int[16]);
+                if (size > members.length) {
+                    members = Arrays.copyOf(members, members.length * 2);
+                    byOu.put(ouId, members);
+                }
+                members[size - 1] = u;
+            }
+        }
+        Map<String, UserBitmap> ouUsers = new HashMap<>();
+        for (Map.Entry<String, int[]> entry : byOu.entrySet()) {
+            ouUsers.put(entry.getKey(), UserBitmap.of(entry.getValue(), 0, ouSizes.get(entry.getKey())));
+        }
+
+        return new MembershipIndex(matrix, entitlementUsers, applicationUsers, ouUsers, UserBitmap.of(all));
+    }
+
+    /**
+     * @param entitlement ordinal in the access matrix
+     */
+    public UserBitmap entitlement(int entitlement) {
+        return entitlementUsers != null ? entitlementUsers[entitlement] : UserBitmap.of(matrix.usersWith(entitlement));
+    }
+
+    /**
+     * Holders of any entitlement of the application; empty for an unknown application
+     */
+    public UserBitmap application(String applicationId) {
+        return applicationUsers.getOrDefault(applicationId, UserBitmap.empty());
+    }
+
+    /**
+     * Whether any entitlement belongs to the application
+     */
+    public boolean hasApplication(String applicationId) {
+        return applicationUsers.containsKey(applicationId);
+    }
+
+    /**
+     * Users directly in the OU; empty for an unknown OU
+     */
+    public UserBitmap organizationalUnit(String ouId) {
+        return ouUsers.getOrDefault(ouId, UserBitmap.empty());
+    }
+
+    /**
+     * Whether any user belongs to the OU
+     */
+    public boolean hasOrganizationalUnit(String ouId) {
+        return ouUsers.containsKey(ouId);
+    }
+
+    /**
+     * Every user of the matrix, the universe that NOT is taken against
+     */
+    public UserBitmap allUsers() {
+        return allUsers;
+    }
+
+    /**
+     * Users holding every one of the entitlements, intersected smallest first; empty for none
+     */
+    public UserBitmap usersWithAll(int[] entitlements) {
+        if (entitlements.length == 0) {
+            return UserBitmap.empty();
+        }
+        // Holder counts come from the column offsets, so columns never read are never decoded
+        int[] order = Arrays.stream(entitlements).boxed()
+                .sorted((a, b) -> Integer.compare(matrix.holderCount(a), matrix.holderCount(b)))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        UserBitmap result = entitlement(order[0]);
+        for (int i = 1; i < order.length && !result.isEmpty(); i++) {
+            result = result.and(entitlement(order[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Users holding at least one of the entitlements
+     */
+    public UserBitmap usersWithAny(int[] entitlements) {
+        List<UserBitmap> bitmaps = new ArrayList<>(entitlements.length);
+        for (int e : entitlements) {
+            bitmaps.add(entitlement(e));
+        }
+        return UserBitmap.union(bitmaps);
+    }
+
+    /**
+     * Approximate heap held by the bitmaps and their lookup maps
+     */
+    public long retainedBytes() {
+        long bytes = MemoryEstimator.mapEntries(applicationUsers.size())
+                + MemoryEstimator.mapEntries(ouUsers.size())
+                + allUsers.sizeInBytes();
+        if (entitlementUsers != null) {
+            bytes += MemoryEstimator.refArray(entitlementUsers.length);
+            for (UserBitmap bitmap : entitlementUsers) {
+                bytes += bitmap.sizeInBytes();
+            }
+        }
+        for (UserBitmap bitmap : applicationUsers.values()) {
+            bytes += bitmap.sizeInBytes();
+        }
+        for (UserBitmap bitmap : ouUsers.values()) {
+            bytes += bitmap.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Bitmap counts, container mix and size against the same postings as plain int arrays
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Integer> containers = new TreeMap<>();
+        long postings = allUsers.cardinality();
+        allUsers.countContainers(containers);
+        List<UserBitmap> bitmaps = new ArrayList<>();
+        if (entitlementUsers != null) {
+            bitmaps.addAll(Arrays.asList(entitlementUsers));
+        }
+        bitmaps.addAll(applicationUsers.values());
+        bitmaps.addAll(ouUsers.values());
+        for (UserBitmap bitmap : bitmaps) {
+            postings += bitmap.cardinality();
+            bitmap.countContainers(containers);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entitlements", entitlementUsers != null ? entitlementUsers.length : 0);
+        stats.put("entitlementSource", entitlementUsers != null ? "bitmaps" : matrix.getStorage() + " columns");
+        stats.put("applications", applicationUsers.size());
+        stats.put("organizationalUnits", ouUsers.size());
+        stats.put("postings", postings);
+        stats.put("containers", containers);
+        stats.put("bytes", retainedBytes());
+        stats.put("uncompressedBytes", MemoryEstimator.intArray(postings));
+        return stats;
+    }
+}
@@ -0,0 +1,212 @@
+package com.roleopt.rolemining.index;
+
+import com.roleopt.rolemining.admission.MemoryEstimator;
+import com.roleopt.rolemining.model.Entitlement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * TF-IDF vectors over the words of entitlement names and descriptions, one sparse, L2-normalized
+ * float vector per entitlement ordinal of an {@link AccessMatrix}. Gives two cheap semantic signals
+ * without a model call: the characteristic words of a set of entitlements (for role names) and the
+ * cosine similarity of two such sets (for clustering on meaning as well as on access).
+ */
+public final class TfIdfModel {
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "any", "as", "at", "by", "for", "from", "in", "into", "is", "of", "on",
+            "or", "the", "to", "with", "can", "allows", "all", "user", "users"));
+
+    // Words from the name count more than words from the free-form description
+    private static final float NAME_TERM_FREQUENCY = 2.0f;
+    private static final float DESCRIPTION_TERM_FREQUENCY = 1.0f;
+
+    private final String[] terms;
+    // CSR: vector of entitlement e is termIds/weights[offsets[e] .. offsets[e + 1]), term ids ascending
+    private final int[] offsets;
+    private final int[] termIds;
+    private final float[] weights;
+
+    private TfIdfModel(String[] terms, int[] offsets, int[] termIds, float[] weights) {
+        this.terms = terms;
+        this.offsets = offsets;
+        this.termIds = termIds;
+        this.weights = weights;
+    }
+
+    /**
+     * Sparse vector with term ids in ascending order.
+     */
+    public static final class SparseVector {
+        private final int[] termIds;
+        private final float[] weights;
+        private final double norm;
+
+        SparseVector(int[] termIds, float[] weights) {
+            this.termIds = termIds;
+            this.weights = weights;
+            double sum = 0;
+            for (float w : weights) {
+                sum += (double) w * w;
+            }
+            this.norm = Math.sqrt(sum);
+        }
+
+        public double cosine(SparseVector other) {
+            if (norm == 0 || other.norm == 0) {
+                return 0;
+            }
+            double dot = 0;
+            int i = 0;
+            int j = 0;
+            while (i < termIds.length && j < other.termIds.length) {
+                if (termIds[i] == other.termIds[j]) {
+                    dot += (double) weights[i++] * other.weights[j++];
+                } else if (termIds[i] < other.termIds[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return dot / (norm * other.norm);
+        }
+    }
+
+    public static TfIdfModel build(AccessMatrix matrix, Map<String, Entitlement> entitlements) {
+        int count = matrix.entitlementCount();
+        Map<String, Integer> termOrdinals = new HashMap<>();
+        List<String> terms = new ArrayList<>();
+        List<Map<Integer, Float>> frequencies = new ArrayList<>(count);
+        int[] documentFrequency = new int[16];
+
+        // Pass 1: term frequencies per entitlement and document frequencies per term
+        for (int e = 0; e < count; e++) {
+            Entitlement entitlement = entitlements.get(matrix.entitlementId(e));
+            Map<Integer, Float> tf = new LinkedHashMap<>();
+            addTerms(tf, entitlement.getName(), NAME_TERM_FREQUENCY, termOrdinals, terms);
+            addTerms(tf, entitlement.getDescription(), DESCRIPTION_TERM_FREQUENCY, termOrdinals, terms);
+            if (terms.size() > documentFrequency.length) {
+                documentFrequency = Arrays.copyOf(documentFrequency, Math.max(terms.size(), documentFrequency.length * 2));
+            }
+            for (int term : tf.keySet()) {
+                documentFrequency[term]++;
+            }
+            frequencies.add(tf);
+        }
+
+        float[] idf = new float[terms.size()];
+        for (int t = 0; t < idf.length; t++) {
+            idf[t] = (float) Math.log((1.0 + count) / (1.0 + documentFrequency[t])) + 1.0f;
+        }
+
+        // Pass 2: tf-idf weights, sorted by term id and normalized to unit length
+        int[] offsets = new int[count + 1];
+        for (int e = 0; e < count; e++) {
+            offsets[e + 1] = offsets[e] + frequencies.get(e).size();
+        }
+        int[] termIds = new int[offsets[count]];
+        float[] weights = new float[offsets[count]];
+        for (int e = 0; e < count; e++) {
+            Map<Integer, Float> tf = frequencies.get(e);
+            int[] ids = tf.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            double sum = 0;
+            for (int i = 0; i < ids.length; i++) {
+                float w = (float) (1 + Math.log(tf.get(ids[i]))) * idf[ids[i]];
+                termIds[offsets[e] + i] = ids[i];
+                weights[offsets[e] + i] = w;
+                sum += (double) w * w;
+            }
+            float norm = (float) Math.sqrt(sum);
+            for (int i = offsets[e]; i < offsets[e + 1] && norm > 0; i++) {
+                weights[i] /= norm;
+            }
+        }
+        return new TfIdfModel(terms.toArray(new String[0]), offsets, termIds, weights);
+    }
+
+    private static void addTerms(Map<Integer, Float> tf, String text, float frequency,
+                                 Map<String, Integer> termOrdinals, List<String> terms) {
+        for (String token : EntitlementNameIndex.tokens(text)) {
+            if (STOP_WORDS.contains(token) || token.length() < 2 || isNumber(token)) {
+                continue;
+            }
+            Integer term = termOrdinals.get(token);
+            if (term == null) {
+                term = terms.size();
+                termOrdinals.put(token, term);
+                terms.add(token);
+            }
+            tf.merge(term, frequency, Float::sum);
+        }
+    }
+
+    private static boolean isNumber(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (!Character.isDigit(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int vocabularySize() {
+        return terms.length;
+    }
+
+    /**
+     * Approximate heap held by the vocabulary and the vectors
+     */
+    public long retainedBytes() {
+        long bytes = MemoryEstimator.refArray(terms.length) + MemoryEstimator.intArray(offsets.length)
+                + MemoryEstimator.intArray(termIds.length) + MemoryEstimator.intArray(weights.length);
+        for (String term : terms) {
+            bytes += MemoryEstimator.string(term);
+        }
+        return bytes;
+    }
+
+    /**
+     * Mean of the vectors of the given entitlements.
+     */
+    public SparseVector centroid(int[] entitlements) {
+        Map<Integer, Float> sum = new HashMap<>();
+        for (int e : entitlements) {
+            for (int i = offsets[e]; i < offsets[e + 1]; i++) {
+                sum.merge(termIds[i], weights[i], Float::sum);
+            }
+        }
+        int[] ids = sum.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        float[] values = new float[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            values[i] = sum.get(ids[i]) / Math.max(1, entitlements.length);
+        }
+        return new SparseVector(ids, values);
+    }
+
+    /**
+     * The highest-weighted words of a centroid, strongest first.
+     */
+    public List<String> topTerms(SparseVector centroid, int limit) {
+        Integer[] order = new Integer[centroid.termIds.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // Ties go to the earlier term, i.e. the one first seen in the data, for stable names
+        Arrays.sort(order, (a, b) -> {
+            int byWeight = Float.compare(centroid.weights[b], centroid.weights[a]);
+            return byWeight != 0 ? byWeight : Integer.compare(centroid.termIds[a], centroid.termIds[b]);
+        });
+        List<String> top = new ArrayList<>(limit);
+        for (int i = 0; i < order.length && top.size() < limit; i++) {
+            top.add(terms[centroid.termIds[order[i]]]);
+        }
+        return top;
+    }
+}
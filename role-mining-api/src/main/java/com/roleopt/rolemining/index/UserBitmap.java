@@ -0,0 +1,725 @@
+package com.roleopt.rolemining.index;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable compressed set of user ordinals, laid out like a Roaring bitmap: values are split by
+ * their high 16 bits into chunks of up to 65536, and each chunk is stored in whichever of three
+ * containers is smallest:
+ * <ul>
+ *     <li>array - sorted 16-bit values, for sparse chunks (up to {@value #ARRAY_MAX} values);</li>
+ *     <li>bitmap - 1024 words, for dense chunks;</li>
+ *     <li>run - (start, length) pairs, for chunks made of long consecutive ranges.</li>
+ * </ul>
+ * Set operations work chunk by chunk on the containers: an array is filtered against the other
+ * side, anything else is combined a word at a time. Counting an intersection allocates nothing.
+ */
+public final class UserBitmap {
+
+    static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+    private static final long BITMAP_BYTES = 8L * WORDS;
+
+    private static final UserBitmap EMPTY = new UserBitmap(new char[0], new Container[0]);
+
+    // Sorted high 16 bits of the chunks, with the container of each
+    private final char[] keys;
+    private final Container[] containers;
+    private final int cardinality;
+
+    private UserBitmap(char[] keys, Container[] containers) {
+        this.keys = keys;
+        this.containers = containers;
+        int total = 0;
+        for (Container container : containers) {
+            total += container.cardinality();
+        }
+        this.cardinality = total;
+    }
+
+    public static UserBitmap empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param sorted values in ascending order; duplicates are ignored
+     */
+    public static UserBitmap of(int[] sorted) {
+        return of(sorted, 0, sorted.length);
+    }
+
+    /**
+     * Bitmap of {@code sorted[from .. to)}, which must be ascending
+     */
+    public static UserBitmap of(int[] sorted, int from, int to) {
+        if (from >= to) {
+            return EMPTY;
+        }
+        char[] keys = new char[16];
+        Container[] containers = new Container[16];
+        int chunks = 0;
+        char[] lows = new char[Math.min(to - from, 1 << 16)];
+        int i = from;
+        while (i < to) {
+            int high = sorted[i] >>> 16;
+            int size = 0;
+            int runs = 0;
+            int previous = -2;
+            for (; i < to && sorted[i] >>> 16 == high; i++) {
+                int low = sorted[i] & 0xffff;
+                if (low == previous) {
+                    continue;
+                }
+                if (low != previous + 1) {
+                    runs++;
+                }
+                lows[size++] = (char) low;
+                previous = low;
+            }
+            if (chunks == keys.length) {
+                keys = Arrays.copyOf(keys, chunks * 2);
+                containers = Arrays.copyOf(containers, chunks * 2);
+            }
+            keys[chunks] = (char) high;
+            containers[chunks++] = Container.fromSorted(lows, size, runs);
+        }
+        return new UserBitmap(Arrays.copyOf(keys, chunks), Arrays.copyOf(containers, chunks));
+    }
+
+    /**
+     * Union of any number of bitmaps, merged chunk by chunk in one pass
+     */
+    public static UserBitmap union(Collection<UserBitmap> bitmaps) {
+        Map<Character, long[]> words = new TreeMap<>();
+        Map<Character, Container> single = new TreeMap<>();
+        for (UserBitmap bitmap : bitmaps) {
+            for (int k = 0; k < bitmap.keys.length; k++) {
+                char key = bitmap.keys[k];
+                long[] merged = words.get(key);
+                if (merged == null) {
+                    Container first = single.putIfAbsent(key, bitmap.containers[k]);
+                    if (first == null) {
+                        continue;
+                    }
+                    // Second container for this chunk: switch to words
+                    merged = new long[WORDS];
+                    first.orInto(merged);
+                    words.put(key, merged);
+                    single.remove(key);
+                }
+                bitmap.containers[k].orInto(merged);
+            }
+        }
+        TreeMap<Character, Container> result = new TreeMap<>(single);
+        for (Map.Entry<Character, long[]> entry : words.entrySet()) {
+            result.put(entry.getKey(), Container.fromWords(entry.getValue()));
+        }
+        char[] keys = new char[result.size()];
+        Container[] containers = new Container[result.size()];
+        int i = 0;
+        for (Map.Entry<Character, Container> entry : result.entrySet()) {
+            keys[i] = entry.getKey();
+            containers[i++] = entry.getValue();
+        }
+        return new UserBitmap(keys, containers);
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int value) {
+        int k = Arrays.binarySearch(keys, (char) (value >>> 16));
+        return k >= 0 && containers[k].contains((char) value);
+    }
+
+    public UserBitmap and(UserBitmap other) {
+        char[] resultKeys = new char[Math.min(keys.length, other.keys.length)];
+        Container[] result = new Container[resultKeys.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container != null) {
+                    resultKeys[size] = keys[i];
+                    result[size++] = container;
+                }
+                i++;
+                j++;
+            }
+        }
+        return new UserBitmap(Arrays.copyOf(resultKeys, size), Arrays.copyOf(result, size));
+    }
+
+    public UserBitmap or(UserBitmap other) {
+        char[] resultKeys = new char[keys.length + other.keys.length];
+        Container[] result = new Container[resultKeys.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                resultKeys[size] = keys[i];
+                result[size++] = containers[i++];
+            } else if (i == keys.length || keys[i] > other.keys[j]) {
+                resultKeys[size] = other.keys[j];
+                result[size++] = other.containers[j++];
+            } else {
+                resultKeys[size] = keys[i];
+                result[size++] = containers[i++].or(other.containers[j++]);
+            }
+        }
+        return new UserBitmap(Arrays.copyOf(resultKeys, size), Arrays.copyOf(result, size));
+    }
+
+    public UserBitmap andNot(UserBitmap other) {
+        char[] resultKeys = new char[keys.length];
+        Container[] result = new Container[keys.length];
+        int size = 0;
+        int j = 0;
+        for (int i = 0; i < keys.length; i++) {
+            while (j < other.keys.length && other.keys[j] < keys[i]) {
+                j++;
+            }
+            Container container = j < other.keys.length && other.keys[j] == keys[i]
+                    ? containers[i].andNot(other.containers[j])
+                    : containers[i];
+            if (container != null) {
+                resultKeys[size] = keys[i];
+                result[size++] = container;
+            }
+        }
+        return new UserBitmap(Arrays.copyOf(resultKeys, size), Arrays.copyOf(result, size));
+    }
+
+    /**
+     * Size of the intersection, without building it
+     */
+    public int andCardinality(UserBitmap other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count += containers[i++].andCardinality(other.containers[j++]);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Visit the values in ascending order
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int k = 0; k < keys.length; k++) {
+            containers[k].forEach(keys[k] << 16, consumer);
+        }
+    }
+
+    /**
+     * Visit at most {@code limit} values in ascending order, after skipping the first {@code offset}.
+     * Whole chunks before the offset are skipped by their cardinality.
+     */
+    public void forEach(int offset, int limit, IntConsumer consumer) {
+        int skip = offset;
+        int remaining = limit;
+        for (int k = 0; k < keys.length && remaining > 0; k++) {
+            int size = containers[k].cardinality();
+            if (skip >= size) {
+                skip -= size;
+                continue;
+            }
+            remaining -= containers[k].forEach(keys[k] << 16, skip, remaining, consumer);
+            skip = 0;
+        }
+    }
+
+    public int[] toArray() {
+        int[] values = new int[cardinality];
+        int[] size = {0};
+        forEach(value -> values[size[0]++] = value);
+        return values;
+    }
+
+    /**
+     * Approximate heap held by the bitmap
+     */
+    public long sizeInBytes() {
+        long bytes = 48 + 2L * keys.length + 4L * containers.length;
+        for (Container container : containers) {
+            bytes += container.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Number of containers of each kind, keyed "array", "bitmap" and "run"
+     */
+    void countContainers(Map<String, Integer> counts) {
+        for (Container container : containers) {
+            counts.merge(container.kind(), 1, Integer::sum);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UserBitmap)) {
+            return false;
+        }
+        UserBitmap other = (UserBitmap) o;
+        return cardinality == other.cardinality && Arrays.equals(toArray(), other.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return "UserBitmap{cardinality=" + cardinality + ", chunks=" + keys.length + "}";
+    }
+
+    /**
+     * One chunk of 65536 values. Operations return null for an empty result.
+     */
+    private abstract static class Container {
+
+        abstract String kind();
+
+        abstract int cardinality();
+
+        abstract boolean contains(char value);
+
+        abstract void orInto(long[] words);
+
+        abstract void forEach(int high, IntConsumer consumer);
+
+        abstract long sizeInBytes();
+
+        /**
+         * Visit values of rank {@code skip} to {@code skip + limit - 1}
+         *
+         * @return the number of values visited
+         */
+        int forEach(int high, int skip, int limit, IntConsumer consumer) {
+            int[] rank = {0};
+            forEach(high, value -> {
+                int r = rank[0]++;
+                if (r >= skip && r - skip < limit) {
+                    consumer.accept(value);
+                }
+            });
+            return Math.min(limit, cardinality() - skip);
+        }
+
+        long[] words() {
+            long[] words = new long[WORDS];
+            orInto(words);
+            return words;
+        }
+
+        Container and(Container other) {
+            if (this instanceof ArrayContainer) {
+                return ((ArrayContainer) this).filter(other, true);
+            }
+            if (other instanceof ArrayContainer) {
+                return ((ArrayContainer) other).filter(this, true);
+            }
+            long[] words = words();
+            long[] otherWords = other.words();
+            for (int w = 0; w < WORDS; w++) {
+                words[w] &= otherWords[w];
+            }
+            return fromWords(words);
+        }
+
+        Container or(Container other) {
+            if (this instanceof ArrayContainer && other instanceof ArrayContainer
+                    && cardinality() + other.cardinality() <= ARRAY_MAX) {
+                return ((ArrayContainer) this).merge((ArrayContainer) other);
+            }
+            long[] words = new long[WORDS];
+            orInto(words);
+            other.orInto(words);
+            return fromWords(words);
+        }
+
+        Container andNot(Container other) {
+            if (this instanceof ArrayContainer) {
+                return ((ArrayContainer) this).filter(other, false);
+            }
+            long[] words = words();
+            long[] otherWords = other.words();
+            for (int w = 0; w < WORDS; w++) {
+                words[w] &= ~otherWords[w];
+            }
+            return fromWords(words);
+        }
+
+        int andCardinality(Container other) {
+            if (this instanceof ArrayContainer) {
+                return ((ArrayContainer) this).countIn(other);
+            }
+            if (other instanceof ArrayContainer) {
+                return ((ArrayContainer) other).countIn(this);
+            }
+            long[] words = words();
+            long[] otherWords = other.words();
+            int count = 0;
+            for (int w = 0; w < WORDS; w++) {
+                count += Long.bitCount(words[w] & otherWords[w]);
+            }
+            return count;
+        }
+
+        /**
+         * Smallest container for {@code size} distinct ascending values forming {@code runs} runs
+         */
+        static Container fromSorted(char[] values, int size, int runs) {
+            long arrayBytes = 2L * size;
+            long runBytes = 4L * runs;
+            if (runBytes < Math.min(arrayBytes, BITMAP_BYTES)) {
+                char[] pairs = new char[2 * runs];
+                int r = -1;
+                for (int i = 0; i < size; i++) {
+                    if (i == 0 || values[i] != values[i - 1] + 1) {
+                        r++;
+                        pairs[2 * r] = values[i];
+                    }
+                    pairs[2 * r + 1] = (char) (values[i] - pairs[2 * r]);
+                }
+                return new RunContainer(pairs, size);
+            }
+            if (size <= ARRAY_MAX) {
+                return new ArrayContainer(Arrays.copyOf(values, size));
+            }
+            long[] words = new long[WORDS];
+            for (int i = 0; i < size; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return new BitmapContainer(words, size);
+        }
+
+        /**
+         * Smallest container for the set bits of {@code words}, or null if there are none
+         */
+        static Container fromWords(long[] words) {
+            int size = 0;
+            int runs = 0;
+            long carry = 0;
+            for (long word : words) {
+                size += Long.bitCount(word);
+                // A run starts at every set bit whose lower neighbour is clear
+                runs += Long.bitCount(word & ~(word << 1 | carry));
+                carry = word >>> 63;
+            }
+            if (size == 0) {
+                return null;
+            }
+            long arrayBytes = 2L * size;
+            long runBytes = 4L * runs;
+            if (runBytes < Math.min(arrayBytes, BITMAP_BYTES)) {
+                return new RunContainer(runsOf(words, runs), size);
+            }
+            if (size <= ARRAY_MAX) {
+                char[] values = new char[size];
+                int i = 0;
+                for (int w = 0; w < WORDS; w++) {
+                    for (long word = words[w]; word != 0; word &= word - 1) {
+                        values[i++] = (char) (w * 64 + Long.numberOfTrailingZeros(word));
+                    }
+                }
+                return new ArrayContainer(values);
+            }
+            return new BitmapContainer(words, size);
+        }
+
+        private static char[] runsOf(long[] words, int runs) {
+            char[] pairs = new char[2 * runs];
+            int r = 0;
+            int w = 0;
+            long word = words[0];
+            while (true) {
+                while (word == 0) {
+                    if (++w == WORDS) {
+                        return pairs;
+                    }
+                    word = words[w];
+                }
+                int start = w * 64 + Long.numberOfTrailingZeros(word);
+                // Set every bit below the run start, then skip the run
+                word |= word - 1;
+                int end;
+                while (word == -1L) {
+                    if (++w == WORDS) {
+                        break;
+                    }
+                    word = words[w];
+                }
+                if (w == WORDS) {
+                    end = 1 << 16;
+                } else {
+                    end = w * 64 + Long.numberOfTrailingZeros(~word);
+                    // Clear the run's bits (and those below it)
+                    word &= word + 1;
+                }
+                pairs[2 * r] = (char) start;
+                pairs[2 * r + 1] = (char) (end - 1 - start);
+                r++;
+                if (w == WORDS) {
+                    return pairs;
+                }
+            }
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+        private final char[] values;
+
+        ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        @Override
+        String kind() {
+            return "array";
+        }
+
+        @Override
+        int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, value) >= 0;
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (char value : values) {
+                words[value >>> 6] |= 1L << value;
+            }
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (char value : values) {
+                consumer.accept(high | value);
+            }
+        }
+
+        @Override
+        int forEach(int high, int skip, int limit, IntConsumer consumer) {
+            int end = (int) Math.min(values.length, (long) skip + limit);
+            for (int i = skip; i < end; i++) {
+                consumer.accept(high | values[i]);
+            }
+            return end - skip;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 32 + 2L * values.length;
+        }
+
+        /**
+         * Values that are (keep = true) or are not (keep = false) in the other container
+         */
+        Container filter(Container other, boolean keep) {
+            char[] kept = new char[values.length];
+            int size = 0;
+            for (char value : values) {
+                if (other.contains(value) == keep) {
+                    kept[size++] = value;
+                }
+            }
+            if (size == 0) {
+                return null;
+            }
+            return size == values.length ? this : new ArrayContainer(Arrays.copyOf(kept, size));
+        }
+
+        int countIn(Container other) {
+            int count = 0;
+            for (char value : values) {
+                if (other.contains(value)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        Container merge(ArrayContainer other) {
+            char[] merged = new char[values.length + other.values.length];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < values.length && j < other.values.length) {
+                char a = values[i];
+                char b = other.values[j];
+                if (a <= b) {
+                    i++;
+                }
+                if (b <= a) {
+                    j++;
+                }
+                merged[size++] = a <= b ? a : b;
+            }
+            while (i < values.length) {
+                merged[size++] = values[i++];
+            }
+            while (j < other.values.length) {
+                merged[size++] = other.values[j++];
+            }
+            return new ArrayContainer(Arrays.copyOf(merged, size));
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private final int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        String kind() {
+            return "bitmap";
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & 1L << value) != 0;
+        }
+
+        @Override
+        void orInto(long[] target) {
+            for (int w = 0; w < WORDS; w++) {
+                target[w] |= words[w];
+            }
+        }
+
+        @Override
+        long[] words() {
+            return words.clone();
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int w = 0; w < WORDS; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    consumer.accept(high | (w * 64 + Long.numberOfTrailingZeros(word)));
+                }
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 32 + BITMAP_BYTES;
+        }
+    }
+
+    private static final class RunContainer extends Container {
+        // start, length - 1 of each run, by ascending start
+        private final char[] runs;
+        private final int cardinality;
+
+        RunContainer(char[] runs, int cardinality) {
+            this.runs = runs;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        String kind() {
+            return "run";
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            // Last run starting at or before the value
+            int low = 0;
+            int high = runs.length / 2 - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (runs[2 * mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high >= 0 && value - runs[2 * high] <= runs[2 * high + 1];
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (int r = 0; r < runs.length; r += 2) {
+                int from = runs[r];
+                int to = from + runs[r + 1] + 1;
+                int firstWord = from >>> 6;
+                int lastWord = (to - 1) >>> 6;
+                long firstMask = -1L << from;
+                long lastMask = -1L >>> -to;
+                if (firstWord == lastWord) {
+                    words[firstWord] |= firstMask & lastMask;
+                } else {
+                    words[firstWord] |= firstMask;
+                    for (int w = firstWord + 1; w < lastWord; w++) {
+                        words[w] = -1L;
+                    }
+                    words[lastWord] |= lastMask;
+                }
+            }
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int r = 0; r < runs.length; r += 2) {
+                int from = runs[r];
+                int to = from + runs[r + 1];
+                for (int value = from; value <= to; value++) {
+                    consumer.accept(high | value);
+                }
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 32 + 2L * runs.length;
+        }
+    }
+}
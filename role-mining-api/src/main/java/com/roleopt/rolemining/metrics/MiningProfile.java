@@ -0,0 +1,167 @@
+package com.roleopt.rolemining.metrics;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+/**
+ * Structured account of one mining run, kept by {@link MiningProfileStore} and served by run id:
+ * what was asked, where the result came from, the cost and effect of every stage and, for each
+ * threshold and filter, the largest groups it dropped. A profile is filled in by the mining thread
+ * while it may already be read, hence the synchronization.
+ */
+public final class MiningProfile {
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETE = "COMPLETE";
+    public static final String STATUS_FAILED = "FAILED";
+
+    // Where the roles of a run came from
+    public static final String SOURCE_CLUSTERING = "clustering";
+    public static final String SOURCE_CACHE = "cache";
+    public static final String SOURCE_MOCK = "mock";
+
+    // Entitlement ids shown per dropped group; the rest are only counted
+    private static final int DROPPED_KEY_ENTITLEMENTS = 10;
+
+    private final long runId;
+    private final String filters;
+    private final Instant startedAt = Instant.now();
+    private final int topDropped;
+
+    private String status = STATUS_RUNNING;
+    private String source;
+    private long datasetVersion = -1;
+    private String algorithm;
+    private int roles;
+    private String error;
+    private Instant finishedAt;
+    private final List<StageProfile> stages = new ArrayList<>();
+    // Largest dropped groups per stage, smallest first so the head is the one to displace
+    private final Map<String, PriorityQueue<DroppedGroup>> dropped = new HashMap<>();
+
+    MiningProfile(long runId, String filters, int topDropped) {
+        this.runId = runId;
+        this.filters = filters;
+        this.topDropped = topDropped;
+    }
+
+    private static final class DroppedGroup {
+        final String entitlementKey;
+        final int users;
+
+        DroppedGroup(String entitlementKey, int users) {
+            this.entitlementKey = entitlementKey;
+            this.users = users;
+        }
+
+        Map<String, Object> toMap() {
+            String[] ids = entitlementKey.isEmpty() ? new String[0] : entitlementKey.split(",");
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("users", users);
+            map.put("entitlements", ids.length);
+            List<String> shown = new ArrayList<>();
+            for (int i = 0; i < ids.length && i < DROPPED_KEY_ENTITLEMENTS; i++) {
+                shown.add(ids[i]);
+            }
+            map.put("entitlementIds", shown);
+            return map;
+        }
+    }
+
+    public long getRunId() {
+        return runId;
+    }
+
+    public synchronized String getStatus() {
+        return status;
+    }
+
+    public synchronized void setSource(String source, long datasetVersion, String algorithm) {
+        this.source = source;
+        this.datasetVersion = datasetVersion;
+        this.algorithm = algorithm;
+    }
+
+    public synchronized void addStage(StageProfile stage) {
+        stages.add(stage);
+    }
+
+    /**
+     * Note a group removed by the given stage; only the {@code topDropped} largest per stage are kept,
+     * so the key is only built for those.
+     */
+    public synchronized void recordDropped(String stage, Supplier<String> entitlementKey, int users) {
+        if (topDropped <= 0) {
+            return;
+        }
+        PriorityQueue<DroppedGroup> largest = dropped.computeIfAbsent(stage,
+                s -> new PriorityQueue<>(Comparator.comparingInt((DroppedGroup g) -> g.users)));
+        if (largest.size() < topDropped) {
+            largest.add(new DroppedGroup(entitlementKey.get(), users));
+        } else if (users > largest.peek().users) {
+            largest.poll();
+            largest.add(new DroppedGroup(entitlementKey.get(), users));
+        }
+    }
+
+    public synchronized void complete(int roles) {
+        this.roles = roles;
+        this.status = STATUS_COMPLETE;
+        this.finishedAt = Instant.now();
+    }
+
+    public synchronized void fail(Throwable cause) {
+        this.error = String.valueOf(cause.getMessage());
+        this.status = STATUS_FAILED;
+        this.finishedAt = Instant.now();
+    }
+
+    /**
+     * Run id, status, timing and result size, without the stages
+     */
+    public synchronized Map<String, Object> summary() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("runId", runId);
+        map.put("status", status);
+        map.put("source", source);
+        map.put("startedAt", startedAt.toString());
+        map.put("wallMs", finishedAt == null ? null : (finishedAt.toEpochMilli() - startedAt.toEpochMilli()));
+        map.put("datasetVersion", datasetVersion);
+        map.put("algorithm", algorithm);
+        map.put("roles", roles);
+        if (error != null) {
+            map.put("error", error);
+        }
+        return map;
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> map = summary();
+        map.put("filters", filters);
+        List<Map<String, Object>> stageMaps = new ArrayList<>();
+        for (StageProfile stage : stages) {
+            Map<String, Object> stageMap = stage.toMap();
+            PriorityQueue<DroppedGroup> largest = dropped.get(stage.getStage());
+            if (largest != null) {
+                List<DroppedGroup> sorted = new ArrayList<>(largest);
+                sorted.sort(Comparator.comparingInt((DroppedGroup g) -> g.users).reversed());
+                List<Map<String, Object>> groups = new ArrayList<>();
+                for (DroppedGroup group : sorted) {
+                    groups.add(group.toMap());
+                }
+                stageMap.put("dropped", stage.getInput() - stage.getOutput());
+                stageMap.put("largestDropped", groups);
+            }
+            stageMaps.add(stageMap);
+        }
+        map.put("stages", stageMaps);
+        return map;
+    }
+}
@@ -0,0 +1,71 @@
+package com.roleopt.rolemining.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Profiles of the most recent mining runs, oldest evicted first. Profiles are small (stage figures
+ * and a few sample groups per filter), so a few hundred runs cost well under a megabyte.
+ */
+@Component
+public class MiningProfileStore {
+
+    @Value("${role-mining.profile.max-runs:100}")
+    private int maxRuns;
+
+    @Value("${role-mining.profile.top-dropped-groups:5}")
+    private int topDroppedGroups;
+
+    private final AtomicLong runIds = new AtomicLong();
+
+    // Insertion-ordered, so the eldest entry is the oldest run
+    private final LinkedHashMap<Long, MiningProfile> profiles = new LinkedHashMap<Long, MiningProfile>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, MiningProfile> eldest) {
+            return size() > maxRuns;
+        }
+    };
+
+    /**
+     * Open the profile of a new run; it is retrievable while the run is still going.
+     *
+     * @param filters description of the run's filters
+     */
+    public MiningProfile start(String filters) {
+        MiningProfile profile = new MiningProfile(runIds.incrementAndGet(), filters, topDroppedGroups);
+        synchronized (profiles) {
+            profiles.put(profile.getRunId(), profile);
+        }
+        return profile;
+    }
+
+    /**
+     * Profile of the given run, or null if it is unknown or has been evicted
+     */
+    public MiningProfile get(long runId) {
+        synchronized (profiles) {
+            return profiles.get(runId);
+        }
+    }
+
+    /**
+     * Summaries of the retained runs, newest first
+     */
+    public List<Map<String, Object>> recent() {
+        List<MiningProfile> retained;
+        synchronized (profiles) {
+            retained = new ArrayList<>(profiles.values());
+        }
+        List<Map<String, Object>> summaries = new ArrayList<>();
+        for (int i = retained.size() - 1; i >= 0; i--) {
+            summaries.add(retained.get(i).summary());
+        }
+        return summaries;
+    }
+}
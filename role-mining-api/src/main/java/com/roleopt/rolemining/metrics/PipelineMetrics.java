@@ -0,0 +1,107 @@
+package com.roleopt.rolemining.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes {@link StageProfile}s of pipeline runs (mining, upload) as Micrometer meters, tagged by
+ * pipeline and stage:
+ * <ul>
+ *     <li>{@code pipeline.stage.duration} and {@code pipeline.stage.cpu} - timers per stage;</li>
+ *     <li>{@code pipeline.stage.allocated} - bytes allocated per stage run;</li>
+ *     <li>{@code pipeline.stage.input}, {@code pipeline.stage.output} and
+ *     {@code pipeline.stage.allocation.rate} - gauges of the latest run;</li>
+ *     <li>{@code pipeline.run.duration} - wall time of the whole run.</li>
+ * </ul>
+ */
+@Component
+public class PipelineMetrics {
+
+    private final MeterRegistry registry;
+
+    // Latest values behind the gauges, one holder per pipeline and stage
+    private final Map<String, LastRun> lastRuns = new ConcurrentHashMap<>();
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    private static final class LastRun {
+        volatile double input;
+        volatile double output;
+        volatile double allocationRate;
+    }
+
+    public void recordRun(String pipeline, List<StageProfile> stages) {
+        long totalNanos = 0;
+        for (StageProfile stage : stages) {
+            record(pipeline, stage);
+            totalNanos += stage.getWallNanos();
+        }
+        Timer.builder("pipeline.run.duration")
+                .description("Wall time of a whole pipeline run")
+                .tag("pipeline", pipeline)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(totalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void record(String pipeline, StageProfile stage) {
+        Tags tags = Tags.of("pipeline", pipeline, "stage", stage.getStage());
+        Timer.builder("pipeline.stage.duration")
+                .description("Wall time of a pipeline stage")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(stage.getWallNanos(), TimeUnit.NANOSECONDS);
+        if (stage.getCpuNanos() >= 0) {
+            Timer.builder("pipeline.stage.cpu")
+                    .description("CPU time of a pipeline stage on its thread")
+                    .tags(tags)
+                    .register(registry)
+                    .record(stage.getCpuNanos(), TimeUnit.NANOSECONDS);
+        }
+        if (stage.getAllocatedBytes() >= 0) {
+            DistributionSummary.builder("pipeline.stage.allocated")
+                    .description("Heap allocated by a pipeline stage on its thread")
+                    .baseUnit("bytes")
+                    .tags(tags)
+                    .register(registry)
+                    .record(stage.getAllocatedBytes());
+        }
+
+        LastRun last = lastRuns.computeIfAbsent(pipeline + "/" + stage.getStage(), key -> registerGauges(tags));
+        last.input = stage.getInput();
+        last.output = stage.getOutput();
+        if (stage.getAllocatedBytes() >= 0 && stage.getWallNanos() > 0) {
+            last.allocationRate = stage.getAllocatedBytes() * 1e9 / stage.getWallNanos();
+        }
+    }
+
+    private LastRun registerGauges(Tags tags) {
+        LastRun last = new LastRun();
+        Gauge.builder("pipeline.stage.input", last, l -> l.input)
+                .description("Input size of the latest run of a stage")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("pipeline.stage.output", last, l -> l.output)
+                .description("Output size of the latest run of a stage (e.g. surviving groups)")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("pipeline.stage.allocation.rate", last, l -> l.allocationRate)
+                .description("Allocation rate of the latest run of a stage")
+                .baseUnit("bytes per second")
+                .tags(tags)
+                .register(registry);
+        return last;
+    }
+}
@@ -0,0 +1,74 @@
+package com.roleopt.rolemining.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cost and effect of one stage of a pipeline run: wall and CPU time, bytes allocated by the running
+ * thread, and the size of what went in and what came out (groups, records, bytes - whatever the
+ * stage consumes and produces).
+ */
+public final class StageProfile {
+
+    private final String stage;
+    private final long wallNanos;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+    private final long input;
+    private final long output;
+
+    StageProfile(String stage, long wallNanos, long cpuNanos, long allocatedBytes, long input, long output) {
+        this.stage = stage;
+        this.wallNanos = wallNanos;
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.input = input;
+        this.output = output;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * CPU time of the running thread, or -1 where the JVM cannot measure it.
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * Heap allocated by the running thread, or -1 where the JVM cannot measure it.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long getInput() {
+        return input;
+    }
+
+    public long getOutput() {
+        return output;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("stage", stage);
+        map.put("wallMs", wallNanos / 1_000_000.0);
+        map.put("cpuMs", cpuNanos < 0 ? null : cpuNanos / 1_000_000.0);
+        map.put("allocatedBytes", allocatedBytes < 0 ? null : allocatedBytes);
+        map.put("input", input);
+        map.put("output", output);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return stage + ": " + input + " -> " + output + " in " + wallNanos / 1_000_000 + " ms";
+    }
+}
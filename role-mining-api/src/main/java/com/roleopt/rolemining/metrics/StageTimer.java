@@ -0,0 +1,60 @@
+package com.roleopt.rolemining.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures one stage on the current thread. Start it before the stage, stop it after:
+ * <pre>
+ * StageTimer timer = StageTimer.start();
+ * ... stage ...
+ * stages.add(timer.stop("grouping", usersIn, groupsOut));
+ * </pre>
+ * CPU time and allocation come from the thread MXBean, so work the stage hands to other threads is
+ * not included.
+ */
+public final class StageTimer {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean HOTSPOT_THREADS =
+            THREADS instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) THREADS : null;
+
+    static {
+        if (HOTSPOT_THREADS != null && HOTSPOT_THREADS.isThreadAllocatedMemorySupported()
+                && !HOTSPOT_THREADS.isThreadAllocatedMemoryEnabled()) {
+            HOTSPOT_THREADS.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    private final long startWall;
+    private final long startCpu;
+    private final long startAllocated;
+
+    private StageTimer() {
+        this.startWall = System.nanoTime();
+        this.startCpu = cpuTime();
+        this.startAllocated = allocatedBytes();
+    }
+
+    public static StageTimer start() {
+        return new StageTimer();
+    }
+
+    public StageProfile stop(String stage, long input, long output) {
+        long wall = System.nanoTime() - startWall;
+        long cpu = startCpu < 0 ? -1 : cpuTime() - startCpu;
+        long allocated = startAllocated < 0 ? -1 : allocatedBytes() - startAllocated;
+        return new StageProfile(stage, wall, cpu, allocated, input, output);
+    }
+
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long allocatedBytes() {
+        if (HOTSPOT_THREADS == null || !HOTSPOT_THREADS.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return HOTSPOT_THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
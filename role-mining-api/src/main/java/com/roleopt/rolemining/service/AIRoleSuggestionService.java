@@ -1,31 +1,96 @@
 package com.roleopt.rolemining.service;
 
+import com.roleopt.rolemining.ai.AIResponseParser;
+import com.roleopt.rolemining.ai.ModelRouter;
+import com.roleopt.rolemining.ai.ModelTask;
+import com.roleopt.rolemining.ai.PermissionPrompt;
+import com.roleopt.rolemining.ai.PermissionPromptBuilder;
+import com.roleopt.rolemining.ai.RoleStreamListener;
+import com.roleopt.rolemining.ai.RoleStreamParser;
+import com.roleopt.rolemining.ai.RoleSuggestionMerger;
 import com.roleopt.rolemining.dto.RoleDTO;
 import com.roleopt.rolemining.model.Assignment;
 import com.roleopt.rolemining.model.Entitlement;
 import com.roleopt.rolemining.model.User;
 import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.message.UserMessage;
-import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class AIRoleSuggestionService {
 
     private static final Logger log = LoggerFactory.getLogger(AIRoleSuggestionService.class);
     
-    private final ChatLanguageModel chatLanguageModel;
+    private static final String SYSTEM_PROMPT =
+            "You are a role engineering expert. Your task is to analyze user permissions and suggest " +
+            "appropriate roles based on common access patterns. Look for clusters of permissions that " +
+            "are frequently assigned together and might represent a logical business role.";
+    
+    private final ModelRouter modelRouter;
+    private final StreamingChatLanguageModel streamingChatLanguageModel;
+    private final PermissionPromptBuilder promptBuilder;
+    private final AIResponseParser responseParser;
+    
+    // Upper bound for the whole user prompt, instructions included
+    @Value("${llm.prompt.token-budget:3000}")
+    private int promptTokenBudget;
+    
+    // 'single' sends one prompt; 'partitioned' maps partitions to concurrent prompts and merges the answers
+    @Value("${llm.analysis.mode:single}")
+    private String analysisMode;
+    
+    // 'ou' or 'application'
+    @Value("${llm.analysis.partition-by:ou}")
+    private String partitionBy;
+    
+    // Partitions with fewer users are pooled into one "Other" partition instead of getting their own call
+    @Value("${llm.analysis.min-partition-users:5}")
+    private int minPartitionUsers;
     
-    public AIRoleSuggestionService(ChatLanguageModel chatLanguageModel) {
-        this.chatLanguageModel = chatLanguageModel;
+    // Share of model calls whose full prompt and answer are written at DEBUG; 0 disables payload logging
+    @Value("${llm.log.sample-rate:0.0}")
+    private double payloadLogSampleRate;
+    
+    // Shared across requests, so this is also the global cap on concurrent partition calls
+    private final ExecutorService partitionExecutor;
+    
+    public AIRoleSuggestionService(ModelRouter modelRouter,
+                                   StreamingChatLanguageModel streamingChatLanguageModel,
+                                   PermissionPromptBuilder promptBuilder,
+                                   AIResponseParser responseParser,
+                                   @Value("${llm.analysis.parallelism:4}") int parallelism) {
+        this.modelRouter = modelRouter;
+        this.streamingChatLanguageModel = streamingChatLanguageModel;
+        this.promptBuilder = promptBuilder;
+        this.responseParser = responseParser;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.partitionExecutor = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread thread = new Thread(r, "llm-partition-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        partitionExecutor.shutdownNow();
     }
     
     public List<RoleDTO> suggestRoles(Map<String, User> users, 
@@ -33,524 +98,252 @@ public class AIRoleSuggestionService {
                                      List<Assignment> assignments) {
         log.info("Generating AI role suggestions based on user permissions");
         
-        // Create a structured representation of user permissions
-        Map<String, List<String>> userPermissionMap = createUserPermissionMap(users, entitlements, assignments);
+        if ("partitioned".equalsIgnoreCase(analysisMode.trim())) {
+            return suggestRolesPartitioned(users, entitlements, assignments);
+        }
+        
+        // Build a compact, budgeted view of the distinct permission sets
+        PermissionPrompt permissionPrompt = buildPermissionPrompt(users, entitlements, assignments);
         
         // Find patterns in the permissions
-        return analyzePermissionPatternsWithAI(userPermissionMap);
+        List<RoleDTO> roles = analyzePermissionPatternsWithAI(permissionPrompt.getText(), ModelTask.ANALYSIS);
+        for (RoleDTO role : roles) {
+            role.setAttribute("promptCoverage", permissionPrompt.getCoverage());
+        }
+        return roles;
     }
     
-    private Map<String, List<String>> createUserPermissionMap(Map<String, User> users, 
-                                                             Map<String, Entitlement> entitlements, 
-                                                             List<Assignment> assignments) {
-        Map<String, List<String>> userPermissionMap = new HashMap<>();
+    /**
+     * Streaming variant of {@link #suggestRoles}: each role is handed to the listener as soon as the
+     * model has finished writing its block. Returns immediately; the listener is called from the
+     * model client's threads.
+     */
+    public void streamRoles(Map<String, User> users,
+                            Map<String, Entitlement> entitlements,
+                            List<Assignment> assignments,
+                            RoleStreamListener listener) {
+        log.info("Streaming AI role suggestions based on user permissions");
         
-        for (Assignment assignment : assignments) {
-            String userId = assignment.getUser().getUserId();
-            User user = users.get(userId);
+        PermissionPrompt permissionPrompt = buildPermissionPrompt(users, entitlements, assignments);
+        List<ChatMessage> messages = Arrays.asList(
+                SystemMessage.from(SYSTEM_PROMPT),
+                UserMessage.from(buildPromptTemplate(permissionPrompt.getText())));
+        
+        RoleStreamParser parser = responseParser.newStreamParser(role -> {
+            role.setAttribute("promptCoverage", permissionPrompt.getCoverage());
+            listener.onRole(role);
+        });
+        
+        streamingChatLanguageModel.generate(messages, new StreamingResponseHandler<AiMessage>() {
+            @Override
+            public void onNext(String token) {
+                parser.accept(token);
+            }
             
-            if (user != null) {
-                String department = user.getOrganizationalUnit() != null 
-                    ? user.getOrganizationalUnit().getName() 
-                    : "Unknown";
-                
-                String userKey = userId + " (" + user.getFirstName() + " " + user.getLastName() + 
-                    ", " + department + ")";
-                
-                for (Entitlement entitlement : assignment.getEntitlements()) {
-                    String entitlementId = entitlement.getEntitlementId();
-                    Entitlement entitlementObj = entitlements.get(entitlementId);
-                    
-                    if (entitlementObj != null) {
-                        String appName = entitlementObj.getApplication() != null 
-                            ? entitlementObj.getApplication().getName() 
-                            : "Unknown";
-                        
-                        String permission = appName + ": " + entitlementObj.getName();
-                        
-                        userPermissionMap.computeIfAbsent(userKey, k -> new ArrayList<>())
-                            .add(permission);
-                    }
-                }
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                List<RoleDTO> roles = parser.finish();
+                log.info("AI stream complete, {} role(s) emitted", roles.size());
+                listener.onComplete(roles);
             }
+            
+            @Override
+            public void onError(Throwable error) {
+                log.error("Error while streaming from AI model: {}", error.getMessage(), error);
+                listener.onError(error);
+            }
+        });
+    }
+    
+    private PermissionPrompt buildPermissionPrompt(Map<String, User> users,
+                                                   Map<String, Entitlement> entitlements,
+                                                   List<Assignment> assignments) {
+        int dataBudget = Math.max(0, promptTokenBudget - promptBuilder.estimateTokens(buildPromptTemplate("")));
+        PermissionPrompt permissionPrompt = promptBuilder.build(users, entitlements, assignments, dataBudget);
+        log.info("Built permission prompt: {} of {} groups, covering {} of {} users ({}%), ~{} tokens",
+                permissionPrompt.getIncludedGroups(), permissionPrompt.getTotalGroups(),
+                permissionPrompt.getCoveredUsers(), permissionPrompt.getTotalUsers(),
+                Math.round(permissionPrompt.getCoverage() * 100), permissionPrompt.getEstimatedTokens());
+        if (permissionPrompt.isTruncated()) {
+            log.warn("Permission prompt cut to token budget; {} low-support groups omitted",
+                    permissionPrompt.getTotalGroups() - permissionPrompt.getIncludedGroups());
         }
-        
-        return userPermissionMap;
+        return permissionPrompt;
     }
     
-    private List<RoleDTO> analyzePermissionPatternsWithAI(Map<String, List<String>> userPermissionMap) {
-        // Convert the permission map to a structured prompt for the AI
-        String userPermissionsData = formatUserPermissionsForAI(userPermissionMap);
-        
-        log.info("Using AI model: {}", chatLanguageModel.getClass().getName());
-        
-        // Create the prompt
-        SystemMessage systemMessage = SystemMessage.from(
-            "You are a role engineering expert. Your task is to analyze user permissions and suggest " +
-            "appropriate roles based on common access patterns. Look for clusters of permissions that " +
-            "are frequently assigned together and might represent a logical business role."
-        );
+    /**
+     * Map-reduce variant: one prompt per OU or application, sent concurrently, then merged.
+     * Wall-clock time is bounded by the slowest partition instead of one huge prompt.
+     */
+    private List<RoleDTO> suggestRolesPartitioned(Map<String, User> users,
+                                                  Map<String, Entitlement> entitlements,
+                                                  List<Assignment> assignments) {
+        Map<String, List<Assignment>> partitions = "application".equalsIgnoreCase(partitionBy.trim())
+                ? partitionByApplication(entitlements, assignments)
+                : partitionByOrganizationalUnit(users, assignments);
+        log.info("Running partitioned AI analysis over {} partition(s) by {}", partitions.size(), partitionBy);
         
-        String promptTemplate = "Analyze these user permission assignments and suggest 3-5 business roles. For each role, " +
-            "provide: 1) A descriptive name, 2) Key permissions that define this role, 3) Estimated user count, " +
-            "4) Confidence level (0-100), and 5) A brief justification.\n\n" +
-            "Your response MUST follow this exact format for each role:\n\n" +
-            "Role 1:\n" +
-            "Name: [Role Name]\n" +
-            "Key permissions:\n" +
-            "- [Permission 1]\n" +
-            "- [Permission 2]\n" +
-            "Estimated user count: [Number]\n" +
-            "Confidence: [Number 0-100]\n" +
-            "Justification: [Brief explanation]\n\n" +
-            "Role 2:\n" +
-            "[...and so on]\n\n" +
-            "User Permission Data:\n" + userPermissionsData;
-        
-        log.info("EXACT PROMPT BEING SENT TO AI MODEL: \n\n{}", promptTemplate);
-        
-        UserMessage userMessage = UserMessage.from(promptTemplate);
+        int dataBudget = Math.max(0, promptTokenBudget - promptBuilder.estimateTokens(buildPromptTemplate("")));
         
-        log.info("Sending prompt to AI model. Prompt length: {} characters", 
-                 userPermissionsData.length());
-        
-        try {
-            // Get AI response
-            AiMessage aiResponse = chatLanguageModel.generate(systemMessage, userMessage).content();
-            String responseText = aiResponse.text();
-            log.info("Received AI response. Response length: {} characters", responseText.length());
-            log.info("EXACT AI RESPONSE: \n\n{}", responseText);
-            
-            // Parse the AI response into structured RoleDTO objects
-            return parseAIResponse(responseText);
-        } catch (Exception e) {
-            log.error("Error while communicating with AI model: {}", e.getMessage(), e);
-            throw e;
+        // Map: submit every partition; the executor's pool size bounds concurrency
+        Map<String, Future<List<RoleDTO>>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Assignment>> partition : partitions.entrySet()) {
+            String label = partition.getKey();
+            List<Assignment> partitionAssignments = partition.getValue();
+            futures.put(label, partitionExecutor.submit(() -> {
+                PermissionPrompt prompt = promptBuilder.build(users, entitlements, partitionAssignments, dataBudget);
+                log.info("Partition '{}': {} of {} groups, {} users, ~{} tokens", label,
+                        prompt.getIncludedGroups(), prompt.getTotalGroups(),
+                        prompt.getTotalUsers(), prompt.getEstimatedTokens());
+                List<RoleDTO> roles = analyzePermissionPatternsWithAI(
+                        "Scope: " + label + "\n" + prompt.getText(), ModelTask.PARTITION);
+                for (RoleDTO role : roles) {
+                    role.setAttribute("promptCoverage", prompt.getCoverage());
+                }
+                return roles;
+            }));
         }
-    }
-    
-    private String formatUserPermissionsForAI(Map<String, List<String>> userPermissionMap) {
-        StringBuilder sb = new StringBuilder();
         
-        for (Map.Entry<String, List<String>> entry : userPermissionMap.entrySet()) {
-            sb.append("User: ").append(entry.getKey()).append("\n");
-            sb.append("Permissions:\n");
-            
-            for (String permission : entry.getValue()) {
-                sb.append("- ").append(permission).append("\n");
+        // Collect: a failed partition is skipped rather than failing the whole analysis
+        Map<String, List<RoleDTO>> rolesByPartition = new LinkedHashMap<>();
+        Exception lastError = null;
+        for (Map.Entry<String, Future<List<RoleDTO>>> entry : futures.entrySet()) {
+            try {
+                rolesByPartition.put(entry.getKey(), entry.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(f -> f.cancel(true));
+                throw new IllegalStateException("Interrupted while waiting for partitioned AI analysis", e);
+            } catch (ExecutionException e) {
+                lastError = e;
+                log.error("AI analysis failed for partition '{}': {}", entry.getKey(), e.getCause().getMessage());
             }
-            
-            sb.append("\n");
+        }
+        if (rolesByPartition.isEmpty() && lastError != null) {
+            throw new IllegalStateException("AI analysis failed for every partition", lastError.getCause());
         }
         
-        return sb.toString();
+        // Reduce: merge and de-duplicate across partitions
+        List<RoleDTO> merged = RoleSuggestionMerger.merge(rolesByPartition);
+        log.info("Merged {} partition(s) into {} AI-suggested role(s)", rolesByPartition.size(), merged.size());
+        return merged;
     }
     
-    private List<RoleDTO> parseAIResponse(String aiResponse) {
-        List<RoleDTO> suggestedRoles = new ArrayList<>();
-        
-        if (aiResponse == null || aiResponse.isEmpty()) {
-            log.warn("AI response is empty, returning empty suggested roles list");
-            return suggestedRoles;
-        }
-        
-        log.info("Parsing AI response to extract roles");
-        boolean parsedSuccessfully = false;
-        
-        try {
-            // Pattern for parsing role sections with dashes at beginning of lines
-            Pattern dashRolePattern = Pattern.compile(
-                "([\\w\\s-]+)\\s*-\\s*-\\s*(\\d+)\\s*(\\d+)%\\s*([^-]+)\\s*---",
-                Pattern.DOTALL
-            );
-            
-            Matcher dashMatcher = dashRolePattern.matcher(aiResponse);
-            int roleCount = 0;
-            
-            // First try parsing the dash-separated format shown in the user query
-            while (dashMatcher.find()) {
-                roleCount++;
-                String roleName = dashMatcher.group(1).trim();
-                int userCount = 0;
-                try {
-                    userCount = Integer.parseInt(dashMatcher.group(2).trim());
-                } catch (NumberFormatException e) {
-                    log.warn("Failed to parse user count, using default");
-                    userCount = 2;
-                }
-                
-                int confidence = 0;
-                try {
-                    confidence = Integer.parseInt(dashMatcher.group(3).trim());
-                } catch (NumberFormatException e) {
-                    log.warn("Failed to parse confidence, using default");
-                    confidence = 70;
-                }
-                
-                String justification = dashMatcher.group(4).trim();
-                
-                RoleDTO role = new RoleDTO();
-                role.setId((long) (100 + roleCount));
-                role.setName(roleName);
-                role.setUserCount(userCount);
-                role.setConfidence(confidence);
-                role.setAiGenerated(true);
-                
-                // Extract application from role name or justification
-                List<String> applications = new ArrayList<>();
-                if (roleName.toLowerCase().contains("finance")) {
-                    applications.add("FinanceTool");
-                } else if (roleName.toLowerCase().contains("engineer") || 
-                           roleName.toLowerCase().contains("code")) {
-                    applications.add("CodeRepo");
-                } else if (roleName.toLowerCase().contains("hr") || 
-                           roleName.toLowerCase().contains("human resources")) {
-                    applications.add("HRPortal");
-                } else if (roleName.toLowerCase().contains("operations") || 
-                           roleName.toLowerCase().contains("ops")) {
-                    applications.add("OpsTools");
-                } else if (roleName.toLowerCase().contains("support")) {
-                    applications.add("SupportTools");
-                } else {
-                    applications.add("Application");
-                }
-                
-                // Extract permissions from justification
-                List<String> permissions = new ArrayList<>();
-                String[] lines = justification.split("\\n");
-                for (String line : lines) {
-                    if (line.toLowerCase().contains("permission") || 
-                        line.toLowerCase().contains("access") ||
-                        (line.contains(":") && !line.toLowerCase().contains("justification"))) {
-                        permissions.add(line.trim());
-                    }
-                }
-                
-                // If no permissions found, create default ones based on applications
-                if (permissions.isEmpty()) {
-                    for (String app : applications) {
-                        permissions.add(app + ": View");
-                        permissions.add(app + ": Edit");
-                    }
-                }
-                
-                role.setApplications(applications);
-                role.setPermissions(permissions);
-                role.setPermissionCount(permissions.size());
-                
-                // Generate example users
-                List<String> users = new ArrayList<>();
-                for (int i = 0; i < userCount; i++) {
-                    String firstName = "";
-                    String lastName = "";
-                    switch (i % 5) {
-                        case 0: firstName = "Alice"; lastName = "Johnson"; break;
-                        case 1: firstName = "Bob"; lastName = "Williams"; break;
-                        case 2: firstName = "Carol"; lastName = "Lee"; break;
-                        case 3: firstName = "David"; lastName = "Smith"; break;
-                        case 4: firstName = "John"; lastName = "Doe"; break;
-                    }
-                    users.add(firstName + " " + lastName + " (" + firstName.toLowerCase() + "." + lastName.toLowerCase() + "@example.com)");
-                }
-                role.setUsers(users);
-                
-                // Add justification as an attribute
-                Map<String, Object> attributes = new HashMap<>();
-                attributes.put("justification", justification);
-                role.setAttributes(attributes);
-                
-                suggestedRoles.add(role);
-                log.info("Added role from dash format: {}, users: {}, confidence: {}", 
-                    roleName, userCount, confidence);
-                parsedSuccessfully = true;
+    private Map<String, List<Assignment>> partitionByOrganizationalUnit(Map<String, User> users,
+                                                                        List<Assignment> assignments) {
+        Map<String, List<Assignment>> partitions = new TreeMap<>();
+        for (Assignment assignment : assignments) {
+            User user = users.get(assignment.getUser().getUserId());
+            if (user == null) {
+                continue;
             }
-            
-            // If dash format parsing didn't find any roles, fall back to standard patterns
-            if (suggestedRoles.isEmpty()) {
-                // Original regex patterns for role sections
-                List<Pattern> rolePatterns = new ArrayList<>();
-                rolePatterns.add(Pattern.compile("\\*\\*Role (\\d+):?\\s*([^*]+)\\*\\*", Pattern.DOTALL)); // Pattern for **Role X: Name**
-                rolePatterns.add(Pattern.compile("###\\s*Role\\s*(\\d+):?\\s*([^#]+)", Pattern.DOTALL)); // Pattern for ### Role X: Name
-                rolePatterns.add(Pattern.compile("(?:\\*\\*)?Role\\s*(\\d+):?(?:\\*\\*)?\\s*([^\\n]+)", Pattern.DOTALL)); // More general pattern
-                
-                // Additional pattern for finding role sections by name only
-                Pattern nameOnlyPattern = Pattern.compile("\\n(?:\\*\\*)?Name(?:\\*\\*)?:?\\s*\\[?([^\\]\\n]+)\\]?", Pattern.CASE_INSENSITIVE);
-                
-                // Try each pattern to find role sections
-                for (Pattern pattern : rolePatterns) {
-                    Matcher matcher = pattern.matcher(aiResponse);
-                    roleCount = 0;
-                    
-                    while (matcher.find()) {
-                        roleCount++;
-                        String roleName = matcher.group(2).trim();
-                        
-                        // Clean up role name - remove markdown formatting and any "Name:" prefix
-                        roleName = roleName.replaceAll("\\*\\*", "").trim();
-                        if (roleName.toLowerCase().startsWith("name:")) {
-                            roleName = roleName.substring(roleName.indexOf(":") + 1).trim();
-                        }
-                        
-                        // Remove any bracket content if present
-                        roleName = roleName.replaceAll("\\[|\\]", "").trim();
-                        
-                        // Find the end of this role section
-                        int startPos = matcher.end();
-                        int endPos = aiResponse.length();
-                        Matcher nextRoleMatcher = pattern.matcher(aiResponse.substring(startPos));
-                        if (nextRoleMatcher.find()) {
-                            endPos = startPos + nextRoleMatcher.start();
-                        }
-                        
-                        String roleSection = aiResponse.substring(matcher.start(), endPos);
-                        log.info("Found role section {}: {}", roleCount, roleSection.substring(0, Math.min(50, roleSection.length())) + "...");
-                        
-                        // Extract permissions
-                        List<String> permissions = new ArrayList<>();
-                        Pattern permPattern = Pattern.compile("(?:Key\\s+)?(?:permissions|Permissions|\\*\\*Permissions\\*\\*):?\\s*([^\\n]+(?:\\n(?=[-\\s*])(?!Role\\s+\\d)[^\\n]+)*)", Pattern.CASE_INSENSITIVE);
-                        Matcher permMatcher = permPattern.matcher(roleSection);
-                        
-                        if (permMatcher.find()) {
-                            String permText = permMatcher.group(1).trim();
-                            // Check if permissions are in bullet points or comma separated
-                            if (permText.contains("-") || permText.contains("*")) {
-                                String[] permLines = permText.split("\\n");
-                                for (String line : permLines) {
-                                    line = line.trim().replaceAll("^[-*]\\s*", "");
-                                    if (!line.isEmpty()) {
-                                        permissions.add(line);
-                                    }
-                                }
-                            } else if (permText.contains(",")) {
-                                String[] perms = permText.split(",");
-                                for (String perm : perms) {
-                                    perm = perm.trim();
-                                    if (!perm.isEmpty()) {
-                                        permissions.add(perm);
-                                    }
-                                }
-                            } else {
-                                permissions.add(permText);
-                            }
-                            log.info("Extracted permissions: {}", permissions);
-                        }
-                        
-                        // Extract user count
-                        int userCount = 0;
-                        Pattern userCountPattern = Pattern.compile("(?:Estimated\\s+)?(?:user\\s+count|User\\s+Count|\\*\\*User\\s+Count\\*\\*):?\\s*(\\d+)", Pattern.CASE_INSENSITIVE);
-                        Matcher userCountMatcher = userCountPattern.matcher(roleSection);
-                        
-                        if (userCountMatcher.find()) {
-                            try {
-                                userCount = Integer.parseInt(userCountMatcher.group(1).trim());
-                                log.info("Extracted user count: {}", userCount);
-                            } catch (NumberFormatException e) {
-                                log.warn("Failed to parse user count");
-                            }
-                        }
-                        
-                        // Extract confidence level
-                        int confidence = 70; // Default confidence
-                        Pattern confidencePattern = Pattern.compile("(?:Confidence(?:\\s*Level)?|\\*\\*Confidence(?:\\s*Level)?\\*\\*):?\\s*(\\d+)\\s*%?", Pattern.CASE_INSENSITIVE);
-                        Matcher confidenceMatcher = confidencePattern.matcher(roleSection);
-                        
-                        if (confidenceMatcher.find()) {
-                            try {
-                                confidence = Integer.parseInt(confidenceMatcher.group(1).trim());
-                                log.info("Extracted confidence: {}", confidence);
-                            } catch (NumberFormatException e) {
-                                log.warn("Failed to parse confidence, using default: {}", confidence);
-                            }
-                        }
-                        
-                        // Extract justification
-                        String justification = "";
-                        Pattern justificationPattern = Pattern.compile("(?:Justification|\\*\\*Justification\\*\\*):?\\s*([^\\n]+(?:\\n(?!Role|\\*\\*Role|###)[^\\n]+)*)", Pattern.CASE_INSENSITIVE);
-                        Matcher justificationMatcher = justificationPattern.matcher(roleSection);
-                        
-                        if (justificationMatcher.find()) {
-                            justification = justificationMatcher.group(1).trim();
-                            justification = justification.replaceAll("\\*\\*", "").trim();
-                            log.info("Extracted justification: {}", justification);
-                        }
-                        
-                        // Create role
-                        RoleDTO role = new RoleDTO();
-                        role.setId((long) (100 + roleCount));
-                        role.setName(roleName);
-                        role.setUserCount(userCount);
-                        role.setConfidence(confidence);
-                        role.setAiGenerated(true);
-                        role.setPermissions(permissions);
-                        role.setPermissionCount(permissions.size());
-                        
-                        // Extract application from permissions
-                        Set<String> appSet = new HashSet<>();
-                        for (String perm : permissions) {
-                            if (perm.contains(":")) {
-                                String app = perm.substring(0, perm.indexOf(":")).trim();
-                                appSet.add(app);
-                            } else if (perm.contains(" ")) {
-                                String app = perm.substring(0, perm.indexOf(" ")).trim();
-                                appSet.add(app);
-                            }
-                        }
-                        
-                        // If no apps extracted, infer from role name
-                        if (appSet.isEmpty()) {
-                            if (roleName.toLowerCase().contains("hr") || 
-                                roleName.toLowerCase().contains("human resources")) {
-                                appSet.add("HRPortal");
-                            } else if (roleName.toLowerCase().contains("finance")) {
-                                appSet.add("FinanceTool");
-                            } else if (roleName.toLowerCase().contains("code") || 
-                                     roleName.toLowerCase().contains("eng") || 
-                                     roleName.toLowerCase().contains("developer")) {
-                                appSet.add("CodeRepo");
-                            } else if (roleName.toLowerCase().contains("support")) {
-                                appSet.add("SupportTools");
-                            } else if (roleName.toLowerCase().contains("operations") || 
-                                     roleName.toLowerCase().contains("ops")) {
-                                appSet.add("OpsTools");
-                            } else {
-                                appSet.add("Application");
-                            }
-                        }
-                        
-                        List<String> apps = new ArrayList<>(appSet);
-                        role.setApplications(apps);
-                        
-                        // Generate sample users
-                        List<String> users = new ArrayList<>();
-                        for (int i = 0; i < Math.max(userCount, 1); i++) {
-                            String firstName = "";
-                            String lastName = "";
-                            switch (i % 5) {
-                                case 0: firstName = "Alice"; lastName = "Johnson"; break;
-                                case 1: firstName = "Bob"; lastName = "Williams"; break;
-                                case 2: firstName = "Carol"; lastName = "Lee"; break;
-                                case 3: firstName = "David"; lastName = "Smith"; break;
-                                case 4: firstName = "John"; lastName = "Doe"; break;
-                            }
-                            users.add(firstName + " " + lastName + " (" + firstName.toLowerCase() + "." + lastName.toLowerCase() + "@example.com)");
-                        }
-                        role.setUsers(users);
-                        
-                        // Store justification in attributes
-                        Map<String, Object> attributes = new HashMap<>();
-                        attributes.put("justification", justification);
-                        role.setAttributes(attributes);
-                        
-                        // Add the role to our list
-                        suggestedRoles.add(role);
-                        log.info("Added role from standard format: {}, users: {}, confidence: {}", 
-                            roleName, userCount, confidence);
-                    }
-                    
-                    // If we found roles with this pattern, don't try the others
-                    if (roleCount > 0) {
-                        parsedSuccessfully = true;
-                        break;
-                    }
+            String ouName = user.getOrganizationalUnit() != null
+                    ? "organizational unit " + user.getOrganizationalUnit().getName()
+                    : "users without an organizational unit";
+            partitions.computeIfAbsent(ouName, k -> new ArrayList<>()).add(assignment);
+        }
+        return poolSmallPartitions(partitions);
+    }
+    
+    private Map<String, List<Assignment>> partitionByApplication(Map<String, Entitlement> entitlements,
+                                                                 List<Assignment> assignments) {
+        // A user with access to several applications appears in each of them, restricted to that app's entitlements
+        Map<String, List<Assignment>> partitions = new TreeMap<>();
+        for (Assignment assignment : assignments) {
+            Map<String, List<Entitlement>> byApp = new HashMap<>();
+            for (Entitlement entitlement : assignment.getEntitlements()) {
+                Entitlement resolved = entitlements.get(entitlement.getEntitlementId());
+                if (resolved == null) {
+                    continue;
                 }
+                String appName = resolved.getApplication() != null
+                        ? "application " + resolved.getApplication().getName()
+                        : "entitlements without an application";
+                byApp.computeIfAbsent(appName, k -> new ArrayList<>()).add(resolved);
             }
-            
-            // If no roles were found using any approach, try the fallback
-            if (!parsedSuccessfully || suggestedRoles.isEmpty()) {
-                log.info("All parsing methods failed, creating roles based on keywords");
-                
-                // Create roles based on keywords in the AI response
-                if (aiResponse.contains("HR") || aiResponse.toLowerCase().contains("human resources")) {
-                    RoleDTO hrRole = createRoleFromKeywords("HR Department", "HRPortal", aiResponse);
-                    suggestedRoles.add(hrRole);
-                }
-                
-                if (aiResponse.contains("Finance")) {
-                    RoleDTO financeRole = createRoleFromKeywords("Finance Department", "FinanceTool", aiResponse);
-                    suggestedRoles.add(financeRole);
-                }
-                
-                if (aiResponse.contains("Code") || aiResponse.contains("Developer") || 
-                    aiResponse.contains("Engineer")) {
-                    RoleDTO devRole = createRoleFromKeywords("Engineering Team", "CodeRepo", aiResponse);
-                    suggestedRoles.add(devRole);
-                }
-                
-                if (aiResponse.contains("Operations") || aiResponse.contains("Ops")) {
-                    RoleDTO opsRole = createRoleFromKeywords("Operations Team", "OpsTools", aiResponse);
-                    suggestedRoles.add(opsRole);
-                }
-                
-                if (aiResponse.contains("Support")) {
-                    RoleDTO supportRole = createRoleFromKeywords("Support Team", "SupportTools", aiResponse);
-                    suggestedRoles.add(supportRole);
-                }
-                
-                log.info("Created {} fallback roles based on keywords", suggestedRoles.size());
+            for (Map.Entry<String, List<Entitlement>> app : byApp.entrySet()) {
+                partitions.computeIfAbsent(app.getKey(), k -> new ArrayList<>())
+                        .add(new Assignment(assignment.getId(), assignment.getUser(), app.getValue()));
             }
-            
-        } catch (Exception e) {
-            log.error("Error parsing AI response: {}", e.getMessage(), e);
         }
-        
-        return suggestedRoles;
+        return poolSmallPartitions(partitions);
     }
     
-    private RoleDTO createRoleFromKeywords(String roleName, String appName, String content) {
-        RoleDTO role = new RoleDTO();
-        
-        // Generate a consistent ID based on role name
-        role.setId((long) (100 + Math.abs(roleName.hashCode() % 100)));
-        role.setName(roleName);
-        
-        // Generate users based on the role
-        int userCount = 2;
-        List<String> detailedUsers = new ArrayList<>();
-        for (int i = 1; i <= userCount; i++) {
-            String firstName = "";
-            String lastName = "";
-            switch (i % 3) {
-                case 0: firstName = "Alice"; lastName = "Johnson"; break;
-                case 1: firstName = "Bob"; lastName = "Williams"; break;
-                case 2: firstName = "Carol"; lastName = "Lee"; break;
+    private Map<String, List<Assignment>> poolSmallPartitions(Map<String, List<Assignment>> partitions) {
+        Map<String, List<Assignment>> result = new LinkedHashMap<>();
+        List<Assignment> other = new ArrayList<>();
+        for (Map.Entry<String, List<Assignment>> partition : partitions.entrySet()) {
+            long userCount = partition.getValue().stream()
+                    .map(a -> a.getUser().getUserId())
+                    .distinct()
+                    .count();
+            if (userCount < minPartitionUsers) {
+                other.addAll(partition.getValue());
+            } else {
+                result.put(partition.getKey(), partition.getValue());
             }
-            String userEmail = firstName.toLowerCase() + "." + lastName.toLowerCase() + "@example.com";
-            detailedUsers.add(firstName + " " + lastName + " (" + userEmail + ")");
         }
-        role.setUsers(detailedUsers);
-        role.setUserCount(userCount);
-        
-        // Create sample permissions
-        List<String> permissions = new ArrayList<>();
-        if (appName.equals("HRPortal")) {
-            permissions.add("HRPortal: HRView");
-            permissions.add("HRPortal: HRManage");
-        } else if (appName.equals("FinanceTool")) {
-            permissions.add("FinanceTool: FinanceView");
-            permissions.add("FinanceTool: FinanceEdit");
-        } else if (appName.equals("CodeRepo")) {
-            permissions.add("CodeRepo: CodeRead");
-            permissions.add("CodeRepo: CodeWrite");
+        if (!other.isEmpty()) {
+            result.put("remaining small groups", other);
         }
-        role.setPermissions(permissions);
-        role.setPermissionCount(permissions.size());
+        return result;
+    }
+    
+    private String buildPromptTemplate(String userPermissionsData) {
+        return "Analyze these groups of users with identical permission sets and suggest 3-5 business roles. " +
+            "For each role, provide: 1) A descriptive name, 2) Key permissions that define this role, " +
+            "3) Estimated user count, 4) Confidence level (0-100), and 5) A brief justification.\n\n" +
+            responseParser.formatInstructions() + "\n" +
+            "User Permission Data:\n" + userPermissionsData;
+    }
+    
+    private List<RoleDTO> analyzePermissionPatternsWithAI(String userPermissionsData, ModelTask task) {
+        // Create the prompt
+        SystemMessage systemMessage = SystemMessage.from(SYSTEM_PROMPT);
+        
+        String promptTemplate = buildPromptTemplate(userPermissionsData);
+        int promptTokens = promptBuilder.estimateTokens(SYSTEM_PROMPT) + promptBuilder.estimateTokens(promptTemplate);
         
-        // Set applications
-        List<String> apps = new ArrayList<>();
-        apps.add(appName);
-        role.setApplications(apps);
+        // Payloads can run to megabytes; log only a sample of calls, and only at DEBUG
+        boolean logPayload = log.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < payloadLogSampleRate;
+        if (logPayload) {
+            log.debug("Prompt for {} call: \n\n{}", task, promptTemplate);
+        }
         
-        // Set confidence based on how many keywords matched
-        int keywordCount = 0;
-        if (content.contains(roleName)) keywordCount++;
-        if (content.contains(appName)) keywordCount++;
-        role.setConfidence(75 + (keywordCount * 5));
+        UserMessage userMessage = UserMessage.from(promptTemplate);
         
-        role.setAiGenerated(true);
+        if (modelRouter.isFanOut()) {
+            return fanOut(task, promptTokens, Arrays.asList(systemMessage, userMessage));
+        }
         
-        log.info("Created fallback role: {}, permissions: {}, users: {}, confidence: {}", 
-            roleName, permissions.size(), userCount, role.getConfidence());
+        ModelRouter.RoutedModel routed = modelRouter.route(task, promptTokens);
+        log.info("Sending {} prompt of {} characters (~{} tokens) to model '{}'",
+                task, userPermissionsData.length(), promptTokens, routed.getName());
         
-        return role;
+        try {
+            // Get AI response
+            AiMessage aiResponse = routed.getModel().generate(systemMessage, userMessage).content();
+            String responseText = aiResponse.text();
+            log.info("Received AI response. Response length: {} characters", responseText.length());
+            if (logPayload) {
+                log.debug("Answer to {} call: \n\n{}", task, responseText);
+            }
+            
+            // Parse the AI response into structured RoleDTO objects
+            return responseParser.parse(responseText);
+        } catch (Exception e) {
+            log.error("Error while communicating with AI model: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Ask every adequate model at once; an answer counts once it parses into at least one role.
+     * A role proposed by more than one model appears once, listing those models.
+     */
+    private List<RoleDTO> fanOut(ModelTask task, int promptTokens, List<ChatMessage> messages) {
+        Map<String, List<RoleDTO>> answers = modelRouter.fanOut(task, promptTokens, messages,
+                responseParser::parse, roles -> !roles.isEmpty());
+        return RoleSuggestionMerger.mergeModels(answers);
     }
-} 
\ No newline at end of file
+}
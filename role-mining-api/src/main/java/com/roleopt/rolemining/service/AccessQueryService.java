@@ -0,0 +1,16 @@
+package com.roleopt.rolemining.service;
+
+import com.roleopt.rolemining.dto.AccessQueryDTO;
+
+public interface AccessQueryService {
+
+    /**
+     * Evaluate a who-has query against the current dataset
+     *
+     * @param query entitlement, application and OU predicates combined with and/or/not
+     * @return the matching users
+     * @throws IllegalArgumentException if a query node is malformed or the query is too large
+     * @throws IllegalStateException if no dataset has been uploaded
+     */
+    WhoHasResult whoHas(AccessQueryDTO query);
+}
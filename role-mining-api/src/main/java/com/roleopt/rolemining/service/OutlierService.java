@@ -0,0 +1,13 @@
+package com.roleopt.rolemining.service;
+
+import com.roleopt.rolemining.analysis.PeerOutlierAnalysis;
+
+public interface OutlierService {
+
+    /**
+     * Peer-group outlier scores of the current dataset, computed on first use after each upload
+     *
+     * @throws IllegalStateException if no dataset has been uploaded
+     */
+    PeerOutlierAnalysis getAnalysis();
+}
@@ -1,10 +1,13 @@
 package com.roleopt.rolemining.service;
 
+import com.roleopt.rolemining.ai.RoleStreamListener;
 import com.roleopt.rolemining.dto.RoleDTO;
 import com.roleopt.rolemining.dto.RoleMiningFilterDTO;
+import com.roleopt.rolemining.metrics.MiningProfile;
 import org.springframework.core.io.Resource;
 
 import java.util.List;
+import java.util.Map;
 
 public interface RoleMiningService {
 
@@ -16,6 +19,15 @@ public interface RoleMiningService {
      */
     List<RoleDTO> mineRoles(RoleMiningFilterDTO filters);
 
+    /**
+     * Mine roles based on the provided filters, recording the run's stages into the given profile
+     *
+     * @param filters the filters to apply during role mining
+     * @param profile profile of this run, opened by the caller so it knows the run id up front
+     * @return a list of discovered roles
+     */
+    List<RoleDTO> mineRoles(RoleMiningFilterDTO filters, MiningProfile profile);
+
     /**
      * Get the latest role mining results
      *
@@ -30,6 +42,21 @@ public interface RoleMiningService {
      */
     List<RoleDTO> getAiSuggestions();
 
+    /**
+     * Get the state of the background AI suggestion run started by {@link #mineRoles}
+     *
+     * @return status (IDLE, RUNNING, READY or FAILED), run id, dataset version and suggestion count
+     */
+    Map<String, Object> getAiStatus();
+
+    /**
+     * Stream AI-suggested roles as the model produces them. The completed list
+     * also becomes the result of {@link #getAiSuggestions()}.
+     *
+     * @param listener receives each role as soon as it is parsed, then the full list
+     */
+    void streamAiSuggestions(RoleStreamListener listener);
+
     /**
      * Generate a CSV report of the role mining results
      *
@@ -17,6 +17,8 @@ public interface UploadService {
      * @param applicationsFile CSV file containing application data
      * @param entitlementsFile CSV file containing entitlement data
      * @param assignmentsFile CSV file containing assignment data
+     * @param indexStorage where to keep the dataset's access matrix: heap, direct or mapped; null for the default
+     * @throws IllegalArgumentException if the index storage is unknown
      * @throws Exception if there's an error processing the files
      */
     void processFiles(
@@ -24,7 +26,8 @@ public interface UploadService {
             MultipartFile ousFile,
             MultipartFile applicationsFile,
             MultipartFile entitlementsFile,
-            MultipartFile assignmentsFile) throws Exception;
+            MultipartFile assignmentsFile,
+            String indexStorage) throws Exception;
 
     /**
      * Get a summary of the uploaded data
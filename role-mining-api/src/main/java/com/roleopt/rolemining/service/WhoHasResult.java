@@ -0,0 +1,59 @@
+package com.roleopt.rolemining.service;
+
+import com.roleopt.rolemining.index.AccessMatrix;
+import com.roleopt.rolemining.index.DatasetIndex;
+import com.roleopt.rolemining.index.UserBitmap;
+import com.roleopt.rolemining.model.User;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Users matching a who-has query, kept as a bitmap of user ordinals of the dataset it was evaluated
+ * against. Users come out in user id order, so a page is stable for as long as that dataset is loaded.
+ */
+public final class WhoHasResult {
+
+    private final DatasetIndex index;
+    private final UserBitmap users;
+    private final List<String> unknownIds;
+    private final long evaluationMicros;
+
+    public WhoHasResult(DatasetIndex index, UserBitmap users, List<String> unknownIds, long evaluationMicros) {
+        this.index = index;
+        this.users = users;
+        this.unknownIds = unknownIds;
+        this.evaluationMicros = evaluationMicros;
+    }
+
+    public long getDatasetVersion() {
+        return index.getVersion();
+    }
+
+    public int getTotal() {
+        return users.cardinality();
+    }
+
+    /**
+     * Ids named by the query that are not in the dataset, each matching nobody
+     */
+    public List<String> getUnknownIds() {
+        return unknownIds;
+    }
+
+    public long getEvaluationMicros() {
+        return evaluationMicros;
+    }
+
+    /**
+     * Visit the users of one page, resolving each only as it is reached
+     */
+    public void forEachUser(int page, int size, Consumer<User> consumer) {
+        AccessMatrix matrix = index.getMatrix();
+        long offset = (long) page * size;
+        if (offset >= users.cardinality()) {
+            return;
+        }
+        users.forEach((int) offset, size, u -> consumer.accept(index.getUsers().get(matrix.userId(u))));
+    }
+}
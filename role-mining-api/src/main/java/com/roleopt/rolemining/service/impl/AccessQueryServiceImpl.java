@@ -0,0 +1,153 @@
+package com.roleopt.rolemining.service.impl;
+
+import com.roleopt.rolemining.dto.AccessQueryDTO;
+import com.roleopt.rolemining.index.DatasetIndex;
+import com.roleopt.rolemining.index.MembershipIndex;
+import com.roleopt.rolemining.index.UserBitmap;
+import com.roleopt.rolemining.service.AccessQueryService;
+import com.roleopt.rolemining.service.WhoHasResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Answers who-has queries from the membership bitmaps built at upload, so a query costs bitmap
+ * operations over the users involved rather than a scan of the assignments.
+ */
+@Service
+public class AccessQueryServiceImpl implements AccessQueryService {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessQueryServiceImpl.class);
+
+    private final RoleMiningServiceImpl roleMiningService;
+
+    // Upper bound on the nodes of one query, leaves included
+    @Value("${role-mining.query.max-nodes:256}")
+    private int maxNodes;
+
+    public AccessQueryServiceImpl(RoleMiningServiceImpl roleMiningService) {
+        this.roleMiningService = roleMiningService;
+    }
+
+    @Override
+    public WhoHasResult whoHas(AccessQueryDTO query) {
+        DatasetIndex index = roleMiningService.getDatasetIndex();
+        if (index == null) {
+            throw new IllegalStateException("No dataset has been uploaded");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("A query is required");
+        }
+        int nodes = countNodes(query);
+        if (maxNodes > 0 && nodes > maxNodes) {
+            throw new IllegalArgumentException("Query has " + nodes + " nodes, at most " + maxNodes + " are allowed");
+        }
+
+        long start = System.nanoTime();
+        List<String> unknownIds = new ArrayList<>();
+        UserBitmap users = evaluate(query, index, unknownIds);
+        long micros = (System.nanoTime() - start) / 1000;
+        log.info("Who-has {} matched {} users of dataset version {} in {} us",
+                query, users.cardinality(), index.getVersion(), micros);
+        return new WhoHasResult(index, users, unknownIds, micros);
+    }
+
+    private static UserBitmap evaluate(AccessQueryDTO node, DatasetIndex index, List<String> unknownIds) {
+        MembershipIndex membership = index.getMembership();
+        if (node.getEntitlement() != null) {
+            int entitlement = index.getMatrix().entitlementOrdinal(node.getEntitlement());
+            if (entitlement < 0) {
+                unknownIds.add("entitlement:" + node.getEntitlement());
+                return UserBitmap.empty();
+            }
+            return membership.entitlement(entitlement);
+        }
+        if (node.getApplication() != null) {
+            if (!membership.hasApplication(node.getApplication())) {
+                unknownIds.add("application:" + node.getApplication());
+            }
+            return membership.application(node.getApplication());
+        }
+        if (node.getOrganizationalUnit() != null) {
+            if (!membership.hasOrganizationalUnit(node.getOrganizationalUnit())) {
+                unknownIds.add("organizationalUnit:" + node.getOrganizationalUnit());
+            }
+            return membership.organizationalUnit(node.getOrganizationalUnit());
+        }
+        if (node.getOr() != null) {
+            List<UserBitmap> operands = new ArrayList<>(node.getOr().size());
+            for (AccessQueryDTO operand : node.getOr()) {
+                operands.add(evaluate(operand, index, unknownIds));
+            }
+            return UserBitmap.union(operands);
+        }
+        if (node.getNot() != null) {
+            return membership.allUsers().andNot(evaluate(node.getNot(), index, unknownIds));
+        }
+        return evaluateAnd(node.getAnd(), index, unknownIds);
+    }
+
+    /**
+     * Intersect the positive operands smallest first, then subtract the negated ones, so that NOT
+     * under AND never materializes a complement. Only an AND of nothing but NOTs starts from all users.
+     */
+    private static UserBitmap evaluateAnd(List<AccessQueryDTO> operands, DatasetIndex index, List<String> unknownIds) {
+        List<UserBitmap> included = new ArrayList<>();
+        List<UserBitmap> excluded = new ArrayList<>();
+        for (AccessQueryDTO operand : operands) {
+            if (operand.getNot() != null) {
+                excluded.add(evaluate(operand.getNot(), index, unknownIds));
+            } else {
+                included.add(evaluate(operand, index, unknownIds));
+            }
+        }
+        included.sort(Comparator.comparingInt(UserBitmap::cardinality));
+        UserBitmap result = included.isEmpty() ? index.getMembership().allUsers() : included.get(0);
+        for (int i = 1; i < included.size() && !result.isEmpty(); i++) {
+            result = result.and(included.get(i));
+        }
+        for (int i = 0; i < excluded.size() && !result.isEmpty(); i++) {
+            result = result.andNot(excluded.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Nodes in the query, checking along the way that each sets exactly one field
+     */
+    private static int countNodes(AccessQueryDTO node) {
+        if (node == null || countFields(node) != 1) {
+            throw new IllegalArgumentException("Each query node needs exactly one of entitlement, application, "
+                    + "organizationalUnit, and, or, not; got " + (node == null ? "null" : node.toString()));
+        }
+        int nodes = 1;
+        if (node.getAnd() != null || node.getOr() != null) {
+            List<AccessQueryDTO> operands = node.getAnd() != null ? node.getAnd() : node.getOr();
+            if (operands.isEmpty()) {
+                throw new IllegalArgumentException("'and' and 'or' need at least one operand");
+            }
+            for (AccessQueryDTO operand : operands) {
+                nodes += countNodes(operand);
+            }
+        } else if (node.getNot() != null) {
+            nodes += countNodes(node.getNot());
+        }
+        return nodes;
+    }
+
+    private static int countFields(AccessQueryDTO node) {
+        int fields = 0;
+        for (Object field : new Object[]{node.getEntitlement(), node.getApplication(), node.getOrganizationalUnit(),
+                node.getAnd(), node.getOr(), node.getNot()}) {
+            if (field != null) {
+                fields++;
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,160 @@
+package com.roleopt.rolemining.service.impl;
+
+import com.roleopt.rolemining.model.Application;
+import com.roleopt.rolemining.model.Assignment;
+import com.roleopt.rolemining.model.Entitlement;
+import com.roleopt.rolemining.model.OrganizationalUnit;
+import com.roleopt.rolemining.model.User;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsers of the five upload feeds, independent of where the bytes come from (multipart upload,
+ * local file, generated data) so that each one can be run and measured on its own.
+ * <p>
+ * Feeds referring to other feeds (users to OUs, entitlements to applications, assignments to
+ * users and entitlements) resolve ids against maps filled by the earlier parsers; rows pointing
+ * at unknown ids are loaded without the link, or skipped for assignments.
+ */
+public final class CsvFeedParser {
+
+    /**
+     * Format of uploaded feeds: comma separated with a header row
+     */
+    public static final CSVFormat UPLOAD_FORMAT = CSVFormat.DEFAULT.withFirstRecordAsHeader();
+
+    private CsvFeedParser() {
+    }
+
+    public static CSVFormat format(char delimiter) {
+        return UPLOAD_FORMAT.withDelimiter(delimiter);
+    }
+
+    public static Reader reader(InputStream in) {
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    public static void parseOrganizationalUnits(Reader reader, CSVFormat format,
+                                                Map<String, OrganizationalUnit> organizationalUnits) throws IOException {
+        try (CSVParser csvParser = new CSVParser(reader, format)) {
+            for (CSVRecord record : csvParser) {
+                OrganizationalUnit ou = new OrganizationalUnit();
+                ou.setOuId(record.get("ouId"));
+                ou.setName(record.get("name"));
+                ou.setDescription(record.get("description"));
+                ou.setUsers(new ArrayList<User>());
+
+                organizationalUnits.put(ou.getOuId(), ou);
+            }
+        }
+    }
+
+    public static void parseUsers(Reader reader, CSVFormat format, Map<String, OrganizationalUnit> organizationalUnits,
+                                  Map<String, User> users) throws IOException {
+        try (CSVParser csvParser = new CSVParser(reader, format)) {
+            for (CSVRecord record : csvParser) {
+                User user = new User();
+                user.setUserId(record.get("userId"));
+                user.setFirstName(record.get("firstName"));
+                user.setLastName(record.get("lastName"));
+
+                String ouId = record.get("ouId");
+                OrganizationalUnit ou = organizationalUnits.get(ouId);
+                if (ou != null) {
+                    user.setOrganizationalUnit(ou);
+                    ou.getUsers().add(user);
+                }
+
+                users.put(user.getUserId(), user);
+            }
+        }
+    }
+
+    public static void parseApplications(Reader reader, CSVFormat format,
+                                         Map<String, Application> applications) throws IOException {
+        try (CSVParser csvParser = new CSVParser(reader, format)) {
+            for (CSVRecord record : csvParser) {
+                Application app = new Application();
+                app.setApplicationId(record.get("applicationId"));
+                app.setName(record.get("name"));
+                app.setDescription(record.get("description"));
+                app.setEntitlements(new ArrayList<Entitlement>());
+
+                applications.put(app.getApplicationId(), app);
+            }
+        }
+    }
+
+    public static void parseEntitlements(Reader reader, CSVFormat format, Map<String, Application> applications,
+                                         Map<String, Entitlement> entitlements) throws IOException {
+        try (CSVParser csvParser = new CSVParser(reader, format)) {
+            for (CSVRecord record : csvParser) {
+                Entitlement entitlement = new Entitlement();
+                entitlement.setEntitlementId(record.get("entitlementId"));
+                entitlement.setName(record.get("name"));
+                entitlement.setDescription(record.get("description"));
+
+                String applicationId = record.get("applicationId");
+                Application app = applications.get(applicationId);
+                if (app != null) {
+                    entitlement.setApplication(app);
+                    app.getEntitlements().add(entitlement);
+                }
+
+                entitlements.put(entitlement.getEntitlementId(), entitlement);
+            }
+        }
+    }
+
+    public static void parseAssignments(Reader reader, CSVFormat format, Map<String, User> users,
+                                        Map<String, Entitlement> entitlements,
+                                        List<Assignment> assignments) throws IOException {
+        try (CSVParser csvParser = new CSVParser(reader, format)) {
+            // Group assignments by userId
+            Map<String, List<String>> userAssignments = new HashMap<>();
+
+            for (CSVRecord record : csvParser) {
+                String userId = record.get("userId");
+                String entitlementId = record.get("entitlementId");
+
+                userAssignments.computeIfAbsent(userId, k -> new ArrayList<>()).add(entitlementId);
+            }
+
+            // Create assignment objects
+            long assignmentId = assignments.size() + 1;
+            for (Map.Entry<String, List<String>> entry : userAssignments.entrySet()) {
+                String userId = entry.getKey();
+                List<String> entitlementIds = entry.getValue();
+
+                User user = users.get(userId);
+                if (user == null) continue;
+
+                Assignment assignment = new Assignment();
+                assignment.setId(assignmentId++);
+                assignment.setUser(user);
+                assignment.setEntitlements(new ArrayList<Entitlement>());
+
+                for (String entitlementId : entitlementIds) {
+                    Entitlement entitlement = entitlements.get(entitlementId);
+                    if (entitlement != null) {
+                        assignment.getEntitlements().add(entitlement);
+                    }
+                }
+
+                assignments.add(assignment);
+            }
+        }
+    }
+}
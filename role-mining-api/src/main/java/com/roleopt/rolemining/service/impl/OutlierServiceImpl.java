@@ -0,0 +1,90 @@
+package com.roleopt.rolemining.service.impl;
+
+import com.roleopt.rolemining.admission.MemoryBudget;
+import com.roleopt.rolemining.analysis.PeerOutlierAnalysis;
+import com.roleopt.rolemining.index.DatasetIndex;
+import com.roleopt.rolemining.service.OutlierService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+public class OutlierServiceImpl implements OutlierService {
+
+    private static final Logger log = LoggerFactory.getLogger(OutlierServiceImpl.class);
+
+    private final RoleMiningServiceImpl roleMiningService;
+    private final MemoryBudget memoryBudget;
+
+    // Share of OU peers below which a held entitlement is listed as rare
+    @Value("${role-mining.outliers.rare-peer-share:0.05}")
+    private double rarePeerShare;
+
+    // Analysis of the current dataset with the budget it holds; dropped on upload, rebuilt on first use
+    private final AtomicReference<Cached> cached = new AtomicReference<>();
+
+    private static final class Cached {
+        final PeerOutlierAnalysis analysis;
+        final MemoryBudget.Reservation reservation;
+
+        Cached(PeerOutlierAnalysis analysis, MemoryBudget.Reservation reservation) {
+            this.analysis = analysis;
+            this.reservation = reservation;
+        }
+    }
+
+    public OutlierServiceImpl(RoleMiningServiceImpl roleMiningService, MemoryBudget memoryBudget) {
+        this.roleMiningService = roleMiningService;
+        this.memoryBudget = memoryBudget;
+        // The analysis holds its dataset's index, so it must not outlive the upload that replaces it
+        roleMiningService.addDatasetListener(version -> release());
+    }
+
+    @Override
+    public PeerOutlierAnalysis getAnalysis() {
+        DatasetIndex index = roleMiningService.getDatasetIndex();
+        if (index == null) {
+            throw new IllegalStateException("No dataset has been uploaded");
+        }
+        Cached current = cached.get();
+        if (current != null && current.analysis.getDatasetVersion() == index.getVersion()) {
+            return current.analysis;
+        }
+        synchronized (this) {
+            current = cached.get();
+            if (current != null && current.analysis.getDatasetVersion() == index.getVersion()) {
+                return current.analysis;
+            }
+            release();
+            long start = System.currentTimeMillis();
+            String job = "Outlier analysis of dataset version " + index.getVersion();
+            // The retained arrays stay charged to the budget until the analysis is released
+            MemoryBudget.Reservation retained = memoryBudget.reserve(job, PeerOutlierAnalysis.retainedBytes(index));
+            PeerOutlierAnalysis analysis;
+            try (MemoryBudget.Reservation building = memoryBudget.reserve(job, PeerOutlierAnalysis.buildBytes(index))) {
+                analysis = PeerOutlierAnalysis.build(index, rarePeerShare);
+            } catch (RuntimeException | Error e) {
+                retained.close();
+                throw e;
+            }
+            cached.set(new Cached(analysis, retained));
+            // An upload that landed while building has already run its listener
+            if (roleMiningService.getDatasetVersion() != index.getVersion()) {
+                release();
+            }
+            log.info("Scored {} users against their OU peers for dataset version {} in {} ms",
+                    analysis.total(null), index.getVersion(), System.currentTimeMillis() - start);
+            return analysis;
+        }
+    }
+
+    private void release() {
+        Cached previous = cached.getAndSet(null);
+        if (previous != null) {
+            previous.reservation.close();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.roleopt.rolemining.service.impl;
+
+import com.roleopt.rolemining.dto.RoleDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Links mined roles into a hierarchy: a role's parents are the smallest roles whose entitlements
+ * strictly contain its own, so the links are the transitive reduction of the strict-subset order
+ * (a Viewer under an Editor under an Admin, without a direct Viewer-Admin link).
+ * <p>
+ * Supersets of a role are looked for only among the roles holding its rarest entitlement, and a
+ * candidate must be larger and cover the role's 64-bit entitlement signature before the sorted
+ * entitlement lists are compared. The supersets of each role are kept as a bitset over roles, which
+ * makes the reduction a bit lookup per pair of candidate parents.
+ */
+final class RoleHierarchyBuilder {
+
+    private RoleHierarchyBuilder() {
+    }
+
+    static final class Result {
+        final int links;
+        final int roots;
+        final int depth;
+        // Candidates that passed the cardinality and signature checks and were compared in full
+        final long comparisons;
+
+        Result(int links, int roots, int depth, long comparisons) {
+            this.links = links;
+            this.roots = roots;
+            this.depth = depth;
+            this.comparisons = comparisons;
+        }
+    }
+
+    /**
+     * Set the parent and child role ids of each role. A role without entitlements is left out of the
+     * hierarchy rather than placed under every other role.
+     *
+     * @param entitlementSets sorted, distinct entitlement ordinals of each role, in the order of {@code roles}
+     */
+    static Result link(List<RoleDTO> roles, List<int[]> entitlementSets) {
+        int n = roles.size();
+        int[][] sets = entitlementSets.toArray(new int[0][]);
+
+        // Step 1: signatures, and the roles holding each entitlement
+        long[] signatures = new long[n];
+        int maxOrdinal = -1;
+        for (int r = 0; r < n; r++) {
+            for (int e : sets[r]) {
+                signatures[r] |= 1L << signatureBit(e);
+                maxOrdinal = Math.max(maxOrdinal, e);
+            }
+        }
+        int[] postingSizes = new int[maxOrdinal + 1];
+        for (int[] set : sets) {
+            for (int e : set) {
+                postingSizes[e]++;
+            }
+        }
+        int[][] postings = new int[maxOrdinal + 1][];
+        for (int e = 0; e <= maxOrdinal; e++) {
+            postings[e] = new int[postingSizes[e]];
+            postingSizes[e] = 0;
+        }
+        for (int r = 0; r < n; r++) {
+            for (int e : sets[r]) {
+                postings[e][postingSizes[e]++] = r;
+            }
+        }
+
+        // Step 2: strict supersets of each role, from its rarest entitlement's roles
+        BitSet[] supersets = new BitSet[n];
+        long comparisons = 0;
+        for (int r = 0; r < n; r++) {
+            int[] set = sets[r];
+            if (set.length == 0) {
+                continue;
+            }
+            int rarest = set[0];
+            for (int e : set) {
+                if (postings[e].length < postings[rarest].length) {
+                    rarest = e;
+                }
+            }
+            for (int candidate : postings[rarest]) {
+                if (sets[candidate].length <= set.length || (signatures[r] & ~signatures[candidate]) != 0) {
+                    continue;
+                }
+                comparisons++;
+                if (containsAll(sets[candidate], set)) {
+                    if (supersets[r] == null) {
+                        supersets[r] = new BitSet(n);
+                    }
+                    supersets[r].set(candidate);
+                }
+            }
+        }
+
+        // Step 3: parents are the supersets with no other superset of the role below them. Visiting
+        // supersets smallest first, checking against the parents found so far is enough: any superset
+        // in between would itself sit above one of them.
+        List<List<Long>> parents = new ArrayList<>(n);
+        List<List<Long>> children = new ArrayList<>(n);
+        for (int r = 0; r < n; r++) {
+            parents.add(new ArrayList<>());
+            children.add(new ArrayList<>());
+        }
+        int[][] parentIndexes = new int[n][];
+        int links = 0;
+        for (int r = 0; r < n; r++) {
+            if (supersets[r] == null) {
+                parentIndexes[r] = new int[0];
+                continue;
+            }
+            List<Integer> candidates = new ArrayList<>(supersets[r].cardinality());
+            for (int s = supersets[r].nextSetBit(0); s >= 0; s = supersets[r].nextSetBit(s + 1)) {
+                candidates.add(s);
+            }
+            candidates.sort(Comparator.comparingInt(s -> sets[s].length));
+            List<Integer> direct = new ArrayList<>();
+            for (int candidate : candidates) {
+                boolean covered = false;
+                for (int parent : direct) {
+                    if (supersets[parent] != null && supersets[parent].get(candidate)) {
+                        covered = true;
+                        break;
+                    }
+                }
+                if (!covered) {
+                    direct.add(candidate);
+                    parents.get(r).add(roles.get(candidate).getId());
+                    children.get(candidate).add(roles.get(r).getId());
+                }
+            }
+            parentIndexes[r] = direct.stream().mapToInt(Integer::intValue).toArray();
+            links += direct.size();
+        }
+
+        // Step 4: depth below the roots; parents are strictly larger, so visit largest first
+        Integer[] bySizeDescending = new Integer[n];
+        for (int r = 0; r < n; r++) {
+            bySizeDescending[r] = r;
+        }
+        Arrays.sort(bySizeDescending, (a, b) -> Integer.compare(sets[b].length, sets[a].length));
+        int[] levels = new int[n];
+        int depth = 0;
+        int roots = 0;
+        for (int r : bySizeDescending) {
+            int level = 1;
+            for (int parent : parentIndexes[r]) {
+                level = Math.max(level, levels[parent] + 1);
+            }
+            levels[r] = level;
+            depth = Math.max(depth, level);
+            if (parentIndexes[r].length == 0) {
+                roots++;
+            }
+        }
+
+        for (int r = 0; r < n; r++) {
+            roles.get(r).setParentRoleIds(parents.get(r));
+            roles.get(r).setChildRoleIds(children.get(r));
+        }
+        return new Result(links, roots, depth, comparisons);
+    }
+
+    private static int signatureBit(int entitlement) {
+        return (entitlement * 0x9E3779B9) >>> 26;
+    }
+
+    /**
+     * Whether sorted {@code superset} holds every value of sorted {@code subset}
+     */
+    private static boolean containsAll(int[] superset, int[] subset) {
+        int i = 0;
+        for (int value : subset) {
+            while (i < superset.length && superset[i] < value) {
+                i++;
+            }
+            if (i == superset.length || superset[i] != value) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+}
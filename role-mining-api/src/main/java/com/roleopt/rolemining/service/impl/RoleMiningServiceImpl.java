@@ -1,7 +1,25 @@
 package com.roleopt.rolemining.service.impl;
 
+import com.roleopt.rolemining.admission.MemoryBudget;
+import com.roleopt.rolemining.admission.MemoryEstimator;
+import com.roleopt.rolemining.ai.RoleGrounder;
+import com.roleopt.rolemining.ai.RoleStreamListener;
+import com.roleopt.rolemining.cache.MiningCacheKey;
+import com.roleopt.rolemining.cache.MiningResultCache;
 import com.roleopt.rolemining.dto.RoleDTO;
 import com.roleopt.rolemining.dto.RoleMiningFilterDTO;
+import com.roleopt.rolemining.index.AccessMatrix;
+import com.roleopt.rolemining.index.DatasetIndex;
+import com.roleopt.rolemining.index.EntitlementNameIndex;
+import com.roleopt.rolemining.index.IndexStorage;
+import com.roleopt.rolemining.index.MembershipIndex;
+import com.roleopt.rolemining.index.TfIdfModel;
+import com.roleopt.rolemining.index.UserBitmap;
+import com.roleopt.rolemining.metrics.MiningProfile;
+import com.roleopt.rolemining.metrics.MiningProfileStore;
+import com.roleopt.rolemining.metrics.PipelineMetrics;
+import com.roleopt.rolemining.metrics.StageProfile;
+import com.roleopt.rolemining.metrics.StageTimer;
 import com.roleopt.rolemining.model.*;
 import com.roleopt.rolemining.service.AIRoleSuggestionService;
 import com.roleopt.rolemining.service.RoleMiningService;
@@ -9,17 +27,26 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PreDestroy;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,11 +54,41 @@ public class RoleMiningServiceImpl implements RoleMiningService {
 
     private static final Logger log = LoggerFactory.getLogger(RoleMiningServiceImpl.class);
 
+    // Clustering algorithms selectable through RoleMiningFilterDTO.algorithm
+    private static final String ALGORITHM_EXACT = "exact";
+    private static final String ALGORITHM_SIMILARITY = "similarity";
+    
+    // Stages of performRoleMiningClustering, as reported to PipelineMetrics
+    private static final String PIPELINE_MINING = "mining";
+    private static final String STAGE_MAP_BUILD = "map_build";
+    private static final String STAGE_GROUPING = "grouping";
+    private static final String STAGE_SIMILARITY_MERGE = "similarity_merge";
+    private static final String STAGE_USER_THRESHOLD = "user_threshold";
+    private static final String STAGE_PERMISSION_THRESHOLD = "permission_threshold";
+    private static final String STAGE_APPLICATION_FILTER = "application_filter";
+    private static final String STAGE_OU_FILTER = "ou_filter";
+    private static final String STAGE_ROLE_CONSTRUCTION = "role_construction";
+    private static final String STAGE_ROLE_HIERARCHY = "role_hierarchy";
+    
+    // Words from each role's TF-IDF centroid that go into its generated name
+    private static final int ROLE_NAME_TERMS = 2;
+    
+    // Lifecycle of the background AI suggestion run, reported by getAiStatus()
+    private static final String AI_STATUS_IDLE = "IDLE";
+    private static final String AI_STATUS_RUNNING = "RUNNING";
+    private static final String AI_STATUS_READY = "READY";
+    private static final String AI_STATUS_FAILED = "FAILED";
+
     // For this demonstration, we'll use in-memory collections
     private List<RoleDTO> latestResults = new ArrayList<>();
     private List<RoleDTO> aiSuggestions = new ArrayList<>();
     
     private final AIRoleSuggestionService aiRoleSuggestionService;
+    private final MiningResultCache resultCache;
+    private final RoleGrounder roleGrounder;
+    private final PipelineMetrics pipelineMetrics;
+    private final MiningProfileStore profileStore;
+    private final MemoryBudget memoryBudget;
     
     // Maps to store uploaded data
     private Map<String, User> users = new HashMap<>();
@@ -39,9 +96,52 @@ public class RoleMiningServiceImpl implements RoleMiningService {
     private Map<String, Application> applications = new HashMap<>();
     private Map<String, Entitlement> entitlements = new HashMap<>();
     private List<Assignment> assignments = new ArrayList<>();
+    
+    // Bumped on every upload so cached results of an older dataset can never be served
+    private final AtomicLong datasetVersion = new AtomicLong();
+    
+    // Id-based lookups over the current dataset; null until the first upload
+    private volatile DatasetIndex datasetIndex;
+    
+    // Told the new version on every upload, before its index is built
+    private final List<LongConsumer> datasetListeners = new CopyOnWriteArrayList<>();
+    
+    // Where a dataset's access matrix lives unless its upload asks otherwise: heap, direct or mapped
+    @Value("${role-mining.index.storage:heap}")
+    private String indexStorage;
+    
+    @Value("${role-mining.index.mapped-dir:${java.io.tmpdir}/role-mining-index}")
+    private String indexMappedDir;
+    
+    // AI suggestions are generated in the background so a slow model never delays mining results
+    private final ExecutorService aiExecutor;
+    private final AtomicLong aiRunId = new AtomicLong();
+    private volatile String aiStatus = AI_STATUS_IDLE;
+    private volatile String aiError;
+    private volatile long aiRunDatasetVersion = -1;
 
-    public RoleMiningServiceImpl(AIRoleSuggestionService aiRoleSuggestionService) {
+    public RoleMiningServiceImpl(AIRoleSuggestionService aiRoleSuggestionService,
+                                 MiningResultCache resultCache,
+                                 RoleGrounder roleGrounder,
+                                 PipelineMetrics pipelineMetrics,
+                                 MiningProfileStore profileStore,
+                                 MemoryBudget memoryBudget) {
         this.aiRoleSuggestionService = aiRoleSuggestionService;
+        this.resultCache = resultCache;
+        this.roleGrounder = roleGrounder;
+        this.pipelineMetrics = pipelineMetrics;
+        this.profileStore = profileStore;
+        this.memoryBudget = memoryBudget;
+        this.aiExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "ai-suggestions");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        aiExecutor.shutdownNow();
     }
     
     public void setDataSources(Map<String, User> users,
@@ -49,55 +149,104 @@ public class RoleMiningServiceImpl implements RoleMiningService {
                               Map<String, Application> applications,
                               Map<String, Entitlement> entitlements,
                               List<Assignment> assignments) {
+        setDataSources(users, ous, applications, entitlements, assignments, resolveIndexStorage(null));
+    }
+    
+    public void setDataSources(Map<String, User> users,
+                              Map<String, OrganizationalUnit> ous,
+                              Map<String, Application> applications,
+                              Map<String, Entitlement> entitlements,
+                              List<Assignment> assignments,
+                              IndexStorage storage) {
         this.users = users;
         this.ous = ous;
         this.applications = applications;
         this.entitlements = entitlements;
         this.assignments = assignments;
+        
+        long version = datasetVersion.incrementAndGet();
+        resultCache.invalidateAll();
+        resetAiSuggestions();
+        datasetListeners.forEach(listener -> listener.accept(version));
+        
+        long start = System.currentTimeMillis();
+        this.datasetIndex = DatasetIndex.build(version, users, entitlements, assignments, storage);
+        long retainedBytes = MemoryEstimator.datasetBytes(users, ous, applications, entitlements, assignments, datasetIndex);
+        memoryBudget.setDatasetBytes(retainedBytes);
+        log.info("Loaded dataset version {}, indexed {} grants in {} ms, retaining ~{} MB on heap and {} MB in {} storage",
+                version, datasetIndex.getMatrix().grantCount(), System.currentTimeMillis() - start, retainedBytes >> 20,
+                datasetIndex.getMatrix().offHeapBytes() >> 20, storage);
+        log.info("Membership bitmaps: {}", datasetIndex.getMembership().getStats());
+    }
+    
+    /**
+     * Index storage for a dataset
+     *
+     * @param mode heap, direct or mapped; null or blank for the configured default
+     * @throws IllegalArgumentException for an unknown mode
+     */
+    public IndexStorage resolveIndexStorage(String mode) {
+        String selected = mode == null || mode.trim().isEmpty() ? indexStorage : mode;
+        if (selected == null) {
+            return IndexStorage.heap();
+        }
+        try {
+            return IndexStorage.of(selected, Paths.get(indexMappedDir == null ? System.getProperty("java.io.tmpdir") : indexMappedDir));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown index storage '" + selected + "', expected heap, direct or mapped");
+        }
     }
 
     @Override
-    @Transactional
     public List<RoleDTO> mineRoles(RoleMiningFilterDTO filters) {
-        log.info("Mining roles with filters: {}", filters);
+        return mineRoles(filters, profileStore.start(String.valueOf(filters)));
+    }
+
+    @Override
+    @Transactional
+    public List<RoleDTO> mineRoles(RoleMiningFilterDTO filters, MiningProfile profile) {
+        log.info("Mining run {} with filters: {}", profile.getRunId(), filters);
         
         // Instead of using mock data, perform actual role mining with clustering
         List<RoleDTO> roles;
-        if (!assignments.isEmpty() && !users.isEmpty() && !entitlements.isEmpty()) {
-            log.info("Performing real role mining with {} users, {} entitlements, and {} assignments", 
-                    users.size(), entitlements.size(), assignments.size());
-            roles = performRoleMiningClustering(filters);
-            log.info("Generated {} role(s) through clustering", roles.size());
-        } else {
-            log.warn("No data available for role mining, using mock roles as fallback");
-            roles = generateMockRoles(filters);
+        try {
+            if (!assignments.isEmpty() && !users.isEmpty() && !entitlements.isEmpty()) {
+                MiningCacheKey cacheKey = MiningCacheKey.of(datasetVersion.get(), filters, algorithmKey(filters));
+                roles = resultCache.get(cacheKey);
+                if (roles != null) {
+                    profile.setSource(MiningProfile.SOURCE_CACHE, cacheKey.getDatasetVersion(), algorithmKey(filters));
+                    log.info("Returning {} cached role(s) for dataset version {}", roles.size(), cacheKey.getDatasetVersion());
+                } else {
+                    profile.setSource(MiningProfile.SOURCE_CLUSTERING, cacheKey.getDatasetVersion(), algorithmKey(filters));
+                    log.info("Performing real role mining with {} users, {} entitlements, and {} assignments", 
+                            users.size(), entitlements.size(), assignments.size());
+                    long requiredBytes = MemoryEstimator.miningRunBytes(users.size(),
+                            datasetIndex.getMatrix().grantCount(), isSimilarityClustering(filters));
+                    try (MemoryBudget.Reservation reservation =
+                                 memoryBudget.reserve("Mining run " + profile.getRunId(), requiredBytes)) {
+                        roles = performRoleMiningClustering(filters, profile);
+                    }
+                    log.info("Generated {} role(s) through clustering", roles.size());
+                    resultCache.put(cacheKey, roles);
+                }
+            } else {
+                log.warn("No data available for role mining, using mock roles as fallback");
+                profile.setSource(MiningProfile.SOURCE_MOCK, datasetVersion.get(), algorithmKey(filters));
+                roles = generateMockRoles(filters);
+            }
+        } catch (RuntimeException e) {
+            profile.fail(e);
+            throw e;
         }
+        profile.complete(roles.size());
         
         // Store the results
         this.latestResults = roles;
         
-        // Generate AI suggestions if requested
+        // Generate AI suggestions in the background if requested; callers poll getAiStatus()
         if (filters.isUseAi()) {
             log.info("AI role suggestions requested");
-            log.info("Data status - Users: {}, Entitlements: {}, Assignments: {}", 
-                    users.size(), entitlements.size(), assignments.size());
-            
-            if (!assignments.isEmpty() && !users.isEmpty() && !entitlements.isEmpty()) {
-                try {
-                    log.info("Attempting to generate AI suggestions with real data");
-                    this.aiSuggestions = aiRoleSuggestionService.suggestRoles(users, entitlements, assignments);
-                    log.info("Successfully generated {} AI-suggested roles", this.aiSuggestions.size());
-                } catch (Exception e) {
-                    log.error("Error generating AI suggestions: {}", e.getMessage(), e);
-                    // Fallback to mock AI suggestions if there's an error
-                    this.aiSuggestions = generateMockAiSuggestions();
-                    log.info("Using mock AI suggestions due to error");
-                }
-            } else {
-                // Fallback to mock AI suggestions if no data is available
-                log.info("No data available for AI analysis, using mock suggestions");
-                this.aiSuggestions = generateMockAiSuggestions();
-            }
+            startAiSuggestions();
         } else {
             log.info("AI role suggestions not requested");
         }
@@ -105,6 +254,25 @@ public class RoleMiningServiceImpl implements RoleMiningService {
         return roles;
     }
 
+    /**
+     * Register a callback run with the new dataset version on every upload, before the new index is
+     * built, so state derived from the previous dataset can be let go first
+     */
+    public void addDatasetListener(LongConsumer listener) {
+        datasetListeners.add(listener);
+    }
+
+    public long getDatasetVersion() {
+        return datasetVersion.get();
+    }
+
+    /**
+     * Indexes of the current dataset, or null before the first upload
+     */
+    public DatasetIndex getDatasetIndex() {
+        return datasetIndex;
+    }
+
     @Override
     public List<RoleDTO> getLatestResults() {
         return latestResults;
@@ -115,6 +283,128 @@ public class RoleMiningServiceImpl implements RoleMiningService {
         return aiSuggestions;
     }
 
+    @Override
+    public Map<String, Object> getAiStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("status", aiStatus);
+        status.put("runId", aiRunId.get());
+        status.put("datasetVersion", aiRunDatasetVersion);
+        status.put("suggestions", aiSuggestions.size());
+        if (aiError != null) {
+            status.put("error", aiError);
+        }
+        return status;
+    }
+
+    /**
+     * Queue an AI suggestion run for the current dataset. A run already in progress for the same
+     * dataset is reused; a run for an older dataset is superseded and its result discarded.
+     */
+    private synchronized void startAiSuggestions() {
+        long version = datasetVersion.get();
+        if (AI_STATUS_RUNNING.equals(aiStatus) && aiRunDatasetVersion == version) {
+            log.info("AI suggestion run {} already in progress for dataset version {}", aiRunId.get(), version);
+            return;
+        }
+        
+        long runId = aiRunId.incrementAndGet();
+        aiStatus = AI_STATUS_RUNNING;
+        aiError = null;
+        aiRunDatasetVersion = version;
+        
+        // Capture the current dataset; an upload replaces these maps rather than mutating them
+        Map<String, User> runUsers = users;
+        Map<String, Entitlement> runEntitlements = entitlements;
+        List<Assignment> runAssignments = assignments;
+        DatasetIndex runIndex = datasetIndex;
+        log.info("Queued AI suggestion run {} - Users: {}, Entitlements: {}, Assignments: {}",
+                runId, runUsers.size(), runEntitlements.size(), runAssignments.size());
+        
+        aiExecutor.submit(() -> {
+            List<RoleDTO> suggestions;
+            String error = null;
+            if (!runAssignments.isEmpty() && !runUsers.isEmpty() && !runEntitlements.isEmpty()) {
+                try {
+                    suggestions = aiRoleSuggestionService.suggestRoles(runUsers, runEntitlements, runAssignments);
+                    roleGrounder.groundAll(suggestions, runIndex);
+                    log.info("AI suggestion run {} generated {} roles", runId, suggestions.size());
+                } catch (Exception e) {
+                    log.error("Error generating AI suggestions in run {}: {}", runId, e.getMessage(), e);
+                    // No placeholder roles: /ai-status reports the failure and /ai-suggest answers 502
+                    suggestions = new ArrayList<>();
+                    error = e.getMessage();
+                }
+            } else {
+                log.info("No data available for AI analysis, using mock suggestions");
+                suggestions = generateMockAiSuggestions();
+            }
+            completeAiSuggestions(runId, suggestions, error);
+        });
+    }
+    
+    /**
+     * Drop the suggestions of the previous dataset and supersede any run still generating them
+     */
+    private synchronized void resetAiSuggestions() {
+        aiRunId.incrementAndGet();
+        aiSuggestions = new ArrayList<>();
+        aiStatus = AI_STATUS_IDLE;
+        aiError = null;
+        aiRunDatasetVersion = -1;
+    }
+    
+    private synchronized void completeAiSuggestions(long runId, List<RoleDTO> suggestions, String error) {
+        if (runId != aiRunId.get()) {
+            log.info("Discarding AI suggestions of superseded run {}", runId);
+            return;
+        }
+        this.aiSuggestions = suggestions;
+        this.aiError = error;
+        this.aiStatus = error == null ? AI_STATUS_READY : AI_STATUS_FAILED;
+    }
+
+    @Override
+    public void streamAiSuggestions(RoleStreamListener listener) {
+        if (assignments.isEmpty() || users.isEmpty() || entitlements.isEmpty()) {
+            log.info("No data available for AI analysis, streaming mock suggestions");
+            List<RoleDTO> mockSuggestions = generateMockAiSuggestions();
+            this.aiSuggestions = mockSuggestions;
+            mockSuggestions.forEach(listener::onRole);
+            listener.onComplete(mockSuggestions);
+            return;
+        }
+        
+        DatasetIndex index = datasetIndex;
+        long version = index.getVersion();
+        try {
+            aiRoleSuggestionService.streamRoles(users, entitlements, assignments, new RoleStreamListener() {
+                @Override
+                public void onRole(RoleDTO role) {
+                    roleGrounder.ground(role, index);
+                    listener.onRole(role);
+                }
+                
+                @Override
+                public void onComplete(List<RoleDTO> roles) {
+                    // A dataset uploaded while the model was writing has already cleared these
+                    if (datasetVersion.get() == version) {
+                        aiSuggestions = roles;
+                    }
+                    listener.onComplete(roles);
+                }
+                
+                @Override
+                public void onError(Throwable error) {
+                    listener.onError(error);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Circuit open or no free model slot: the stream is refused before it starts
+            log.warn("AI stream refused: {}", e.getMessage());
+            listener.onError(e);
+        }
+    }
+
     @Override
     public Resource generateReport() {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
@@ -253,142 +543,161 @@ public class RoleMiningServiceImpl implements RoleMiningService {
 
     /**
      * Performs actual role mining using a simple clustering algorithm
-     * This groups users that have similar entitlements together
+     * This groups users that have similar entitlements together, working on the rows of the dataset's
+     * access matrix: groups are entitlement ordinals with user bitmaps, and ids are only looked up for
+     * the roles returned and the dropped groups the run profile keeps
      */
-    private List<RoleDTO> performRoleMiningClustering(RoleMiningFilterDTO filters) {
+    private List<RoleDTO> performRoleMiningClustering(RoleMiningFilterDTO filters, MiningProfile profile) {
         List<RoleDTO> roles = new ArrayList<>();
+        DatasetIndex index = datasetIndex;
+        List<StageProfile> stages = new ArrayList<>();
         
         log.info("Starting clustering-based role mining");
         
-        // Step 1: Create a map of user ID to their entitlements
-        Map<String, Set<String>> userEntitlements = new HashMap<>();
-        
-        for (Assignment assignment : assignments) {
-            String userId = assignment.getUser().getUserId();
-            
-            if (!userEntitlements.containsKey(userId)) {
-                userEntitlements.put(userId, new HashSet<>());
-            }
-            
-            for (Entitlement entitlement : assignment.getEntitlements()) {
-                userEntitlements.get(userId).add(entitlement.getEntitlementId());
+        // Step 1: Assign each row of the access matrix to its distinct entitlement set
+        StageTimer stage = StageTimer.start();
+        AccessMatrix matrix = index.getMatrix();
+        int userCount = matrix.userCount();
+        Map<UserGroup.Key, Integer> groupIds = new HashMap<>();
+        List<int[]> groupEntitlements = new ArrayList<>();
+        int[] groupOf = new int[userCount];
+        for (int u = 0; u < userCount; u++) {
+            int[] row = matrix.entitlementsOf(u);
+            Integer group = groupIds.putIfAbsent(new UserGroup.Key(row), groupEntitlements.size());
+            if (group == null) {
+                group = groupEntitlements.size();
+                groupEntitlements.add(row);
             }
+            groupOf[u] = group;
         }
         
-        log.info("Mapped {} users to their entitlements", userEntitlements.size());
-        
-        // Step 2: Group users by similar entitlement sets
-        Map<String, List<String>> entitlementSetToUsers = new HashMap<>();
+        addStage(stages, profile, stage.stop(STAGE_MAP_BUILD, userCount, groupEntitlements.size()));
+        log.info("Mapped {} users to {} distinct entitlement sets", userCount, groupEntitlements.size());
         
-        for (Map.Entry<String, Set<String>> entry : userEntitlements.entrySet()) {
-            String userId = entry.getKey();
-            Set<String> entitlementSet = entry.getValue();
-            
-            // Create a key for the entitlement set
-            String entitlementKey = entitlementSet.stream().sorted().collect(Collectors.joining(","));
-            
-            if (!entitlementSetToUsers.containsKey(entitlementKey)) {
-                entitlementSetToUsers.put(entitlementKey, new ArrayList<>());
-            }
-            
-            entitlementSetToUsers.get(entitlementKey).add(userId);
+        // Step 2: Group users by identical entitlement sets; filling in user order keeps each group sorted
+        stage = StageTimer.start();
+        int[] offsets = new int[groupEntitlements.size() + 1];
+        for (int group : groupOf) {
+            offsets[group + 1]++;
+        }
+        for (int g = 0; g < groupEntitlements.size(); g++) {
+            offsets[g + 1] += offsets[g];
         }
+        int[] fill = Arrays.copyOf(offsets, groupEntitlements.size());
+        int[] members = new int[userCount];
+        for (int u = 0; u < userCount; u++) {
+            members[fill[groupOf[u]]++] = u;
+        }
+        List<UserGroup> groups = new ArrayList<>(groupEntitlements.size());
+        for (int g = 0; g < groupEntitlements.size(); g++) {
+            groups.add(new UserGroup(groupEntitlements.get(g), UserBitmap.of(members, offsets[g], offsets[g + 1]), 1));
+        }
+        
+        addStage(stages, profile, stage.stop(STAGE_GROUPING, userCount, groups.size()));
+        log.info("Grouped users into {} distinct entitlement sets", groups.size());
         
-        log.info("Grouped users into {} distinct entitlement sets", entitlementSetToUsers.size());
+        // Merge near-identical sets when clustering on similarity; a merged role keeps the shared core
+        if (isSimilarityClustering(filters)) {
+            stage = StageTimer.start();
+            int groupsIn = groups.size();
+            groups = SimilarGroupMerger.merge(groups, index, filters.getSimilarityThreshold(), filters.getNameWeight());
+            StageProfile mergeStage = stage.stop(STAGE_SIMILARITY_MERGE, groupsIn, groups.size());
+            addStage(stages, profile, mergeStage);
+            log.info("Similarity clustering (threshold {}, name weight {}) left {} groups in {} ms",
+                    filters.getSimilarityThreshold(), filters.getNameWeight(), groups.size(),
+                    mergeStage.getWallNanos() / 1_000_000);
+        }
         
         // Step 3: Apply user threshold filter (only keep groups with at least minUsersPerRole)
-        entitlementSetToUsers.entrySet().removeIf(entry -> 
-                entry.getValue().size() < filters.getMinUsersPerRole());
+        stage = StageTimer.start();
+        int groupsIn = groups.size();
+        removeGroups(groups, matrix, profile, STAGE_USER_THRESHOLD, group ->
+                group.userCount() < filters.getMinUsersPerRole());
         
-        log.info("After user threshold filtering, {} groups remain", entitlementSetToUsers.size());
+        addStage(stages, profile, stage.stop(STAGE_USER_THRESHOLD, groupsIn, groups.size()));
+        log.info("After user threshold filtering, {} groups remain", groups.size());
         
         // Step 4: Apply permission threshold filter (only keep groups with at most maxPermissionsPerRole)
-        entitlementSetToUsers.entrySet().removeIf(entry -> {
-            String[] entitlementIds = entry.getKey().split(",");
-            return entitlementIds.length > filters.getMaxPermissionsPerRole() || 
-                   (entry.getKey().isEmpty() ? 0 : entitlementIds.length) == 0;
-        });
+        stage = StageTimer.start();
+        groupsIn = groups.size();
+        removeGroups(groups, matrix, profile, STAGE_PERMISSION_THRESHOLD, group ->
+                group.entitlements.length > filters.getMaxPermissionsPerRole() || group.entitlements.length == 0);
         
-        log.info("After permission threshold filtering, {} groups remain", entitlementSetToUsers.size());
+        addStage(stages, profile, stage.stop(STAGE_PERMISSION_THRESHOLD, groupsIn, groups.size()));
+        log.info("After permission threshold filtering, {} groups remain", groups.size());
         
         // Step 5: Filter by applications if specified
+        MembershipIndex membership = index.getMembership();
         if (filters.getApplications() != null && !filters.getApplications().isEmpty()) {
+            stage = StageTimer.start();
+            groupsIn = groups.size();
             Set<String> appFilterSet = new HashSet<>(filters.getApplications());
             
-            entitlementSetToUsers.entrySet().removeIf(entry -> {
-                if (entry.getKey().isEmpty()) return true;
-                
-                String[] entitlementIds = entry.getKey().split(",");
-                
-                boolean keepGroup = false;
-                for (String entitlementId : entitlementIds) {
-                    Entitlement entitlement = entitlements.get(entitlementId);
-                    if (entitlement != null && entitlement.getApplication() != null && 
-                        appFilterSet.contains(entitlement.getApplication().getApplicationId())) {
-                        keepGroup = true;
-                        break;
-                    }
-                }
-                
-                return !keepGroup;
-            });
-            
-            log.info("After application filtering, {} groups remain", entitlementSetToUsers.size());
+            // Members of an exact group all hold exactly its entitlements, so it touches the applications
+            // iff its members meet their holders. A merged group's role is the core alone, checked directly.
+            UserBitmap appUsers = UserBitmap.union(appFilterSet.stream()
+                    .map(membership::application)
+                    .collect(Collectors.toList()));
+            removeGroups(groups, matrix, profile, STAGE_APPLICATION_FILTER, group ->
+                    group.users.andCardinality(appUsers) == 0
+                            || (group.mergedGroups > 1 && !inApplications(group.entitlements, matrix, appFilterSet)));
+            
+            addStage(stages, profile, stage.stop(STAGE_APPLICATION_FILTER, groupsIn, groups.size()));
+            log.info("After application filtering, {} groups remain", groups.size());
         }
         
         // Step 6: Filter by organizational units if specified
         if (filters.getOrganizationalUnits() != null && !filters.getOrganizationalUnits().isEmpty()) {
-            Set<String> ouFilterSet = new HashSet<>(filters.getOrganizationalUnits());
+            stage = StageTimer.start();
+            groupsIn = groups.size();
+            UserBitmap ouUsers = UserBitmap.union(new HashSet<>(filters.getOrganizationalUnits()).stream()
+                    .map(membership::organizationalUnit)
+                    .collect(Collectors.toList()));
             
-            entitlementSetToUsers.entrySet().removeIf(entry -> {
-                List<String> userIds = entry.getValue();
-                
-                boolean keepGroup = false;
-                for (String userId : userIds) {
-                    User user = users.get(userId);
-                    if (user != null && user.getOrganizationalUnit() != null && 
-                        ouFilterSet.contains(user.getOrganizationalUnit().getOuId())) {
-                        keepGroup = true;
-                        break;
-                    }
-                }
-                
-                return !keepGroup;
-            });
+            removeGroups(groups, matrix, profile, STAGE_OU_FILTER, group -> group.users.andCardinality(ouUsers) == 0);
             
-            log.info("After OU filtering, {} groups remain", entitlementSetToUsers.size());
+            addStage(stages, profile, stage.stop(STAGE_OU_FILTER, groupsIn, groups.size()));
+            log.info("After OU filtering, {} groups remain", groups.size());
         }
         
         // Step 7: Create roles from the remaining groups
+        stage = StageTimer.start();
         int roleId = 1;
-        for (Map.Entry<String, List<String>> entry : entitlementSetToUsers.entrySet()) {
-            String entitlementKey = entry.getKey();
-            List<String> userIds = entry.getValue();
-            
+        List<int[]> roleEntitlementSets = new ArrayList<>();
+        Set<String> roleNames = new HashSet<>();
+        for (UserGroup group : groups) {
             RoleDTO role = new RoleDTO();
             role.setId((long) roleId++);
             
             // Get all entitlements in this group
-            List<String> entitlementIds = entitlementKey.isEmpty() ? 
-                    Collections.emptyList() : Arrays.asList(entitlementKey.split(","));
+            List<String> entitlementIds = new ArrayList<>(group.entitlements.length);
+            for (int e : group.entitlements) {
+                entitlementIds.add(matrix.entitlementId(e));
+            }
+            roleEntitlementSets.add(group.entitlements);
             
             // Use permissions to determine the role name
-            String roleName = determineRoleName(entitlementIds);
+            String baseName = determineRoleName(entitlementIds, group.entitlements, index);
+            String roleName = baseName;
+            for (int n = 2; !roleNames.add(roleName); n++) {
+                roleName = baseName + " " + n;
+            }
             role.setName(roleName);
             
             // Set user count and users with detailed information
-            role.setUserCount(userIds.size());
+            role.setUserCount(group.userCount());
             
             // Collect detailed user information with format: "UserID (FirstName LastName)"
-            List<String> userDetailsList = new ArrayList<>();
-            for (String userId : userIds) {
+            List<String> userDetailsList = new ArrayList<>(group.userCount());
+            group.users.forEach(u -> {
+                String userId = matrix.userId(u);
                 User user = users.get(userId);
                 if (user != null) {
                     String userName = user.getFirstName() + " " + user.getLastName();
                     String userDetail = userId + " (" + userName + ")";
                     userDetailsList.add(userDetail);
                 }
-            }
+            });
             role.setUsers(userDetailsList);
             
             // Set permission count and detailed permissions with format: "AppName: PermissionName"
@@ -426,85 +735,126 @@ public class RoleMiningServiceImpl implements RoleMiningService {
             role.setAiGenerated(false);
             role.setConfidence(0);
             
+            if (group.mergedGroups > 1) {
+                Map<String, Object> attributes = new HashMap<>();
+                attributes.put("mergedGroups", group.mergedGroups);
+                role.setAttributes(attributes);
+            }
+            
             roles.add(role);
             
-            log.info("Created role: {}, users: {}, permissions: {}, applications: {}", 
+            // Users and permissions are in the response; the run's profile says why groups did not become roles
+            log.debug("Created role: {}, users: {}, permissions: {}, applications: {}", 
                     roleName, role.getUserCount(), role.getPermissionCount(), role.getApplications());
-            
-            // Log the details of users and permissions for debugging
-            log.info("Role {} users: {}", roleName, role.getUsers());
-            log.info("Role {} permissions: {}", roleName, role.getPermissions());
         }
+        addStage(stages, profile, stage.stop(STAGE_ROLE_CONSTRUCTION, groups.size(), roles.size()));
+        
+        // Step 8: link roles whose permissions contain one another into a hierarchy
+        stage = StageTimer.start();
+        RoleHierarchyBuilder.Result hierarchy = RoleHierarchyBuilder.link(roles, roleEntitlementSets);
+        addStage(stages, profile, stage.stop(STAGE_ROLE_HIERARCHY, roles.size(), hierarchy.links));
+        log.info("Role hierarchy: {} links, {} root roles, depth {}, {} subset comparisons",
+                hierarchy.links, hierarchy.roots, hierarchy.depth, hierarchy.comparisons);
         
+        pipelineMetrics.recordRun(PIPELINE_MINING, stages);
+        log.info("Mining run {} stages: {}", profile.getRunId(), stages);
         return roles;
     }
 
     /**
-     * Determine a meaningful name for the role based on its entitlements
+     * Note a finished stage for the pipeline metrics and, right away, in the run's profile, so a
+     * running or failed run shows the stages it got through
+     */
+    private static void addStage(List<StageProfile> stages, MiningProfile profile, StageProfile stage) {
+        stages.add(stage);
+        profile.addStage(stage);
+    }
+
+    /**
+     * Remove the groups matching {@code drop}, noting the largest of them in the run's profile
+     */
+    private static void removeGroups(List<UserGroup> groups, AccessMatrix matrix, MiningProfile profile, String stage,
+                                     Predicate<UserGroup> drop) {
+        groups.removeIf(group -> {
+            if (!drop.test(group)) {
+                return false;
+            }
+            profile.recordDropped(stage, () -> group.key(matrix), group.userCount());
+            return true;
+        });
+    }
+
+    /**
+     * Whether any of the entitlements belongs to one of the applications
+     */
+    private boolean inApplications(int[] ordinals, AccessMatrix matrix, Set<String> applicationIds) {
+        for (int e : ordinals) {
+            Entitlement entitlement = entitlements.get(matrix.entitlementId(e));
+            if (entitlement != null && entitlement.getApplication() != null
+                    && applicationIds.contains(entitlement.getApplication().getApplicationId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String algorithmKey(RoleMiningFilterDTO filters) {
+        if (!isSimilarityClustering(filters)) {
+            return ALGORITHM_EXACT;
+        }
+        return ALGORITHM_SIMILARITY + ":" + filters.getSimilarityThreshold() + ":" + filters.getNameWeight();
+    }
+
+    private static boolean isSimilarityClustering(RoleMiningFilterDTO filters) {
+        return ALGORITHM_SIMILARITY.equalsIgnoreCase(filters.getAlgorithm());
+    }
+
+    /**
+     * Determine a meaningful name for the role based on its entitlements: the application(s) it
+     * covers followed by the most characteristic words of its entitlement names and descriptions,
+     * i.e. the top-weighted terms of the role's TF-IDF centroid ("CRM Invoice Approve").
      */
-    private String determineRoleName(List<String> entitlementIds) {
+    private String determineRoleName(List<String> entitlementIds, int[] ordinals, DatasetIndex index) {
         // If there are no entitlements, use a default name
         if (entitlementIds.isEmpty()) {
             return "Empty Role";
         }
         
-        // Get all applications involved
-        Set<String> appNames = new HashSet<>();
-        Set<String> permissionTypes = new HashSet<>();
-        
+        // Applications by number of entitlements in the role, most first
+        Map<String, Integer> appCounts = new TreeMap<>();
         for (String entitlementId : entitlementIds) {
             Entitlement entitlement = entitlements.get(entitlementId);
-            if (entitlement != null) {
-                if (entitlement.getApplication() != null) {
-                    appNames.add(entitlement.getApplication().getName());
-                }
-                
-                // Extract permission type (e.g., "View", "Edit", "Admin", etc.)
-                String name = entitlement.getName();
-                if (name != null) {
-                    // Some common patterns: AppName:Permission, Permission
-                    if (name.contains(":")) {
-                        String permission = name.substring(name.indexOf(":") + 1).trim();
-                        permissionTypes.add(permission);
-                    } else if (name.contains("View")) {
-                        permissionTypes.add("View");
-                    } else if (name.contains("Edit") || name.contains("Write")) {
-                        permissionTypes.add("Edit");
-                    } else if (name.contains("Admin") || name.contains("Manage")) {
-                        permissionTypes.add("Admin");
-                    } else if (name.contains("Read")) {
-                        permissionTypes.add("Read");
-                    }
-                }
+            if (entitlement != null && entitlement.getApplication() != null) {
+                appCounts.merge(entitlement.getApplication().getName(), 1, Integer::sum);
             }
         }
+        List<String> appNames = appCounts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
         
-        // Build the role name
         StringBuilder roleName = new StringBuilder();
-        
-        // Add applications
-        if (!appNames.isEmpty()) {
-            roleName.append(String.join("/", appNames));
-        } else {
+        if (appNames.isEmpty() || appNames.size() > 2) {
             roleName.append("Multi-App");
+        } else {
+            roleName.append(String.join("/", appNames));
         }
         
-        // Add permission types
-        if (!permissionTypes.isEmpty()) {
-            roleName.append(" ");
-            if (permissionTypes.contains("Admin") || permissionTypes.contains("Manage")) {
-                roleName.append("Administrator");
-            } else if (permissionTypes.contains("Edit") || permissionTypes.contains("Write")) {
-                roleName.append("Editor");
-            } else if (permissionTypes.contains("View") || permissionTypes.contains("Read")) {
-                roleName.append("Viewer");
-            } else {
-                roleName.append("User");
-            }
-        } else {
+        // Characteristic words, skipping those already in the application name
+        Set<String> appWords = new HashSet<>(
+                Arrays.asList(EntitlementNameIndex.normalize(String.join(" ", appNames)).split(" ")));
+        TfIdfModel tfIdf = index.getTfIdf();
+        List<String> terms = tfIdf.topTerms(tfIdf.centroid(ordinals), ROLE_NAME_TERMS + appWords.size()).stream()
+                .filter(term -> !appWords.contains(term))
+                .limit(ROLE_NAME_TERMS)
+                .collect(Collectors.toList());
+        
+        if (terms.isEmpty()) {
             roleName.append(" User");
         }
-        
+        for (String term : terms) {
+            roleName.append(' ').append(Character.toUpperCase(term.charAt(0))).append(term.substring(1));
+        }
         return roleName.toString();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,184 @@
+package com.roleopt.rolemining.service.impl;
+
+import com.roleopt.rolemining.index.AccessMatrix;
+import com.roleopt.rolemining.index.DatasetIndex;
+import com.roleopt.rolemining.index.TfIdfModel;
+import com.roleopt.rolemining.index.UserBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merges groups of users whose entitlement sets are similar rather than identical. Similarity blends
+ * access overlap and meaning: {@code (1 - nameWeight) x Jaccard + nameWeight x cosine}, the cosine
+ * taken between TF-IDF centroids of the two sets' entitlement names.
+ * <p>
+ * Groups are visited largest first and join the most similar existing cluster if it clears the
+ * threshold, otherwise they seed a new one. A merged cluster's role is the core its members share, so
+ * every member still holds every permission of the role. Candidate clusters are found through a
+ * prefix filter on the rarest entitlements of each set: two sets whose Jaccard reaches {@code t} must
+ * share one of their rarest {@code |s| - ceil(t|s|) + 1} entitlements, so most pairs are never
+ * compared.
+ * <p>
+ * Members are user bitmaps, so a merged cluster's users are the union of its groups' bitmaps.
+ */
+final class SimilarGroupMerger {
+
+    private SimilarGroupMerger() {
+    }
+
+    private static final class Cluster {
+        final int[] seed;
+        final TfIdfModel.SparseVector seedCentroid;
+        int[] core;
+        final List<UserBitmap> members = new ArrayList<>();
+        int groupCount;
+
+        Cluster(int[] seed, TfIdfModel.SparseVector seedCentroid) {
+            this.seed = seed;
+            this.seedCentroid = seedCentroid;
+            this.core = seed;
+        }
+    }
+
+    /**
+     * @param groups exact groups, one per distinct entitlement set
+     * @return the merged groups; a group's {@code mergedGroups} counts the exact groups it absorbed
+     */
+    static List<UserGroup> merge(List<UserGroup> groups, DatasetIndex index,
+                                 double threshold, double nameWeight) {
+        AccessMatrix matrix = index.getMatrix();
+        TfIdfModel tfIdf = index.getTfIdf();
+
+        // Jaccard needed to reach the threshold even with perfect name similarity
+        double minJaccard = nameWeight >= 1 ? 0 : Math.max(0, (threshold - nameWeight) / (1 - nameWeight));
+
+        List<UserGroup> ordered = new ArrayList<>(groups);
+        ordered.sort((a, b) -> a.userCount() != b.userCount()
+                ? Integer.compare(b.userCount(), a.userCount())
+                : Arrays.compare(a.entitlements, b.entitlements));
+
+        List<Cluster> clusters = new ArrayList<>();
+        Map<Integer, List<Integer>> clustersByEntitlement = new HashMap<>();
+        List<UserGroup> merged = new ArrayList<>();
+
+        for (UserGroup group : ordered) {
+            int[] entitlements = group.entitlements;
+            if (entitlements.length == 0) {
+                merged.add(group);
+                continue;
+            }
+            TfIdfModel.SparseVector centroid = tfIdf.centroid(entitlements);
+
+            Cluster best = null;
+            double bestSimilarity = -1;
+            for (int c : candidates(entitlements, matrix, minJaccard, clustersByEntitlement)) {
+                Cluster cluster = clusters.get(c);
+                double similarity = (1 - nameWeight) * jaccard(entitlements, cluster.seed)
+                        + nameWeight * centroid.cosine(cluster.seedCentroid);
+                if (similarity > bestSimilarity && intersect(cluster.core, entitlements).length > 0) {
+                    best = cluster;
+                    bestSimilarity = similarity;
+                }
+            }
+
+            if (best != null && bestSimilarity >= threshold) {
+                best.core = intersect(best.core, entitlements);
+                best.members.add(group.users);
+                best.groupCount += group.mergedGroups;
+            } else {
+                Cluster cluster = new Cluster(entitlements, centroid);
+                cluster.members.add(group.users);
+                cluster.groupCount = group.mergedGroups;
+                int id = clusters.size();
+                clusters.add(cluster);
+                for (int e : indexPrefix(entitlements, matrix, minJaccard)) {
+                    clustersByEntitlement.computeIfAbsent(e, k -> new ArrayList<>()).add(id);
+                }
+            }
+        }
+
+        // Two clusters can shrink to the same core
+        Map<UserGroup.Key, Cluster> byCore = new LinkedHashMap<>();
+        for (Cluster cluster : clusters) {
+            Cluster same = byCore.putIfAbsent(new UserGroup.Key(cluster.core), cluster);
+            if (same != null) {
+                same.members.addAll(cluster.members);
+                same.groupCount += cluster.groupCount;
+            }
+        }
+        for (Cluster cluster : byCore.values()) {
+            UserBitmap users = cluster.members.size() == 1
+                    ? cluster.members.get(0) : UserBitmap.union(cluster.members);
+            merged.add(new UserGroup(cluster.core, users, cluster.groupCount));
+        }
+        return merged;
+    }
+
+    private static Set<Integer> candidates(int[] entitlements, AccessMatrix matrix, double minJaccard,
+                                           Map<Integer, List<Integer>> clustersByEntitlement) {
+        Set<Integer> candidates = new LinkedHashSet<>();
+        for (int e : indexPrefix(entitlements, matrix, minJaccard)) {
+            List<Integer> clusterIds = clustersByEntitlement.get(e);
+            if (clusterIds != null) {
+                candidates.addAll(clusterIds);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * The rarest {@code |s| - ceil(t|s|) + 1} entitlements of the set, rarest meaning fewest holders.
+     * Without an access threshold (names alone can merge) every entitlement is in the prefix.
+     */
+    private static int[] indexPrefix(int[] entitlements, AccessMatrix matrix, double minJaccard) {
+        int length = minJaccard <= 0
+                ? entitlements.length
+                : entitlements.length - (int) Math.ceil(minJaccard * entitlements.length) + 1;
+        if (length >= entitlements.length) {
+            return entitlements;
+        }
+        Integer[] byRarity = new Integer[entitlements.length];
+        for (int i = 0; i < byRarity.length; i++) {
+            byRarity[i] = entitlements[i];
+        }
+        Arrays.sort(byRarity, (a, b) -> matrix.holderCount(a) != matrix.holderCount(b)
+                ? Integer.compare(matrix.holderCount(a), matrix.holderCount(b))
+                : Integer.compare(a, b));
+        int[] prefix = new int[Math.max(1, length)];
+        for (int i = 0; i < prefix.length; i++) {
+            prefix[i] = byRarity[i];
+        }
+        return prefix;
+    }
+
+    private static double jaccard(int[] a, int[] b) {
+        int shared = intersect(a, b).length;
+        return (double) shared / (a.length + b.length - shared);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                result[size++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
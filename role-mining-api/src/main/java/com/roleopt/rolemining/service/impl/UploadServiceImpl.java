@@ -1,98 +1,156 @@
 package com.roleopt.rolemining.service.impl;
 
+import com.roleopt.rolemining.admission.MemoryBudget;
+import com.roleopt.rolemining.admission.MemoryEstimator;
 import com.roleopt.rolemining.dto.DataSummaryDTO;
+import com.roleopt.rolemining.index.IndexStorage;
+import com.roleopt.rolemining.metrics.PipelineMetrics;
+import com.roleopt.rolemining.metrics.StageProfile;
+import com.roleopt.rolemining.metrics.StageTimer;
 import com.roleopt.rolemining.model.*;
 import com.roleopt.rolemining.service.UploadService;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.Reader;
 import java.util.*;
 
 @Service
 public class UploadServiceImpl implements UploadService {
 
     private static final Logger log = LoggerFactory.getLogger(UploadServiceImpl.class);
+    
+    private static final String PIPELINE_UPLOAD = "upload";
 
     // For this demonstration, we'll use in-memory collections
     private final Map<String, OrganizationalUnit> organizationalUnits = new HashMap<>();
-    private final Map<String, User> users = new HashMap<>();
     private final Map<String, Application> applications = new HashMap<>();
-    private final Map<String, Entitlement> entitlements = new HashMap<>();
-    private final List<Assignment> assignments = new ArrayList<>();
+    
+    // Filled while parsing, then handed to RoleMiningService, which keeps the only reference
+    private Map<String, User> users = new HashMap<>();
+    private Map<String, Entitlement> entitlements = new HashMap<>();
+    private List<Assignment> assignments = new ArrayList<>();
+    
+    // Sizes of the loaded dataset, for the data summary
+    private volatile int userCount;
+    private volatile int entitlementCount;
+    private volatile int assignmentCount;
     
     private final RoleMiningServiceImpl roleMiningService;
+    private final PipelineMetrics pipelineMetrics;
+    private final MemoryBudget memoryBudget;
     
-    public UploadServiceImpl(RoleMiningServiceImpl roleMiningService) {
+    public UploadServiceImpl(RoleMiningServiceImpl roleMiningService, PipelineMetrics pipelineMetrics,
+                             MemoryBudget memoryBudget) {
         this.roleMiningService = roleMiningService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.memoryBudget = memoryBudget;
     }
 
     @Override
     public void processFiles(MultipartFile usersFile, MultipartFile ouFile, 
                            MultipartFile applicationsFile, MultipartFile entitlementsFile,
-                           MultipartFile assignmentsFile) throws Exception {
+                           MultipartFile assignmentsFile, String indexStorage) throws Exception {
+        IndexStorage storage = roleMiningService.resolveIndexStorage(indexStorage);
+        
+        // Refuse an upload that would not fit before touching the current data. The loaded dataset
+        // and its index stay referenced until the new index is built, so they count against it.
+        long requiredBytes = estimateFeed(MemoryEstimator.FEED_OU, ouFile)
+                + estimateFeed(MemoryEstimator.FEED_USERS, usersFile)
+                + estimateFeed(MemoryEstimator.FEED_APPLICATIONS, applicationsFile)
+                + estimateFeed(MemoryEstimator.FEED_ENTITLEMENTS, entitlementsFile)
+                + estimateFeed(MemoryEstimator.FEED_ASSIGNMENTS, assignmentsFile);
+        try (MemoryBudget.Reservation reservation = memoryBudget.reserve("Upload", requiredBytes)) {
+            loadFiles(usersFile, ouFile, applicationsFile, entitlementsFile, assignmentsFile, storage);
+        }
+    }
+    
+    private void loadFiles(MultipartFile usersFile, MultipartFile ouFile,
+                           MultipartFile applicationsFile, MultipartFile entitlementsFile,
+                           MultipartFile assignmentsFile, IndexStorage storage) throws IOException {
         
         // Clear previous data
         organizationalUnits.clear();
-        users.clear();
+        users = new HashMap<>();
         applications.clear();
-        entitlements.clear();
-        assignments.clear();
+        entitlements = new HashMap<>();
+        assignments = new ArrayList<>();
+        
+        // Each file is a stage: input is its size in bytes, output the records loaded
+        List<StageProfile> stages = new ArrayList<>();
         
         // Process Organizational Units
         if (ouFile != null && !ouFile.isEmpty()) {
+            StageTimer stage = StageTimer.start();
             processOUs(ouFile);
+            stages.add(stage.stop("ou_file", ouFile.getSize(), organizationalUnits.size()));
         }
         
         // Process Users
         if (usersFile != null && !usersFile.isEmpty()) {
+            StageTimer stage = StageTimer.start();
             processUsers(usersFile);
+            stages.add(stage.stop("users_file", usersFile.getSize(), users.size()));
         }
         
         // Process Applications
         if (applicationsFile != null && !applicationsFile.isEmpty()) {
+            StageTimer stage = StageTimer.start();
             processApplications(applicationsFile);
+            stages.add(stage.stop("applications_file", applicationsFile.getSize(), applications.size()));
         }
         
         // Process Entitlements
         if (entitlementsFile != null && !entitlementsFile.isEmpty()) {
+            StageTimer stage = StageTimer.start();
             processEntitlements(entitlementsFile);
+            stages.add(stage.stop("entitlements_file", entitlementsFile.getSize(), entitlements.size()));
         }
         
         // Process Access Assignments
         if (assignmentsFile != null && !assignmentsFile.isEmpty()) {
+            StageTimer stage = StageTimer.start();
             processAssignments(assignmentsFile);
+            stages.add(stage.stop("assignments_file", assignmentsFile.getSize(), assignments.size()));
         }
         
-        // Share the data with RoleMiningService
+        // Hand the data to RoleMiningService, which builds its indexes; only the counts stay here,
+        // so users, entitlements and assignments are held once
+        userCount = users.size();
+        entitlementCount = entitlements.size();
+        assignmentCount = assignments.size();
+        StageTimer indexStage = StageTimer.start();
         roleMiningService.setDataSources(
-            new HashMap<>(users),
+            users,
             new HashMap<>(organizationalUnits),
             new HashMap<>(applications),
-            new HashMap<>(entitlements),
-            new ArrayList<>(assignments)
+            entitlements,
+            assignments,
+            storage
         );
+        users = new HashMap<>();
+        entitlements = new HashMap<>();
+        assignments = new ArrayList<>();
+        stages.add(indexStage.stop("index_build", assignmentCount, assignmentCount));
+        pipelineMetrics.recordRun(PIPELINE_UPLOAD, stages);
         
         log.info("Finished processing all files. Entities loaded: {} OUs, {} users, {} applications, {} entitlements, {} assignments",
-            organizationalUnits.size(), users.size(), applications.size(), entitlements.size(), assignments.size());
+            organizationalUnits.size(), userCount, applications.size(), entitlementCount, assignmentCount);
+        log.info("Upload stages: {}", stages);
     }
 
     @Override
     public DataSummaryDTO getDataSummary() {
         DataSummaryDTO dataSummaryDTO = new DataSummaryDTO();
-        dataSummaryDTO.setUserCount(users.size());
+        dataSummaryDTO.setUserCount(userCount);
         dataSummaryDTO.setOrganizationalUnitCount(organizationalUnits.size());
         dataSummaryDTO.setApplicationCount(applications.size());
-        dataSummaryDTO.setEntitlementCount(entitlements.size());
-        dataSummaryDTO.setAssignmentCount(assignments.size());
+        dataSummaryDTO.setEntitlementCount(entitlementCount);
+        dataSummaryDTO.setAssignmentCount(assignmentCount);
         return dataSummaryDTO;
     }
 
@@ -106,119 +164,45 @@ public class UploadServiceImpl implements UploadService {
         return organizationalUnits;
     }
 
+    /**
+     * Heap the feed will take once loaded, from its size and row count
+     */
+    private static long estimateFeed(String feed, MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            return 0;
+        }
+        try (InputStream in = file.getInputStream()) {
+            return MemoryEstimator.feedBytes(feed, MemoryEstimator.countRows(in), file.getSize());
+        }
+    }
+
     private void processOUs(MultipartFile file) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
-             CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
-            
-            for (CSVRecord record : csvParser) {
-                OrganizationalUnit ou = new OrganizationalUnit();
-                ou.setOuId(record.get("ouId"));
-                ou.setName(record.get("name"));
-                ou.setDescription(record.get("description"));
-                ou.setUsers(new ArrayList<User>());
-                
-                organizationalUnits.put(ou.getOuId(), ou);
-            }
+        try (Reader reader = CsvFeedParser.reader(file.getInputStream())) {
+            CsvFeedParser.parseOrganizationalUnits(reader, CsvFeedParser.UPLOAD_FORMAT, organizationalUnits);
         }
     }
 
     private void processUsers(MultipartFile file) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
-             CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
-            
-            for (CSVRecord record : csvParser) {
-                User user = new User();
-                user.setUserId(record.get("userId"));
-                user.setFirstName(record.get("firstName"));
-                user.setLastName(record.get("lastName"));
-                
-                String ouId = record.get("ouId");
-                OrganizationalUnit ou = organizationalUnits.get(ouId);
-                if (ou != null) {
-                    user.setOrganizationalUnit(ou);
-                    ou.getUsers().add(user);
-                }
-                
-                users.put(user.getUserId(), user);
-            }
+        try (Reader reader = CsvFeedParser.reader(file.getInputStream())) {
+            CsvFeedParser.parseUsers(reader, CsvFeedParser.UPLOAD_FORMAT, organizationalUnits, users);
         }
     }
 
     private void processApplications(MultipartFile file) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
-             CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
-            
-            for (CSVRecord record : csvParser) {
-                Application app = new Application();
-                app.setApplicationId(record.get("applicationId"));
-                app.setName(record.get("name"));
-                app.setDescription(record.get("description"));
-                app.setEntitlements(new ArrayList<Entitlement>());
-                
-                applications.put(app.getApplicationId(), app);
-            }
+        try (Reader reader = CsvFeedParser.reader(file.getInputStream())) {
+            CsvFeedParser.parseApplications(reader, CsvFeedParser.UPLOAD_FORMAT, applications);
         }
     }
 
     private void processEntitlements(MultipartFile file) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
-             CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
-            
-            for (CSVRecord record : csvParser) {
-                Entitlement entitlement = new Entitlement();
-                entitlement.setEntitlementId(record.get("entitlementId"));
-                entitlement.setName(record.get("name"));
-                entitlement.setDescription(record.get("description"));
-                
-                String applicationId = record.get("applicationId");
-                Application app = applications.get(applicationId);
-                if (app != null) {
-                    entitlement.setApplication(app);
-                    app.getEntitlements().add(entitlement);
-                }
-                
-                entitlements.put(entitlement.getEntitlementId(), entitlement);
-            }
+        try (Reader reader = CsvFeedParser.reader(file.getInputStream())) {
+            CsvFeedParser.parseEntitlements(reader, CsvFeedParser.UPLOAD_FORMAT, applications, entitlements);
         }
     }
 
     private void processAssignments(MultipartFile file) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
-             CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
-            
-            // Group assignments by userId
-            Map<String, List<String>> userAssignments = new HashMap<>();
-            
-            for (CSVRecord record : csvParser) {
-                String userId = record.get("userId");
-                String entitlementId = record.get("entitlementId");
-                
-                userAssignments.computeIfAbsent(userId, k -> new ArrayList<>()).add(entitlementId);
-            }
-            
-            // Create assignment objects
-            long assignmentId = 1;
-            for (Map.Entry<String, List<String>> entry : userAssignments.entrySet()) {
-                String userId = entry.getKey();
-                List<String> entitlementIds = entry.getValue();
-                
-                User user = users.get(userId);
-                if (user == null) continue;
-                
-                Assignment assignment = new Assignment();
-                assignment.setId(assignmentId++);
-                assignment.setUser(user);
-                assignment.setEntitlements(new ArrayList<Entitlement>());
-                
-                for (String entitlementId : entitlementIds) {
-                    Entitlement entitlement = entitlements.get(entitlementId);
-                    if (entitlement != null) {
-                        assignment.getEntitlements().add(entitlement);
-                    }
-                }
-                
-                assignments.add(assignment);
-            }
+        try (Reader reader = CsvFeedParser.reader(file.getInputStream())) {
+            CsvFeedParser.parseAssignments(reader, CsvFeedParser.UPLOAD_FORMAT, users, entitlements, assignments);
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package com.roleopt.rolemining.service.impl;
+
+import com.roleopt.rolemining.index.AccessMatrix;
+import com.roleopt.rolemining.index.UserBitmap;
+
+import java.util.Arrays;
+
+/**
+ * Users mined into one candidate role: the role's entitlements as sorted ordinals of the dataset's
+ * {@link AccessMatrix}, and its members as a bitmap of user ordinals. Ids are only looked up when a
+ * group becomes a role or is reported as dropped.
+ */
+final class UserGroup {
+
+    final int[] entitlements;
+    final UserBitmap users;
+    // Exact groups folded into this one by similarity clustering; 1 for an exact group
+    final int mergedGroups;
+
+    UserGroup(int[] entitlements, UserBitmap users, int mergedGroups) {
+        this.entitlements = entitlements;
+        this.users = users;
+        this.mergedGroups = mergedGroups;
+    }
+
+    int userCount() {
+        return users.cardinality();
+    }
+
+    /**
+     * Comma-joined entitlement ids; ordinals follow id order, so the ids come out sorted
+     */
+    String key(AccessMatrix matrix) {
+        StringBuilder key = new StringBuilder();
+        for (int e : entitlements) {
+            if (key.length() > 0) {
+                key.append(',');
+            }
+            key.append(matrix.entitlementId(e));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Sorted entitlement ordinals as a hash key, for grouping identical matrix rows
+     */
+    static final class Key {
+        final int[] entitlements;
+        private final int hash;
+
+        Key(int[] entitlements) {
+            this.entitlements = entitlements;
+            this.hash = Arrays.hashCode(entitlements);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && hash == ((Key) o).hash && Arrays.equals(entitlements, ((Key) o).entitlements);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
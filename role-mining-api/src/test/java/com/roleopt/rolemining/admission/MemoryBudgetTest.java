@@ -0,0 +1,53 @@
+package com.roleopt.rolemining.admission;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryBudgetTest {
+
+    private static final long MB = 1 << 20;
+
+    private static MemoryBudget budget(long budgetBytes, long datasetBytes) {
+        MemoryBudget budget = new MemoryBudget();
+        ReflectionTestUtils.setField(budget, "enabled", true);
+        ReflectionTestUtils.setField(budget, "budgetBytes", budgetBytes);
+        ReflectionTestUtils.setField(budget, "queueTimeoutMs", 50L);
+        budget.setDatasetBytes(datasetBytes);
+        return budget;
+    }
+
+    @Test
+    void jobThatCannotFitNextToTheDatasetIsTooLarge() {
+        MemoryBudget budget = budget(100 * MB, 60 * MB);
+
+        MemoryBudgetExceededException refusal = assertThrows(MemoryBudgetExceededException.class,
+                () -> budget.reserve("Upload", 60 * MB));
+        assertTrue(refusal.isTooLarge());
+        assertEquals(40 * MB, refusal.getAvailableBytes());
+
+        try (MemoryBudget.Reservation upload = budget.reserve("Upload", 40 * MB)) {
+            assertEquals(40 * MB, budget.getStats().get("reservedBytes"));
+        }
+        assertEquals(0L, budget.getStats().get("reservedBytes"));
+    }
+
+    @Test
+    void jobWaitsForRunningJobsThenIsRefusedAsBusy() {
+        MemoryBudget budget = budget(100 * MB, 60 * MB);
+
+        try (MemoryBudget.Reservation mining = budget.reserve("Mining run", 30 * MB)) {
+            MemoryBudgetExceededException refusal = assertThrows(MemoryBudgetExceededException.class,
+                    () -> budget.reserve("Upload", 20 * MB));
+            assertFalse(refusal.isTooLarge());
+            assertEquals(10 * MB, refusal.getAvailableBytes());
+        }
+        budget.reserve("Upload", 20 * MB).close();
+        assertEquals(2L, budget.getStats().get("admitted"));
+        assertEquals(1L, budget.getStats().get("rejectedBusy"));
+    }
+}
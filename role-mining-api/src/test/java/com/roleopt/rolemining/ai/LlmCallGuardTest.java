@@ -0,0 +1,123 @@
+package com.roleopt.rolemining.ai;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmCallGuardTest {
+
+    private static final long OPEN_DURATION_MS = 50;
+
+    private static LlmCallGuard newGuard() {
+        LlmCallGuard guard = new LlmCallGuard(2);
+        ReflectionTestUtils.setField(guard, "timeoutMs", 5000L);
+        ReflectionTestUtils.setField(guard, "maxWaitMs", 100L);
+        ReflectionTestUtils.setField(guard, "failureThreshold", 1);
+        ReflectionTestUtils.setField(guard, "openDurationMs", OPEN_DURATION_MS);
+        return guard;
+    }
+
+    private static void openCircuit(LlmCallGuard guard) throws InterruptedException {
+        assertThrows(IllegalStateException.class, () -> guard.call(() -> {
+            throw new IllegalStateException("model down");
+        }));
+        assertEquals(LlmCallGuard.CircuitState.OPEN, guard.getState());
+        Thread.sleep(2 * OPEN_DURATION_MS);
+    }
+
+    @Test
+    void openCircuitRejectsCallsUntilTheOpenPeriodEnds() {
+        LlmCallGuard guard = newGuard();
+        assertThrows(IllegalStateException.class, () -> guard.call(() -> {
+            throw new IllegalStateException("model down");
+        }));
+        LlmUnavailableException rejected = assertThrows(LlmUnavailableException.class, () -> guard.call(() -> "ok"));
+        assertEquals(LlmUnavailableException.Reason.CIRCUIT_OPEN, rejected.getReason());
+        guard.shutdown();
+    }
+
+    @Test
+    void backendGuardsTripIndependently() {
+        LlmCallGuard guard = newGuard();
+        LlmCallGuard failing = guard.forBackend("cheap");
+        assertTrue(failing == guard.forBackend("cheap"), "one guard per backend");
+
+        assertThrows(IllegalStateException.class, () -> failing.call(() -> {
+            throw new IllegalStateException("model down");
+        }));
+        assertEquals(LlmCallGuard.CircuitState.OPEN, failing.getState());
+        assertEquals("ok", guard.forBackend("accurate").call(() -> "ok"));
+        assertEquals("ok", guard.call(() -> "ok"));
+        assertEquals(LlmCallGuard.CircuitState.CLOSED, guard.getState());
+        assertTrue(guard.getStats().containsKey("backends"));
+        guard.shutdown();
+    }
+
+    @Test
+    void interruptedProbeDoesNotLeaveCircuitStuckHalfOpen() throws Exception {
+        LlmCallGuard guard = newGuard();
+        openCircuit(guard);
+
+        // The probe blocks inside the model call until its caller is interrupted
+        CountDownLatch probeStarted = new CountDownLatch(1);
+        CountDownLatch never = new CountDownLatch(1);
+        AtomicReference<Throwable> probeError = new AtomicReference<>();
+        Thread prober = new Thread(() -> {
+            try {
+                guard.call(() -> {
+                    probeStarted.countDown();
+                    never.await();
+                    return "late";
+                });
+            } catch (Throwable e) {
+                probeError.set(e);
+            }
+        });
+        prober.start();
+        assertTrue(probeStarted.await(5, TimeUnit.SECONDS), "probe never started");
+        prober.interrupt();
+        prober.join(5000);
+        assertFalse(prober.isAlive());
+        assertTrue(probeError.get() instanceof IllegalStateException, "probe should fail on interrupt");
+        assertEquals(LlmCallGuard.CircuitState.HALF_OPEN, guard.getState());
+
+        // The next call becomes the new probe and closes the circuit
+        assertEquals("ok", guard.call(() -> "ok"));
+        assertEquals(LlmCallGuard.CircuitState.CLOSED, guard.getState());
+        guard.shutdown();
+    }
+
+    @Test
+    void callCancelledBeforeItStartsReturnsItsSlot() throws Exception {
+        LlmCallGuard guard = newGuard();
+        ReflectionTestUtils.setField(guard, "timeoutMs", 50L);
+        // A single busy call thread, so the guarded call is still queued when its deadline passes
+        ExecutorService callExecutor = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        callExecutor.submit(() -> {
+            release.await();
+            return null;
+        });
+        ReflectionTestUtils.setField(guard, "callExecutor", callExecutor);
+
+        LlmUnavailableException timeout = assertThrows(LlmUnavailableException.class, () -> guard.call(() -> "never run"));
+        assertEquals(LlmUnavailableException.Reason.TIMEOUT, timeout.getReason());
+        assertEquals(2, guard.getStats().get("availableCallSlots"));
+
+        release.countDown();
+        callExecutor.shutdown();
+        assertTrue(callExecutor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(2, guard.getStats().get("availableCallSlots"));
+        guard.shutdown();
+    }
+}
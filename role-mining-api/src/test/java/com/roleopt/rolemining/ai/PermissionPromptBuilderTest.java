@@ -0,0 +1,76 @@
+package com.roleopt.rolemining.ai;
+
+import com.roleopt.rolemining.model.Application;
+import com.roleopt.rolemining.model.Assignment;
+import com.roleopt.rolemining.model.Entitlement;
+import com.roleopt.rolemining.model.OrganizationalUnit;
+import com.roleopt.rolemining.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PermissionPromptBuilderTest {
+
+    private final Map<String, User> users = new HashMap<>();
+    private final Map<String, Entitlement> entitlements = new HashMap<>();
+    private final List<Assignment> assignments = new ArrayList<>();
+    private final Application application = new Application("APP1", "Finance", null, new ArrayList<>());
+    private final OrganizationalUnit ou = new OrganizationalUnit("OU1", "Accounting", null, new ArrayList<>());
+
+    private List<Entitlement> entitlements(String prefix, int count) {
+        List<Entitlement> created = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String id = prefix + i;
+            Entitlement entitlement = new Entitlement(id, prefix + " permission " + i, null, application,
+                    new HashSet<>(), new HashSet<>());
+            entitlements.put(id, entitlement);
+            created.add(entitlement);
+        }
+        return created;
+    }
+
+    private void grant(String prefix, int userCount, List<Entitlement> held) {
+        for (int u = 0; u < userCount; u++) {
+            User user = new User(prefix + "-U" + u, "Last", "First", ou);
+            users.put(user.getUserId(), user);
+            assignments.add(new Assignment((long) assignments.size(), user, held));
+        }
+    }
+
+    @Test
+    void groupTooLargeForTheBudgetIsSkippedNotTheEnd() {
+        // The best-supported pattern has far more permissions than the budget holds
+        grant("wide", 10, entitlements("Wide", 80));
+        grant("small", 3, entitlements("Small", 2));
+        grant("tiny", 2, entitlements("Tiny", 1));
+
+        PermissionPrompt prompt = new PermissionPromptBuilder().build(users, entitlements, assignments, 150);
+
+        assertEquals(3, prompt.getTotalGroups());
+        assertEquals(2, prompt.getIncludedGroups());
+        assertEquals(5, prompt.getCoveredUsers());
+        assertFalse(prompt.getText().contains("Wide permission"));
+        assertTrue(prompt.getText().contains("Small permission 1"));
+        assertTrue(prompt.getText().contains("Tiny permission 0"));
+    }
+
+    @Test
+    void ampleBudgetIncludesEveryGroup() {
+        grant("wide", 10, entitlements("Wide", 80));
+        grant("small", 3, entitlements("Small", 2));
+
+        PermissionPrompt prompt = new PermissionPromptBuilder().build(users, entitlements, assignments, 100_000);
+
+        assertEquals(2, prompt.getIncludedGroups());
+        assertEquals(13, prompt.getCoveredUsers());
+        assertFalse(prompt.isTruncated());
+    }
+}
@@ -0,0 +1,57 @@
+package com.roleopt.rolemining.ai;
+
+import com.roleopt.rolemining.dto.RoleDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RoleSuggestionMergerTest {
+
+    private static RoleDTO role(String name, int userCount, int confidence, String... permissions) {
+        RoleDTO role = new RoleDTO();
+        role.setName(name);
+        role.setUserCount(userCount);
+        role.setConfidence(confidence);
+        role.setPermissions(Arrays.asList(permissions));
+        return role;
+    }
+
+    @Test
+    void partitionsAddUpUsers() {
+        Map<String, List<RoleDTO>> byPartition = new LinkedHashMap<>();
+        byPartition.put("Finance", Arrays.asList(role("Clerk", 10, 80, "ERP: Post", "ERP: View")));
+        byPartition.put("Sales", Arrays.asList(role("Clerk", 5, 60, "erp: view", "ERP: Post")));
+
+        List<RoleDTO> merged = RoleSuggestionMerger.merge(byPartition);
+
+        assertEquals(1, merged.size());
+        assertEquals(15, merged.get(0).getUserCount());
+        assertEquals(Arrays.asList("Finance", "Sales"), merged.get(0).getAttribute("partitions"));
+        assertNull(merged.get(0).getAttribute("models"));
+    }
+
+    @Test
+    void modelsAgreeingOnARoleDoNotMultiplyItsUsers() {
+        Map<String, List<RoleDTO>> byModel = new LinkedHashMap<>();
+        byModel.put("small", Arrays.asList(role("Clerk", 10, 80, "ERP: Post", "ERP: View"),
+                role("Auditor", 3, 70, "ERP: View")));
+        byModel.put("large", Arrays.asList(role("Accounts Clerk", 12, 90, "ERP: View", "ERP: Post")));
+
+        List<RoleDTO> merged = RoleSuggestionMerger.mergeModels(byModel);
+
+        assertEquals(2, merged.size());
+        RoleDTO clerk = merged.get(0);
+        assertEquals("Accounts Clerk", clerk.getName());
+        assertEquals(12, clerk.getUserCount());
+        assertEquals(Arrays.asList("small", "large"), clerk.getAttribute("models"));
+        assertNull(clerk.getAttribute("partitions"));
+        assertEquals(Arrays.asList("small"), merged.get(1).getAttribute("models"));
+        assertEquals(Long.valueOf(101), clerk.getId());
+    }
+}
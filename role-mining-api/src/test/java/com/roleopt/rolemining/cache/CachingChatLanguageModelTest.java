@@ -0,0 +1,55 @@
+package com.roleopt.rolemining.cache;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CachingChatLanguageModelTest {
+
+    private static LlmResponseCache newCache() throws Exception {
+        LlmResponseCache cache = new LlmResponseCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "cacheDir", Files.createTempDirectory("llm-cache").toString());
+        ReflectionTestUtils.setField(cache, "maxSizeBytes", 1_000_000L);
+        cache.init();
+        return cache;
+    }
+
+    private static int callsFor(Response<AiMessage> answer) throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CachingChatLanguageModel model = new CachingChatLanguageModel(messages -> {
+            calls.incrementAndGet();
+            return answer;
+        }, newCache(), "test", 0.0, text -> text.contains("Role 1"));
+        List<ChatMessage> prompt = Collections.singletonList(UserMessage.from("suggest roles"));
+        model.generate(prompt);
+        model.generate(prompt);
+        return calls.get();
+    }
+
+    @Test
+    void answerWithRolesIsServedFromTheCache() throws Exception {
+        assertEquals(1, callsFor(Response.from(AiMessage.from("Role 1: Clerk"))));
+    }
+
+    @Test
+    void answerWithoutRolesIsAskedForAgain() throws Exception {
+        assertEquals(2, callsFor(Response.from(AiMessage.from("I cannot help with that"))));
+    }
+
+    @Test
+    void truncatedAnswerIsAskedForAgain() throws Exception {
+        assertEquals(2, callsFor(Response.from(AiMessage.from("Role 1: Cle"), null, FinishReason.LENGTH)));
+    }
+}
@@ -0,0 +1,106 @@
+package com.roleopt.rolemining.index;
+
+import com.roleopt.rolemining.admission.MemoryEstimator;
+import com.roleopt.rolemining.model.Assignment;
+import com.roleopt.rolemining.model.Entitlement;
+import com.roleopt.rolemining.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MembershipIndexTest {
+
+    private static final int ENTITLEMENTS = 20;
+
+    private static final RandomDataset DATA = RandomDataset.generate(20_000, ENTITLEMENTS, 7L);
+    private static final AccessMatrix MATRIX = AccessMatrix.build(DATA.users, DATA.entitlements, DATA.assignments);
+    private static final MembershipIndex MEMBERSHIP = MembershipIndex.build(MATRIX, DATA.users, DATA.entitlements);
+
+    @Test
+    void applicationsAndOusMatchTheUploadedData() {
+        for (String applicationId : DATA.applications.keySet()) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (Assignment assignment : DATA.assignments) {
+                for (Entitlement entitlement : assignment.getEntitlements()) {
+                    if (applicationId.equals(entitlement.getApplication().getApplicationId())) {
+                        expected.add(MATRIX.userOrdinal(assignment.getUser().getUserId()));
+                    }
+                }
+            }
+            assertArrayEquals(toArray(expected), MEMBERSHIP.application(applicationId).toArray(), applicationId);
+            assertTrue(MEMBERSHIP.hasApplication(applicationId));
+        }
+        for (String ouId : DATA.ous.keySet()) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (User user : DATA.users.values()) {
+                if (user.getOrganizationalUnit() != null && ouId.equals(user.getOrganizationalUnit().getOuId())) {
+                    expected.add(MATRIX.userOrdinal(user.getUserId()));
+                }
+            }
+            assertArrayEquals(toArray(expected), MEMBERSHIP.organizationalUnit(ouId).toArray(), ouId);
+        }
+        assertEquals(MATRIX.userCount(), MEMBERSHIP.allUsers().cardinality());
+        assertFalse(MEMBERSHIP.hasApplication("missing"));
+        assertTrue(MEMBERSHIP.organizationalUnit("missing").isEmpty());
+    }
+
+    @Test
+    void allAndAnyMatchTheMatrix() {
+        Random random = new Random(11L);
+        for (int i = 0; i < 200; i++) {
+            int[] entitlements = random.ints(1 + random.nextInt(4), 0, ENTITLEMENTS).distinct().toArray();
+            String query = Arrays.toString(entitlements);
+            assertArrayEquals(MATRIX.usersWithAll(entitlements), MEMBERSHIP.usersWithAll(entitlements).toArray(), query);
+
+            TreeSet<Integer> any = new TreeSet<>();
+            for (int e : entitlements) {
+                for (int u : MATRIX.usersWith(e)) {
+                    any.add(u);
+                }
+            }
+            assertArrayEquals(toArray(any), MEMBERSHIP.usersWithAny(entitlements).toArray(), query);
+        }
+        assertTrue(MEMBERSHIP.usersWithAll(new int[0]).isEmpty());
+    }
+
+    @Test
+    void offHeapMatrixGivesTheSameAnswers() {
+        AccessMatrix direct = AccessMatrix.build(DATA.users, DATA.entitlements, DATA.assignments, IndexStorage.direct());
+        MembershipIndex membership = MembershipIndex.build(direct, DATA.users, DATA.entitlements);
+
+        assertEquals(MEMBERSHIP.retainedBytes() - membership.retainedBytes(), entitlementBitmapBytes(),
+                "only the entitlement bitmaps are dropped");
+        for (int e = 0; e < ENTITLEMENTS; e++) {
+            assertEquals(MEMBERSHIP.entitlement(e), membership.entitlement(e), "entitlement " + e);
+        }
+        for (String applicationId : DATA.applications.keySet()) {
+            assertEquals(MEMBERSHIP.application(applicationId), membership.application(applicationId), applicationId);
+        }
+        Random random = new Random(13L);
+        for (int i = 0; i < 50; i++) {
+            int[] entitlements = random.ints(1 + random.nextInt(4), 0, ENTITLEMENTS).distinct().toArray();
+            String query = Arrays.toString(entitlements);
+            assertEquals(MEMBERSHIP.usersWithAll(entitlements), membership.usersWithAll(entitlements), query);
+            assertEquals(MEMBERSHIP.usersWithAny(entitlements), membership.usersWithAny(entitlements), query);
+        }
+    }
+
+    private static long entitlementBitmapBytes() {
+        long bytes = MemoryEstimator.refArray(ENTITLEMENTS);
+        for (int e = 0; e < ENTITLEMENTS; e++) {
+            bytes += MEMBERSHIP.entitlement(e).sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private static int[] toArray(TreeSet<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,100 @@
+package com.roleopt.rolemining.index;
+
+import com.roleopt.rolemining.analysis.PeerOutlierAnalysis;
+import com.roleopt.rolemining.dto.UserOutlierDTO;
+import com.roleopt.rolemining.model.Assignment;
+import com.roleopt.rolemining.model.Entitlement;
+import com.roleopt.rolemining.model.User;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PeerOutlierAnalysisTest {
+
+    private static final double RARE_PEER_SHARE = 0.05;
+
+    private static final RandomDataset DATA = RandomDataset.generate(3_000, 12, 5L);
+    private static final DatasetIndex INDEX = DatasetIndex.build(1, DATA.users, DATA.entitlements, DATA.assignments);
+    private static final PeerOutlierAnalysis ANALYSIS = PeerOutlierAnalysis.build(INDEX, RARE_PEER_SHARE);
+
+    @Test
+    void scoresMatchABruteForceRecount() {
+        Map<String, Set<String>> held = new HashMap<>();
+        for (Assignment assignment : DATA.assignments) {
+            Set<String> ids = held.computeIfAbsent(assignment.getUser().getUserId(), id -> new HashSet<>());
+            for (Entitlement entitlement : assignment.getEntitlements()) {
+                ids.add(entitlement.getEntitlementId());
+            }
+        }
+
+        List<UserOutlierDTO> ranking = ANALYSIS.page(0, DATA.users.size(), null, Integer.MAX_VALUE);
+        assertEquals(DATA.users.size(), ranking.size());
+        double best = 0;
+        double previous = Double.MAX_VALUE;
+        for (UserOutlierDTO outlier : ranking) {
+            User user = DATA.users.get(outlier.getUserId());
+            String ouId = ouOf(user);
+            // Peers: every other user of the same OU, users without one compared with each other
+            int peers = 0;
+            Map<String, Integer> peerHolders = new HashMap<>();
+            for (User other : DATA.users.values()) {
+                if (other == user || !Objects.equals(ouId, ouOf(other))) {
+                    continue;
+                }
+                peers++;
+                for (String e : held.getOrDefault(other.getUserId(), new HashSet<>())) {
+                    peerHolders.merge(e, 1, Integer::sum);
+                }
+            }
+            double score = 0;
+            int rare = 0;
+            Set<String> mine = held.getOrDefault(user.getUserId(), new HashSet<>());
+            for (String e : mine) {
+                int holders = peerHolders.getOrDefault(e, 0);
+                if (peers > 0) {
+                    score += 1.0 - (double) holders / peers;
+                    rare += holders < RARE_PEER_SHARE * peers ? 1 : 0;
+                }
+            }
+
+            String label = "user " + outlier.getUserId() + " ranked " + outlier.getRank();
+            assertEquals(score, outlier.getScore(), 1e-3, label + " score");
+            assertEquals(peers, outlier.getPeerCount(), label + " peers");
+            assertEquals(mine.size(), outlier.getEntitlementCount(), label + " entitlements");
+            assertEquals(rare, outlier.getRareEntitlementCount(), label + " rare entitlements");
+            assertEquals(ouId, outlier.getOrganizationalUnit(), label + " OU");
+            assertTrue(score <= previous + 1e-4, label + " ranked below a lower score");
+            previous = score;
+            best = Math.max(best, score);
+        }
+        assertEquals(best, ranking.get(0).getScore(), 1e-3);
+    }
+
+    @Test
+    void ouPagesHoldOnlyThatOu() {
+        for (String ouId : DATA.ous.keySet()) {
+            long members = DATA.users.values().stream().filter(user -> ouId.equals(ouOf(user))).count();
+            assertEquals(members, ANALYSIS.total(ouId), ouId);
+            List<UserOutlierDTO> page = ANALYSIS.page(0, 10_000, ouId, 0);
+            assertEquals(members, page.size(), ouId);
+            for (int i = 0; i < page.size(); i++) {
+                assertEquals(ouId, page.get(i).getOrganizationalUnit());
+                assertEquals(i + 1, page.get(i).getRank());
+            }
+        }
+        assertEquals(0, ANALYSIS.total("missing"));
+    }
+
+    private static String ouOf(User user) {
+        return user.getOrganizationalUnit() == null ? null : user.getOrganizationalUnit().getOuId();
+    }
+}
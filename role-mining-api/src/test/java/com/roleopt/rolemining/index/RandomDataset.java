@@ -0,0 +1,87 @@
+package com.roleopt.rolemining.index;
+
+import com.roleopt.rolemining.model.Application;
+import com.roleopt.rolemining.model.Assignment;
+import com.roleopt.rolemining.model.Entitlement;
+import com.roleopt.rolemining.model.OrganizationalUnit;
+import com.roleopt.rolemining.model.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Seeded dataset whose entitlement columns cover every bitmap container: sparse columns end up in
+ * arrays, dense ones in bitmaps and contiguous user ranges in runs. Ids are zero-padded, so user and
+ * entitlement ordinals equal their numbers.
+ */
+final class RandomDataset {
+
+    static final int APPLICATIONS = 5;
+    static final int OUS = 7;
+
+    final Map<String, User> users = new HashMap<>();
+    final Map<String, OrganizationalUnit> ous = new HashMap<>();
+    final Map<String, Application> applications = new HashMap<>();
+    final Map<String, Entitlement> entitlements = new HashMap<>();
+    final List<Assignment> assignments = new ArrayList<>();
+
+    static RandomDataset generate(int userCount, int entitlementCount, long seed) {
+        Random random = new Random(seed);
+        RandomDataset data = new RandomDataset();
+        for (int a = 0; a < APPLICATIONS; a++) {
+            String id = String.format("A%02d", a);
+            data.applications.put(id, new Application(id, "App " + a, null, new ArrayList<>()));
+        }
+        for (int o = 0; o < OUS; o++) {
+            String id = String.format("O%02d", o);
+            data.ous.put(id, new OrganizationalUnit(id, "OU " + o, null, new ArrayList<>()));
+        }
+        Entitlement[] entitlements = new Entitlement[entitlementCount];
+        for (int e = 0; e < entitlementCount; e++) {
+            String id = String.format("E%03d", e);
+            Application application = data.applications.get(String.format("A%02d", e % APPLICATIONS));
+            entitlements[e] = new Entitlement(id, "Entitlement " + e, null, application, new HashSet<>(), new HashSet<>());
+            data.entitlements.put(id, entitlements[e]);
+        }
+
+        // Column shape by entitlement: sparse, medium, dense or one contiguous range of users
+        int[] rangeStart = new int[entitlementCount];
+        int[] rangeEnd = new int[entitlementCount];
+        for (int e = 0; e < entitlementCount; e++) {
+            rangeStart[e] = random.nextInt(userCount);
+            rangeEnd[e] = Math.min(userCount, rangeStart[e] + random.nextInt(userCount / 2 + 1));
+        }
+        for (int u = 0; u < userCount; u++) {
+            String id = String.format("U%06d", u);
+            OrganizationalUnit ou = u % 50 == 0 ? null : data.ous.get(String.format("O%02d", random.nextInt(OUS)));
+            User user = new User(id, "Last" + u, "First" + u, ou);
+            data.users.put(id, user);
+            List<Entitlement> held = new ArrayList<>();
+            for (int e = 0; e < entitlementCount; e++) {
+                boolean holds;
+                switch (e % 4) {
+                    case 0:
+                        holds = random.nextDouble() < 0.001;
+                        break;
+                    case 1:
+                        holds = random.nextDouble() < 0.05;
+                        break;
+                    case 2:
+                        holds = random.nextDouble() < 0.7;
+                        break;
+                    default:
+                        holds = u >= rangeStart[e] && u < rangeEnd[e];
+                }
+                if (holds) {
+                    held.add(entitlements[e]);
+                }
+            }
+            data.assignments.add(new Assignment((long) u, user, held));
+        }
+        return data;
+    }
+}
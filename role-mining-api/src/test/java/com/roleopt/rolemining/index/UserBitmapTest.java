@@ -0,0 +1,137 @@
+package com.roleopt.rolemining.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserBitmapTest {
+
+    // More than one 65536-user chunk, so operations also meet chunks missing on one side
+    private static final int USERS = 150_000;
+    private static final int ENTITLEMENTS = 16;
+
+    private static final AccessMatrix MATRIX;
+
+    static {
+        RandomDataset data = RandomDataset.generate(USERS, ENTITLEMENTS, 42L);
+        MATRIX = AccessMatrix.build(data.users, data.entitlements, data.assignments);
+    }
+
+    private static UserBitmap column(int e) {
+        return UserBitmap.of(MATRIX.usersWith(e));
+    }
+
+    @Test
+    void columnsCoverEveryContainerKind() {
+        Map<String, Integer> containers = new HashMap<>();
+        for (int e = 0; e < ENTITLEMENTS; e++) {
+            column(e).countContainers(containers);
+        }
+        for (String kind : new String[]{"array", "bitmap", "run"}) {
+            assertTrue(containers.getOrDefault(kind, 0) > 0, "no " + kind + " container in " + containers);
+        }
+    }
+
+    @Test
+    void columnsRoundTrip() {
+        for (int e = 0; e < ENTITLEMENTS; e++) {
+            UserBitmap bitmap = column(e);
+            int[] users = MATRIX.usersWith(e);
+            assertArrayEquals(users, bitmap.toArray(), "column " + e);
+            assertEquals(MATRIX.holderCount(e), bitmap.cardinality(), "cardinality of column " + e);
+            assertEquals(bitmap, UserBitmap.of(bitmap.toArray()));
+            for (int u = 0; u < USERS; u += 97) {
+                assertEquals(Arrays.binarySearch(users, u) >= 0, bitmap.contains(u), "user " + u + " in column " + e);
+            }
+        }
+    }
+
+    @Test
+    void setOperationsMatchMergedColumns() {
+        for (int a = 0; a < ENTITLEMENTS; a++) {
+            for (int b = 0; b < ENTITLEMENTS; b++) {
+                int[] left = MATRIX.usersWith(a);
+                int[] right = MATRIX.usersWith(b);
+                String pair = "columns " + a + " and " + b;
+                assertArrayEquals(MATRIX.usersWithAll(new int[]{a, b}), column(a).and(column(b)).toArray(), pair);
+                assertEquals(MATRIX.usersWithAll(new int[]{a, b}).length, column(a).andCardinality(column(b)), pair);
+                assertArrayEquals(or(left, right), column(a).or(column(b)).toArray(), pair);
+                assertArrayEquals(andNot(left, right), column(a).andNot(column(b)).toArray(), pair);
+            }
+        }
+    }
+
+    @Test
+    void unionMatchesMergedColumns() {
+        List<UserBitmap> bitmaps = new ArrayList<>();
+        int[] expected = new int[0];
+        for (int e = 0; e < ENTITLEMENTS; e++) {
+            bitmaps.add(column(e));
+            expected = or(expected, MATRIX.usersWith(e));
+            assertArrayEquals(expected, UserBitmap.union(bitmaps).toArray(), "union of the first " + (e + 1) + " columns");
+        }
+        assertEquals(UserBitmap.empty(), UserBitmap.union(new ArrayList<>()));
+    }
+
+    @Test
+    void pagesAreSlicesOfTheColumn() {
+        for (int e = 0; e < ENTITLEMENTS; e++) {
+            int[] users = MATRIX.usersWith(e);
+            UserBitmap bitmap = column(e);
+            for (int offset : new int[]{0, 1, 4095, 4096, 65_536, users.length - 1, users.length}) {
+                if (offset < 0) {
+                    continue;
+                }
+                int from = Math.min(offset, users.length);
+                int[] expected = Arrays.copyOfRange(users, from, Math.min(users.length, from + 1000));
+                List<Integer> page = new ArrayList<>();
+                bitmap.forEach(offset, 1000, page::add);
+                assertArrayEquals(expected, page.stream().mapToInt(Integer::intValue).toArray(),
+                        "column " + e + " from " + offset);
+            }
+        }
+    }
+
+    @Test
+    void denseAndRangeColumnsTakeLessRoomThanOrdinals() {
+        // RandomDataset makes every fourth column from the third dense, and every fourth from the fourth a range
+        for (int e = 2; e < ENTITLEMENTS; e++) {
+            if (e % 4 < 2) {
+                continue;
+            }
+            UserBitmap bitmap = column(e);
+            assertTrue(bitmap.sizeInBytes() < 4L * bitmap.cardinality() || bitmap.cardinality() < 64,
+                    "column " + e + " of " + bitmap.cardinality() + " users takes " + bitmap.sizeInBytes() + " bytes");
+        }
+    }
+
+    private static int[] or(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                result[size++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                result[size++] = b[j++];
+            } else {
+                result[size++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static int[] andNot(int[] a, int[] b) {
+        return Arrays.stream(a).filter(value -> Arrays.binarySearch(b, value) < 0).toArray();
+    }
+}
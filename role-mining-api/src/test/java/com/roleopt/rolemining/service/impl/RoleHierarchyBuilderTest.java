@@ -0,0 +1,143 @@
+package com.roleopt.rolemining.service.impl;
+
+import com.roleopt.rolemining.dto.RoleDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RoleHierarchyBuilderTest {
+
+    @Test
+    void linksOnlyTheNearestSupersets() {
+        List<RoleDTO> roles = roles(3);
+        List<int[]> sets = Arrays.asList(new int[]{1}, new int[]{1, 2}, new int[]{1, 2, 3});
+
+        RoleHierarchyBuilder.Result result = RoleHierarchyBuilder.link(roles, sets);
+
+        assertEquals(Arrays.asList(2L), roles.get(0).getParentRoleIds());
+        assertEquals(Arrays.asList(3L), roles.get(1).getParentRoleIds());
+        assertEquals(Arrays.asList(2L), roles.get(2).getChildRoleIds());
+        assertEquals(2, result.links);
+        assertEquals(1, result.roots);
+        assertEquals(3, result.depth);
+    }
+
+    @Test
+    void leavesRolesWithoutEntitlementsUnlinked() {
+        List<RoleDTO> roles = roles(2);
+        RoleHierarchyBuilder.Result result = RoleHierarchyBuilder.link(roles, Arrays.asList(new int[0], new int[]{4}));
+
+        assertEquals(new ArrayList<Long>(), roles.get(0).getParentRoleIds());
+        assertEquals(new ArrayList<Long>(), roles.get(1).getChildRoleIds());
+        assertEquals(0, result.links);
+        assertEquals(2, result.roots);
+    }
+
+    @Test
+    void matchesBruteForceOnRandomRoles() {
+        Random random = new Random(3L);
+        for (int trial = 0; trial < 50; trial++) {
+            // Sets carved out of a few bases, so many are subsets of one another; ordinals past 64 share signature bits
+            List<int[]> sets = new ArrayList<>();
+            int[][] bases = new int[1 + random.nextInt(4)][];
+            for (int b = 0; b < bases.length; b++) {
+                bases[b] = random.ints(2 + random.nextInt(12), 0, 300).sorted().distinct().toArray();
+            }
+            int roleCount = 5 + random.nextInt(60);
+            for (int r = 0; r < roleCount; r++) {
+                int[] base = bases[random.nextInt(bases.length)];
+                double keep = 0.3 + random.nextDouble() * 0.7;
+                int[] set = Arrays.stream(base).filter(e -> random.nextDouble() < keep).toArray();
+                sets.add(set.length > 0 ? set : new int[]{base[0]});
+            }
+            List<RoleDTO> roles = roles(roleCount);
+
+            RoleHierarchyBuilder.Result result = RoleHierarchyBuilder.link(roles, sets);
+
+            int links = 0;
+            int roots = 0;
+            int[] levels = new int[roleCount];
+            int depth = 0;
+            for (int r = 0; r < roleCount; r++) {
+                Set<Long> parents = bruteForceParents(r, sets);
+                Set<Long> children = new TreeSet<>();
+                for (int c = 0; c < roleCount; c++) {
+                    if (bruteForceParents(c, sets).contains((long) r + 1)) {
+                        children.add((long) c + 1);
+                    }
+                }
+                String role = "trial " + trial + " role " + (r + 1) + " " + Arrays.toString(sets.get(r));
+                assertEquals(parents, new TreeSet<>(roles.get(r).getParentRoleIds()), role + " parents");
+                assertEquals(children, new TreeSet<>(roles.get(r).getChildRoleIds()), role + " children");
+                links += parents.size();
+                roots += parents.isEmpty() ? 1 : 0;
+                depth = Math.max(depth, level(r, sets, levels));
+            }
+            assertEquals(links, result.links, "trial " + trial + " links");
+            assertEquals(roots, result.roots, "trial " + trial + " roots");
+            assertEquals(depth, result.depth, "trial " + trial + " depth");
+        }
+    }
+
+    private static List<RoleDTO> roles(int count) {
+        List<RoleDTO> roles = new ArrayList<>();
+        for (int r = 0; r < count; r++) {
+            RoleDTO role = new RoleDTO();
+            role.setId((long) r + 1);
+            roles.add(role);
+        }
+        return roles;
+    }
+
+    /**
+     * Ids of the strict supersets of role r with no other strict superset of r strictly inside them
+     */
+    private static Set<Long> bruteForceParents(int r, List<int[]> sets) {
+        Set<Long> parents = new TreeSet<>();
+        for (int s = 0; s < sets.size(); s++) {
+            if (!strictSubset(sets.get(r), sets.get(s))) {
+                continue;
+            }
+            boolean direct = true;
+            for (int t = 0; t < sets.size() && direct; t++) {
+                direct = !(strictSubset(sets.get(r), sets.get(t)) && strictSubset(sets.get(t), sets.get(s)));
+            }
+            if (direct) {
+                parents.add((long) s + 1);
+            }
+        }
+        return parents;
+    }
+
+    private static int level(int r, List<int[]> sets, int[] levels) {
+        if (levels[r] == 0) {
+            int level = 1;
+            for (long parent : bruteForceParents(r, sets)) {
+                level = Math.max(level, level((int) parent - 1, sets, levels) + 1);
+            }
+            levels[r] = level;
+        }
+        return levels[r];
+    }
+
+    private static boolean strictSubset(int[] subset, int[] superset) {
+        Set<Integer> values = new HashSet<>();
+        for (int e : superset) {
+            values.add(e);
+        }
+        for (int e : subset) {
+            if (!values.contains(e)) {
+                return false;
+            }
+        }
+        return subset.length < superset.length;
+    }
+}
@@ -77,7 +77,8 @@ function App() {
         headers: {
           'Content-Type': 'application/json',
         },
-        body: JSON.stringify(config),
+        // AI suggestions are streamed separately by the results page
+        body: JSON.stringify({ ...config, useAi: false }),
       });
       
       if (!response.ok) {
@@ -109,7 +110,7 @@ function App() {
       case 2:
         return <RoleMining onSubmit={handleConfigureRoleMining} onBack={handleBack} />;
       case 3:
-        return <RoleMiningResults results={miningResults} onBack={handleBack} />;
+        return <RoleMiningResults results={miningResults} aiEnabled={miningConfig.useAi} onBack={handleBack} />;
       default:
         return 'Unknown step';
     }
@@ -55,6 +55,8 @@ const RoleMining = ({ onSubmit, onBack }) => {
     organizationalUnits: [],
     minUsersPerRole: 2,
     maxPermissionsPerRole: 10,
+    algorithm: 'exact',
+    similarityThreshold: 0.8,
   });
   
   const [useAi, setUseAi] = useState(true);
@@ -130,6 +132,26 @@ const RoleMining = ({ onSubmit, onBack }) => {
     });
   };
   
+  const handleAlgorithmChange = (event) => {
+    setFilters({
+      ...filters,
+      algorithm: event.target.value,
+    });
+  };
+  
+  const handleThresholdChange = (event) => {
+    let value = parseFloat(event.target.value);
+    
+    if (isNaN(value)) {
+      value = 0;
+    }
+    
+    setFilters({
+      ...filters,
+      similarityThreshold: value,
+    });
+  };
+  
   const validateForm = () => {
     const errors = {};
     
@@ -141,6 +163,10 @@ const RoleMining = ({ onSubmit, onBack }) => {
       errors.maxPermissionsPerRole = 'Must be at least 1';
     }
     
+    if (filters.similarityThreshold < 0 || filters.similarityThreshold > 1) {
+      errors.similarityThreshold = 'Must be between 0 and 1';
+    }
+    
     setValidationErrors(errors);
     return Object.keys(errors).length === 0;
   };
@@ -294,6 +320,44 @@ const RoleMining = ({ onSubmit, onBack }) => {
             helperText={validationErrors.maxPermissionsPerRole || "Maximum number of permissions to include in a single role"}
           />
         </Grid>
+        
+        <Grid item xs={12} md={6}>
+          <Typography variant="subtitle1" gutterBottom>
+            Grouping
+          </Typography>
+          <FormControl fullWidth>
+            <Select
+              id="algorithm"
+              value={filters.algorithm}
+              onChange={handleAlgorithmChange}
+            >
+              <MenuItem value="exact">Identical permissions</MenuItem>
+              <MenuItem value="similarity">Similar permissions</MenuItem>
+            </Select>
+            <FormHelperText>
+              Similar grouping also merges users whose permissions overlap strongly or have closely related names
+            </FormHelperText>
+          </FormControl>
+        </Grid>
+        
+        {filters.algorithm === 'similarity' && (
+          <Grid item xs={12} md={6}>
+            <Typography variant="subtitle1" gutterBottom>
+              Similarity Threshold
+            </Typography>
+            <TextField
+              id="similarity-threshold"
+              name="similarityThreshold"
+              type="number"
+              value={filters.similarityThreshold}
+              onChange={handleThresholdChange}
+              fullWidth
+              InputProps={{ inputProps: { min: 0, max: 1, step: 0.05 } }}
+              error={!!validationErrors.similarityThreshold}
+              helperText={validationErrors.similarityThreshold || "How alike two permission sets must be to form one role (0 to 1)"}
+            />
+          </Grid>
+        )}
       </Grid>
       
       <Divider className={classes.divider} />
@@ -217,7 +217,7 @@ const getConfidenceColor = (confidence) => {
   return red[500];
 };
 
-const RoleMiningResults = ({ results, onBack }) => {
+const RoleMiningResults = ({ results, aiEnabled, onBack }) => {
   const classes = useStyles();
   const [tabValue, setTabValue] = useState(0);
   const [downloadingReport, setDownloadingReport] = useState(false);
@@ -225,35 +225,111 @@ const RoleMiningResults = ({ results, onBack }) => {
   const [selectedRole, setSelectedRole] = useState(null);
   const [aiSuggestedRoles, setAiSuggestedRoles] = useState([]);
   const [loading, setLoading] = useState(false);
+  const [streaming, setStreaming] = useState(false);
   const [error, setError] = useState(null);
   const [addingToIdentityManager, setAddingToIdentityManager] = useState(false);
 
   // Fetch AI-suggested roles from the API
   useEffect(() => {
+    let cancelled = false;
+    let pollTimer = null;
+
+    // 202 means a background run is still going: poll its status, then fetch once it is done
     const fetchAiSuggestions = async () => {
       setLoading(true);
       try {
         const response = await axios.get('http://localhost:8080/api/role-mining/ai-suggest');
+        if (cancelled) return;
+        if (response.status === 202) {
+          pollTimer = setTimeout(pollAiStatus, 2000);
+          return;
+        }
         console.log('AI suggestions response:', response.data);
         setAiSuggestedRoles(response.data);
         setError(null);
+        setLoading(false);
       } catch (err) {
+        if (cancelled) return;
         console.error('Error fetching AI suggestions:', err);
+        setAiSuggestedRoles([]);
+        setError('Failed to load AI suggestions. Please try again later.');
+        setLoading(false);
+      }
+    };
+
+    const pollAiStatus = async () => {
+      try {
+        const response = await axios.get('http://localhost:8080/api/role-mining/ai-status');
+        if (cancelled) return;
+        if (response.data.status === 'RUNNING') {
+          pollTimer = setTimeout(pollAiStatus, 2000);
+        } else {
+          fetchAiSuggestions();
+        }
+      } catch (err) {
+        if (cancelled) return;
+        console.error('Error polling AI status:', err);
         setError('Failed to load AI suggestions. Please try again later.');
-        // Fallback to mock data if API call fails
-        setAiSuggestedRoles([
-          { id: 101, name: 'AI Role 1 - Sales Team', userCount: 18, applications: ['CRM', 'Document Management', 'Email System'], permissionCount: 6, confidence: 92 },
-          { id: 102, name: 'AI Role 2 - Finance Staff', userCount: 9, applications: ['Finance System', 'ERP System'], permissionCount: 8, confidence: 88 },
-          { id: 103, name: 'AI Role 3 - HR Team', userCount: 7, applications: ['HR Portal', 'Document Management'], permissionCount: 5, confidence: 79 },
-        ]);
-      } finally {
         setLoading(false);
       }
     };
 
-    // Call the function to fetch AI suggestions
-    fetchAiSuggestions();
-  }, []);  // Empty dependency array means this runs once when component mounts
+    if (!aiEnabled || !window.EventSource) {
+      fetchAiSuggestions();
+      return () => {
+        cancelled = true;
+        clearTimeout(pollTimer);
+      };
+    }
+
+    // Stream roles as the model writes them instead of waiting for the whole answer
+    setLoading(true);
+    setStreaming(true);
+    setError(null);
+    setAiSuggestedRoles([]);
+    const source = new EventSource('http://localhost:8080/api/role-mining/ai-suggest/stream');
+    let received = 0;
+
+    // Keep the roles already streamed; never substitute suggestions from an earlier dataset
+    const stopStreaming = (message) => {
+      source.close();
+      setStreaming(false);
+      setLoading(false);
+      setError(received === 0
+        ? `AI suggestions failed: ${message || 'the stream was interrupted'}`
+        : `AI suggestions stopped after ${received} roles: ${message || 'the stream was interrupted'}`);
+    };
+
+    source.addEventListener('role', (event) => {
+      const role = JSON.parse(event.data);
+      received += 1;
+      setAiSuggestedRoles((previous) => [...previous, role]);
+      setLoading(false);
+    });
+
+    source.addEventListener('complete', () => {
+      source.close();
+      setStreaming(false);
+      setLoading(false);
+    });
+
+    source.addEventListener('failure', (event) => {
+      console.error('AI suggestion stream failed:', event.data);
+      stopStreaming(event.data);
+    });
+
+    // Connection-level error (server unreachable, stream dropped); stop EventSource from reconnecting
+    source.onerror = () => {
+      if (source.readyState !== EventSource.CLOSED) {
+        stopStreaming();
+      }
+    };
+
+    return () => {
+      cancelled = true;
+      source.close();
+    };
+  }, [aiEnabled]);
 
   const handleTabChange = (event, newValue) => {
     setTabValue(newValue);
@@ -461,7 +537,7 @@ const RoleMiningResults = ({ results, onBack }) => {
             <Box display="flex" justifyContent="center" alignItems="center" p={4}>
               <CircularProgress />
             </Box>
-          ) : error ? (
+          ) : error && aiSuggestedRoles.length === 0 ? (
             <Alert severity="error" style={{ marginBottom: '16px' }}>
               {error}
             </Alert>
@@ -470,7 +546,22 @@ const RoleMiningResults = ({ results, onBack }) => {
               No AI suggestions available. Try running role mining with AI enabled.
             </Alert>
           ) : (
-            renderRolesAsCards(aiSuggestedRoles, true)
+            <>
+              {error && (
+                <Alert severity="warning" style={{ marginBottom: '16px' }}>
+                  {error}
+                </Alert>
+              )}
+              {renderRolesAsCards(aiSuggestedRoles, true)}
+              {streaming && (
+                <Box display="flex" justifyContent="center" alignItems="center" p={2}>
+                  <CircularProgress size={24} />
+                  <Typography variant="body2" color="textSecondary" style={{ marginLeft: 8 }}>
+                    Receiving more AI suggestions...
+                  </Typography>
+                </Box>
+              )}
+            </>
           )}
         </TabPanel>
         
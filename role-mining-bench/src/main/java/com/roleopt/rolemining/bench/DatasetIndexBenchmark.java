@@ -0,0 +1,113 @@
+package com.roleopt.rolemining.bench;
+
+import com.roleopt.rolemining.index.AccessMatrix;
+import com.roleopt.rolemining.index.DatasetIndex;
+import com.roleopt.rolemining.index.IndexStorage;
+import com.roleopt.rolemining.index.MembershipIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the {@link DatasetIndex} that clustering, similarity merging and grounding read from:
+ * the user x entitlement access matrix, the entitlement name index and the TF-IDF model. This is
+ * the work done once per upload, before any mining run.
+ * <p>
+ * {@code storage} puts the matrix on the heap or in direct or mapped buffers; {@code lookup} reads
+ * it back (an id lookup, a column and a two-column intersection per operation) to show what
+ * off-heap access costs. {@code bitmapLookup} asks the same questions of the compressed holder
+ * bitmaps, kept on the heap next to a heap matrix and decoded from the columns per call otherwise.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class DatasetIndexBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int users;
+
+    @Param({"0.0", "1.1"})
+    public double skew;
+
+    @Param({"heap", "direct", "mapped"})
+    public String storage;
+
+    // Entitlement id pairs probed by lookup, drawn once so every storage answers the same questions
+    private static final int LOOKUPS = 1024;
+
+    private SyntheticDataset data;
+    private Path mappedDirectory;
+    private IndexStorage indexStorage;
+    private AccessMatrix matrix;
+    private MembershipIndex membership;
+    private String[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = SyntheticDataset.generate(users, skew, 42L);
+        mappedDirectory = Files.createTempDirectory("index-bench");
+        indexStorage = IndexStorage.of(storage, mappedDirectory);
+        DatasetIndex index = DatasetIndex.build(1L, data.users, data.entitlements, data.assignments, indexStorage);
+        matrix = index.getMatrix();
+        membership = index.getMembership();
+
+        String[] entitlementIds = data.entitlements.keySet().toArray(new String[0]);
+        Random random = new Random(42L);
+        probes = new String[2 * LOOKUPS];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = entitlementIds[random.nextInt(entitlementIds.length)];
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        // Mapped files are unlinked when created; only the directory is left
+        Files.deleteIfExists(mappedDirectory);
+    }
+
+    @Benchmark
+    public DatasetIndex build() {
+        return DatasetIndex.build(1L, data.users, data.entitlements, data.assignments, indexStorage);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int lookup() {
+        int i = next;
+        next = (i + 2) % probes.length;
+        int a = matrix.entitlementOrdinal(probes[i]);
+        int b = matrix.entitlementOrdinal(probes[i + 1]);
+        return matrix.usersWith(a).length + matrix.usersWithAll(new int[]{a, b}).length;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int bitmapLookup() {
+        int i = next;
+        next = (i + 2) % probes.length;
+        int a = matrix.entitlementOrdinal(probes[i]);
+        int b = matrix.entitlementOrdinal(probes[i + 1]);
+        return membership.entitlement(a).cardinality()
+                + membership.entitlement(a).andCardinality(membership.entitlement(b));
+    }
+}
@@ -0,0 +1,234 @@
+package com.roleopt.rolemining.bench;
+
+import com.roleopt.rolemining.datagen.CsvAccessDataSink;
+import com.roleopt.rolemining.datagen.DatasetSpec;
+import com.roleopt.rolemining.datagen.SyntheticDataGenerator;
+import com.roleopt.rolemining.model.Application;
+import com.roleopt.rolemining.model.Assignment;
+import com.roleopt.rolemining.model.Entitlement;
+import com.roleopt.rolemining.model.OrganizationalUnit;
+import com.roleopt.rolemining.model.User;
+import com.roleopt.rolemining.service.impl.CsvFeedParser;
+import org.apache.commons.csv.CSVFormat;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Each of the five upload feed parsers on generated feeds, by size, delimiter and byte source:
+ * {@code multipart} reads through {@code MultipartFile.getInputStream()} as an upload does (from
+ * memory, without the container's spooling of large parts), {@code file} straight from a local file.
+ * <p>
+ * Besides time per parse, the {@code rows} and {@code bytes} counters give rows/s and bytes/s.
+ * Allocation per row is {@code gc.alloc.rate.norm} divided by the rows of one parse, which the
+ * setup prints.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class FeedParserBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int users;
+
+    @Param({"comma", "semicolon", "tab"})
+    public String delimiter;
+
+    @Param({"multipart", "file"})
+    public String source;
+
+    private Path directory;
+    private CSVFormat format;
+    private final Map<String, Feed> feeds = new HashMap<>();
+
+    // Parsed once, for the feeds that refer to them
+    private final Map<String, OrganizationalUnit> organizationalUnits = new HashMap<>();
+    private final Map<String, Application> applications = new HashMap<>();
+    private final Map<String, User> userMap = new HashMap<>();
+    private final Map<String, Entitlement> entitlements = new HashMap<>();
+
+    /**
+     * Rows and bytes parsed, reported by JMH as rates next to the primary result.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Volume {
+        public long rows;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+            bytes = 0;
+        }
+    }
+
+    private static final class Feed {
+        final Path path;
+        final byte[] content;
+        final MockMultipartFile multipart;
+        final long rows;
+
+        Feed(Path path, byte[] content, long rows) {
+            this.path = path;
+            this.content = content;
+            this.multipart = new MockMultipartFile(path.getFileName().toString(), content);
+            this.rows = rows;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        char separator = separator(delimiter);
+        format = CsvFeedParser.format(separator);
+        directory = Files.createTempDirectory("feed-bench");
+        SyntheticDataGenerator.writeCsv(DatasetSpec.forUsers(users), directory);
+
+        for (String file : new String[]{CsvAccessDataSink.OU_FILE, CsvAccessDataSink.USERS_FILE,
+                CsvAccessDataSink.APPLICATIONS_FILE, CsvAccessDataSink.ENTITLEMENTS_FILE,
+                CsvAccessDataSink.ASSIGNMENTS_FILE}) {
+            Path path = directory.resolve(file);
+            byte[] content = Files.readAllBytes(path);
+            // Generated fields never contain commas, so swapping the byte is enough
+            long rows = -1;
+            for (int i = 0; i < content.length; i++) {
+                if (content[i] == ',') {
+                    content[i] = (byte) separator;
+                } else if (content[i] == '\n') {
+                    rows++;
+                }
+            }
+            Files.write(path, content);
+            feeds.put(file, new Feed(path, content, rows));
+            System.out.printf("%s: %,d rows, %,d bytes%n", file, rows, content.length);
+        }
+
+        try (Reader reader = open(CsvAccessDataSink.OU_FILE)) {
+            CsvFeedParser.parseOrganizationalUnits(reader, format, organizationalUnits);
+        }
+        try (Reader reader = open(CsvAccessDataSink.APPLICATIONS_FILE)) {
+            CsvFeedParser.parseApplications(reader, format, applications);
+        }
+        try (Reader reader = open(CsvAccessDataSink.USERS_FILE)) {
+            CsvFeedParser.parseUsers(reader, format, organizationalUnits, userMap);
+        }
+        try (Reader reader = open(CsvAccessDataSink.ENTITLEMENTS_FILE)) {
+            CsvFeedParser.parseEntitlements(reader, format, applications, entitlements);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public Map<String, OrganizationalUnit> parseOrganizationalUnits(Volume volume) throws IOException {
+        Map<String, OrganizationalUnit> parsed = new HashMap<>();
+        try (Reader reader = open(CsvAccessDataSink.OU_FILE)) {
+            CsvFeedParser.parseOrganizationalUnits(reader, format, parsed);
+        }
+        count(volume, CsvAccessDataSink.OU_FILE);
+        return parsed;
+    }
+
+    @Benchmark
+    public Map<String, User> parseUsers(Volume volume) throws IOException {
+        // Users are linked into their OU; start from empty member lists so they do not pile up
+        for (OrganizationalUnit ou : organizationalUnits.values()) {
+            ou.setUsers(new ArrayList<User>());
+        }
+        Map<String, User> parsed = new HashMap<>();
+        try (Reader reader = open(CsvAccessDataSink.USERS_FILE)) {
+            CsvFeedParser.parseUsers(reader, format, organizationalUnits, parsed);
+        }
+        count(volume, CsvAccessDataSink.USERS_FILE);
+        return parsed;
+    }
+
+    @Benchmark
+    public Map<String, Application> parseApplications(Volume volume) throws IOException {
+        Map<String, Application> parsed = new HashMap<>();
+        try (Reader reader = open(CsvAccessDataSink.APPLICATIONS_FILE)) {
+            CsvFeedParser.parseApplications(reader, format, parsed);
+        }
+        count(volume, CsvAccessDataSink.APPLICATIONS_FILE);
+        return parsed;
+    }
+
+    @Benchmark
+    public Map<String, Entitlement> parseEntitlements(Volume volume) throws IOException {
+        for (Application app : applications.values()) {
+            app.setEntitlements(new ArrayList<Entitlement>());
+        }
+        Map<String, Entitlement> parsed = new HashMap<>();
+        try (Reader reader = open(CsvAccessDataSink.ENTITLEMENTS_FILE)) {
+            CsvFeedParser.parseEntitlements(reader, format, applications, parsed);
+        }
+        count(volume, CsvAccessDataSink.ENTITLEMENTS_FILE);
+        return parsed;
+    }
+
+    @Benchmark
+    public List<Assignment> parseAssignments(Volume volume) throws IOException {
+        List<Assignment> parsed = new ArrayList<>();
+        try (Reader reader = open(CsvAccessDataSink.ASSIGNMENTS_FILE)) {
+            CsvFeedParser.parseAssignments(reader, format, userMap, entitlements, parsed);
+        }
+        count(volume, CsvAccessDataSink.ASSIGNMENTS_FILE);
+        return parsed;
+    }
+
+    private Reader open(String file) throws IOException {
+        Feed feed = feeds.get(file);
+        return CsvFeedParser.reader("multipart".equals(source)
+                ? feed.multipart.getInputStream()
+                : Files.newInputStream(feed.path));
+    }
+
+    private void count(Volume volume, String file) {
+        Feed feed = feeds.get(file);
+        volume.rows += feed.rows;
+        volume.bytes += feed.content.length;
+    }
+
+    private static char separator(String delimiter) {
+        switch (delimiter) {
+            case "comma": return ',';
+            case "semicolon": return ';';
+            case "tab": return '\t';
+            default: throw new IllegalArgumentException("Unknown delimiter: " + delimiter);
+        }
+    }
+}
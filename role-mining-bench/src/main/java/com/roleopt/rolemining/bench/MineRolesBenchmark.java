@@ -0,0 +1,103 @@
+package com.roleopt.rolemining.bench;
+
+import com.roleopt.rolemining.admission.MemoryBudget;
+import com.roleopt.rolemining.ai.RoleGrounder;
+import com.roleopt.rolemining.cache.MiningResultCache;
+import com.roleopt.rolemining.dto.RoleDTO;
+import com.roleopt.rolemining.dto.RoleMiningFilterDTO;
+import com.roleopt.rolemining.metrics.MiningProfileStore;
+import com.roleopt.rolemining.metrics.PipelineMetrics;
+import com.roleopt.rolemining.service.impl.RoleMiningServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link RoleMiningServiceImpl#mineRoles} on a loaded dataset: map build, grouping,
+ * optional similarity merge, threshold and scope filters, role construction.
+ * <p>
+ * The result cache is off (a cache not created by Spring starts disabled), so every invocation
+ * mines from scratch, and AI suggestions are never requested. Likewise the profile store keeps no
+ * runs and samples no dropped groups, and the memory budget admits everything.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class MineRolesBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int users;
+
+    // Zipf exponent of role, entitlement and OU popularity; 0 is uniform
+    @Param({"0.0", "1.1"})
+    public double skew;
+
+    // "none", or "application:<fraction>" / "ou:<fraction>" to scope mining to the busiest share
+    @Param({"none", "application:0.1", "ou:0.1", "application:0.01"})
+    public String filter;
+
+    @Param({"exact", "similarity"})
+    public String algorithm;
+
+    private RoleMiningServiceImpl service;
+    private RoleMiningFilterDTO filters;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticDataset data = SyntheticDataset.generate(users, skew, 42L);
+        service = newService(data);
+        filters = filters(data, filter, algorithm);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public List<RoleDTO> mineRoles() {
+        return service.mineRoles(filters);
+    }
+
+    static RoleMiningServiceImpl newService(SyntheticDataset data) {
+        RoleMiningServiceImpl service = new RoleMiningServiceImpl(null, new MiningResultCache(), new RoleGrounder(),
+                new PipelineMetrics(new SimpleMeterRegistry()), new MiningProfileStore(), new MemoryBudget());
+        service.setDataSources(data.users, data.ous, data.applications, data.entitlements, data.assignments);
+        return service;
+    }
+
+    static RoleMiningFilterDTO filters(SyntheticDataset data, String filter, String algorithm) {
+        RoleMiningFilterDTO filters = new RoleMiningFilterDTO();
+        filters.setUseAi(false);
+        filters.setAlgorithm(algorithm);
+        if (!"none".equals(filter)) {
+            String[] parts = filter.split(":");
+            double fraction = Double.parseDouble(parts[1]);
+            if ("application".equals(parts[0])) {
+                filters.setApplications(SyntheticDataset.firstIds(data.applications, fraction));
+            } else if ("ou".equals(parts[0])) {
+                filters.setOrganizationalUnits(SyntheticDataset.firstIds(data.ous, fraction));
+            } else {
+                throw new IllegalArgumentException("Unknown filter: " + filter);
+            }
+        }
+        return filters;
+    }
+}
@@ -0,0 +1,99 @@
+package com.roleopt.rolemining.bench;
+
+import com.roleopt.rolemining.datagen.AccessDataSink;
+import com.roleopt.rolemining.datagen.DatasetSpec;
+import com.roleopt.rolemining.datagen.SyntheticDataGenerator;
+import com.roleopt.rolemining.model.Application;
+import com.roleopt.rolemining.model.Assignment;
+import com.roleopt.rolemining.model.Entitlement;
+import com.roleopt.rolemining.model.OrganizationalUnit;
+import com.roleopt.rolemining.model.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dataset from {@link SyntheticDataGenerator}, built straight into the model objects the upload
+ * path produces so that benchmarks measure mining rather than CSV parsing.
+ * <p>
+ * Counts other than users are derived from the user count as in {@link DatasetSpec}; entitlement,
+ * role and OU popularity follow a Zipf law with exponent {@code skew}, and low-numbered
+ * applications and OUs are the busiest ones.
+ */
+final class SyntheticDataset implements AccessDataSink {
+
+    final Map<String, User> users = new LinkedHashMap<>();
+    final Map<String, OrganizationalUnit> ous = new LinkedHashMap<>();
+    final Map<String, Application> applications = new LinkedHashMap<>();
+    final Map<String, Entitlement> entitlements = new LinkedHashMap<>();
+    final List<Assignment> assignments = new ArrayList<>();
+
+    // The generator writes each user's assignments right after the user
+    private Assignment current;
+
+    private SyntheticDataset() {
+    }
+
+    static SyntheticDataset generate(int userCount, double skew, long seed) {
+        DatasetSpec spec = DatasetSpec.forUsers(userCount);
+        spec.setSkew(skew);
+        spec.setSeed(seed);
+        SyntheticDataset data = new SyntheticDataset();
+        try {
+            SyntheticDataGenerator.generate(spec, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return data;
+    }
+
+    @Override
+    public void organizationalUnit(String ouId, String name, String description, String parentOuId) {
+        ous.put(ouId, new OrganizationalUnit(ouId, name, description, new ArrayList<User>()));
+    }
+
+    @Override
+    public void application(String applicationId, String name, String description) {
+        applications.put(applicationId, new Application(applicationId, name, description, new ArrayList<Entitlement>()));
+    }
+
+    @Override
+    public void entitlement(String entitlementId, String name, String description, String applicationId) {
+        Application app = applications.get(applicationId);
+        Entitlement entitlement = new Entitlement();
+        entitlement.setEntitlementId(entitlementId);
+        entitlement.setName(name);
+        entitlement.setDescription(description);
+        entitlement.setApplication(app);
+        app.getEntitlements().add(entitlement);
+        entitlements.put(entitlementId, entitlement);
+    }
+
+    @Override
+    public void user(String userId, String firstName, String lastName, String ouId) {
+        OrganizationalUnit ou = ous.get(ouId);
+        User user = new User(userId, lastName, firstName, ou);
+        ou.getUsers().add(user);
+        users.put(userId, user);
+        current = new Assignment((long) assignments.size() + 1, user, new ArrayList<Entitlement>());
+        assignments.add(current);
+    }
+
+    @Override
+    public void assignment(String userId, String entitlementId) {
+        current.getEntitlements().add(entitlements.get(entitlementId));
+    }
+
+    /**
+     * Ids of the first {@code fraction} of applications (or OUs), at least one. These are the most
+     * popular ones, so the filter keeps more than {@code fraction} of the groups under skew.
+     */
+    static List<String> firstIds(Map<String, ?> items, double fraction) {
+        int count = Math.max(1, (int) Math.ceil(items.size() * fraction));
+        return new ArrayList<>(items.keySet()).subList(0, Math.min(count, items.size()));
+    }
+}
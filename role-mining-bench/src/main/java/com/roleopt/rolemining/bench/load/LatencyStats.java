@@ -0,0 +1,86 @@
+package com.roleopt.rolemining.bench.load;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and outcomes of one stream of requests. Every sample is kept, so percentiles are
+ * exact; a run at a few hundred requests per second for some minutes is well within reach.
+ */
+final class LatencyStats {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+    // Requests never sent because too many were already in flight; no latency to record
+    private int dropped;
+    // HTTP status (or "error" / "dropped") to count
+    private final Map<String, Integer> outcomes = new TreeMap<>();
+
+    synchronized void record(long latencyNanos, String outcome, boolean success) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        if (!success) {
+            errors++;
+        }
+        outcomes.merge(outcome, 1, Integer::sum);
+    }
+
+    synchronized void recordDropped() {
+        dropped++;
+        errors++;
+        outcomes.merge("dropped", 1, Integer::sum);
+    }
+
+    synchronized int getRequests() {
+        return count + dropped;
+    }
+
+    synchronized int getErrors() {
+        return errors;
+    }
+
+    /**
+     * Latency at the given percentile in milliseconds, or 0 without samples
+     */
+    synchronized double percentileMs(double percentile) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return percentileMs(sorted, percentile);
+    }
+
+    private static double percentileMs(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    synchronized Map<String, Object> summary(double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        int requests = count + dropped;
+        summary.put("requests", requests);
+        summary.put("requestsPerSecond", round(requests / seconds));
+        summary.put("errors", errors);
+        summary.put("errorRate", requests == 0 ? 0 : round((double) errors / requests));
+        summary.put("outcomes", new TreeMap<>(outcomes));
+        summary.put("meanMs", count == 0 ? 0 : round(Arrays.stream(sorted).average().orElse(0) / 1e6));
+        summary.put("p50Ms", round(percentileMs(sorted, 50)));
+        summary.put("p90Ms", round(percentileMs(sorted, 90)));
+        summary.put("p99Ms", round(percentileMs(sorted, 99)));
+        summary.put("p999Ms", round(percentileMs(sorted, 99.9)));
+        summary.put("maxMs", count == 0 ? 0 : round(sorted[count - 1] / 1e6));
+        return summary;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,372 @@
+package com.roleopt.rolemining.bench.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.roleopt.rolemining.RoleMiningApplication;
+import com.roleopt.rolemining.datagen.CsvAccessDataSink;
+import com.roleopt.rolemining.datagen.DatasetSpec;
+import com.roleopt.rolemining.datagen.GenerationReport;
+import com.roleopt.rolemining.datagen.SyntheticDataGenerator;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Mixed concurrent REST load against one in-process instance of the application, fully offline.
+ * <p>
+ * The harness generates a dataset, boots the application on a random port with the local model
+ * stand-in, uploads the dataset, then sends a weighted mix of requests (mining runs, results,
+ * report, metadata, data summary, re-uploads) at a fixed rate. Requests are scheduled open-loop:
+ * latency counts from when a request was due, not when it was sent, so a stalled server shows up
+ * in the percentiles instead of quietly lowering the rate.
+ * <p>
+ * It reports latency percentiles and error rates per request kind, and every second the request
+ * rate, p50/p99 and heap and GC usage of the JVM (application and harness share it), to the
+ * console and to {@code results/load-<timestamp>.json}.
+ * <pre>
+ * java -cp target/benchmarks.jar com.roleopt.rolemining.bench.load.LoadHarness --rate=50 --duration=120
+ * </pre>
+ */
+public final class LoadHarness {
+
+    private static final String BOUNDARY = "----role-mining-load-harness";
+    private static final String[] UPLOAD_PARTS = {"users", "ou", "applications", "entitlements", "assignments"};
+    private static final String[] UPLOAD_FILES = {CsvAccessDataSink.USERS_FILE, CsvAccessDataSink.OU_FILE,
+            CsvAccessDataSink.APPLICATIONS_FILE, CsvAccessDataSink.ENTITLEMENTS_FILE, CsvAccessDataSink.ASSIGNMENTS_FILE};
+    // Mining filters taken in turn; ids are those of generated datasets
+    private static final String[] RUN_FILTERS = {
+            "",
+            ",\"algorithm\":\"similarity\"",
+            ",\"applications\":[\"APP001\"]",
+            ",\"organizationalUnits\":[\"OU001\",\"OU002\"]",
+            ",\"minUsersPerRole\":5"
+    };
+
+    private final LoadOptions options;
+    private final HttpClient client;
+    private final String baseUrl;
+    private final byte[] uploadBody;
+    private final Map<String, LatencyStats> byKind = new LinkedHashMap<>();
+    private final AtomicReference<LatencyStats> interval = new AtomicReference<>(new LatencyStats());
+    private final Semaphore inFlight;
+    private final String[] kinds;
+    private final int[] cumulativeWeights;
+
+    private LoadHarness(LoadOptions options, String baseUrl, byte[] uploadBody) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        this.uploadBody = uploadBody;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.inFlight = new Semaphore(options.maxInFlight);
+        this.kinds = options.mix.keySet().toArray(new String[0]);
+        this.cumulativeWeights = new int[kinds.length];
+        int total = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            total += options.mix.get(kinds[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+
+        // Step 1: dataset, written once and re-sent by every upload request
+        Path dataDir = Files.createTempDirectory("load-harness");
+        GenerationReport generated = SyntheticDataGenerator.writeCsv(DatasetSpec.forUsers(options.users), dataDir);
+        System.out.println("Generated " + generated);
+        byte[] uploadBody = multipartBody(dataDir);
+
+        // Step 2: the application, on a random port with the local model and no network backends
+        List<String> applicationArgs = new ArrayList<>();
+        applicationArgs.add("--server.port=0");
+        applicationArgs.add("--llm.model.type=local");
+        applicationArgs.add("--ollama.base.url=");
+        applicationArgs.add("--spring.main.banner-mode=off");
+        applicationArgs.add("--spring.jpa.show-sql=false");
+        applicationArgs.add("--logging.level.root=WARN");
+        applicationArgs.add("--logging.level.com.roleopt=WARN");
+        applicationArgs.add("--spring.servlet.multipart.max-file-size=2GB");
+        applicationArgs.add("--spring.servlet.multipart.max-request-size=2GB");
+        // Never read or fill the user's persistent LLM cache; a cached run starts from an empty one
+        applicationArgs.add("--llm.cache.enabled=" + options.llmCache);
+        applicationArgs.add("--llm.cache.dir=" + dataDir.resolve("llm-cache"));
+        applicationArgs.add("--role-mining.cache.enabled=" + options.miningCache);
+        applicationArgs.addAll(options.applicationArgs);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(RoleMiningApplication.class)
+                .run(applicationArgs.toArray(new String[0]));
+        int exitCode = 0;
+        try {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            String contextPath = context.getEnvironment().getProperty("server.servlet.context-path", "");
+            LoadHarness harness = new LoadHarness(options, "http://localhost:" + port + contextPath, uploadBody);
+            exitCode = harness.run();
+        } finally {
+            context.close();
+            deleteDirectory(dataDir);
+        }
+        System.exit(exitCode);
+    }
+
+    private int run() throws Exception {
+        for (String kind : kinds) {
+            request(kind, new SplittableRandom(0));
+            byKind.put(kind, new LatencyStats());
+        }
+
+        // Step 3: initial upload so that mining has data
+        HttpResponse<Void> upload = client.send(request("upload", new SplittableRandom(0)),
+                HttpResponse.BodyHandlers.discarding());
+        if (upload.statusCode() / 100 != 2) {
+            System.err.println("Initial upload failed with HTTP " + upload.statusCode());
+            return 1;
+        }
+
+        // Step 4: warm-up at the target rate, not recorded
+        if (options.warmupSeconds > 0) {
+            System.out.printf("Warming up for %d s at %.1f requests/s%n", options.warmupSeconds, options.rate);
+            drive(options.warmupSeconds, null, new SplittableRandom(1));
+            awaitInFlight();
+        }
+
+        // Step 5: measured run, sampled every second
+        System.out.printf("Measuring for %d s at %.1f requests/s, mix %s%n", options.durationSeconds, options.rate, options.mix);
+        List<Map<String, Object>> timeline = new ArrayList<>();
+        interval.set(new LatencyStats());
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "load-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        sampler.scheduleAtFixedRate(() -> timeline.add(sample(start)), 1, 1, TimeUnit.SECONDS);
+        drive(options.durationSeconds, byKind, new SplittableRandom(2));
+        awaitInFlight();
+        sampler.shutdown();
+        sampler.awaitTermination(5, TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        report(timeline, seconds);
+        return 0;
+    }
+
+    /**
+     * Send requests at the target rate for the given time; records into {@code stats} when not null
+     */
+    private void drive(int seconds, Map<String, LatencyStats> stats, SplittableRandom random) {
+        long period = (long) (1e9 / options.rate);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        for (long i = 0; ; i++) {
+            long due = start + i * period;
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            String kind = pick(random);
+            LatencyStats kindStats = stats == null ? null : stats.get(kind);
+            if (!inFlight.tryAcquire()) {
+                if (kindStats != null) {
+                    kindStats.recordDropped();
+                    interval.get().recordDropped();
+                }
+                continue;
+            }
+            client.sendAsync(request(kind, random), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        inFlight.release();
+                        if (kindStats == null) {
+                            return;
+                        }
+                        long latency = System.nanoTime() - due;
+                        String outcome;
+                        boolean success;
+                        if (error != null) {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause() : error;
+                            outcome = cause instanceof HttpTimeoutException ? "timeout" : cause.getClass().getSimpleName();
+                            success = false;
+                        } else {
+                            outcome = String.valueOf(response.statusCode());
+                            success = response.statusCode() / 100 == 2;
+                        }
+                        kindStats.record(latency, outcome, success);
+                        interval.get().record(latency, outcome, success);
+                    });
+        }
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        if (inFlight.tryAcquire(options.maxInFlight, options.requestTimeoutMs + 5_000, TimeUnit.MILLISECONDS)) {
+            inFlight.release(options.maxInFlight);
+        } else {
+            System.err.println("Some requests were still in flight at the end of the run");
+        }
+    }
+
+    private String pick(SplittableRandom random) {
+        int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < kinds.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return kinds[i];
+            }
+        }
+        return kinds[kinds.length - 1];
+    }
+
+    private HttpRequest request(String kind, SplittableRandom random) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(Duration.ofMillis(options.requestTimeoutMs));
+        switch (kind) {
+            case "run":
+                boolean useAi = random.nextDouble() < options.aiShare;
+                String body = "{\"useAi\":" + useAi + RUN_FILTERS[random.nextInt(RUN_FILTERS.length)] + "}";
+                return builder.uri(uri("/role-mining/run"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+            case "results":
+                return builder.uri(uri("/role-mining/results")).GET().build();
+            case "report":
+                return builder.uri(uri("/role-mining/report")).GET().build();
+            case "metadata":
+                return builder.uri(uri(random.nextBoolean() ? "/metadata/applications" : "/metadata/organizational-units"))
+                        .GET().build();
+            case "summary":
+                return builder.uri(uri("/upload/data-summary")).GET().build();
+            case "upload":
+                return builder.uri(uri("/upload"))
+                        .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(uploadBody))
+                        .build();
+            default:
+                throw new IllegalArgumentException("Unknown request kind in mix: " + kind
+                        + " (known: run, results, report, metadata, summary, upload)");
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private Map<String, Object> sample(long start) {
+        LatencyStats last = interval.getAndSet(new LatencyStats());
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        long gcCount = 0;
+        long gcTimeMs = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcTimeMs += Math.max(0, gc.getCollectionTime());
+        }
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("second", Math.round((System.nanoTime() - start) / 1e9));
+        row.put("requests", last.getRequests());
+        row.put("errors", last.getErrors());
+        row.put("p50Ms", Math.round(last.percentileMs(50) * 10) / 10.0);
+        row.put("p99Ms", Math.round(last.percentileMs(99) * 10) / 10.0);
+        row.put("heapUsedMb", heap.getUsed() >> 20);
+        row.put("heapCommittedMb", heap.getCommitted() >> 20);
+        row.put("gcCount", gcCount);
+        row.put("gcTimeMs", gcTimeMs);
+        return row;
+    }
+
+    private void report(List<Map<String, Object>> timeline, double seconds) throws IOException {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        LatencyStats all = new LatencyStats();
+        System.out.println();
+        System.out.printf("%-10s %9s %8s %8s %9s %9s %9s %9s %9s%n",
+                "kind", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, LatencyStats> entry : byKind.entrySet()) {
+            Map<String, Object> summary = entry.getValue().summary(seconds);
+            endpoints.put(entry.getKey(), summary);
+            System.out.printf("%-10s %9d %8.1f %7.2f%% %9.1f %9.1f %9.1f %9.1f %9.1f%n", entry.getKey(),
+                    summary.get("requests"), summary.get("requestsPerSecond"),
+                    ((Number) summary.get("errorRate")).doubleValue() * 100,
+                    summary.get("p50Ms"), summary.get("p90Ms"), summary.get("p99Ms"), summary.get("p999Ms"),
+                    summary.get("maxMs"));
+        }
+
+        System.out.println();
+        System.out.printf("%6s %9s %7s %8s %8s %10s %9s %8s%n",
+                "second", "requests", "errors", "p50 ms", "p99 ms", "heap MB", "commit MB", "gc ms");
+        int every = Math.max(1, timeline.size() / 20);
+        for (int i = 0; i < timeline.size(); i += every) {
+            Map<String, Object> row = timeline.get(i);
+            System.out.printf("%6d %9d %7d %8.1f %8.1f %10d %9d %8d%n", row.get("second"), row.get("requests"),
+                    row.get("errors"), row.get("p50Ms"), row.get("p99Ms"), row.get("heapUsedMb"),
+                    row.get("heapCommittedMb"), row.get("gcTimeMs"));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("options", options.toMap());
+        result.put("seconds", Math.round(seconds * 10) / 10.0);
+        result.put("endpoints", endpoints);
+        result.put("timeline", timeline);
+        File directory = new File(options.results);
+        directory.mkdirs();
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        File file = new File(directory, "load-" + stamp + ".json");
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, result);
+        System.out.println();
+        System.out.println("Results written to " + file.getPath());
+    }
+
+    private static byte[] multipartBody(Path dataDir) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < UPLOAD_PARTS.length; i++) {
+            String header = "--" + BOUNDARY + "\r\n"
+                    + "Content-Disposition: form-data; name=\"" + UPLOAD_PARTS[i] + "\"; filename=\"" + UPLOAD_FILES[i] + "\"\r\n"
+                    + "Content-Type: text/csv\r\n\r\n";
+            body.write(header.getBytes(StandardCharsets.US_ASCII));
+            body.write(Files.readAllBytes(dataDir.resolve(UPLOAD_FILES[i])));
+            body.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        body.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        // Deepest first, so the LLM cache directory is empty by the time it is deleted
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
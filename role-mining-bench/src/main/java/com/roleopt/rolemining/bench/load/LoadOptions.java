@@ -0,0 +1,103 @@
+package com.roleopt.rolemining.bench.load;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line of {@link LoadHarness}. Options are {@code --name=value}; any other
+ * {@code --property=value} is passed to the application, e.g. {@code --role-mining.memory.admission-enabled=false}.
+ */
+final class LoadOptions {
+
+    static final String DEFAULT_MIX = "run:30,results:20,report:10,metadata:25,summary:10,upload:5";
+
+    // Requests per second, scheduled open-loop whatever the response times
+    double rate = 20;
+    int durationSeconds = 60;
+    int warmupSeconds = 10;
+    int users = 10_000;
+    int maxInFlight = 256;
+    long requestTimeoutMs = 30_000;
+    // Share of mining runs that also request AI suggestions from the local model
+    double aiShare = 0.1;
+    Map<String, Integer> mix = parseMix(DEFAULT_MIX);
+    String results = "results";
+    // The LLM response cache persists across runs, so it is off unless asked for, and then starts empty
+    boolean llmCache;
+    boolean miningCache = true;
+    final List<String> applicationArgs = new ArrayList<>();
+
+    static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            switch (name) {
+                case "rate": options.rate = Double.parseDouble(value); break;
+                case "duration": options.durationSeconds = Integer.parseInt(value); break;
+                case "warmup": options.warmupSeconds = Integer.parseInt(value); break;
+                case "users": options.users = Integer.parseInt(value); break;
+                case "max-in-flight": options.maxInFlight = Integer.parseInt(value); break;
+                case "timeout-ms": options.requestTimeoutMs = Long.parseLong(value); break;
+                case "ai-share": options.aiShare = Double.parseDouble(value); break;
+                case "mix": options.mix = parseMix(value); break;
+                case "results": options.results = value; break;
+                case "llm-cache": options.llmCache = Boolean.parseBoolean(value); break;
+                case "mining-cache": options.miningCache = Boolean.parseBoolean(value); break;
+                default: options.applicationArgs.add(arg);
+            }
+        }
+        for (String arg : options.applicationArgs) {
+            if (arg.startsWith("--llm.cache.") || arg.startsWith("--role-mining.cache.enabled=")) {
+                throw new IllegalArgumentException("Use --llm-cache and --mining-cache instead of " + arg);
+            }
+        }
+        if (options.rate <= 0) {
+            throw new IllegalArgumentException("--rate must be positive");
+        }
+        return options;
+    }
+
+    /**
+     * "run:30,results:20" to request kind and weight
+     */
+    static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Mix entries look like kind:weight, got: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(parts[0].trim(), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The request mix is empty");
+        }
+        return weights;
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("rate", rate);
+        map.put("durationSeconds", durationSeconds);
+        map.put("warmupSeconds", warmupSeconds);
+        map.put("users", users);
+        map.put("maxInFlight", maxInFlight);
+        map.put("requestTimeoutMs", requestTimeoutMs);
+        map.put("aiShare", aiShare);
+        map.put("mix", mix);
+        map.put("llmCache", llmCache);
+        map.put("miningCache", miningCache);
+        map.put("applicationArgs", applicationArgs);
+        return map;
+    }
+}